@@ -0,0 +1,228 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.HORIZONTAL;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.VERTICAL;
+
+// This is shared between the visibility engines, so that each of them agrees on which slopes in
+// XYZ space are blocked by view floors, view ceilings, and segments
+class BlockingSlopesInXYZSpace {
+    private final float Z_ADDEND_BELOW;
+    // The ranges of slopes from the origin which are blocked
+    private final FloatIntervalSet RANGES;
+
+    private final static float HALF_INC = 0.5f;
+    private final static ColumnSlopes COLUMN_SLOPES = ColumnSlopes.fastest();
+
+    BlockingSlopesInXYZSpace(float zAddendBelow) {
+        Z_ADDEND_BELOW = zAddendBelow;
+        RANGES = new FloatIntervalSet();
+    }
+
+    private BlockingSlopesInXYZSpace(BlockingSlopesInXYZSpace toCopy) {
+        Z_ADDEND_BELOW = toCopy.Z_ADDEND_BELOW;
+        RANGES = toCopy.RANGES.copy();
+    }
+
+    BlockingSlopesInXYZSpace copy() {
+        return new BlockingSlopesInXYZSpace(this);
+    }
+
+    void addBlockingTiles(float rayEnterX, float rayEnterY, float rayExitX, float rayExitY,
+                          Coordinate3d origin, Integer floorZ, Integer ceilingZ) {
+        if (floorZ != null || ceilingZ != null) {
+            if (floorZ != null) {
+                var adjFloorZ = floorZ - HALF_INC;
+                addBlockingPlane(rayExitX, rayExitY, rayEnterX, rayEnterY, origin, adjFloorZ);
+            }
+            if (ceilingZ != null) {
+                var adjCeilingZ = ceilingZ - HALF_INC;
+                addBlockingPlane(rayEnterX, rayEnterY, rayExitX, rayExitY, origin, adjCeilingZ);
+            }
+        }
+    }
+
+    private void addBlockingPlane(float upperSlopeX, float upperSlopeY,
+                                  float lowerSlopeX, float lowerSlopeY,
+                                  Coordinate3d origin, float z) {
+        var upperSlope = slope3d(origin, upperSlopeX, upperSlopeY, z);
+        var lowerSlope = slope3d(origin, lowerSlopeX, lowerSlopeY, z);
+        addRange(upperSlope, lowerSlope);
+    }
+
+    void addBlockingSegments(Coordinate3d origin, Collection<WallSegment> segments,
+                             WallSegmentOrientation orientation, Coordinate2d segmentsLoc) {
+        if (segments.isEmpty()) {
+            return;
+        }
+        var blockingZs = new int[segments.size()];
+        var count = 0;
+        for (var segment : segments) {
+            blockingZs[count++] = segment.location().Z;
+        }
+        count = sortDescendingDistinct(blockingZs, count);
+        addBlockingSegmentZs(origin, blockingZs, count, orientation, segmentsLoc.X,
+                segmentsLoc.Y);
+    }
+
+    // The first count Zs must be distinct, and highest first
+    void addBlockingSegmentZs(Coordinate3d origin, int[] blockingZs, int count,
+                              WallSegmentOrientation orientation, int segmentsX, int segmentsY) {
+        if (count == 0) {
+            return;
+        }
+        // this is an adjustment, since segments are half a tile's distance away its center
+        var segmentX = segmentXOnTileGrid(orientation, segmentsX);
+        var segmentY = segmentYOnTileGrid(orientation, segmentsY);
+        var runInXYZSpace = runInXYZSpace(origin.X, segmentX, origin.Y, segmentY);
+
+        var rangeStart = blockingZs[0];
+        var rangeCursor = blockingZs[0];
+        for (var i = 1; i < count; i++) {
+            var z = blockingZs[i];
+            if (z == rangeCursor - 1) {
+                rangeCursor--;
+                continue;
+            }
+            addZRange(origin, rangeStart, rangeCursor, runInXYZSpace);
+            rangeStart = rangeCursor = z;
+        }
+        addZRange(origin, rangeStart, rangeCursor, runInXYZSpace);
+    }
+
+    // Sorts the first count Zs highest first, and removes duplicates; returns how many remain
+    static int sortDescendingDistinct(int[] zs, int count) {
+        Arrays.sort(zs, 0, count);
+        var distinct = 0;
+        for (var i = 0; i < count; i++) {
+            if (distinct == 0 || zs[i] != zs[distinct - 1]) {
+                zs[distinct++] = zs[i];
+            }
+        }
+        for (int low = 0, high = distinct - 1; low < high; low++, high--) {
+            var z = zs[low];
+            zs[low] = zs[high];
+            zs[high] = z;
+        }
+        return distinct;
+    }
+
+    private void addZRange(Coordinate3d origin, int rangeStartZ, int rangeEndZ,
+                           float runInXYZSpace) {
+        // A z coordinate is at the 'center' of its height;
+        var rangeMaxWithHeight = rangeStartZ + HALF_INC;
+        var rangeMinWithHeight = rangeEndZ - HALF_INC;
+        var rangeUpperSlope = slope3d(origin.Z, rangeMaxWithHeight, runInXYZSpace);
+        var rangeLowerSlope = slope3d(origin.Z, rangeMinWithHeight, runInXYZSpace);
+        addRange(rangeUpperSlope, rangeLowerSlope);
+    }
+
+    private void addRange(float upperBound, float lowerBound) {
+        RANGES.add(lowerBound, upperBound);
+    }
+
+    boolean tileIsVisible(Coordinate3d origin, int x, int y, int z) {
+        var slope = slope3d(origin, x, y, viewBottomAdjustedZ(origin.Z, z));
+        return !slopeIsBlocked(slope);
+    }
+
+    // Sets whether the tile at each of the first count Zs in the column at x, y is visible, as
+    // tileIsVisible would for each of them
+    void tilesAreVisible(Coordinate3d origin, int x, int y, int[] zs, int count,
+                         boolean[] visible) {
+        COLUMN_SLOPES.visible(origin.Z, Z_ADDEND_BELOW, runInXYZSpace(origin.X, x, origin.Y, y),
+                zs, count, RANGES, visible);
+    }
+
+    boolean segmentIsVisible(Coordinate3d origin, WallSegmentOrientation orientation,
+                             Coordinate3d segmentLoc) {
+        var slope = slope3d(origin, segmentXOnTileGrid(orientation, segmentLoc.X),
+                segmentYOnTileGrid(orientation, segmentLoc.Y),
+                viewBottomAdjustedZ(origin.Z, segmentLoc.Z));
+        return !slopeIsBlocked(slope);
+    }
+
+    boolean rayIsCompletelyBlocked() {
+        return RANGES.coversEverything();
+    }
+
+    // Rays sharing a path share these slopes, but each blocks slopes of its own besides, where it
+    // passes over a view floor or under a view ceiling; these answer for any of the rays whose own
+    // slopes are the first count deltas (of which there must be at least one), as if each ray's
+    // slopes had all been added to a copy of these
+
+    boolean tileIsVisibleToAny(Coordinate3d origin, int x, int y, int z,
+                               BlockingSlopesInXYZSpace[] deltas, int count) {
+        var slope = slope3d(origin, x, y, viewBottomAdjustedZ(origin.Z, z));
+        return isVisibleToAny(slope, deltas, count);
+    }
+
+    boolean segmentIsVisibleToAny(Coordinate3d origin, WallSegmentOrientation orientation,
+                                  Coordinate3d segmentLoc, BlockingSlopesInXYZSpace[] deltas,
+                                  int count) {
+        var slope = slope3d(origin, segmentXOnTileGrid(orientation, segmentLoc.X),
+                segmentYOnTileGrid(orientation, segmentLoc.Y),
+                viewBottomAdjustedZ(origin.Z, segmentLoc.Z));
+        return isVisibleToAny(slope, deltas, count);
+    }
+
+    boolean rayIsCompletelyBlocked(BlockingSlopesInXYZSpace delta) {
+        return FloatIntervalSet.unionCoversEverything(RANGES, delta.RANGES);
+    }
+
+    private boolean isVisibleToAny(float slope, BlockingSlopesInXYZSpace[] deltas, int count) {
+        if (slopeIsBlocked(slope)) {
+            return false;
+        }
+        for (var i = 0; i < count; i++) {
+            if (!FloatIntervalSet.unionInteriorContains(RANGES, deltas[i].RANGES, slope)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private float viewBottomAdjustedZ(int originZ, float targetZ) {
+        if (targetZ >= originZ) {
+            return targetZ;
+        }
+        else {
+            return Math.min(originZ, targetZ + Z_ADDEND_BELOW);
+        }
+    }
+
+    private static float segmentXOnTileGrid(WallSegmentOrientation orientation, int segmentX) {
+        return segmentX - (orientation != HORIZONTAL ? HALF_INC : 0);
+    }
+
+    private static float segmentYOnTileGrid(WallSegmentOrientation orientation, int segmentY) {
+        return segmentY - (orientation != VERTICAL ? HALF_INC : 0);
+    }
+
+    @SuppressWarnings("BooleanMethodIsAlwaysInverted")
+    private boolean slopeIsBlocked(float slope) {
+        return RANGES.interiorContains(slope);
+    }
+
+    private static float slope3d(Coordinate3d c1, float x2, float y2, float z2) {
+        return slope3d(c1.Z, z2, runInXYZSpace(c1.X, x2, c1.Y, y2));
+    }
+
+    private static float runInXYZSpace(float x1, float x2, float y1, float y2) {
+        var xDist = x2 - x1;
+        var yDist = y2 - y1;
+        return (float) Math.sqrt(Math.pow(xDist, 2) + Math.pow(yDist, 2));
+    }
+
+    private static float slope3d(float z1, float z2, float runInXYZSpace) {
+        var riseInXYZSpace = z2 - z1;
+        return riseInXYZSpace / runInXYZSpace;
+    }
+}
@@ -0,0 +1,124 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.common.valueobjects.Pair;
+import soliloquy.specs.gamestate.entities.Character;
+import soliloquy.specs.gamestate.entities.Tile;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+
+// Culls what a host sends to each client down to what that client's party can see: each turn, the
+// party's union of visibility is diffed against what the client was last sent, and only what
+// entered and left its view is encoded into a VisibilityFrame. Characters are sent by ID and
+// location, and only those standing on visible tiles; a character which stays in view but changes
+// tiles is sent as having moved. The client never learns of anything outside its party's view.
+public class ClientVisibilityCuller {
+    private final TileVisibilityRayTreeCalculationImpl CALCULATION;
+    private final Function<Tile, Collection<Character>> GET_CHARACTERS;
+    private final Function<Character, String> GET_CHARACTER_ID;
+    private final Map<String, ClientState> CLIENTS;
+
+    public ClientVisibilityCuller(TileVisibilityRayTreeCalculationImpl calculation,
+                                  Function<Tile, Collection<Character>> getCharacters,
+                                  Function<Character, String> getCharacterId) {
+        CALCULATION = Check.ifNull(calculation, "calculation");
+        GET_CHARACTERS = Check.ifNull(getCharacters, "getCharacters");
+        GET_CHARACTER_ID = Check.ifNull(getCharacterId, "getCharacterId");
+        CLIENTS = mapOf();
+    }
+
+    // A client's first frame has everything its party sees entering view; a party of no viewers
+    // sees nothing, so everything the client was sent leaves view
+    public byte[] frame(String clientId, List<Pair<Tile, Integer>> party, int turn)
+            throws IllegalArgumentException {
+        Check.ifNullOrEmpty(clientId, "clientId");
+        Check.ifNull(party, "party");
+
+        var current = CALCULATION.atPoints(party).compactUnion();
+        var frame = new VisibilityFrame(turn);
+        Map<String, Coordinate3d> currentCharacters = mapOf();
+        current.forEachTile(tile -> {
+            var characters = GET_CHARACTERS.apply(tile);
+            if (characters != null) {
+                for (var character : characters) {
+                    currentCharacters.put(GET_CHARACTER_ID.apply(character), tile.location());
+                }
+            }
+        });
+
+        var previous = CLIENTS.get(clientId);
+        var previousVisible = previous == null ? null : previous.VISIBLE;
+        var previousCharacters =
+                previous == null ? Map.<String, Coordinate3d>of() : previous.CHARACTERS;
+        current.forEachTile(tile -> {
+            var loc = tile.location();
+            if (previousVisible == null || !previousVisible.containsTile(loc.X, loc.Y, loc.Z)) {
+                frame.enteredTiles().add(loc);
+            }
+        });
+        current.forEachSegment((orientation, loc, segment) -> {
+            if (previousVisible == null ||
+                    !previousVisible.containsSegment(orientation, loc.X, loc.Y, loc.Z)) {
+                frame.enteredSegments().get(orientation).add(loc);
+            }
+        });
+        if (previousVisible != null) {
+            previousVisible.forEachTile(tile -> {
+                var loc = tile.location();
+                if (!current.containsTile(loc.X, loc.Y, loc.Z)) {
+                    frame.leftTiles().add(loc);
+                }
+            });
+            previousVisible.forEachSegment((orientation, loc, segment) -> {
+                if (!current.containsSegment(orientation, loc.X, loc.Y, loc.Z)) {
+                    frame.leftSegments().get(orientation).add(loc);
+                }
+            });
+        }
+        currentCharacters.forEach((characterId, loc) -> {
+            var previousLoc = previousCharacters.get(characterId);
+            if (previousLoc == null) {
+                frame.enteredCharacters().put(characterId, loc);
+            }
+            else if (!previousLoc.equals(loc)) {
+                frame.movedCharacters().put(characterId, loc);
+            }
+        });
+        for (var characterId : previousCharacters.keySet()) {
+            if (!currentCharacters.containsKey(characterId)) {
+                frame.leftCharacters().add(characterId);
+            }
+        }
+
+        CLIENTS.put(clientId, new ClientState(current, currentCharacters));
+        return frame.encode();
+    }
+
+    // The client's next frame has everything its party sees entering view, e.g. after it
+    // reconnects
+    public void disconnect(String clientId) throws IllegalArgumentException {
+        Check.ifNullOrEmpty(clientId, "clientId");
+        CLIENTS.remove(clientId);
+    }
+
+    public int clients() {
+        return CLIENTS.size();
+    }
+
+    private static class ClientState {
+        private final CompactVisibilityResult VISIBLE;
+        private final Map<String, Coordinate3d> CHARACTERS;
+
+        private ClientState(CompactVisibilityResult visible,
+                            Map<String, Coordinate3d> characters) {
+            VISIBLE = visible;
+            CHARACTERS = characters;
+        }
+    }
+}
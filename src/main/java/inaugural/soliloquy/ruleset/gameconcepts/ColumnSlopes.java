@@ -0,0 +1,28 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+// Tests every tile Z in a column against the blocked slopes at once. Every tile in a column shares
+// the same run from the origin, so only the rise differs between them, which lends itself to
+// SIMD; the vectorized implementation is used where jdk.incubator.vector is present, and the
+// scalar one everywhere else.
+interface ColumnSlopes {
+    // Sets whether the tile at each of the first count Zs is visible, i.e. whether its slope from
+    // the origin (with Zs below the origin raised by zAddendBelow, up to the origin's Z) lies
+    // outside of the interior of every blocked range
+    void visible(int originZ, float zAddendBelow, float run, int[] zs, int count,
+                 FloatIntervalSet blocked, boolean[] visible);
+
+    static ColumnSlopes fastest() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            // This is loaded by name from its own source set, so that nothing else is compiled or
+            // linked against the incubator module
+            try {
+                return (ColumnSlopes) Class.forName(
+                                "inaugural.soliloquy.ruleset.gameconcepts.VectorColumnSlopes")
+                        .getDeclaredConstructor().newInstance();
+            }
+            catch (ReflectiveOperationException | LinkageError ignored) {
+            }
+        }
+        return new ScalarColumnSlopes();
+    }
+}
@@ -0,0 +1,89 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Finds which tiles in a column are visible in one pass over their Zs, rather than one tile at a
+// time, reusing its buffers from column to column; so it's meant to be held by a single
+// calculation, and it's not thread-safe.
+final class ColumnTileVisibility {
+    private Tile[] tiles;
+    private int[] zs;
+    private boolean[] visible;
+
+    ColumnTileVisibility() {
+        tiles = new Tile[8];
+        zs = new int[8];
+        visible = new boolean[8];
+    }
+
+    // Every tile must be in the same column; each tile which is visible, and lies within the view
+    // floor and ceiling (either of which may be null), is visited. Returns false if the visitor
+    // stopped.
+    boolean visitVisible(BlockingSlopesInXYZSpace blockingSlopes, Coordinate3d origin,
+                         Collection<Tile> columnTiles, Integer floor, Integer ceiling,
+                         VisibilityVisitor visitor) {
+        var count = test(blockingSlopes, origin, columnTiles, floor, ceiling);
+        var continuing = visitTested(blockingSlopes, null, 0, origin, count, visitor);
+        clear(count);
+        return continuing;
+    }
+
+    // Tests each of the column's tiles against the shared slopes all at once, and against the
+    // view floor and ceiling, so that only the tiles left visible need testing against rays' own
+    // slopes; they're then visited (as often as needed) by visitTested, and let go of by clear.
+    // Returns how many tiles the column has.
+    int test(BlockingSlopesInXYZSpace blockingSlopes, Coordinate3d origin,
+             Collection<Tile> columnTiles, Integer floor, Integer ceiling) {
+        var count = columnTiles.size();
+        if (count == 0) {
+            return 0;
+        }
+        if (count > tiles.length) {
+            var length = Math.max(count, tiles.length * 2);
+            tiles = new Tile[length];
+            zs = new int[length];
+            visible = new boolean[length];
+        }
+        var i = 0;
+        for (var tile : columnTiles) {
+            tiles[i] = tile;
+            zs[i++] = tile.location().Z;
+        }
+        var columnLoc = tiles[0].location();
+        blockingSlopes.tilesAreVisible(origin, columnLoc.X, columnLoc.Y, zs, count, visible);
+        for (i = 0; i < count; i++) {
+            var z = zs[i];
+            visible[i] &= (floor == null || z >= floor) && (ceiling == null || z < ceiling);
+        }
+        return count;
+    }
+
+    // Visits the tiles tested visible for rays sharing the blocked slopes, which each block the
+    // slopes of one of the first deltaCount deltas besides (see
+    // BlockingSlopesInXYZSpace.tileIsVisibleToAny), if any of them see it. Returns false if the
+    // visitor stopped.
+    boolean visitTested(BlockingSlopesInXYZSpace blockingSlopes,
+                        BlockingSlopesInXYZSpace[] deltas, int deltaCount, Coordinate3d origin,
+                        int count, VisibilityVisitor visitor) {
+        if (count == 0) {
+            return true;
+        }
+        var columnLoc = tiles[0].location();
+        for (var i = 0; i < count; i++) {
+            if (visible[i] && (deltaCount == 0 ||
+                    blockingSlopes.tileIsVisibleToAny(origin, columnLoc.X, columnLoc.Y, zs[i],
+                            deltas, deltaCount)) && !visitor.visitTile(tiles[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear(int count) {
+        Arrays.fill(tiles, 0, count, null);
+    }
+}
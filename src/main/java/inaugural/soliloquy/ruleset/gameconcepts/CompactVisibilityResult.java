@@ -0,0 +1,272 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+// A Result which stores its tiles and segments under longs packing their location relative to an
+// origin (16 bits each for X and Y, and 32 bits for Z), in primitive maps, so that building and
+// merging Results allocates no Coordinate3ds or hash nodes. The Map views required by Result are
+// only built when first asked for; after that, additions are written to both, but changes made
+// directly to the views are not reflected in the primitive queries.
+//
+// (Locations more than 32767 tiles from the origin in X or Y don't fit the packing; they're kept
+// in ordinary maps instead, which visibility radii should never require.)
+public class CompactVisibilityResult
+        implements TileVisibilityCalculation.Result, VisibilityVisitor {
+    private final static int OFFSET_BITS = 16;
+    private final static int MIN_OFFSET = -(1 << (OFFSET_BITS - 1));
+    private final static int MAX_OFFSET = (1 << (OFFSET_BITS - 1)) - 1;
+    private final static WallSegmentOrientation[] ORIENTATIONS =
+            new WallSegmentOrientation[]{HORIZONTAL, CORNER, VERTICAL};
+
+    private final int ORIGIN_X;
+    private final int ORIGIN_Y;
+    private final LongObjectMap<Tile> TILES;
+    private final LongObjectMap<WallSegment>[] SEGMENTS;
+
+    private Map<Coordinate3d, Tile> overflowTiles;
+    private Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> overflowSegments;
+    private Map<Coordinate3d, Tile> tilesView;
+    private Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segmentsView;
+
+    @SuppressWarnings("unchecked")
+    public CompactVisibilityResult(Coordinate3d origin) {
+        ORIGIN_X = origin.X;
+        ORIGIN_Y = origin.Y;
+        TILES = new LongObjectMap<>();
+        SEGMENTS = new LongObjectMap[ORIENTATIONS.length];
+        for (var i = 0; i < ORIENTATIONS.length; i++) {
+            SEGMENTS[i] = new LongObjectMap<>();
+        }
+    }
+
+    public void addTile(Tile tile) {
+        addTile(tile.location(), tile);
+    }
+
+    // As with a Result's tiles(), the tile is kept under the location given, whatever its own
+    public void addTile(Coordinate3d loc, Tile tile) {
+        if (fits(loc.X, loc.Y)) {
+            TILES.put(pack(loc.X, loc.Y, loc.Z), tile);
+        }
+        else {
+            if (overflowTiles == null) {
+                overflowTiles = mapOf();
+            }
+            overflowTiles.put(loc, tile);
+        }
+        if (tilesView != null) {
+            tilesView.put(loc, tile);
+        }
+    }
+
+    public void addSegment(WallSegmentOrientation orientation, Coordinate3d loc,
+                           WallSegment segment) {
+        if (fits(loc.X, loc.Y)) {
+            SEGMENTS[index(orientation)].put(pack(loc.X, loc.Y, loc.Z), segment);
+        }
+        else {
+            overflowSegments().get(orientation).put(loc, segment);
+        }
+        if (segmentsView != null) {
+            segmentsView.get(orientation).put(loc, segment);
+        }
+    }
+
+    // Returns whether the tile was added, i.e. whether none was present at the location
+    boolean addTileIfAbsent(Coordinate3d loc, Tile tile) {
+        if (containsTile(loc.X, loc.Y, loc.Z)) {
+            return false;
+        }
+        addTile(loc, tile);
+        return true;
+    }
+
+    // Returns whether the segment was added, i.e. whether none of its orientation was present at
+    // its location
+    boolean addSegmentIfAbsent(WallSegmentOrientation orientation, Coordinate3d loc,
+                               WallSegment segment) {
+        if (containsSegment(orientation, loc.X, loc.Y, loc.Z)) {
+            return false;
+        }
+        addSegment(orientation, loc, segment);
+        return true;
+    }
+
+    // As a VisibilityVisitor, this adds everything visited, and never stops the calculation
+    @Override
+    public boolean visitTile(Tile tile) {
+        addTile(tile);
+        return true;
+    }
+
+    @Override
+    public boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                                WallSegment segment) {
+        addSegment(orientation, location, segment);
+        return true;
+    }
+
+    // Merging another CompactVisibilityResult around the same origin copies its primitive maps
+    // directly; any other Result is merged entry by entry. As with Map.putAll, entries of the
+    // Result being added replace those already present.
+    public void addAll(TileVisibilityCalculation.Result result) {
+        if (result instanceof CompactVisibilityResult compact) {
+            if (tilesView == null && segmentsView == null && compact.ORIGIN_X == ORIGIN_X &&
+                    compact.ORIGIN_Y == ORIGIN_Y) {
+                TILES.putAll(compact.TILES);
+                for (var i = 0; i < ORIENTATIONS.length; i++) {
+                    SEGMENTS[i].putAll(compact.SEGMENTS[i]);
+                }
+            }
+            else {
+                // From another origin, everything is repacked, but the other Result's views still
+                // needn't be built
+                compact.TILES.forEach((key, tile) -> addTile(compact.unpack(key), tile));
+                for (var orientation : ORIENTATIONS) {
+                    compact.SEGMENTS[index(orientation)].forEach((key, segment) ->
+                            addSegment(orientation, compact.unpack(key), segment));
+                }
+            }
+            if (compact.overflowTiles != null) {
+                compact.overflowTiles.forEach(this::addTile);
+            }
+            if (compact.overflowSegments != null) {
+                compact.overflowSegments.forEach((orientation, segments) ->
+                        segments.forEach((loc, segment) -> addSegment(orientation, loc, segment)));
+            }
+            return;
+        }
+        result.tiles().forEach(this::addTile);
+        result.segments().forEach((orientation, segments) ->
+                segments.forEach((loc, segment) -> addSegment(orientation, loc, segment)));
+    }
+
+    public boolean containsTile(int x, int y, int z) {
+        if (fits(x, y)) {
+            return TILES.containsKey(pack(x, y, z));
+        }
+        return overflowTiles != null && overflowTiles.containsKey(coordinate3dOf(x, y, z));
+    }
+
+    public int tileCount() {
+        return TILES.size() + (overflowTiles == null ? 0 : overflowTiles.size());
+    }
+
+    public void forEachTile(Consumer<Tile> consumer) {
+        TILES.forEach((key, tile) -> consumer.accept(tile));
+        if (overflowTiles != null) {
+            overflowTiles.values().forEach(consumer);
+        }
+    }
+
+    public boolean containsSegment(WallSegmentOrientation orientation, int x, int y, int z) {
+        if (fits(x, y)) {
+            return SEGMENTS[index(orientation)].containsKey(pack(x, y, z));
+        }
+        return overflowSegments != null &&
+                overflowSegments.get(orientation).containsKey(coordinate3dOf(x, y, z));
+    }
+
+    public int segmentCount() {
+        var count = 0;
+        for (var segments : SEGMENTS) {
+            count += segments.size();
+        }
+        if (overflowSegments != null) {
+            for (var segments : overflowSegments.values()) {
+                count += segments.size();
+            }
+        }
+        return count;
+    }
+
+    public void forEachSegment(SegmentConsumer consumer) {
+        for (var orientation : ORIENTATIONS) {
+            SEGMENTS[index(orientation)].forEach((key, segment) ->
+                    consumer.accept(orientation, unpack(key), segment));
+        }
+        if (overflowSegments != null) {
+            overflowSegments.forEach((orientation, segments) ->
+                    segments.forEach((loc, segment) -> consumer.accept(orientation, loc, segment)));
+        }
+    }
+
+    public interface SegmentConsumer {
+        void accept(WallSegmentOrientation orientation, Coordinate3d location, WallSegment segment);
+    }
+
+    @Override
+    public Map<Coordinate3d, Tile> tiles() {
+        if (tilesView == null) {
+            tilesView = mapOf();
+            TILES.forEach((key, tile) -> tilesView.put(unpack(key), tile));
+            if (overflowTiles != null) {
+                tilesView.putAll(overflowTiles);
+            }
+        }
+        return tilesView;
+    }
+
+    @Override
+    public Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments() {
+        if (segmentsView == null) {
+            segmentsView = mapOf();
+            for (var i = 0; i < ORIENTATIONS.length; i++) {
+                Map<Coordinate3d, WallSegment> segments = mapOf();
+                SEGMENTS[i].forEach((key, segment) -> segments.put(unpack(key), segment));
+                if (overflowSegments != null) {
+                    segments.putAll(overflowSegments.get(ORIENTATIONS[i]));
+                }
+                segmentsView.put(ORIENTATIONS[i], segments);
+            }
+        }
+        return segmentsView;
+    }
+
+    private boolean fits(int x, int y) {
+        var offsetX = (long) x - ORIGIN_X;
+        var offsetY = (long) y - ORIGIN_Y;
+        return offsetX >= MIN_OFFSET && offsetX <= MAX_OFFSET &&
+                offsetY >= MIN_OFFSET && offsetY <= MAX_OFFSET;
+    }
+
+    private long pack(int x, int y, int z) {
+        return (((long) (x - ORIGIN_X) & 0xFFFFL) << 48) |
+                (((long) (y - ORIGIN_Y) & 0xFFFFL) << 32) |
+                ((long) z & 0xFFFFFFFFL);
+    }
+
+    private Coordinate3d unpack(long key) {
+        return coordinate3dOf(ORIGIN_X + (short) (key >>> 48), ORIGIN_Y + (short) (key >>> 32),
+                (int) key);
+    }
+
+    private Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> overflowSegments() {
+        if (overflowSegments == null) {
+            overflowSegments = mapOf();
+            for (var orientation : ORIENTATIONS) {
+                overflowSegments.put(orientation, mapOf());
+            }
+        }
+        return overflowSegments;
+    }
+
+    private static int index(WallSegmentOrientation orientation) {
+        return switch (orientation) {
+            case HORIZONTAL -> 0;
+            case CORNER -> 1;
+            case VERTICAL -> 2;
+        };
+    }
+}
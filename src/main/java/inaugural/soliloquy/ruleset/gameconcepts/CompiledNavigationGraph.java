@@ -0,0 +1,328 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.shared.Direction;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+// The steps a TileNavigability allows a character of one height to take in the current GameZone,
+// compiled into flat arrays: each location reached is a node, numbered in the order it was found,
+// and each node's steps are a run of edges (compressed sparse rows), each edge holding the node
+// stepped to, what the step costs, and its direction. Searches can then walk ints instead of
+// asking the GameZone about tiles, segments, and fixtures at every step.
+//
+// A node's edges are compiled the first time they're asked for, or up front by compile(). Whatever
+// changes a tile, a segment, or a tile's fixtures should be reported, after which the edges of the
+// nodes around it are compiled again when next asked for; and the graph is discarded whenever the
+// GameZone changes. Since TileNavigability's steps depend on the character's height, a graph only
+// answers for the exact height it's compiled at, and passes any other height on to its
+// TileNavigability; so there should be one graph per character height searched for. It isn't
+// thread-safe.
+public class CompiledNavigationGraph implements TileNavigability {
+    private final static Direction[] DIRECTIONS = Direction.values();
+    // The edges of a node which hasn't been compiled (or has changed since) start here
+    private final static int UNCOMPILED = -1;
+    // Edges orphaned by changes aren't compacted away until there are at least this many
+    private final static int MIN_GARBAGE_TO_COMPACT = 1024;
+
+    private final TileNavigability NAVIGABILITY;
+    private final Supplier<GameZone> GET_GAME_ZONE;
+    private final int CHAR_HEIGHT;
+    // The nodes in each column
+    private final LongObjectMap<int[]> COLUMNS;
+
+    private GameZone gameZone;
+    private Coordinate3d[] locations;
+    private int[] edgeStarts;
+    private byte[] edgeCounts;
+    private int nodeCount;
+    private int[] edgeTargets;
+    private int[] edgeCosts;
+    private byte[] edgeDirections;
+    // How much of the edge arrays is used, including garbage
+    private int edgeCount;
+    private int garbage;
+    // Counts how many times the graph has been discarded, so that whatever's kept node numbers
+    // can tell when they've gone stale
+    private int generation;
+
+    public CompiledNavigationGraph(TileNavigability navigability, Supplier<GameZone> getGameZone,
+                                   int charHeight) {
+        NAVIGABILITY = Check.ifNull(navigability, "navigability");
+        GET_GAME_ZONE = Check.ifNull(getGameZone, "getGameZone");
+        Check.throwOnLteZero(charHeight, "charHeight");
+        CHAR_HEIGHT = charHeight;
+        COLUMNS = new LongObjectMap<>();
+        clear();
+    }
+
+    // Steps taken at the graph's character height are answered from the graph; any other height
+    // is passed on to the TileNavigability
+    @Override
+    public Navigability calculate(Coordinate3d origin, Direction direction, int charHeight)
+            throws IllegalArgumentException {
+        Check.ifNull(origin, "origin");
+        Check.ifNull(direction, "direction");
+        Check.throwOnLteZero(charHeight, "charHeight");
+
+        if (charHeight != CHAR_HEIGHT) {
+            return NAVIGABILITY.calculate(origin, direction, charHeight);
+        }
+        var node = node(origin);
+        var end = edgesEnd(node);
+        for (var edge = firstEdge(node); edge < end; edge++) {
+            if (edgeDirections[edge] == direction.ordinal()) {
+                var destination = locations[edgeTargets[edge]];
+                var cost = edgeCosts[edge];
+                return new Navigability() {
+                    @Override
+                    public Coordinate3d destination() {
+                        return destination;
+                    }
+
+                    @Override
+                    public int cost() {
+                        return cost;
+                    }
+                };
+            }
+        }
+        return null;
+    }
+
+    // Compiles every node reachable from the origins (and from any node already found), and lays
+    // out their edges in node order
+    public void compile(Collection<Coordinate3d> origins) throws IllegalArgumentException {
+        Check.ifNull(origins, "origins");
+
+        refresh();
+        for (var origin : origins) {
+            node(Check.ifNull(origin, "origin"));
+        }
+        // Compiling a node adds the nodes it steps to, so this runs until nothing new is found
+        for (var node = 0; node < nodeCount; node++) {
+            firstEdge(node);
+        }
+        compact();
+    }
+
+    // Reports that a tile has been added, removed, or had its ground type changed
+    public void tileChanged(Tile tile) throws IllegalArgumentException {
+        Check.ifNull(tile, "tile");
+        columnChanged(tile.location().X, tile.location().Y);
+    }
+
+    public void fixturesChanged(Tile tile) throws IllegalArgumentException {
+        Check.ifNull(tile, "tile");
+        columnChanged(tile.location().X, tile.location().Y);
+    }
+
+    public void segmentChanged(WallSegmentOrientation orientation, Coordinate3d location)
+            throws IllegalArgumentException {
+        Check.ifNull(orientation, "orientation");
+        Check.ifNull(location, "location");
+        // Every column from which a segment at this location can be crossed is beside it
+        columnChanged(location.X, location.Y);
+    }
+
+    public void invalidate() {
+        clear();
+    }
+
+    // The node at a location, added if it's not in the graph yet. Node numbers stay the same until
+    // the GameZone changes.
+    int node(Coordinate3d location) {
+        refresh();
+        return nodeAt(location);
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    // The nodes found so far in a column, or null if there are none; the array mustn't be changed
+    int[] nodesInColumn(int x, int y) {
+        return COLUMNS.get(LongObjectMap.key(x, y));
+    }
+
+    Coordinate3d location(int node) {
+        return locations[node];
+    }
+
+    // The first of the node's edges, compiling them if need be. Compiling one node's edges never
+    // moves other nodes' edges, but compile() and reported changes may compact the edges into new
+    // places, so edge numbers only stay good until either is next called.
+    int firstEdge(int node) {
+        if (edgeStarts[node] == UNCOMPILED) {
+            compileEdges(node);
+        }
+        return edgeStarts[node];
+    }
+
+    // One past the last of the node's edges
+    int edgesEnd(int node) {
+        return firstEdge(node) + edgeCounts[node];
+    }
+
+    int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    int edgeCost(int edge) {
+        return edgeCosts[edge];
+    }
+
+    Direction edgeDirection(int edge) {
+        return DIRECTIONS[edgeDirections[edge]];
+    }
+
+    // How many edges are live, not counting garbage
+    int liveEdgeCount() {
+        return edgeCount - garbage;
+    }
+
+    int charHeight() {
+        return CHAR_HEIGHT;
+    }
+
+    int generation() {
+        return generation;
+    }
+
+    private int nodeAt(Coordinate3d location) {
+        var key = LongObjectMap.key(location.X, location.Y);
+        var column = COLUMNS.get(key);
+        if (column != null) {
+            for (var node : column) {
+                if (locations[node].Z == location.Z) {
+                    return node;
+                }
+            }
+        }
+        if (nodeCount == locations.length) {
+            locations = Arrays.copyOf(locations, nodeCount * 2);
+            edgeStarts = Arrays.copyOf(edgeStarts, nodeCount * 2);
+            edgeCounts = Arrays.copyOf(edgeCounts, nodeCount * 2);
+        }
+        var node = nodeCount++;
+        locations[node] = location;
+        edgeStarts[node] = UNCOMPILED;
+        if (column == null) {
+            column = new int[]{node};
+        }
+        else {
+            column = Arrays.copyOf(column, column.length + 1);
+            column[column.length - 1] = node;
+        }
+        COLUMNS.put(key, column);
+        return node;
+    }
+
+    private void compileEdges(int node) {
+        if (edgeCount + DIRECTIONS.length > edgeTargets.length) {
+            var capacity = Math.max(edgeTargets.length * 2, edgeCount + DIRECTIONS.length);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeCosts = Arrays.copyOf(edgeCosts, capacity);
+            edgeDirections = Arrays.copyOf(edgeDirections, capacity);
+        }
+        var start = edgeCount;
+        for (var direction : DIRECTIONS) {
+            var navigability = NAVIGABILITY.calculate(locations[node], direction, CHAR_HEIGHT);
+            if (navigability == null) {
+                continue;
+            }
+            // Adding the node stepped to may grow the node arrays, but not the edge arrays
+            edgeTargets[edgeCount] = nodeAt(navigability.destination());
+            edgeCosts[edgeCount] = navigability.cost();
+            edgeDirections[edgeCount] = (byte) direction.ordinal();
+            edgeCount++;
+        }
+        edgeStarts[node] = start;
+        edgeCounts[node] = (byte) (edgeCount - start);
+    }
+
+    // The nodes in the column and those around it step into the column, or across segments
+    // bordering it, so their edges are orphaned, to be compiled again when next asked for
+    private void columnChanged(int x, int y) {
+        if (refresh()) {
+            return;
+        }
+        for (var columnX = x - 1; columnX <= x + 1; columnX++) {
+            for (var columnY = y - 1; columnY <= y + 1; columnY++) {
+                var column = COLUMNS.get(LongObjectMap.key(columnX, columnY));
+                if (column == null) {
+                    continue;
+                }
+                for (var node : column) {
+                    if (edgeStarts[node] != UNCOMPILED) {
+                        garbage += edgeCounts[node];
+                        edgeStarts[node] = UNCOMPILED;
+                        edgeCounts[node] = 0;
+                    }
+                }
+            }
+        }
+        if (garbage >= MIN_GARBAGE_TO_COMPACT && garbage * 2 > edgeCount) {
+            compact();
+        }
+    }
+
+    // Copies the live edges into new arrays in node order, leaving the garbage behind
+    private void compact() {
+        var live = liveEdgeCount();
+        var targets = new int[Math.max(live, DIRECTIONS.length)];
+        var costs = new int[targets.length];
+        var directions = new byte[targets.length];
+        var count = 0;
+        for (var node = 0; node < nodeCount; node++) {
+            var start = edgeStarts[node];
+            if (start == UNCOMPILED) {
+                continue;
+            }
+            System.arraycopy(edgeTargets, start, targets, count, edgeCounts[node]);
+            System.arraycopy(edgeCosts, start, costs, count, edgeCounts[node]);
+            System.arraycopy(edgeDirections, start, directions, count, edgeCounts[node]);
+            edgeStarts[node] = count;
+            count += edgeCounts[node];
+        }
+        edgeTargets = targets;
+        edgeCosts = costs;
+        edgeDirections = directions;
+        edgeCount = count;
+        garbage = 0;
+    }
+
+    // Returns true if the GameZone has changed since the graph was compiled, in which case the
+    // graph has been discarded
+    private boolean refresh() {
+        var currentGameZone = GET_GAME_ZONE.get();
+        if (currentGameZone != gameZone) {
+            clear();
+            gameZone = currentGameZone;
+            return true;
+        }
+        return false;
+    }
+
+    private void clear() {
+        generation++;
+        gameZone = null;
+        COLUMNS.clear();
+        locations = new Coordinate3d[64];
+        edgeStarts = new int[64];
+        edgeCounts = new byte[64];
+        nodeCount = 0;
+        edgeTargets = new int[64 * DIRECTIONS.length];
+        edgeCosts = new int[edgeTargets.length];
+        edgeDirections = new byte[edgeTargets.length];
+        edgeCount = 0;
+        garbage = 0;
+    }
+}
@@ -0,0 +1,47 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+// Passes each tile and segment on to the visitor only the first time it's visited, since rays
+// (and so calculations) overlap; once the visitor stops, nothing more is passed on.
+final class DeduplicatingVisitor implements VisibilityVisitor {
+    private final VisibilityVisitor VISITOR;
+    // Only used for its primitive maps of what's been visited, never as a Result
+    private final CompactVisibilityResult VISITED;
+
+    private boolean stopped;
+
+    DeduplicatingVisitor(Coordinate3d origin, VisibilityVisitor visitor) {
+        VISITOR = visitor;
+        VISITED = new CompactVisibilityResult(origin);
+    }
+
+    @Override
+    public boolean visitTile(Tile tile) {
+        return visitTile(tile.location(), tile);
+    }
+
+    // For tiles taken from a Result, which are told apart by their keys there, as atPoint would
+    boolean visitTile(Coordinate3d location, Tile tile) {
+        if (!stopped && VISITED.addTileIfAbsent(location, tile)) {
+            stopped = !VISITOR.visitTile(tile);
+        }
+        return !stopped;
+    }
+
+    @Override
+    public boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                                WallSegment segment) {
+        if (!stopped && VISITED.addSegmentIfAbsent(orientation, location, segment)) {
+            stopped = !VISITOR.visitSegment(orientation, location, segment);
+        }
+        return !stopped;
+    }
+
+    boolean stopped() {
+        return stopped;
+    }
+}
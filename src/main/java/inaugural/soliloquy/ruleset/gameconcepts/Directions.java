@@ -0,0 +1,21 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.shared.Direction;
+
+class Directions {
+    static int offsetX(Direction direction) {
+        return switch (direction) {
+            case NORTHEAST, EAST, SOUTHEAST -> 1;
+            case SOUTHWEST, WEST, NORTHWEST -> -1;
+            case NORTH, SOUTH -> 0;
+        };
+    }
+
+    static int offsetY(Direction direction) {
+        return switch (direction) {
+            case SOUTHEAST, SOUTH, SOUTHWEST -> 1;
+            case NORTHEAST, NORTH, NORTHWEST -> -1;
+            case EAST, WEST -> 0;
+        };
+    }
+}
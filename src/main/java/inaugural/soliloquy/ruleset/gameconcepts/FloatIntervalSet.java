@@ -0,0 +1,185 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import java.util.Arrays;
+
+// A set of closed float intervals, kept sorted and disjoint in primitive arrays: an interval
+// overlapping or touching those already present is merged with them as it's added, so queries
+// are a binary search over intervals which never overlap
+final class FloatIntervalSet {
+    private float[] lows;
+    private float[] highs;
+    private int size;
+
+    FloatIntervalSet() {
+        lows = new float[4];
+        highs = new float[4];
+    }
+
+    private FloatIntervalSet(FloatIntervalSet toCopy) {
+        lows = Arrays.copyOf(toCopy.lows, Math.max(toCopy.size, 4));
+        highs = Arrays.copyOf(toCopy.highs, Math.max(toCopy.size, 4));
+        size = toCopy.size;
+    }
+
+    FloatIntervalSet copy() {
+        return new FloatIntervalSet(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    float low(int index) {
+        return lows[index];
+    }
+
+    float high(int index) {
+        return highs[index];
+    }
+
+    // Intervals with no interior (or NaN bounds) can never contain a value in their interior,
+    // so they're ignored
+    void add(float low, float high) {
+        if (!(low < high)) {
+            return;
+        }
+        // The first interval which ends at or after this one starts...
+        var first = firstHighAtLeast(low);
+        // ...and the last interval which starts at or before this one ends
+        var last = lastLowAtMost(high);
+        if (first > last) {
+            insert(first, low, high);
+            return;
+        }
+        lows[first] = Math.min(low, lows[first]);
+        highs[first] = Math.max(high, highs[last]);
+        var removed = last - first;
+        if (removed > 0) {
+            System.arraycopy(lows, last + 1, lows, first + 1, size - last - 1);
+            System.arraycopy(highs, last + 1, highs, first + 1, size - last - 1);
+            size -= removed;
+        }
+    }
+
+    // Whether the value lies strictly within one of the intervals
+    boolean interiorContains(float value) {
+        if (Float.isNaN(value)) {
+            return false;
+        }
+        // The last interval starting below the value is the only one which could contain it
+        var candidate = lastLowBelow(value);
+        return candidate >= 0 && value < highs[candidate];
+    }
+
+    boolean coversEverything() {
+        return size == 1 && lows[0] == Float.NEGATIVE_INFINITY &&
+                highs[0] == Float.POSITIVE_INFINITY;
+    }
+
+    // Whether the value lies strictly within the union of both sets, as it would within a set
+    // with both sets' intervals added, without building one: the values just below and just
+    // above it must each be covered by an interval of either set
+    static boolean unionInteriorContains(FloatIntervalSet a, FloatIntervalSet b, float value) {
+        if (Float.isNaN(value)) {
+            return false;
+        }
+        return (a.coversJustBelow(value) || b.coversJustBelow(value)) &&
+                (a.coversJustAbove(value) || b.coversJustAbove(value));
+    }
+
+    // Whether the union of both sets covers everything, as coversEverything would for a set with
+    // both sets' intervals added; their intervals are walked together in order of their lows, as
+    // long as they reach on from negative infinity unbroken
+    static boolean unionCoversEverything(FloatIntervalSet a, FloatIntervalSet b) {
+        var reach = Float.NEGATIVE_INFINITY;
+        var i = 0;
+        var j = 0;
+        while (i < a.size || j < b.size) {
+            float low;
+            float high;
+            if (j == b.size || (i < a.size && a.lows[i] <= b.lows[j])) {
+                low = a.lows[i];
+                high = a.highs[i++];
+            }
+            else {
+                low = b.lows[j];
+                high = b.highs[j++];
+            }
+            if (low > reach) {
+                return false;
+            }
+            reach = Math.max(reach, high);
+            if (reach == Float.POSITIVE_INFINITY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean coversJustBelow(float value) {
+        var candidate = lastLowBelow(value);
+        return candidate >= 0 && value <= highs[candidate];
+    }
+
+    private boolean coversJustAbove(float value) {
+        var candidate = lastLowAtMost(value);
+        return candidate >= 0 && value < highs[candidate];
+    }
+
+    private int lastLowBelow(float value) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (lows[mid] < value) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    private int firstHighAtLeast(float value) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (highs[mid] < value) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lastLowAtMost(float value) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (lows[mid] <= value) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    private void insert(int index, float low, float high) {
+        if (size == lows.length) {
+            lows = Arrays.copyOf(lows, size * 2);
+            highs = Arrays.copyOf(highs, size * 2);
+        }
+        System.arraycopy(lows, index, lows, index + 1, size - index);
+        System.arraycopy(highs, index, highs, index + 1, size - index);
+        lows[index] = low;
+        highs[index] = high;
+        size++;
+    }
+}
@@ -0,0 +1,531 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.ruleset.gameconcepts.TilePathfinder.Node;
+import inaugural.soliloquy.ruleset.gameconcepts.TilePathfinder.Nodes;
+import inaugural.soliloquy.ruleset.gameconcepts.TilePathfinder.Path;
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+
+// Finds long paths over a CompiledNavigationGraph hierarchically (HPA*). The zone is split into
+// square clusters of columns. Of the steps out of a cluster into each of the clusters around it,
+// those next to one another along the side they cross (where the nodes stepped from, and those
+// stepped to, are a step apart both ways) form a run; each run is collapsed into the step in its
+// middle, or into the middle steps of its halves if it's long. The nodes those steps start from
+// are the cluster's exits. A path is then searched for over exits alone: from the origin, or from
+// a node stepped onto from another cluster, to its cluster's exits, across the steps out of the
+// exits, and on to the destination once in its cluster. What each node reached costs to get to
+// the exits and the destination, staying inside the cluster, is found the first time it's needed
+// and kept. Only the legs of the path found are then searched for tile by tile, each by A*
+// bounded by the leg's cost.
+//
+// Since paths only cross between clusters at the steps runs are collapsed into, the path found
+// may cost a little more than the cheapest one, and a path costing at most maxCost may be missed
+// if the cheapest one costs almost exactly that.
+//
+// Clusters are built the first time a search reaches them, from the nodes the graph has found in
+// them so far, and built again if a search steps into one of their nodes they didn't know of.
+// Changes should be reported here rather than to the graph, so the clusters around them are
+// dropped along with the graph's edges; everything is dropped when the GameZone changes. Paths
+// between origins less than two clusters apart are left to A* alone. It isn't thread-safe.
+public class HierarchicalPathfinder {
+    private final static int CANCELLATION_INTERVAL = 64;
+    private final static int UNREACHABLE = Integer.MAX_VALUE;
+    // Runs of steps out of a cluster at least this long are collapsed into the middle steps of
+    // their halves, rather than into their middle one
+    private final static int LONG_RUN = 6;
+
+    private final CompiledNavigationGraph GRAPH;
+    private final TilePathfinder PATHFINDER;
+    private final int CLUSTER_SIZE;
+    private final LongObjectMap<Cluster> CLUSTERS;
+
+    private int generation;
+    private long clustersBuilt;
+    private long nodesExpanded;
+
+    // For navigabilities like TileNavigabilityImpl, where a diagonal step costs what a straight
+    // one does
+    public HierarchicalPathfinder(CompiledNavigationGraph graph, int clusterSize,
+                                  int minStepCost) {
+        this(graph, clusterSize, minStepCost, minStepCost);
+    }
+
+    public HierarchicalPathfinder(CompiledNavigationGraph graph, int clusterSize,
+                                  int minStraightStepCost, int minDiagonalStepCost) {
+        GRAPH = Check.ifNull(graph, "graph");
+        Check.throwOnLteZero(clusterSize, "clusterSize");
+        CLUSTER_SIZE = clusterSize;
+        PATHFINDER = new TilePathfinder(graph, minStraightStepCost, minDiagonalStepCost);
+        CLUSTERS = new LongObjectMap<>();
+        generation = graph.generation();
+    }
+
+    public Path find(Coordinate3d origin, Coordinate3d destination, int charHeight)
+            throws IllegalArgumentException {
+        return find(origin, destination, charHeight, Integer.MAX_VALUE, () -> false);
+    }
+
+    // Returns null if there's no path costing at most maxCost, or if the search is cancelled
+    // first. Characters of other heights than the graph's are left to A* alone.
+    public Path find(Coordinate3d origin, Coordinate3d destination, int charHeight, int maxCost,
+                     BooleanSupplier isCancelled) throws IllegalArgumentException {
+        Check.ifNull(origin, "origin");
+        Check.ifNull(destination, "destination");
+        Check.throwOnLteZero(charHeight, "charHeight");
+        Check.throwOnLtValue(maxCost, 0, "maxCost");
+        Check.ifNull(isCancelled, "isCancelled");
+
+        var originClusterX = Math.floorDiv(origin.X, CLUSTER_SIZE);
+        var originClusterY = Math.floorDiv(origin.Y, CLUSTER_SIZE);
+        var destinationClusterX = Math.floorDiv(destination.X, CLUSTER_SIZE);
+        var destinationClusterY = Math.floorDiv(destination.Y, CLUSTER_SIZE);
+        if (charHeight != GRAPH.charHeight() ||
+                (Math.abs(originClusterX - destinationClusterX) <= 1 &&
+                        Math.abs(originClusterY - destinationClusterY) <= 1)) {
+            return PATHFINDER.find(origin, destination, charHeight, maxCost, isCancelled);
+        }
+
+        var originNode = GRAPH.node(origin);
+        var destinationNode = GRAPH.node(destination);
+        if (GRAPH.generation() != generation) {
+            CLUSTERS.clear();
+            generation = GRAPH.generation();
+        }
+        // Makes sure the clusters at either end know of the nodes there
+        cluster(origin.X, origin.Y, originNode);
+        cluster(destination.X, destination.Y, destinationNode);
+
+        var nodes = new Nodes();
+        var open = new PriorityHeap();
+        var start = nodes.at(origin);
+        start.cost = 0;
+        start.estimate = PATHFINDER.heuristic(origin, destination);
+        if (start.estimate > maxCost) {
+            return null;
+        }
+        open.push(start.NUMBER, start.priority());
+
+        var expanded = 0;
+        while (!open.isEmpty()) {
+            var node = nodes.get(open.pop());
+            if (node.closed) {
+                continue;
+            }
+            if (expanded++ % CANCELLATION_INTERVAL == 0 && isCancelled.getAsBoolean()) {
+                return null;
+            }
+            node.closed = true;
+            nodesExpanded++;
+            var location = node.LOCATION;
+            if (location.equals(destination)) {
+                return refine(node, charHeight, isCancelled);
+            }
+
+            var graphNode = GRAPH.node(location);
+            var cluster = cluster(location.X, location.Y, graphNode);
+            var local = cluster.local(graphNode);
+            var costs = cluster.costsFrom(local);
+            for (var exit : cluster.EXITS) {
+                if (exit != local && costs[exit] != UNREACHABLE) {
+                    reach(nodes, open, node, GRAPH.location(cluster.NODES[exit]),
+                            node.cost + costs[exit], destination, maxCost);
+                }
+            }
+            if (cluster.contains(destination.X, destination.Y)) {
+                var cost = costs[cluster.local(destinationNode)];
+                if (cost != UNREACHABLE) {
+                    reach(nodes, open, node, destination, node.cost + cost, destination,
+                            maxCost);
+                }
+            }
+            var end = cluster.TRANSITION_STARTS[local + 1];
+            for (var transition = cluster.TRANSITION_STARTS[local]; transition < end;
+                 transition++) {
+                var target = cluster.TRANSITION_TARGETS[transition];
+                var targetLocation = GRAPH.location(target);
+                // Makes sure the cluster stepped into knows of the node stepped onto
+                cluster(targetLocation.X, targetLocation.Y, target);
+                reach(nodes, open, node, targetLocation,
+                        node.cost + cluster.TRANSITION_COSTS[transition], destination, maxCost);
+            }
+        }
+
+        return null;
+    }
+
+    public void tileChanged(Tile tile) throws IllegalArgumentException {
+        GRAPH.tileChanged(tile);
+        columnChanged(tile.location().X, tile.location().Y);
+    }
+
+    public void fixturesChanged(Tile tile) throws IllegalArgumentException {
+        GRAPH.fixturesChanged(tile);
+        columnChanged(tile.location().X, tile.location().Y);
+    }
+
+    public void segmentChanged(WallSegmentOrientation orientation, Coordinate3d location)
+            throws IllegalArgumentException {
+        GRAPH.segmentChanged(orientation, location);
+        columnChanged(location.X, location.Y);
+    }
+
+    public void invalidate() {
+        GRAPH.invalidate();
+        CLUSTERS.clear();
+    }
+
+    long clustersBuilt() {
+        return clustersBuilt;
+    }
+
+    // How many nodes searches have expanded so far, over exits and tile by tile
+    long nodesExpanded() {
+        return nodesExpanded + PATHFINDER.nodesExpanded();
+    }
+
+    // The graph recompiles the nodes in the columns around a change, so any cluster holding one
+    // of them is dropped, to be built again when next reached
+    private void columnChanged(int x, int y) {
+        for (var columnX = x - 1; columnX <= x + 1; columnX++) {
+            for (var columnY = y - 1; columnY <= y + 1; columnY++) {
+                CLUSTERS.remove(LongObjectMap.key(Math.floorDiv(columnX, CLUSTER_SIZE),
+                        Math.floorDiv(columnY, CLUSTER_SIZE)));
+            }
+        }
+    }
+
+    // The cluster holding the column, built (again) if it doesn't know of the node
+    private Cluster cluster(int x, int y, int graphNode) {
+        var clusterX = Math.floorDiv(x, CLUSTER_SIZE);
+        var clusterY = Math.floorDiv(y, CLUSTER_SIZE);
+        var key = LongObjectMap.key(clusterX, clusterY);
+        var cluster = CLUSTERS.get(key);
+        if (cluster == null || cluster.local(graphNode) < 0) {
+            cluster = new Cluster(clusterX * CLUSTER_SIZE, clusterY * CLUSTER_SIZE);
+            CLUSTERS.put(key, cluster);
+            clustersBuilt++;
+        }
+        return cluster;
+    }
+
+    private void reach(Nodes nodes, PriorityHeap open, Node from, Coordinate3d location,
+                       long cost, Coordinate3d destination, int maxCost) {
+        if (cost > maxCost) {
+            return;
+        }
+        var next = nodes.at(location);
+        if (next.closed || cost >= next.cost) {
+            return;
+        }
+        var estimate = cost + PATHFINDER.heuristic(location, destination);
+        if (estimate > maxCost) {
+            return;
+        }
+        next.parent = from;
+        next.cost = cost;
+        next.estimate = estimate;
+        open.push(next.NUMBER, next.priority());
+    }
+
+    // Searches for each leg between the entrances passed through, bounded by what the leg was
+    // found to cost
+    private Path refine(Node end, int charHeight, BooleanSupplier isCancelled) {
+        List<Node> waypoints = listOf();
+        for (var node = end; node != null; node = node.parent) {
+            waypoints.add(node);
+        }
+        Collections.reverse(waypoints);
+
+        List<Coordinate3d> locations = listOf(waypoints.getFirst().LOCATION);
+        var cost = 0;
+        for (var i = 1; i < waypoints.size(); i++) {
+            var from = waypoints.get(i - 1);
+            var to = waypoints.get(i);
+            var leg = PATHFINDER.find(from.LOCATION, to.LOCATION, charHeight,
+                    (int) (to.cost - from.cost), isCancelled);
+            if (leg == null) {
+                return null;
+            }
+            locations.addAll(leg.locations().subList(1, leg.locations().size()));
+            cost += leg.cost();
+        }
+        return new Path(locations, cost);
+    }
+
+
+    private class Cluster {
+        private final int MIN_X;
+        private final int MIN_Y;
+        // The graph's nodes in the cluster, sorted; the cluster's own numbering of them is their
+        // index here
+        private final int[] NODES;
+        // Each node's steps to other nodes in the cluster, as compressed sparse rows
+        private final int[] EDGE_STARTS;
+        private final int[] EDGE_TARGETS;
+        private final int[] EDGE_COSTS;
+        // The nodes which steps out of the cluster start from
+        private final int[] EXITS;
+        // Each node's steps out of the cluster, as compressed sparse rows of the graph's nodes
+        // stepped to
+        private final int[] TRANSITION_STARTS;
+        private final int[] TRANSITION_TARGETS;
+        private final int[] TRANSITION_COSTS;
+        // The cheapest cost from each node to each other, within the cluster, for the nodes
+        // searched from so far
+        private final int[][] COSTS_FROM;
+
+        private Cluster(int minX, int minY) {
+            MIN_X = minX;
+            MIN_Y = minY;
+
+            // Starting from every node the graph has found in the cluster, finds every node in
+            // the cluster reachable from them without leaving it
+            var found = new int[64];
+            var count = 0;
+            var seen = new LongObjectMap<Boolean>();
+            for (var x = MIN_X; x < MIN_X + CLUSTER_SIZE; x++) {
+                for (var y = MIN_Y; y < MIN_Y + CLUSTER_SIZE; y++) {
+                    var column = GRAPH.nodesInColumn(x, y);
+                    if (column == null) {
+                        continue;
+                    }
+                    for (var node : column) {
+                        if (seen.put(node, Boolean.TRUE) == null) {
+                            found = add(found, count++, node);
+                        }
+                    }
+                }
+            }
+            for (var i = 0; i < count; i++) {
+                var end = GRAPH.edgesEnd(found[i]);
+                for (var edge = GRAPH.firstEdge(found[i]); edge < end; edge++) {
+                    var target = GRAPH.edgeTarget(edge);
+                    var location = GRAPH.location(target);
+                    if (contains(location.X, location.Y) &&
+                            seen.put(target, Boolean.TRUE) == null) {
+                        found = add(found, count++, target);
+                    }
+                }
+            }
+            NODES = Arrays.copyOf(found, count);
+            Arrays.sort(NODES);
+            COSTS_FROM = new int[count][];
+
+            EDGE_STARTS = new int[count + 1];
+            var targets = new int[count * 8];
+            var costs = new int[targets.length];
+            var edges = 0;
+            List<Transition> transitions = listOf();
+            for (var node = 0; node < count; node++) {
+                EDGE_STARTS[node] = edges;
+                var firstTransition = transitions.size();
+                var end = GRAPH.edgesEnd(NODES[node]);
+                for (var edge = GRAPH.firstEdge(NODES[node]); edge < end; edge++) {
+                    var target = GRAPH.edgeTarget(edge);
+                    var local = local(target);
+                    if (local >= 0) {
+                        targets[edges] = local;
+                        costs[edges++] = GRAPH.edgeCost(edge);
+                    }
+                    else {
+                        addTransition(transitions, firstTransition, node, target,
+                                GRAPH.edgeCost(edge));
+                    }
+                }
+            }
+            EDGE_STARTS[count] = edges;
+            EDGE_TARGETS = Arrays.copyOf(targets, edges);
+            EDGE_COSTS = Arrays.copyOf(costs, edges);
+
+            var chosen = collapseRuns(transitions);
+            chosen.sort(Comparator.comparingInt(transition -> transition.SOURCE));
+            TRANSITION_STARTS = new int[count + 1];
+            TRANSITION_TARGETS = new int[chosen.size()];
+            TRANSITION_COSTS = new int[chosen.size()];
+            var exits = new int[chosen.size()];
+            var exitCount = 0;
+            var index = 0;
+            for (var node = 0; node < count; node++) {
+                TRANSITION_STARTS[node] = index;
+                while (index < chosen.size() && chosen.get(index).SOURCE == node) {
+                    TRANSITION_TARGETS[index] = chosen.get(index).TARGET;
+                    TRANSITION_COSTS[index] = chosen.get(index).COST;
+                    index++;
+                }
+                if (index > TRANSITION_STARTS[node]) {
+                    exits[exitCount++] = node;
+                }
+            }
+            TRANSITION_STARTS[count] = index;
+            EXITS = Arrays.copyOf(exits, exitCount);
+        }
+
+        private boolean contains(int x, int y) {
+            return x >= MIN_X && x < MIN_X + CLUSTER_SIZE && y >= MIN_Y &&
+                    y < MIN_Y + CLUSTER_SIZE;
+        }
+
+        private int local(int graphNode) {
+            var node = Arrays.binarySearch(NODES, graphNode);
+            return node < 0 ? -1 : node;
+        }
+
+        // Of a node's steps into each cluster around this one, a straight one is kept over a
+        // diagonal one; transitions from the node start at firstTransition
+        private void addTransition(List<Transition> transitions, int firstTransition, int source,
+                                   int target, int cost) {
+            var sourceLocation = GRAPH.location(NODES[source]);
+            var targetLocation = GRAPH.location(target);
+            var offsetX = Math.floorDiv(targetLocation.X - MIN_X, CLUSTER_SIZE);
+            var offsetY = Math.floorDiv(targetLocation.Y - MIN_Y, CLUSTER_SIZE);
+            var neighbor = (offsetY + 1) * 3 + offsetX + 1;
+            var straight = targetLocation.X == sourceLocation.X ||
+                    targetLocation.Y == sourceLocation.Y;
+            // Along the side crossed; steps into the clusters at the corners are never in runs
+            var position = offsetX == 0 ? sourceLocation.X :
+                    offsetY == 0 ? sourceLocation.Y : 0;
+            var transition = new Transition(source, target, cost, neighbor, position, straight);
+            for (var i = firstTransition; i < transitions.size(); i++) {
+                if (transitions.get(i).NEIGHBOR == neighbor) {
+                    if (straight && !transitions.get(i).STRAIGHT) {
+                        transitions.set(i, transition);
+                    }
+                    return;
+                }
+            }
+            transitions.add(transition);
+        }
+
+        // Each transition joins the run of one a column before it along the same side, if the
+        // nodes they step from, and those they step to, are a step apart both ways; each run is
+        // then collapsed into one or two transitions
+        private List<Transition> collapseRuns(List<Transition> transitions) {
+            transitions.sort(Comparator
+                    .comparingInt((Transition transition) -> transition.NEIGHBOR)
+                    .thenComparingInt(transition -> transition.POSITION));
+            List<Transition> runEnds = listOf();
+            for (var transition : transitions) {
+                for (var i = 0; i < runEnds.size(); i++) {
+                    var runEnd = runEnds.get(i);
+                    if (runEnd.NEIGHBOR == transition.NEIGHBOR &&
+                            runEnd.POSITION == transition.POSITION - 1 &&
+                            adjacent(NODES[runEnd.SOURCE], NODES[transition.SOURCE]) &&
+                            adjacent(runEnd.TARGET, transition.TARGET)) {
+                        transition.previous = runEnd;
+                        transition.runLength = runEnd.runLength + 1;
+                        runEnds.set(i, transition);
+                        break;
+                    }
+                }
+                if (transition.previous == null) {
+                    runEnds.add(transition);
+                }
+            }
+            List<Transition> chosen = listOf();
+            for (var runEnd : runEnds) {
+                var length = runEnd.runLength;
+                // The middle of the run, or of each half of a long run; counted back from its end
+                var middles = length < LONG_RUN ? new int[]{(length - 1) / 2} :
+                        new int[]{length - 1 - (length / 2 - 1) / 2, (length / 2 - 1) / 2};
+                var transition = runEnd;
+                var index = length - 1;
+                for (var middle : middles) {
+                    while (index > middle) {
+                        transition = transition.previous;
+                        index--;
+                    }
+                    chosen.add(transition);
+                }
+            }
+            return chosen;
+        }
+
+        private boolean adjacent(int graphNodeA, int graphNodeB) {
+            return stepsTo(graphNodeA, graphNodeB) && stepsTo(graphNodeB, graphNodeA);
+        }
+
+        private boolean stepsTo(int from, int to) {
+            var end = GRAPH.edgesEnd(from);
+            for (var edge = GRAPH.firstEdge(from); edge < end; edge++) {
+                if (GRAPH.edgeTarget(edge) == to) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Dijkstra's algorithm within the cluster, from one of its nodes to each of them; found
+        // once per node, and kept
+        private int[] costsFrom(int from) {
+            if (COSTS_FROM[from] != null) {
+                return COSTS_FROM[from];
+            }
+            var costs = new int[NODES.length];
+            Arrays.fill(costs, UNREACHABLE);
+            costs[from] = 0;
+            // A node may be entered more than once, and stale entries are skipped
+            var heap = new PriorityHeap();
+            heap.push(from, 0);
+            while (!heap.isEmpty()) {
+                var cost = heap.minPriority();
+                var node = heap.pop();
+                if (cost > costs[node]) {
+                    continue;
+                }
+                for (var edge = EDGE_STARTS[node]; edge < EDGE_STARTS[node + 1]; edge++) {
+                    var target = EDGE_TARGETS[edge];
+                    var targetCost = (int) cost + EDGE_COSTS[edge];
+                    if (targetCost < costs[target]) {
+                        costs[target] = targetCost;
+                        heap.push(target, targetCost);
+                    }
+                }
+            }
+            COSTS_FROM[from] = costs;
+            return costs;
+        }
+
+        private static int[] add(int[] array, int index, int value) {
+            if (index == array.length) {
+                array = Arrays.copyOf(array, index * 2);
+            }
+            array[index] = value;
+            return array;
+        }
+    }
+
+    // A step out of a cluster, from one of its nodes (by the cluster's numbering) to one of the
+    // graph's nodes, into the cluster around it at NEIGHBOR (numbered row by row, from 0 to 8)
+    private static class Transition {
+        private final int SOURCE;
+        private final int TARGET;
+        private final int COST;
+        private final int NEIGHBOR;
+        private final int POSITION;
+        private final boolean STRAIGHT;
+
+        // The transition before this one in its run, if any
+        private Transition previous;
+        private int runLength = 1;
+
+        private Transition(int source, int target, int cost, int neighbor, int position,
+                           boolean straight) {
+            SOURCE = source;
+            TARGET = target;
+            COST = cost;
+            NEIGHBOR = neighbor;
+            POSITION = position;
+            STRAIGHT = straight;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+
+// Stands in for a client on the far side of a ClientVisibilityCuller, e.g. for a local player or
+// for tests: it applies each frame it receives to its own copy of what's visible, so its state
+// can be compared against what the host calculated. A frame which enters what's already visible,
+// or leaves or moves what isn't, means the client and host have fallen out of step.
+public class LoopbackVisibilityClient {
+    private final Set<Coordinate3d> TILES;
+    private final Map<WallSegmentOrientation, Set<Coordinate3d>> SEGMENTS;
+    private final Map<String, Coordinate3d> CHARACTERS;
+
+    private int framesReceived;
+    private int bytesReceived;
+    private Integer lastTurn;
+
+    public LoopbackVisibilityClient() {
+        TILES = setOf();
+        SEGMENTS = mapOf();
+        CHARACTERS = mapOf();
+    }
+
+    public void receive(byte[] bytes) throws IllegalArgumentException, IllegalStateException {
+        var frame = VisibilityFrame.decode(bytes);
+
+        apply(TILES, frame.enteredTiles(), frame.leftTiles(), "tile");
+        for (var entered : frame.enteredSegments().entrySet()) {
+            apply(SEGMENTS.computeIfAbsent(entered.getKey(), o -> setOf()), entered.getValue(),
+                    frame.leftSegments().get(entered.getKey()), entered.getKey() + " segment");
+        }
+        applyCharacters(frame);
+
+        framesReceived++;
+        bytesReceived += bytes.length;
+        lastTurn = frame.turn();
+    }
+
+    public Set<Coordinate3d> tiles() {
+        return TILES;
+    }
+
+    public Set<Coordinate3d> segments(WallSegmentOrientation orientation)
+            throws IllegalArgumentException {
+        Check.ifNull(orientation, "orientation");
+        return SEGMENTS.computeIfAbsent(orientation, o -> setOf());
+    }
+
+    public Set<String> characterIds() {
+        return CHARACTERS.keySet();
+    }
+
+    // Each visible character's ID, and its location
+    public Map<String, Coordinate3d> characters() {
+        return CHARACTERS;
+    }
+
+    public int framesReceived() {
+        return framesReceived;
+    }
+
+    public int bytesReceived() {
+        return bytesReceived;
+    }
+
+    // Null until a frame is received
+    public Integer lastTurn() {
+        return lastTurn;
+    }
+
+    private void applyCharacters(VisibilityFrame frame) {
+        for (var characterId : frame.leftCharacters()) {
+            if (CHARACTERS.remove(characterId) == null) {
+                throw new IllegalStateException("LoopbackVisibilityClient.receive: character (" +
+                        characterId + ") left view without having entered it");
+            }
+        }
+        frame.movedCharacters().forEach((characterId, loc) -> {
+            if (CHARACTERS.replace(characterId, loc) == null) {
+                throw new IllegalStateException("LoopbackVisibilityClient.receive: character (" +
+                        characterId + ") moved without being in view");
+            }
+        });
+        frame.enteredCharacters().forEach((characterId, loc) -> {
+            if (CHARACTERS.putIfAbsent(characterId, loc) != null) {
+                throw new IllegalStateException("LoopbackVisibilityClient.receive: character (" +
+                        characterId + ") entered view while already in it");
+            }
+        });
+    }
+
+    private static <T> void apply(Set<T> visible, List<T> entered, List<T> left, String kind) {
+        for (var item : left) {
+            if (!visible.remove(item)) {
+                throw new IllegalStateException("LoopbackVisibilityClient.receive: " + kind +
+                        " (" + item + ") left view without having entered it");
+            }
+        }
+        for (var item : entered) {
+            if (!visible.add(item)) {
+                throw new IllegalStateException("LoopbackVisibilityClient.receive: " + kind +
+                        " (" + item + ") entered view while already in it");
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+
+import java.util.Collections;
+import java.util.List;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+
+// Everywhere reachable from an origin within a MovementRangeCalculation's budget, each with the
+// cheapest cost of reaching it and the step before it on the way there, so the path to anywhere
+// in range is read back from the tree without searching again. It's a snapshot: it doesn't change
+// if the GameZone does.
+public class MovementRange {
+    private final Coordinate3d[] LOCATIONS;
+    private final int[] COSTS;
+    private final int[] PREDECESSORS;
+    private final int[] SETTLED;
+    private final int COUNT;
+    // The nodes in each column
+    private final LongObjectMap<int[]> COLUMNS;
+
+    MovementRange(Coordinate3d[] locations, int[] costs, int[] predecessors, int[] settled,
+                  int count, LongObjectMap<int[]> columns) {
+        LOCATIONS = locations;
+        COSTS = costs;
+        PREDECESSORS = predecessors;
+        SETTLED = settled;
+        COUNT = count;
+        COLUMNS = columns;
+    }
+
+    public Coordinate3d origin() {
+        return LOCATIONS[0];
+    }
+
+    // Every location in range, the origin included, cheapest first
+    public List<Coordinate3d> reachable() {
+        List<Coordinate3d> reachable = listOf();
+        for (var i = 0; i < COUNT; i++) {
+            reachable.add(LOCATIONS[SETTLED[i]]);
+        }
+        return reachable;
+    }
+
+    public int size() {
+        return COUNT;
+    }
+
+    public boolean canReach(Coordinate3d location) throws IllegalArgumentException {
+        return node(Check.ifNull(location, "location")) >= 0;
+    }
+
+    // Returns null if the location is out of range
+    public Integer cost(Coordinate3d location) throws IllegalArgumentException {
+        var node = node(Check.ifNull(location, "location"));
+        return node < 0 ? null : COSTS[node];
+    }
+
+    // Returns null if the location is out of range, or is the origin
+    public Coordinate3d predecessor(Coordinate3d location) throws IllegalArgumentException {
+        var node = node(Check.ifNull(location, "location"));
+        return node < 0 || PREDECESSORS[node] < 0 ? null : LOCATIONS[PREDECESSORS[node]];
+    }
+
+    // Returns null if the location is out of range
+    public TilePathfinder.Path pathTo(Coordinate3d location) throws IllegalArgumentException {
+        var node = node(Check.ifNull(location, "location"));
+        if (node < 0) {
+            return null;
+        }
+        List<Coordinate3d> locations = listOf();
+        for (var step = node; step >= 0; step = PREDECESSORS[step]) {
+            locations.add(LOCATIONS[step]);
+        }
+        Collections.reverse(locations);
+        return new TilePathfinder.Path(locations, COSTS[node]);
+    }
+
+    private int node(Coordinate3d location) {
+        var column = COLUMNS.get(LongObjectMap.key(location.X, location.Y));
+        if (column != null) {
+            for (var node : column) {
+                if (LOCATIONS[node].Z == location.Z) {
+                    return node;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,154 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.shared.Direction;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+
+import java.util.Arrays;
+
+// Finds everywhere a character of a given height can reach from an origin within a budget (e.g.,
+// its remaining AP), by a single Dijkstra search over the steps TileNavigability allows, rather
+// than by searching for a path to each candidate location. The MovementRange it returns keeps the
+// tree of cheapest steps back to the origin, so the path to any location in range is read straight
+// from it.
+//
+// With a CompiledNavigationGraph, the search walks the graph's edges directly at the graph's
+// character height, without asking it for a Navigability per step.
+public class MovementRangeCalculation {
+    private final static Direction[] DIRECTIONS = Direction.values();
+
+    private final TileNavigability NAVIGABILITY;
+    private final CompiledNavigationGraph GRAPH;
+
+    public MovementRangeCalculation(TileNavigability navigability) {
+        NAVIGABILITY = Check.ifNull(navigability, "navigability");
+        GRAPH = navigability instanceof CompiledNavigationGraph graph ? graph : null;
+    }
+
+    public MovementRange calculate(Coordinate3d origin, int charHeight, int maxCost)
+            throws IllegalArgumentException {
+        Check.ifNull(origin, "origin");
+        Check.throwOnLteZero(charHeight, "charHeight");
+        Check.throwOnLtValue(maxCost, 0, "maxCost");
+
+        var graph = GRAPH != null && GRAPH.charHeight() == charHeight ? GRAPH : null;
+        var search = new Search();
+        search.add(origin, graph == null ? -1 : graph.node(origin), -1, 0);
+        while (!search.OPEN.isEmpty()) {
+            var node = search.OPEN.pop();
+            // A node is entered again each time its cost drops; all but its cheapest entry are
+            // stale
+            if (!search.settle(node)) {
+                continue;
+            }
+            var cost = search.costs[node];
+            if (graph == null) {
+                for (var direction : DIRECTIONS) {
+                    var navigability =
+                            NAVIGABILITY.calculate(search.locations[node], direction, charHeight);
+                    if (navigability != null) {
+                        search.reach(navigability.destination(), -1, node,
+                                (long) cost + navigability.cost(), maxCost);
+                    }
+                }
+            }
+            else {
+                var graphNode = search.graphNodes[node];
+                var end = graph.edgesEnd(graphNode);
+                for (var edge = graph.firstEdge(graphNode); edge < end; edge++) {
+                    var target = graph.edgeTarget(edge);
+                    search.reach(graph.location(target), target, node,
+                            (long) cost + graph.edgeCost(edge), maxCost);
+                }
+            }
+        }
+
+        return new MovementRange(search.locations, search.costs, search.predecessors,
+                search.settled, search.count, search.COLUMNS);
+    }
+
+    // The search's nodes are numbered in the order they're found; the open set is a PriorityHeap of
+    // node numbers, by cost
+    private static class Search {
+        private final LongObjectMap<int[]> COLUMNS = new LongObjectMap<>();
+        private final PriorityHeap OPEN = new PriorityHeap();
+
+        private Coordinate3d[] locations = new Coordinate3d[64];
+        private int[] graphNodes = new int[64];
+        private int[] costs = new int[64];
+        private int[] predecessors = new int[64];
+        private boolean[] isSettled = new boolean[64];
+        private int count;
+        // Nodes in the order they were settled, i.e., cheapest first
+        private int[] settled = new int[64];
+        private int settledCount;
+
+        private void reach(Coordinate3d location, int graphNode, int predecessor, long cost,
+                           int maxCost) {
+            if (cost > maxCost) {
+                return;
+            }
+            var node = find(location);
+            if (node < 0) {
+                add(location, graphNode, predecessor, (int) cost);
+                return;
+            }
+            if (isSettled[node] || cost >= costs[node]) {
+                return;
+            }
+            costs[node] = (int) cost;
+            predecessors[node] = predecessor;
+            OPEN.push(node, cost);
+        }
+
+        private int find(Coordinate3d location) {
+            var column = COLUMNS.get(LongObjectMap.key(location.X, location.Y));
+            if (column != null) {
+                for (var node : column) {
+                    if (locations[node].Z == location.Z) {
+                        return node;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private void add(Coordinate3d location, int graphNode, int predecessor, int cost) {
+            if (count == locations.length) {
+                locations = Arrays.copyOf(locations, count * 2);
+                graphNodes = Arrays.copyOf(graphNodes, count * 2);
+                costs = Arrays.copyOf(costs, count * 2);
+                predecessors = Arrays.copyOf(predecessors, count * 2);
+                isSettled = Arrays.copyOf(isSettled, count * 2);
+                settled = Arrays.copyOf(settled, count * 2);
+            }
+            var node = count++;
+            locations[node] = location;
+            graphNodes[node] = graphNode;
+            costs[node] = cost;
+            predecessors[node] = predecessor;
+            var key = LongObjectMap.key(location.X, location.Y);
+            var column = COLUMNS.get(key);
+            if (column == null) {
+                column = new int[]{node};
+            }
+            else {
+                column = Arrays.copyOf(column, column.length + 1);
+                column[column.length - 1] = node;
+            }
+            COLUMNS.put(key, column);
+            OPEN.push(node, cost);
+        }
+
+        // Returns false if the node was settled already
+        private boolean settle(int node) {
+            if (isSettled[node]) {
+                return false;
+            }
+            isSettled[node] = true;
+            settled[settledCount++] = node;
+            return true;
+        }
+    }
+}
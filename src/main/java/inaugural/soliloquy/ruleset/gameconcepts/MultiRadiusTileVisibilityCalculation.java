@@ -0,0 +1,15 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.List;
+import java.util.Map;
+
+// A TileVisibilityCalculation which can find what a point sees at several radii at once, more
+// cheaply than by calculating each of them in turn
+public interface MultiRadiusTileVisibilityCalculation extends TileVisibilityCalculation {
+    // Returns a Result for each distinct radius, as atPoint would find it at that radius
+    Map<Integer, Result> atRadii(Tile point, List<Integer> visibilityRadii)
+            throws IllegalArgumentException;
+}
@@ -0,0 +1,64 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.List;
+import java.util.Map;
+
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+
+// What each of a batch of viewers sees, in the order the viewers were provided; and, built when
+// first asked for, the union of what they see, and how many of them see each tile (e.g. how many
+// members of a faction could see a character standing on it).
+public class MultiViewerVisibilityResult {
+    private final List<CompactVisibilityResult> RESULTS;
+    private final Coordinate3d UNION_ORIGIN;
+
+    private CompactVisibilityResult union;
+    private Map<Coordinate3d, Integer> viewerCounts;
+
+    // The union is packed relative to its origin, so it should be near the viewers
+    MultiViewerVisibilityResult(List<CompactVisibilityResult> results, Coordinate3d unionOrigin) {
+        RESULTS = results;
+        UNION_ORIGIN = unionOrigin;
+    }
+
+    public int viewers() {
+        return RESULTS.size();
+    }
+
+    public TileVisibilityCalculation.Result forViewer(int index)
+            throws IndexOutOfBoundsException {
+        return RESULTS.get(index);
+    }
+
+    public TileVisibilityCalculation.Result union() {
+        return compactUnion();
+    }
+
+    CompactVisibilityResult compactUnion() {
+        if (union == null) {
+            union = new CompactVisibilityResult(UNION_ORIGIN);
+            for (var result : RESULTS) {
+                union.addAll(result);
+            }
+        }
+        return union;
+    }
+
+    public int viewerCount(Coordinate3d tileLocation) {
+        var count = viewerCounts().get(tileLocation);
+        return count == null ? 0 : count;
+    }
+
+    public Map<Coordinate3d, Integer> viewerCounts() {
+        if (viewerCounts == null) {
+            viewerCounts = mapOf();
+            for (var result : RESULTS) {
+                result.forEachTile(tile -> viewerCounts.merge(tile.location(), 1, Integer::sum));
+            }
+        }
+        return viewerCounts;
+    }
+}
@@ -0,0 +1,176 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static soliloquy.specs.common.valueobjects.Coordinate2d.coordinate2dOf;
+
+// A snapshot of what blocks sight in the current GameZone, indexed by column: for each column, the
+// distinct Zs of its sight-blocking tiles in ascending order, so that its view floor and ceiling
+// for any origin are a binary search away; and for each location of HORIZONTAL, CORNER, and
+// VERTICAL segments, the Zs of the sight-blocking ones, highest first. Each step of a ray is then
+// one lookup, however many Z levels the GameZone has.
+//
+// Columns are read from the GameZone the first time they're asked about, after which they are
+// answered from the snapshot alone. Whatever changes a tile's ground type or a segment afterwards
+// should report it via tileChanged or segmentChanged; the snapshot is discarded whenever the
+// GameZone changes. Zs are replaced rather than changed in place, so those already handed out
+// stay as they were.
+//
+// It isn't thread-safe: reading a column, refreshing, and reporting changes all change the
+// snapshot. Rays can be cast from several threads at once only once every column they pass
+// through has been loaded (as TileVisibilityCalculationImpl does before submitting batches), so
+// long as nothing is refreshed or reported until they're done.
+public class OcclusionGrid {
+    private final static int[] NO_ZS = new int[0];
+
+    private final Supplier<GameZone> GET_GAME_ZONE;
+    // Keyed by column; a column is here once it's been read from the GameZone
+    private final LongObjectMap<int[]> TILE_ZS;
+    // One map per orientation, keyed by the segments' location
+    private final LongObjectMap<int[]>[] SEGMENT_ZS;
+
+    private GameZone gameZone;
+
+    @SuppressWarnings("unchecked")
+    public OcclusionGrid(Supplier<GameZone> getGameZone) {
+        GET_GAME_ZONE = Check.ifNull(getGameZone, "getGameZone");
+        TILE_ZS = new LongObjectMap<>();
+        SEGMENT_ZS = new LongObjectMap[WallSegmentOrientation.values().length];
+        for (var i = 0; i < SEGMENT_ZS.length; i++) {
+            SEGMENT_ZS[i] = new LongObjectMap<>();
+        }
+    }
+
+    public void tileChanged(Tile tile) throws IllegalArgumentException {
+        Check.ifNull(tile, "tile");
+        var loc = tile.location();
+        var key = LongObjectMap.key(loc.X, loc.Y);
+        var zs = TILE_ZS.get(key);
+        if (zs != null) {
+            TILE_ZS.put(key, withZ(zs, loc.Z, tile.getGroundType().blocksSight(), false));
+        }
+    }
+
+    // segment is null if the segment at this location has been removed
+    public void segmentChanged(WallSegmentOrientation orientation, Coordinate3d location,
+                               WallSegment segment) throws IllegalArgumentException {
+        Check.ifNull(orientation, "orientation");
+        Check.ifNull(location, "location");
+        setSegment(orientation, location, segment != null && segment.getType().blocksSight());
+    }
+
+    public void invalidate() {
+        TILE_ZS.clear();
+        for (var segmentZs : SEGMENT_ZS) {
+            segmentZs.clear();
+        }
+    }
+
+    // Returns true if the GameZone has changed since the last call, in which case the snapshot
+    // has been discarded
+    boolean refresh() {
+        var currentGameZone = GET_GAME_ZONE.get();
+        if (currentGameZone != gameZone) {
+            gameZone = currentGameZone;
+            invalidate();
+            return true;
+        }
+        return false;
+    }
+
+    boolean tileBlocksSight(int x, int y, int z) {
+        return Arrays.binarySearch(load(x, y), z) >= 0;
+    }
+
+    Integer viewFloor(int x, int y, Integer floorFromZone, int originZ) {
+        return ViewBounds.viewFloor(load(x, y), floorFromZone, originZ);
+    }
+
+    Integer viewCeiling(int x, int y, Integer ceilingFromZone, int originZ) {
+        return ViewBounds.viewCeiling(load(x, y), ceilingFromZone, originZ);
+    }
+
+    // The Zs of the sight-blocking segments at a location, highest first; the array mustn't be
+    // changed. Segments are loaded with either column they border, so the column from which
+    // they're being crossed is provided.
+    int[] blockingSegmentZs(WallSegmentOrientation orientation, int x, int y, int fromColumnX,
+                            int fromColumnY) {
+        load(fromColumnX, fromColumnY);
+        var zs = SEGMENT_ZS[orientation.ordinal()].get(LongObjectMap.key(x, y));
+        return zs == null ? NO_ZS : zs;
+    }
+
+    // Reads the column from the GameZone, unless it's been read already, and returns the Zs of its
+    // sight-blocking tiles. Once a column is loaded, asking about it only reads the snapshot.
+    int[] load(int x, int y) {
+        var key = LongObjectMap.key(x, y);
+        var zs = TILE_ZS.get(key);
+        if (zs != null) {
+            return zs;
+        }
+        if (gameZone == null) {
+            refresh();
+        }
+        var location = coordinate2dOf(x, y);
+        zs = ViewBounds.blockingZs(gameZone.tiles(location));
+        if (zs.length == 0) {
+            zs = NO_ZS;
+        }
+        TILE_ZS.put(key, zs);
+        gameZone.segments(location).forEach((orientation, segments) ->
+                segments.forEach((segmentLoc, segment) -> {
+                    if (segment.getType().blocksSight()) {
+                        setSegment(orientation, segmentLoc, true);
+                    }
+                }));
+        return zs;
+    }
+
+    private void setSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                            boolean blocksSight) {
+        var segmentZs = SEGMENT_ZS[orientation.ordinal()];
+        var key = LongObjectMap.key(location.X, location.Y);
+        var zs = segmentZs.get(key);
+        var changed = withZ(zs == null ? NO_ZS : zs, location.Z, blocksSight, true);
+        if (changed.length == 0) {
+            segmentZs.remove(key);
+        }
+        else if (changed != zs) {
+            segmentZs.put(key, changed);
+        }
+    }
+
+    // The Zs with z added or removed, in a new array if that changes them; they're kept ascending,
+    // or descending if specified
+    private static int[] withZ(int[] zs, int z, boolean present, boolean descending) {
+        var index = 0;
+        while (index < zs.length && (descending ? zs[index] > z : zs[index] < z)) {
+            index++;
+        }
+        if ((index < zs.length && zs[index] == z) == present) {
+            return zs;
+        }
+        if (!present) {
+            if (zs.length == 1) {
+                return NO_ZS;
+            }
+            var removed = new int[zs.length - 1];
+            System.arraycopy(zs, 0, removed, 0, index);
+            System.arraycopy(zs, index + 1, removed, index, removed.length - index);
+            return removed;
+        }
+        var added = new int[zs.length + 1];
+        System.arraycopy(zs, 0, added, 0, index);
+        added[index] = z;
+        System.arraycopy(zs, index, added, index + 1, zs.length - index);
+        return added;
+    }
+}
@@ -0,0 +1,419 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.file.StandardOpenOption.*;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+// What can be seen from each of a set of origins in a zone whose sight-blocking tiles and segments
+// never change, baked ahead of time by a TileVisibilityCalculation at a single visibility radius,
+// and read from a memory-mapped file, so that answering a query is a binary search and a scan of
+// a few runs, with nothing to load up front. The file is walked through once as it's opened, and
+// rejected unless every count, offset, and run it holds stays within it.
+//
+// The file holds a header (magic, radius, and origin count); an index of origins, sorted by X, Y,
+// then Z, each with the offset of its entry; and the entries. Each entry is a count of layers,
+// then each layer: its kind (a tile, or a segment of an orientation), its Z, and which locations
+// of that kind and Z are visible, over the square of (2 * radius + 3) tiles on a side around the
+// origin (since segments can lie one tile beyond the radius). Those are numbered row by row, and
+// written as a count of runs, then each run: how many hidden locations precede it, and how many
+// visible ones it holds. Each of those is two bytes wide, or four if the square is too big for
+// two. What's visible from an origin is mostly a few spans per row, so this is far smaller than a
+// bit per location.
+//
+// The mapping is released by close, after which nothing more can be read.
+public class PotentiallyVisibleSet implements AutoCloseable {
+    private final static int MAGIC = 0x50565332;
+    private final static int HEADER_BYTES = 12;
+    private final static int INDEX_ENTRY_BYTES = 20;
+    private final static int LAYER_HEADER_BYTES = 9;
+    private final static byte TILE = 0;
+    private final static WallSegmentOrientation[] ORIENTATIONS_BY_KIND =
+            new WallSegmentOrientation[]{null, HORIZONTAL, CORNER, VERTICAL};
+    // The file is written by DataOutputStream, which is big-endian
+    private final static ValueLayout.OfShort SHORT =
+            ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private final static ValueLayout.OfInt INT =
+            ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private final static ValueLayout.OfLong LONG =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final Arena ARENA;
+    private final MemorySegment FILE;
+    private final int RADIUS;
+    private final int ORIGINS;
+    private final int SIDE;
+    private final int RUN_BYTES;
+
+    private PotentiallyVisibleSet(Arena arena, MemorySegment file) {
+        ARENA = arena;
+        FILE = file;
+        if (file.byteSize() < HEADER_BYTES || file.get(INT, 0) != MAGIC) {
+            throw new IllegalArgumentException(
+                    "PotentiallyVisibleSet: file is not a baked potentially-visible set");
+        }
+        RADIUS = file.get(INT, 4);
+        ORIGINS = file.get(INT, 8);
+        // Locations in the square are numbered with ints
+        var side = (2L * RADIUS) + 3;
+        if (RADIUS < 0 || side * side > Integer.MAX_VALUE) {
+            throw corrupt("radius (" + RADIUS + ") is out of range");
+        }
+        if (ORIGINS < 0 ||
+                file.byteSize() < HEADER_BYTES + ((long) ORIGINS * INDEX_ENTRY_BYTES)) {
+            throw corrupt("origin count (" + ORIGINS + ") doesn't fit the file");
+        }
+        SIDE = side(RADIUS);
+        RUN_BYTES = runBytes(SIDE);
+        validateEntries();
+    }
+
+    // Walks every entry once, so that nothing read from the file afterwards can lie beyond its
+    // end, or beyond the square around its origin
+    private void validateEntries() {
+        var entriesStart = HEADER_BYTES + ((long) ORIGINS * INDEX_ENTRY_BYTES);
+        var fileBytes = FILE.byteSize();
+        var squareSize = (long) SIDE * SIDE;
+        for (var i = 0; i < ORIGINS; i++) {
+            var entryOffset = FILE.get(LONG, HEADER_BYTES + ((long) i * INDEX_ENTRY_BYTES) + 12);
+            if (entryOffset < 0 || entryOffset > fileBytes - entriesStart - 4) {
+                throw corrupt("entry offset (" + entryOffset + ") is out of range");
+            }
+            var layers = FILE.get(INT, entriesStart + entryOffset);
+            if (layers < 0) {
+                throw corrupt("layer count (" + layers + ") is negative");
+            }
+            var position = entriesStart + entryOffset + 4;
+            for (var layer = 0; layer < layers; layer++) {
+                if (position > fileBytes - LAYER_HEADER_BYTES) {
+                    throw corrupt("layer count (" + layers + ") exceeds the file");
+                }
+                var kind = FILE.get(ValueLayout.JAVA_BYTE, position);
+                if (kind < 0 || kind >= ORIENTATIONS_BY_KIND.length) {
+                    throw corrupt("layer kind (" + kind + ") is unknown");
+                }
+                var runs = FILE.get(INT, position + 5);
+                var run = position + LAYER_HEADER_BYTES;
+                if (runs < 0 || runs * 2L * RUN_BYTES > fileBytes - run) {
+                    throw corrupt("run count (" + runs + ") exceeds the file");
+                }
+                var covered = 0L;
+                for (var j = 0; j < 2 * runs; j++) {
+                    var length = runLength(run);
+                    covered += length;
+                    if (length < 0 || covered > squareSize) {
+                        throw corrupt("runs cover more than the " + squareSize +
+                                " locations around the origin");
+                    }
+                    run += RUN_BYTES;
+                }
+                position = run;
+            }
+        }
+    }
+
+    // Runs the calculation from each origin, and writes what each can see to the file as it goes,
+    // so that only the index is held until the end
+    public static void bake(TileVisibilityCalculation calculation, Collection<Tile> origins,
+                            int visibilityRadius, Path file)
+            throws IllegalArgumentException, IOException {
+        Check.ifNull(calculation, "calculation");
+        Check.ifNull(origins, "origins");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+        Check.ifNull(file, "file");
+
+        List<Tile> sortedOrigins = new ArrayList<>(origins);
+        sortedOrigins.sort(Comparator.comparingInt((Tile tile) -> tile.location().X)
+                .thenComparingInt(tile -> tile.location().Y)
+                .thenComparingInt(tile -> tile.location().Z));
+        List<Tile> distinctOrigins = new ArrayList<>(sortedOrigins.size());
+        Coordinate3d previous = null;
+        for (var origin : sortedOrigins) {
+            if (!origin.location().equals(previous)) {
+                distinctOrigins.add(origin);
+                previous = origin.location();
+            }
+        }
+
+        var side = side(visibilityRadius);
+        var runBytes = runBytes(side);
+        var index = ByteBuffer.allocate(
+                HEADER_BYTES + (distinctOrigins.size() * INDEX_ENTRY_BYTES));
+        index.putInt(MAGIC);
+        index.putInt(visibilityRadius);
+        index.putInt(distinctOrigins.size());
+        try (var channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            // The entries are written after room for the index, which is filled in at the end
+            channel.position(index.capacity());
+            var entries = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)));
+            var entriesSize = 0L;
+            for (var origin : distinctOrigins) {
+                var loc = origin.location();
+
+                // Layers are keyed by kind, then Z, so that they're written in a stable order
+                Map<Long, BitSet> layers = new TreeMap<>();
+                var result = calculation.atPoint(origin, visibilityRadius);
+                for (var tileLoc : result.tiles().keySet()) {
+                    setBit(layers, TILE, tileLoc, loc, visibilityRadius, side);
+                }
+                for (var kind = 1; kind < ORIENTATIONS_BY_KIND.length; kind++) {
+                    var segments = result.segments().get(ORIENTATIONS_BY_KIND[kind]);
+                    if (segments != null) {
+                        for (var segmentLoc : segments.keySet()) {
+                            setBit(layers, (byte) kind, segmentLoc, loc, visibilityRadius, side);
+                        }
+                    }
+                }
+
+                index.putInt(loc.X);
+                index.putInt(loc.Y);
+                index.putInt(loc.Z);
+                index.putLong(entriesSize);
+                entries.writeInt(layers.size());
+                entriesSize += 4;
+                for (var layer : layers.entrySet()) {
+                    entriesSize += writeLayer(entries, layer.getKey(), layer.getValue(), runBytes);
+                }
+            }
+            entries.flush();
+
+            index.flip();
+            var position = 0L;
+            while (index.hasRemaining()) {
+                position += channel.write(index, position);
+            }
+        }
+    }
+
+    // The file is mapped read-only until this is closed; the mapping outlives the channel
+    public static PotentiallyVisibleSet open(Path file)
+            throws IllegalArgumentException, IOException {
+        Check.ifNull(file, "file");
+        var arena = Arena.ofShared();
+        try (var channel = FileChannel.open(file, READ)) {
+            return new PotentiallyVisibleSet(arena,
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        }
+        catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    // Unmaps the file; anything read from it afterwards throws IllegalStateException, so nothing
+    // still answering from it should be running
+    @Override
+    public void close() {
+        if (ARENA.scope().isAlive()) {
+            ARENA.close();
+        }
+    }
+
+    public int radius() {
+        return RADIUS;
+    }
+
+    public boolean isBaked(Coordinate3d origin) {
+        Check.ifNull(origin, "origin");
+        return entryOffset(origin) >= 0;
+    }
+
+    // Whether the tile at the target was visible from the origin when baked
+    public boolean canSee(Coordinate3d origin, Coordinate3d target)
+            throws IllegalArgumentException {
+        Check.ifNull(origin, "origin");
+        Check.ifNull(target, "target");
+        var offset = entryOffset(origin);
+        if (offset < 0) {
+            throw new IllegalArgumentException(
+                    "PotentiallyVisibleSet.canSee: origin (" + origin + ") was not baked");
+        }
+        var bit = bit(target.X - origin.X, target.Y - origin.Y, RADIUS, SIDE);
+        if (bit < 0) {
+            return false;
+        }
+        var layers = FILE.get(INT, offset);
+        var position = offset + 4;
+        for (var i = 0; i < layers; i++) {
+            var runs = FILE.get(INT, position + 5);
+            if (FILE.get(ValueLayout.JAVA_BYTE, position) == TILE &&
+                    FILE.get(INT, position + 1) == target.Z) {
+                var run = position + LAYER_HEADER_BYTES;
+                var start = 0;
+                for (var j = 0; j < runs; j++) {
+                    start += runLength(run);
+                    if (bit < start) {
+                        return false;
+                    }
+                    start += runLength(run + RUN_BYTES);
+                    if (bit < start) {
+                        return true;
+                    }
+                    run += 2L * RUN_BYTES;
+                }
+                return false;
+            }
+            position += LAYER_HEADER_BYTES + (runs * 2L * RUN_BYTES);
+        }
+        return false;
+    }
+
+    // Provides every location visible from the origin when baked; orientation is null for tiles
+    public void forEachVisible(Coordinate3d origin, VisibleLocationConsumer consumer)
+            throws IllegalArgumentException {
+        Check.ifNull(origin, "origin");
+        Check.ifNull(consumer, "consumer");
+        var offset = entryOffset(origin);
+        if (offset < 0) {
+            throw new IllegalArgumentException(
+                    "PotentiallyVisibleSet.forEachVisible: origin (" + origin +
+                            ") was not baked");
+        }
+        var layers = FILE.get(INT, offset);
+        var position = offset + 4;
+        for (var i = 0; i < layers; i++) {
+            var orientation = ORIENTATIONS_BY_KIND[FILE.get(ValueLayout.JAVA_BYTE, position)];
+            var z = FILE.get(INT, position + 1);
+            var runs = FILE.get(INT, position + 5);
+            var run = position + LAYER_HEADER_BYTES;
+            var start = 0;
+            for (var j = 0; j < runs; j++) {
+                start += runLength(run);
+                var end = start + runLength(run + RUN_BYTES);
+                for (var bit = start; bit < end; bit++) {
+                    consumer.accept(orientation, origin.X + (bit % SIDE) - (RADIUS + 1),
+                            origin.Y + (bit / SIDE) - (RADIUS + 1), z);
+                }
+                start = end;
+                run += 2L * RUN_BYTES;
+            }
+            position += LAYER_HEADER_BYTES + (runs * 2L * RUN_BYTES);
+        }
+    }
+
+    public interface VisibleLocationConsumer {
+        void accept(WallSegmentOrientation orientation, int x, int y, int z);
+    }
+
+    private int runLength(long position) {
+        return RUN_BYTES == 2 ? Short.toUnsignedInt(FILE.get(SHORT, position)) :
+                FILE.get(INT, position);
+    }
+
+    // The offset of the origin's entry, or -1 if it wasn't baked
+    private long entryOffset(Coordinate3d origin) {
+        var low = 0;
+        var high = ORIGINS - 1;
+        while (low <= high) {
+            var mid = (low + high) >>> 1;
+            var position = HEADER_BYTES + ((long) mid * INDEX_ENTRY_BYTES);
+            var comparison = Integer.compare(FILE.get(INT, position), origin.X);
+            if (comparison == 0) {
+                comparison = Integer.compare(FILE.get(INT, position + 4), origin.Y);
+            }
+            if (comparison == 0) {
+                comparison = Integer.compare(FILE.get(INT, position + 8), origin.Z);
+            }
+            if (comparison == 0) {
+                return HEADER_BYTES + ((long) ORIGINS * INDEX_ENTRY_BYTES) +
+                        FILE.get(LONG, position + 12);
+            }
+            if (comparison < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static void setBit(Map<Long, BitSet> layers, byte kind, Coordinate3d loc,
+                               Coordinate3d origin, int radius, int side) {
+        var bit = bit(loc.X - origin.X, loc.Y - origin.Y, radius, side);
+        if (bit < 0) {
+            return;
+        }
+        layers.computeIfAbsent(LongObjectMap.key(kind, loc.Z), key -> new BitSet())
+                .set(bit);
+    }
+
+    // Writes the layer, and returns how many bytes it took
+    private static long writeLayer(DataOutputStream out, long key, BitSet bits, int runBytes)
+            throws IOException {
+        var runs = 0;
+        for (var start = bits.nextSetBit(0); start >= 0;
+             start = bits.nextSetBit(bits.nextClearBit(start))) {
+            runs++;
+        }
+        out.writeByte((byte) (key >>> 32));
+        out.writeInt((int) key);
+        out.writeInt(runs);
+        var end = 0;
+        for (var start = bits.nextSetBit(0); start >= 0; start = bits.nextSetBit(end)) {
+            var previousEnd = end;
+            end = bits.nextClearBit(start);
+            writeRunLength(out, start - previousEnd, runBytes);
+            writeRunLength(out, end - start, runBytes);
+        }
+        return LAYER_HEADER_BYTES + (runs * 2L * runBytes);
+    }
+
+    private static void writeRunLength(DataOutputStream out, int length, int runBytes)
+            throws IOException {
+        if (runBytes == 2) {
+            out.writeShort(length);
+        }
+        else {
+            out.writeInt(length);
+        }
+    }
+
+    private static IllegalArgumentException corrupt(String problem) {
+        return new IllegalArgumentException(
+                "PotentiallyVisibleSet: file is truncated or corrupt; " + problem);
+    }
+
+    // The index of the offset in the square around the origin, or -1 if it lies outside of it
+    private static int bit(int offsetX, int offsetY, int radius, int side) {
+        var column = offsetX + radius + 1;
+        var row = offsetY + radius + 1;
+        if (column < 0 || column >= side || row < 0 || row >= side) {
+            return -1;
+        }
+        return (row * side) + column;
+    }
+
+    private static int side(int radius) {
+        return (2 * radius) + 3;
+    }
+
+    // Runs are two bytes wide unless a run could be longer than two bytes can count
+    private static int runBytes(int side) {
+        return (long) side * side <= 0xFFFF ? 2 : 4;
+    }
+}
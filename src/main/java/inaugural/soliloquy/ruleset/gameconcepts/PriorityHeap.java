@@ -0,0 +1,66 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import java.util.Arrays;
+
+// A binary min-heap of ints (a search's node numbers) by long priorities, which the pathfinding
+// searches share. An item whose priority drops is pushed again rather than moved, so nothing needs
+// to remember its place in the heap; a search skips the entries it pops for items it has already
+// settled.
+final class PriorityHeap {
+    private long[] priorities = new long[64];
+    private int[] items = new int[64];
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // The priority of the item which pop would return
+    long minPriority() {
+        return priorities[0];
+    }
+
+    void push(int item, long priority) {
+        if (size == items.length) {
+            priorities = Arrays.copyOf(priorities, size * 2);
+            items = Arrays.copyOf(items, size * 2);
+        }
+        var index = size++;
+        while (index > 0) {
+            var parentIndex = (index - 1) >>> 1;
+            if (priorities[parentIndex] <= priority) {
+                break;
+            }
+            priorities[index] = priorities[parentIndex];
+            items[index] = items[parentIndex];
+            index = parentIndex;
+        }
+        priorities[index] = priority;
+        items[index] = item;
+    }
+
+    int pop() {
+        var top = items[0];
+        var lastPriority = priorities[--size];
+        var lastItem = items[size];
+        var index = 0;
+        while (true) {
+            var childIndex = 2 * index + 1;
+            if (childIndex >= size) {
+                break;
+            }
+            if (childIndex + 1 < size && priorities[childIndex + 1] < priorities[childIndex]) {
+                childIndex++;
+            }
+            if (priorities[childIndex] >= lastPriority) {
+                break;
+            }
+            priorities[index] = priorities[childIndex];
+            items[index] = items[childIndex];
+            index = childIndex;
+        }
+        priorities[index] = lastPriority;
+        items[index] = lastItem;
+        return top;
+    }
+}
@@ -0,0 +1,177 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+// Where a ray enters and exits the cursor's tile, which tile it moves to next, and which segments
+// it crosses to get there. This holds only primitives (and an enum), and is reused for every
+// step of a ray, so that stepping allocates nothing.
+class RayStep {
+    private final static float HALF_INC = 0.5f;
+
+    private final int ORIGIN_X;
+    private final int ORIGIN_Y;
+    private final float SLOPE;
+    private final int INC_X;
+    private final int INC_Y;
+    private final float HALF_INC_X;
+    private final float HALF_INC_Y;
+
+    int nextCursorX;
+    int nextCursorY;
+    float rayEnterX;
+    float rayEnterY;
+    float rayExitX;
+    float rayExitY;
+    WallSegmentOrientation crossingOrientation;
+    int crossingSegX;
+    int crossingSegY;
+
+    RayStep(int originX, int originY, int targetX, int targetY) {
+        ORIGIN_X = originX;
+        ORIGIN_Y = originY;
+        var riseXY = (float) targetY - originY;
+        var runXY = (float) targetX - originX;
+        SLOPE = riseXY / runXY;
+        INC_X = runXY > 0 ? 1 : -1;
+        HALF_INC_X = INC_X / 2f;
+        INC_Y = riseXY > 0 ? 1 : -1;
+        HALF_INC_Y = INC_Y / 2f;
+    }
+
+    void advance(int cursorX, int cursorY) {
+        advance(ORIGIN_X, ORIGIN_Y, cursorX, cursorY, SLOPE, INC_X, INC_Y, HALF_INC_X,
+                HALF_INC_Y);
+    }
+
+    private void advance(int originX, int originY, int cursorX, int cursorY, float slope,
+                         int incX, int incY, float halfIncX, float halfIncY) {
+        var isEast = incX > 0;
+        var isSouth = incY > 0;
+        if (slopeIsHorizontal(slope)) {
+            var rayXAdj = (isEast ? HALF_INC : -HALF_INC);
+            set(cursorX + incX, cursorY,
+                    rayComponentStartingAtOrigin(originX, isEast, cursorX - rayXAdj),
+                    cursorY, cursorX + rayXAdj, cursorY,
+                    VERTICAL, cursorX + (isEast ? 1 : 0), cursorY);
+        }
+        else if (slopeIsVertical(slope)) {
+            var rayYAdj = (isSouth ? HALF_INC : -HALF_INC);
+            set(cursorX, cursorY + incY, cursorX,
+                    rayComponentStartingAtOrigin(originY, isSouth, cursorY - rayYAdj),
+                    cursorX, cursorY + rayYAdj,
+                    HORIZONTAL, cursorX, cursorY + (isSouth ? 1 : 0));
+        }
+        else if (slopeIsDiagonal(slope)) {
+            set(cursorX + incX, cursorY + incY,
+                    rayComponentStartingAtOrigin(originX, isEast,
+                            cursorX + (isEast ? -HALF_INC : HALF_INC)),
+                    rayComponentStartingAtOrigin(originY, isSouth,
+                            cursorY + (isSouth ? -HALF_INC : HALF_INC)),
+                    cursorX + (isEast ? HALF_INC : -HALF_INC),
+                    cursorY + (isSouth ? HALF_INC : -HALF_INC),
+                    CORNER, cursorX + (isEast ? 1 : 0), cursorY + (isSouth ? 1 : 0));
+        }
+        else {
+            // (If incY == 0, then slope is also 0)
+            advanceNoncardinally(originX, originY, cursorX, cursorY, slope, incX, incY,
+                    halfIncX, halfIncY, isEast, isSouth);
+        }
+    }
+
+    private void advanceNoncardinally(int originX, int originY, int cursorX, int cursorY,
+                                      float slope, int incX, int incY,
+                                      float halfIncX, float halfIncY,
+                                      boolean isEast, boolean isSouth) {
+        float cursorEnterX;
+        float cursorEnterY;
+
+        var cursorEnterBoundaryY = cursorY - halfIncY;
+        var cursorExitBoundaryY = cursorY + halfIncY;
+        var prevVertInterceptX = cursorX - halfIncX;
+        var nextVertInterceptX = cursorX + halfIncX;
+        var prevVertInterceptRun = prevVertInterceptX - originX;
+        var nextVertInterceptRun = nextVertInterceptX - originX;
+        var prevVertInterceptY = (slope * prevVertInterceptRun) + originY;
+        var nextVertInterceptY = (slope * nextVertInterceptRun) + originY;
+
+        if ((incY > 0 && prevVertInterceptY <= cursorEnterBoundaryY) ||
+                (incY < 0 && prevVertInterceptY <= cursorEnterBoundaryY)) {
+            cursorEnterY = cursorEnterBoundaryY;
+            var cursorEnterYOffsetFromOrigin = cursorEnterY - originY;
+            var cursorEnterXOffsetFromOrigin = cursorEnterYOffsetFromOrigin / slope;
+            cursorEnterX = originX + cursorEnterXOffsetFromOrigin;
+        }
+        else {
+            cursorEnterX = prevVertInterceptX;
+            var cursorEnterXOffsetFromOrigin = cursorEnterX - originX;
+            var cursorEnterYOffsetFromOrigin = slope * cursorEnterXOffsetFromOrigin;
+            cursorEnterY = originY + cursorEnterYOffsetFromOrigin;
+        }
+        cursorEnterX = rayComponentStartingAtOrigin(originX, isEast, cursorEnterX);
+        cursorEnterY = rayComponentStartingAtOrigin(originY, isSouth, cursorEnterY);
+
+        if ((incY > 0 && nextVertInterceptY > cursorExitBoundaryY) ||
+                (incY < 0 && nextVertInterceptY < cursorExitBoundaryY)) {
+            var cursorExitY = cursorExitBoundaryY;
+            var cursorExitYOffsetFromOrigin = cursorExitY - originY;
+            var cursorExitXOffsetFromOrigin = cursorExitYOffsetFromOrigin / slope;
+            set(cursorX, cursorY + incY, cursorEnterX, cursorEnterY,
+                    originX + cursorExitXOffsetFromOrigin, cursorExitY,
+                    HORIZONTAL, cursorX, cursorY + (incY > 0 ? 1 : 0));
+        }
+        else if ((incY > 0 && nextVertInterceptY < cursorExitBoundaryY) ||
+                (incY < 0 && nextVertInterceptY > cursorExitBoundaryY)) {
+            var cursorExitX = nextVertInterceptX;
+            var cursorExitXOffsetFromOrigin = cursorExitX - originX;
+            var cursorExitYOffsetFromOrigin = slope * cursorExitXOffsetFromOrigin;
+            set(cursorX + incX, cursorY, cursorEnterX, cursorEnterY,
+                    cursorExitX, originY + cursorExitYOffsetFromOrigin,
+                    VERTICAL, cursorX + (incX > 0 ? 1 : 0), cursorY);
+        }
+        else {
+            set(cursorX + incX, cursorY + incY, cursorEnterX, cursorEnterY,
+                    cursorX + halfIncX, cursorY + halfIncY,
+                    CORNER, cursorX + (incX > 0 ? 1 : 0), cursorY + (incY > 0 ? 1 : 0));
+        }
+    }
+
+    private void set(int nextCursorX, int nextCursorY,
+                     float rayEnterX, float rayEnterY, float rayExitX, float rayExitY,
+                     WallSegmentOrientation crossingOrientation,
+                     int crossingSegX, int crossingSegY) {
+        this.nextCursorX = nextCursorX;
+        this.nextCursorY = nextCursorY;
+        this.rayEnterX = rayEnterX;
+        this.rayEnterY = rayEnterY;
+        this.rayExitX = rayExitX;
+        this.rayExitY = rayExitY;
+        this.crossingOrientation = crossingOrientation;
+        this.crossingSegX = crossingSegX;
+        this.crossingSegY = crossingSegY;
+    }
+
+    private static float rayComponentStartingAtOrigin(int originComponent, boolean movingPositively,
+                                                      float rayEnterComponent) {
+        if (movingPositively) {
+            rayEnterComponent = Math.max(originComponent, rayEnterComponent);
+        }
+        else {
+            rayEnterComponent = Math.min(originComponent, rayEnterComponent);
+        }
+        return rayEnterComponent;
+    }
+
+    private static boolean slopeIsHorizontal(float slope) {
+        return slope == 0;
+    }
+
+    private static boolean slopeIsVertical(float slope) {
+        return slope == Float.POSITIVE_INFINITY || slope == Float.NEGATIVE_INFINITY;
+    }
+
+    private static boolean slopeIsDiagonal(float slope) {
+        return slope == 1 || slope == -1;
+    }
+}
@@ -0,0 +1,93 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+// The geometry of a ray from an origin to a target offset from it: the tiles it passes through,
+// where it enters and exits each of them, and which segments it crosses to leave each of them,
+// all relative to the origin. A template is computed once per offset, by stepping from (0, 0),
+// and replayed from any origin.
+//
+// Stepping from the origin itself finds the same geometry, for origins within about 100,000 tiles
+// of (0, 0) (as RayTemplatesTests checks), except for rays which pass exactly through a tile's
+// corner: which way such a ray goes on from the corner turns on float rounding, which depends on
+// where the origin is when stepping from it, but not with a template, which settles it as from
+// (0, 0) wherever the origin is. Further from (0, 0), stepping from the origin loses precision,
+// and rays differ more; a template doesn't, since its offsets stay small.
+//
+// The arrays are never written after construction, so templates are safely shared between
+// threads; they're exposed directly so that replaying a ray reads nothing but primitives.
+final class RayTemplate {
+    private final static WallSegmentOrientation[] ORIENTATIONS = WallSegmentOrientation.values();
+    private final static byte NO_CROSSING = -1;
+
+    final int OFFSET_X;
+    final int OFFSET_Y;
+    final int LENGTH;
+    final int[] CELLS_X;
+    final int[] CELLS_Y;
+    final float[] ENTERS_X;
+    final float[] ENTERS_Y;
+    final float[] EXITS_X;
+    final float[] EXITS_Y;
+    final byte[] CROSSINGS;
+    final int[] CROSSED_SEGMENTS_X;
+    final int[] CROSSED_SEGMENTS_Y;
+
+    RayTemplate(int offsetX, int offsetY) {
+        OFFSET_X = offsetX;
+        OFFSET_Y = offsetY;
+
+        // A ray never passes through more tiles than this
+        var maxLength = Math.abs(offsetX) + Math.abs(offsetY) + 1;
+        var cellsX = new int[maxLength];
+        var cellsY = new int[maxLength];
+        var entersX = new float[maxLength];
+        var entersY = new float[maxLength];
+        var exitsX = new float[maxLength];
+        var exitsY = new float[maxLength];
+        var crossings = new byte[maxLength];
+        var crossedSegmentsX = new int[maxLength];
+        var crossedSegmentsY = new int[maxLength];
+
+        var step = new RayStep(0, 0, offsetX, offsetY);
+        var cursorX = 0;
+        var cursorY = 0;
+        var length = 0;
+        while (length < maxLength) {
+            step.advance(cursorX, cursorY);
+            cellsX[length] = cursorX;
+            cellsY[length] = cursorY;
+            entersX[length] = step.rayEnterX;
+            entersY[length] = step.rayEnterY;
+            exitsX[length] = step.rayExitX;
+            exitsY[length] = step.rayExitY;
+            crossings[length] = step.crossingOrientation == null ? NO_CROSSING :
+                    (byte) step.crossingOrientation.ordinal();
+            crossedSegmentsX[length] = step.crossingSegX;
+            crossedSegmentsY[length] = step.crossingSegY;
+            length++;
+            if (cursorX == offsetX && cursorY == offsetY) {
+                break;
+            }
+            cursorX = step.nextCursorX;
+            cursorY = step.nextCursorY;
+        }
+
+        LENGTH = length;
+        CELLS_X = cellsX;
+        CELLS_Y = cellsY;
+        ENTERS_X = entersX;
+        ENTERS_Y = entersY;
+        EXITS_X = exitsX;
+        EXITS_Y = exitsY;
+        CROSSINGS = crossings;
+        CROSSED_SEGMENTS_X = crossedSegmentsX;
+        CROSSED_SEGMENTS_Y = crossedSegmentsY;
+    }
+
+    // The orientation of the segments crossed to leave the tile at this step, if any
+    WallSegmentOrientation crossing(int step) {
+        var crossing = CROSSINGS[step];
+        return crossing == NO_CROSSING ? null : ORIENTATIONS[crossing];
+    }
+}
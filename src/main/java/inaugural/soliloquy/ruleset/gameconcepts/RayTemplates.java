@@ -0,0 +1,81 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Caches RayTemplates by offset, and the templates of every ray cast for a visibility radius by
+// radius, evicting the least recently used of each beyond their maximums. This may be shared
+// between threads; templates are computed outside the lock, so two threads may occasionally
+// compute the same one, but they'd be identical.
+final class RayTemplates {
+    private final Map<Long, RayTemplate> BY_OFFSET;
+    private final Map<Integer, List<RayTemplate>> BY_RADIUS;
+
+    RayTemplates(int maxRays, int maxRadii) {
+        Check.throwOnLteZero(maxRays, "maxRays");
+        Check.throwOnLteZero(maxRadii, "maxRadii");
+        BY_OFFSET = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RayTemplate> eldest) {
+                return size() > maxRays;
+            }
+        };
+        BY_RADIUS = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<RayTemplate>> eldest) {
+                return size() > maxRadii;
+            }
+        };
+    }
+
+    RayTemplate forOffset(int offsetX, int offsetY) {
+        var key = LongObjectMap.key(offsetX, offsetY);
+        RayTemplate template;
+        synchronized (BY_OFFSET) {
+            template = BY_OFFSET.get(key);
+        }
+        if (template == null) {
+            template = new RayTemplate(offsetX, offsetY);
+            synchronized (BY_OFFSET) {
+                BY_OFFSET.put(key, template);
+            }
+        }
+        return template;
+    }
+
+    // The templates of the rays TileVisibilityCalculationImpl casts for the radius
+    List<RayTemplate> forRadius(int radius) {
+        List<RayTemplate> templates;
+        synchronized (BY_RADIUS) {
+            templates = BY_RADIUS.get(radius);
+        }
+        if (templates == null) {
+            var offsets = TileVisibilityCalculationImpl.perimeterOffsets(radius);
+            var computed = new ArrayList<RayTemplate>(offsets.size());
+            for (var offset : offsets) {
+                computed.add(forOffset(offset.X, offset.Y));
+            }
+            templates = List.copyOf(computed);
+            synchronized (BY_RADIUS) {
+                BY_RADIUS.put(radius, templates);
+            }
+        }
+        return templates;
+    }
+
+    int raysCached() {
+        synchronized (BY_OFFSET) {
+            return BY_OFFSET.size();
+        }
+    }
+
+    int radiiCached() {
+        synchronized (BY_RADIUS) {
+            return BY_RADIUS.size();
+        }
+    }
+}
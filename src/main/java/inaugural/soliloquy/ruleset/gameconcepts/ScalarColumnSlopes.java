@@ -0,0 +1,22 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+// The arithmetic here must stay exactly that of BlockingSlopesInXYZSpace.tileIsVisible, since
+// either may be used for the same tiles
+final class ScalarColumnSlopes implements ColumnSlopes {
+    @Override
+    public void visible(int originZ, float zAddendBelow, float run, int[] zs, int count,
+                        FloatIntervalSet blocked, boolean[] visible) {
+        visible(originZ, zAddendBelow, run, zs, 0, count, blocked, visible);
+    }
+
+    static void visible(int originZ, float zAddendBelow, float run, int[] zs, int from, int to,
+                        FloatIntervalSet blocked, boolean[] visible) {
+        for (var i = from; i < to; i++) {
+            float z = zs[i];
+            if (z < originZ) {
+                z = Math.min(originZ, z + zAddendBelow);
+            }
+            visible[i] = !blocked.interiorContains((z - originZ) / run);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.shared.Direction;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+
+// While a character's player decides where to move, speculate() calculates visibility in the
+// background from each tile the character could step to, so that when the move is committed, its
+// Result is (usually) ready. Speculative Results are short-lived: they're dropped at the next
+// speculate(), at invalidateAll(), and whenever the GameZone changes; and speculation stops as
+// soon as atPoint is called, since a move has then been committed.
+//
+// The calculation is called from the background as well as from atPoint, one call at a time, so
+// it needn't be thread-safe, but it shouldn't be shared with anything else. If it's a
+// VisitingTileVisibilityCalculation, speculation checks whether it's been stopped at every tile it
+// finds visible, so atPoint waits at most a moment for the calculation to be free; any other
+// calculation is only stopped between destinations. This assumes that nothing which affects
+// visibility changes in the GameZone while speculating; if anything does, call invalidateAll().
+//
+// Whichever executor speculates should be closed by whatever created it; close() stops
+// speculating, and shuts down the executor only if it was created here.
+public class SpeculativeVisibilityCalculation implements TileVisibilityCalculation, AutoCloseable {
+    private final TileVisibilityCalculation CALCULATION;
+    private final TileNavigability NAVIGABILITY;
+    private final Supplier<GameZone> GET_GAME_ZONE;
+    private final Executor EXECUTOR;
+    // Null unless the executor was created here
+    private final ExecutorService OWNED_EXECUTOR;
+    private final AtomicLong HITS;
+    private final AtomicLong MISSES;
+
+    private volatile Speculation speculation;
+
+    // Speculates on a single daemon thread of the lowest priority, so that speculation yields to
+    // everything else the game is doing
+    public SpeculativeVisibilityCalculation(TileVisibilityCalculation calculation,
+                                            TileNavigability navigability,
+                                            Supplier<GameZone> getGameZone) {
+        this(calculation, navigability, getGameZone, Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("speculative-visibility-", 0).daemon()
+                        .priority(Thread.MIN_PRIORITY).factory()), true);
+    }
+
+    // The executor belongs to the caller, and isn't shut down by close()
+    public SpeculativeVisibilityCalculation(TileVisibilityCalculation calculation,
+                                            TileNavigability navigability,
+                                            Supplier<GameZone> getGameZone,
+                                            Executor executor) {
+        this(calculation, navigability, getGameZone, executor, false);
+    }
+
+    private SpeculativeVisibilityCalculation(TileVisibilityCalculation calculation,
+                                             TileNavigability navigability,
+                                             Supplier<GameZone> getGameZone,
+                                             Executor executor,
+                                             boolean ownsExecutor) {
+        CALCULATION = Check.ifNull(calculation, "calculation");
+        NAVIGABILITY = Check.ifNull(navigability, "navigability");
+        GET_GAME_ZONE = Check.ifNull(getGameZone, "getGameZone");
+        EXECUTOR = Check.ifNull(executor, "executor");
+        OWNED_EXECUTOR = ownsExecutor ? (ExecutorService) executor : null;
+        HITS = new AtomicLong();
+        MISSES = new AtomicLong();
+        speculation = new Speculation(null);
+        speculation.cancelled = true;
+    }
+
+    // Finds the tiles which a character of the given height could step to from the point, as
+    // TileNavigability would, and calculates visibility from each in the background
+    public void speculate(Tile point, int visibilityRadius, int charHeight)
+            throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+        Check.throwOnLteZero(charHeight, "charHeight");
+
+        speculation.cancelled = true;
+        var gameZone = GET_GAME_ZONE.get();
+        var next = new Speculation(gameZone);
+        List<Tile> destinations = listOf();
+        for (var direction : Direction.values()) {
+            var navigability = NAVIGABILITY.calculate(point.location(), direction, charHeight);
+            if (navigability == null) {
+                continue;
+            }
+            var destination = navigability.destination();
+            for (var tile : gameZone.tiles(destination.to2d())) {
+                if (tile.location().Z == destination.Z) {
+                    destinations.add(tile);
+                    break;
+                }
+            }
+        }
+        speculation = next;
+        if (!destinations.isEmpty()) {
+            EXECUTOR.execute(() -> next.run(destinations, visibilityRadius));
+        }
+    }
+
+    // If visibility from the point was speculated, that Result is used; otherwise, speculation is
+    // stopped, and it's calculated here
+    @Override
+    public Result atPoint(Tile point, int visibilityRadius) throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+
+        var current = speculation;
+        current.cancelled = true;
+        var result = current.GAME_ZONE == GET_GAME_ZONE.get() ?
+                current.READY.get(new VisibilityKey(point.location(), visibilityRadius)) : null;
+        if (result != null) {
+            HITS.incrementAndGet();
+            return result;
+        }
+        MISSES.incrementAndGet();
+        synchronized (CALCULATION) {
+            return CALCULATION.atPoint(point, visibilityRadius);
+        }
+    }
+
+    // Drops every speculative Result, and stops speculating
+    public void invalidateAll() {
+        var invalidated = new Speculation(null);
+        invalidated.cancelled = true;
+        speculation.cancelled = true;
+        speculation = invalidated;
+    }
+
+    // Stops speculating, and shuts down the executor if it was created here
+    @Override
+    public void close() {
+        invalidateAll();
+        if (OWNED_EXECUTOR != null) {
+            OWNED_EXECUTOR.shutdownNow();
+        }
+    }
+
+    // How many speculative Results are ready
+    public int ready() {
+        return speculation.READY.size();
+    }
+
+    public long hits() {
+        return HITS.get();
+    }
+
+    public long misses() {
+        return MISSES.get();
+    }
+
+    private class Speculation implements VisibilityVisitor {
+        private final GameZone GAME_ZONE;
+        private final Map<VisibilityKey, Result> READY;
+
+        private volatile boolean cancelled;
+        // What's been found visible from the destination being calculated, if the calculation is
+        // being visited
+        private CompactVisibilityResult calculating;
+
+        private Speculation(GameZone gameZone) {
+            GAME_ZONE = gameZone;
+            READY = new ConcurrentHashMap<>();
+        }
+
+        private void run(List<Tile> destinations, int visibilityRadius) {
+            for (var destination : destinations) {
+                synchronized (CALCULATION) {
+                    if (cancelled || GET_GAME_ZONE.get() != GAME_ZONE) {
+                        return;
+                    }
+                    Result result;
+                    if (CALCULATION instanceof VisitingTileVisibilityCalculation visiting) {
+                        calculating = new CompactVisibilityResult(destination.location());
+                        visiting.atPoint(destination, visibilityRadius, this);
+                        result = calculating;
+                        calculating = null;
+                    }
+                    else {
+                        result = CALCULATION.atPoint(destination, visibilityRadius);
+                    }
+                    // A Result cut short by atPoint is incomplete, so it's dropped
+                    if (cancelled) {
+                        return;
+                    }
+                    READY.put(new VisibilityKey(destination.location(), visibilityRadius),
+                            result);
+                }
+            }
+        }
+
+        @Override
+        public boolean visitTile(Tile tile) {
+            calculating.addTile(tile);
+            return !cancelled;
+        }
+
+        @Override
+        public boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                                    WallSegment segment) {
+            calculating.addSegment(orientation, location, segment);
+            return !cancelled;
+        }
+    }
+}
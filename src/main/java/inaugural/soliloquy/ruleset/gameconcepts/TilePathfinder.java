@@ -0,0 +1,219 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.shared.Direction;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+
+// Finds the cheapest path between two locations for a character of a given height, by A* over the
+// steps TileNavigability allows. The heuristic is the octile distance, priced at the cheapest a
+// straight and a diagonal step can cost; so long as no step is ever cheaper than that, paths
+// found are the cheapest there are. Z is left out of the heuristic, since TileNavigability doesn't
+// charge for climbing.
+//
+// Nodes are found through a map keyed by their column's packed coordinates, and are closed with a
+// flag on the node, rather than in a set of boxed coordinates; and the open set is a PriorityHeap
+// of node numbers, into which a node whose cost drops is pushed again.
+// Each search has its own nodes (only a count of those expanded is shared), so a TilePathfinder can
+// be used from several threads at once, so long as its TileNavigability can be.
+public class TilePathfinder {
+    private final static Direction[] DIRECTIONS = Direction.values();
+    // How many nodes are expanded between checks for cancellation
+    private final static int CANCELLATION_INTERVAL = 64;
+
+    private final TileNavigability NAVIGABILITY;
+    private final long STRAIGHT_STEP_COST;
+    private final long DIAGONAL_STEP_COST;
+    private final AtomicLong NODES_EXPANDED;
+
+    // For navigabilities like TileNavigabilityImpl, where a diagonal step costs what a straight
+    // one does
+    public TilePathfinder(TileNavigability navigability, int minStepCost) {
+        this(navigability, minStepCost, minStepCost);
+    }
+
+    public TilePathfinder(TileNavigability navigability, int minStraightStepCost,
+                          int minDiagonalStepCost) {
+        NAVIGABILITY = Check.ifNull(navigability, "navigability");
+        STRAIGHT_STEP_COST = Check.ifNonNegative(minStraightStepCost, "minStraightStepCost");
+        // Two straight steps can always stand in for a diagonal one, as far as the heuristic
+        // knows
+        DIAGONAL_STEP_COST = Math.min(
+                Check.ifNonNegative(minDiagonalStepCost, "minDiagonalStepCost"),
+                2L * minStraightStepCost);
+        NODES_EXPANDED = new AtomicLong();
+    }
+
+    public Path find(Coordinate3d origin, Coordinate3d destination, int charHeight)
+            throws IllegalArgumentException {
+        return find(origin, destination, charHeight, Integer.MAX_VALUE, () -> false);
+    }
+
+    // Returns null if there's no path costing at most maxCost, or if the search is cancelled
+    // first. isCancelled is checked every so many nodes, so it should be cheap.
+    public Path find(Coordinate3d origin, Coordinate3d destination, int charHeight, int maxCost,
+                     BooleanSupplier isCancelled) throws IllegalArgumentException {
+        Check.ifNull(origin, "origin");
+        Check.ifNull(destination, "destination");
+        Check.throwOnLteZero(charHeight, "charHeight");
+        Check.throwOnLtValue(maxCost, 0, "maxCost");
+        Check.ifNull(isCancelled, "isCancelled");
+
+        var nodes = new Nodes();
+        var open = new PriorityHeap();
+        var start = nodes.at(origin);
+        start.cost = 0;
+        start.estimate = heuristic(origin, destination);
+        if (start.estimate > maxCost) {
+            return null;
+        }
+        open.push(start.NUMBER, start.priority());
+
+        var expanded = 0;
+        try {
+            while (!open.isEmpty()) {
+                var node = nodes.get(open.pop());
+                if (node.closed) {
+                    continue;
+                }
+                if (expanded++ % CANCELLATION_INTERVAL == 0 && isCancelled.getAsBoolean()) {
+                    return null;
+                }
+                node.closed = true;
+                if (node.LOCATION.equals(destination)) {
+                    return path(node);
+                }
+                for (var direction : DIRECTIONS) {
+                    var navigability = NAVIGABILITY.calculate(node.LOCATION, direction, charHeight);
+                    if (navigability == null) {
+                        continue;
+                    }
+                    var cost = node.cost + navigability.cost();
+                    if (cost > maxCost) {
+                        continue;
+                    }
+                    var next = nodes.at(navigability.destination());
+                    if (next.closed || cost >= next.cost) {
+                        continue;
+                    }
+                    var estimate = cost + heuristic(next.LOCATION, destination);
+                    if (estimate > maxCost) {
+                        continue;
+                    }
+                    next.parent = node;
+                    next.cost = cost;
+                    next.estimate = estimate;
+                    open.push(next.NUMBER, next.priority());
+                }
+            }
+        }
+        finally {
+            NODES_EXPANDED.addAndGet(expanded);
+        }
+
+        return null;
+    }
+
+    // How many nodes searches have expanded so far
+    long nodesExpanded() {
+        return NODES_EXPANDED.get();
+    }
+
+    long heuristic(Coordinate3d from, Coordinate3d to) {
+        var dx = Math.abs((long) to.X - from.X);
+        var dy = Math.abs((long) to.Y - from.Y);
+        var diagonal = Math.min(dx, dy);
+        return STRAIGHT_STEP_COST * (Math.max(dx, dy) - diagonal) + DIAGONAL_STEP_COST * diagonal;
+    }
+
+    private static Path path(Node end) {
+        List<Coordinate3d> locations = listOf();
+        for (var node = end; node != null; node = node.parent) {
+            locations.add(node.LOCATION);
+        }
+        Collections.reverse(locations);
+        return new Path(locations, (int) end.cost);
+    }
+
+    public static class Path {
+        private final List<Coordinate3d> LOCATIONS;
+        private final int COST;
+
+        Path(List<Coordinate3d> locations, int cost) {
+            LOCATIONS = locations;
+            COST = cost;
+        }
+
+        // Every location along the path, from the origin to the destination
+        public List<Coordinate3d> locations() {
+            return LOCATIONS;
+        }
+
+        public int cost() {
+            return COST;
+        }
+    }
+
+    // A search's nodes, numbered in the order they're found, so that the open set can hold their
+    // numbers
+    static class Nodes {
+        private final LongObjectMap<Node> BY_COLUMN = new LongObjectMap<>();
+
+        private Node[] byNumber = new Node[64];
+        private int count;
+
+        // Finds the node at the location, adding one if there's none yet; a column's nodes are
+        // chained together, since most columns only ever have one
+        Node at(Coordinate3d location) {
+            var key = LongObjectMap.key(location.X, location.Y);
+            var first = BY_COLUMN.get(key);
+            for (var node = first; node != null; node = node.nextInColumn) {
+                if (node.LOCATION.Z == location.Z) {
+                    return node;
+                }
+            }
+            if (count == byNumber.length) {
+                byNumber = Arrays.copyOf(byNumber, count * 2);
+            }
+            var node = new Node(location, count);
+            byNumber[count++] = node;
+            node.nextInColumn = first;
+            BY_COLUMN.put(key, node);
+            return node;
+        }
+
+        Node get(int number) {
+            return byNumber[number];
+        }
+    }
+
+    static class Node {
+        final Coordinate3d LOCATION;
+        final int NUMBER;
+
+        private Node nextInColumn;
+        Node parent;
+        long cost = Long.MAX_VALUE;
+        long estimate;
+        boolean closed;
+
+        private Node(Coordinate3d location, int number) {
+            LOCATION = location;
+            NUMBER = number;
+        }
+
+        // By estimated total cost; ties go to the node which has come further, since it's likely
+        // nearer the destination. Both are at most maxCost, so each fits in 31 bits.
+        long priority() {
+            return (estimate << 31) | (Integer.MAX_VALUE - cost);
+        }
+    }
+}
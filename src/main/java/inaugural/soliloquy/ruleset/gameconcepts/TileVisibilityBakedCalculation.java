@@ -0,0 +1,206 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.entities.GroundType;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static soliloquy.specs.common.valueobjects.Coordinate2d.coordinate2dOf;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+
+// Answers from a PotentiallyVisibleSet baked for a GameZone wherever it can: in that GameZone, at
+// the radius it was baked at, from origins it was baked from, and where nothing which could change
+// what's visible has changed nearby since it was baked. Anywhere else, the live calculation is
+// used. Changes are reported the same way as to TileVisibilityCalculationCache, and forgotten once
+// the GameZone is baked again and the new PotentiallyVisibleSet handed over via rebaked.
+public class TileVisibilityBakedCalculation implements TileVisibilityCalculation {
+    private final GameZone BAKED_GAME_ZONE;
+    private final Supplier<GameZone> GET_GAME_ZONE;
+    private final TileVisibilityCalculation LIVE_CALCULATION;
+    // The columns changed since baking, bucketed into square cells as wide as the square any
+    // origin's rays can reach, so that no more than four cells need to be checked per origin
+    private final LongObjectMap<Set<Coordinate2d>> CHANGED_COLUMNS_BY_CELL;
+
+    private PotentiallyVisibleSet potentiallyVisibleSet;
+    private long bakedAnswers;
+    private long liveAnswers;
+
+    public TileVisibilityBakedCalculation(PotentiallyVisibleSet potentiallyVisibleSet,
+                                          GameZone bakedGameZone,
+                                          Supplier<GameZone> getGameZone,
+                                          TileVisibilityCalculation liveCalculation) {
+        this.potentiallyVisibleSet =
+                Check.ifNull(potentiallyVisibleSet, "potentiallyVisibleSet");
+        BAKED_GAME_ZONE = Check.ifNull(bakedGameZone, "bakedGameZone");
+        GET_GAME_ZONE = Check.ifNull(getGameZone, "getGameZone");
+        LIVE_CALCULATION = Check.ifNull(liveCalculation, "liveCalculation");
+        CHANGED_COLUMNS_BY_CELL = new LongObjectMap<>();
+    }
+
+    @Override
+    public Result atPoint(Tile point, int visibilityRadius) throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+
+        var origin = point.location();
+        var gameZone = GET_GAME_ZONE.get();
+        if (gameZone != BAKED_GAME_ZONE || visibilityRadius != potentiallyVisibleSet.radius() ||
+                changedNear(origin, visibilityRadius) ||
+                !potentiallyVisibleSet.isBaked(origin)) {
+            liveAnswers++;
+            return LIVE_CALCULATION.atPoint(point, visibilityRadius);
+        }
+
+        bakedAnswers++;
+        var result = new CompactVisibilityResult(origin);
+        var tilesInColumns = new LongObjectMap<Set<Tile>>();
+        var segmentsInColumns =
+                new LongObjectMap<Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>>>();
+        potentiallyVisibleSet.forEachVisible(origin, (orientation, x, y, z) -> {
+            if (orientation == null) {
+                for (var tile : tilesInColumn(gameZone, tilesInColumns, x, y)) {
+                    if (tile.location().Z == z) {
+                        result.addTile(tile);
+                    }
+                }
+                return;
+            }
+            // A segment borders more than one column, so it may be listed under any of them
+            var segmentLoc = coordinate3dOf(x, y, z);
+            for (var columnX = x; columnX >= x - 1; columnX--) {
+                for (var columnY = y; columnY >= y - 1; columnY--) {
+                    var segment = segmentsInColumn(gameZone, segmentsInColumns, columnX, columnY)
+                            .get(orientation).get(segmentLoc);
+                    if (segment != null) {
+                        result.addSegment(orientation, segmentLoc, segment);
+                        return;
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    public void groundTypeChanged(Tile tile, GroundType previousGroundType)
+            throws IllegalArgumentException {
+        Check.ifNull(tile, "tile");
+        Check.ifNull(previousGroundType, "previousGroundType");
+
+        if (tile.getGroundType().blocksSight() != previousGroundType.blocksSight()) {
+            columnChanged(tile.location().to2d());
+        }
+    }
+
+    // Whether or not the tile blocks sight, it's visible (or not) in its own right
+    public void tileAddedOrRemoved(Coordinate3d location) throws IllegalArgumentException {
+        Check.ifNull(location, "location");
+
+        columnChanged(location.to2d());
+    }
+
+    public void segmentChanged(WallSegmentOrientation orientation, Coordinate3d location)
+            throws IllegalArgumentException {
+        Check.ifNull(orientation, "orientation");
+        Check.ifNull(location, "location");
+
+        columnChanged(location.to2d());
+    }
+
+    // Answers from a PotentiallyVisibleSet baked again since changes were reported, which are then
+    // forgotten. Closing the one replaced is up to the caller, once nothing answers from it.
+    public void rebaked(PotentiallyVisibleSet potentiallyVisibleSet)
+            throws IllegalArgumentException {
+        this.potentiallyVisibleSet =
+                Check.ifNull(potentiallyVisibleSet, "potentiallyVisibleSet");
+        CHANGED_COLUMNS_BY_CELL.clear();
+    }
+
+    public long bakedAnswers() {
+        return bakedAnswers;
+    }
+
+    public long liveAnswers() {
+        return liveAnswers;
+    }
+
+    // A ray never crosses a column, or a segment bordering a column, more than one tile beyond
+    // its radius
+    private boolean changedNear(Coordinate3d origin, int visibilityRadius) {
+        if (CHANGED_COLUMNS_BY_CELL.isEmpty()) {
+            return false;
+        }
+        var maxOffset = visibilityRadius + 1;
+        var cellSize = cellSize();
+        for (var cellX = Math.floorDiv(origin.X - maxOffset, cellSize);
+             cellX <= Math.floorDiv(origin.X + maxOffset, cellSize); cellX++) {
+            for (var cellY = Math.floorDiv(origin.Y - maxOffset, cellSize);
+                 cellY <= Math.floorDiv(origin.Y + maxOffset, cellSize); cellY++) {
+                var columns = CHANGED_COLUMNS_BY_CELL.get(LongObjectMap.key(cellX, cellY));
+                if (columns == null) {
+                    continue;
+                }
+                for (var column : columns) {
+                    if (Math.abs(column.X - origin.X) <= maxOffset &&
+                            Math.abs(column.Y - origin.Y) <= maxOffset) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void columnChanged(Coordinate2d column) {
+        var cellSize = cellSize();
+        var key = LongObjectMap.key(Math.floorDiv(column.X, cellSize),
+                Math.floorDiv(column.Y, cellSize));
+        var columns = CHANGED_COLUMNS_BY_CELL.get(key);
+        if (columns == null) {
+            columns = setOf();
+            CHANGED_COLUMNS_BY_CELL.put(key, columns);
+        }
+        columns.add(column);
+    }
+
+    // Only the baked radius is ever checked for changes, and the cells are cleared whenever that
+    // can change
+    private int cellSize() {
+        return (2 * (potentiallyVisibleSet.radius() + 1)) + 1;
+    }
+
+    private static Set<Tile> tilesInColumn(GameZone gameZone,
+                                           LongObjectMap<Set<Tile>> tilesInColumns,
+                                           int x, int y) {
+        var key = LongObjectMap.key(x, y);
+        var tiles = tilesInColumns.get(key);
+        if (tiles == null) {
+            tiles = gameZone.tiles(coordinate2dOf(x, y));
+            tilesInColumns.put(key, tiles);
+        }
+        return tiles;
+    }
+
+    private static Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segmentsInColumn(
+            GameZone gameZone,
+            LongObjectMap<Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>>>
+                    segmentsInColumns,
+            int x, int y) {
+        var key = LongObjectMap.key(x, y);
+        var segments = segmentsInColumns.get(key);
+        if (segments == null) {
+            segments = gameZone.segments(coordinate2dOf(x, y));
+            segmentsInColumns.put(key, segments);
+        }
+        return segments;
+    }
+}
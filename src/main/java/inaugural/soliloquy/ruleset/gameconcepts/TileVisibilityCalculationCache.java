@@ -0,0 +1,181 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.entities.GroundType;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+
+// Caches the Results of another TileVisibilityCalculation by origin and radius, evicting the
+// least recently used Result beyond a maximum number of entries. Results are only invalidated
+// when something which could change them happens within their radius, i.e. when a tile is added
+// or removed, when a tile's ground type changes whether it blocks sight, or when a segment is
+// added, removed, or changed; or when the GameZone itself changes.
+//
+// (Cached Results are shared between callers, so they should not be modified.)
+//
+// It isn't thread-safe: even a cache hit reorders the entries, and counts towards hits. A cache
+// meant to be shared by several threads should be wrapped in a lock of the callers' own.
+public class TileVisibilityCalculationCache implements TileVisibilityCalculation {
+    private final TileVisibilityCalculation CALCULATION;
+    private final Supplier<GameZone> GET_GAME_ZONE;
+    private final Map<VisibilityKey, Result> CACHE;
+
+    private GameZone cachedGameZone;
+    private long hits;
+    private long misses;
+
+    public TileVisibilityCalculationCache(TileVisibilityCalculation calculation,
+                                          Supplier<GameZone> getGameZone,
+                                          int maxEntries) {
+        CALCULATION = Check.ifNull(calculation, "calculation");
+        GET_GAME_ZONE = Check.ifNull(getGameZone, "getGameZone");
+        Check.throwOnLteZero(maxEntries, "maxEntries");
+        CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<VisibilityKey, Result> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Result atPoint(Tile point, int visibilityRadius) throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+
+        checkGameZone();
+        var key = new VisibilityKey(point.location(), visibilityRadius);
+        var result = CACHE.get(key);
+        if (result != null) {
+            hits++;
+            return result;
+        }
+        misses++;
+        result = CALCULATION.atPoint(point, visibilityRadius);
+        CACHE.put(key, result);
+        return result;
+    }
+
+    // Answers every radius at the point, from the cache where it can; if the calculation is a
+    // MultiRadiusTileVisibilityCalculation, the radii which aren't cached are calculated together,
+    // and otherwise one at a time
+    public Map<Integer, Result> atRadii(Tile point, List<Integer> visibilityRadii)
+            throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.ifNull(visibilityRadii, "visibilityRadii");
+        for (var visibilityRadius : visibilityRadii) {
+            Check.ifNull(visibilityRadius, "visibilityRadius");
+            Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+        }
+
+        checkGameZone();
+        Map<Integer, Result> results = mapOf();
+        List<Integer> uncachedRadii = listOf();
+        for (var visibilityRadius : visibilityRadii) {
+            if (results.containsKey(visibilityRadius) ||
+                    uncachedRadii.contains(visibilityRadius)) {
+                continue;
+            }
+            var result = CACHE.get(new VisibilityKey(point.location(), visibilityRadius));
+            if (result != null) {
+                hits++;
+                results.put(visibilityRadius, result);
+            }
+            else {
+                uncachedRadii.add(visibilityRadius);
+            }
+        }
+        if (uncachedRadii.isEmpty()) {
+            return results;
+        }
+
+        Map<Integer, Result> calculated;
+        if (CALCULATION instanceof MultiRadiusTileVisibilityCalculation multiRadiusCalculation) {
+            calculated = multiRadiusCalculation.atRadii(point, uncachedRadii);
+        }
+        else {
+            calculated = mapOf();
+            for (var visibilityRadius : uncachedRadii) {
+                calculated.put(visibilityRadius, CALCULATION.atPoint(point, visibilityRadius));
+            }
+        }
+        for (var visibilityRadius : uncachedRadii) {
+            misses++;
+            var result = calculated.get(visibilityRadius);
+            CACHE.put(new VisibilityKey(point.location(), visibilityRadius), result);
+            results.put(visibilityRadius, result);
+        }
+        return results;
+    }
+
+    public void groundTypeChanged(Tile tile, GroundType previousGroundType)
+            throws IllegalArgumentException {
+        Check.ifNull(tile, "tile");
+        Check.ifNull(previousGroundType, "previousGroundType");
+
+        if (tile.getGroundType().blocksSight() != previousGroundType.blocksSight()) {
+            invalidateCovering(tile.location().to2d());
+        }
+    }
+
+    // Whether or not the tile blocks sight, it's visible (or not) in its own right
+    public void tileAddedOrRemoved(Coordinate3d location) throws IllegalArgumentException {
+        Check.ifNull(location, "location");
+
+        invalidateCovering(location.to2d());
+    }
+
+    public void segmentChanged(WallSegmentOrientation orientation, Coordinate3d location)
+            throws IllegalArgumentException {
+        Check.ifNull(orientation, "orientation");
+        Check.ifNull(location, "location");
+
+        invalidateCovering(location.to2d());
+    }
+
+    public void invalidateAll() {
+        CACHE.clear();
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public int size() {
+        return CACHE.size();
+    }
+
+    private void checkGameZone() {
+        var gameZone = GET_GAME_ZONE.get();
+        if (gameZone != cachedGameZone) {
+            invalidateAll();
+            cachedGameZone = gameZone;
+        }
+    }
+
+    // A ray never crosses a column, or a segment bordering a column, more than one tile beyond
+    // its radius
+    private void invalidateCovering(Coordinate2d location) {
+        CACHE.keySet().removeIf(key -> {
+            var maxOffset = key.VISIBILITY_RADIUS + 1;
+            return Math.abs(location.X - key.ORIGIN.X) <= maxOffset &&
+                    Math.abs(location.Y - key.ORIGIN.Y) <= maxOffset;
+        });
+    }
+}
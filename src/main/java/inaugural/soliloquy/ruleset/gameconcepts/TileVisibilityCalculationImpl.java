@@ -2,25 +2,55 @@ package inaugural.soliloquy.ruleset.gameconcepts;
 
 import inaugural.soliloquy.tools.Check;
 import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
 import soliloquy.specs.gamestate.entities.Tile;
-import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
-import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
 import soliloquy.specs.ruleset.gameconcepts.TileVisibilityRayCalculation;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
-import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
 import static inaugural.soliloquy.tools.collections.Collections.setOf;
 import static soliloquy.specs.common.valueobjects.Coordinate2d.coordinate2dOf;
 
-public class TileVisibilityCalculationImpl implements TileVisibilityCalculation {
+// atPoint may be called from several threads at once, so long as the ray calculation allows it; a
+// TileVisibilityRayCalculationImpl does, unless it has an OcclusionGrid, which isn't thread-safe.
+// Calls which cast their rays in parallel take turns with the ray calculation, though, so those
+// may overlap even then.
+public class TileVisibilityCalculationImpl implements VisitingTileVisibilityCalculation {
     private final TileVisibilityRayCalculation RAY_CALCULATION;
-    private final Map<Integer, Set<Coordinate2d>> CACHED_OFFSETS;
+    // Access-ordered, so even reading it changes it; it's only touched while holding its lock, and
+    // the lists in it can't be changed, so they can be handed out
+    private final Map<Integer, List<Coordinate2d>> CACHED_OFFSETS;
+    private final ExecutorService EXECUTOR;
+    private final int PARALLELISM;
+
+    private final static int MAX_CACHED_RADII = 32;
 
     public TileVisibilityCalculationImpl(TileVisibilityRayCalculation rayCalculation) {
         RAY_CALCULATION = Check.ifNull(rayCalculation, "rayCalculation");
-        CACHED_OFFSETS = mapOf();
+        CACHED_OFFSETS = cachedOffsets();
+        EXECUTOR = null;
+        PARALLELISM = 1;
+    }
+
+    // The rays are split into (at most) parallelism contiguous batches, each cast on the executor
+    // into its own Result; the batches' Results are then aggregated in order, so the output is
+    // identical to that of the serial constructor. A TileVisibilityRayCalculationImpl's
+    // OcclusionGrid (if any) is brought up to date and loaded on the calling thread first, so the
+    // batches only read it.
+    public TileVisibilityCalculationImpl(TileVisibilityRayCalculation rayCalculation,
+                                         ExecutorService executor, int parallelism) {
+        RAY_CALCULATION = Check.ifNull(rayCalculation, "rayCalculation");
+        CACHED_OFFSETS = cachedOffsets();
+        EXECUTOR = Check.ifNull(executor, "executor");
+        Check.throwOnLteZero(parallelism, "parallelism");
+        PARALLELISM = parallelism;
     }
 
     @Override
@@ -29,64 +59,186 @@ public class TileVisibilityCalculationImpl implements TileVisibilityCalculation
         Check.ifNull(point, "point");
         Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
 
-        var offsets = CACHED_OFFSETS.get(visibilityRadius);
-        if (offsets == null) {
-            var offsets45Degrees = setOf(coordinate2dOf(0, visibilityRadius));
+        var offsets = offsets(visibilityRadius);
+        var origin = point.location();
+        if (EXECUTOR == null || PARALLELISM == 1 || offsets.size() < 2) {
+            return castRays(origin, offsets, false);
+        }
 
-            var radius = (double) visibilityRadius;
-            var radiusSquared = Math.pow(radius, 2d);
-            var cursorX = 0;
-            var cursorY = (int)radius;
+        if (RAY_CALCULATION instanceof TileVisibilityRayCalculationImpl rayCalculationImpl) {
+            // The batches read the OcclusionGrid (if any) as prepare left it, so no other call
+            // may prepare it anew until they're done
+            synchronized (rayCalculationImpl) {
+                rayCalculationImpl.prepare(origin, offsets);
+                return castBatches(origin, offsets);
+            }
+        }
+        return castBatches(origin, offsets);
+    }
 
-            while (cursorX < cursorY) {
-                var interceptedY = Math.sqrt(radiusSquared - Math.pow(cursorX + 0.5d, 2d));
-                if ((int) Math.ceil(interceptedY) == cursorY) {
-                    cursorX += 1;
+    private CompactVisibilityResult castBatches(Coordinate3d origin, List<Coordinate2d> offsets) {
+        var batchSize = (offsets.size() + PARALLELISM - 1) / PARALLELISM;
+        List<Future<CompactVisibilityResult>> batches = listOf();
+        for (var start = 0; start < offsets.size(); start += batchSize) {
+            var batch = offsets.subList(start, Math.min(start + batchSize, offsets.size()));
+            batches.add(EXECUTOR.submit(() -> castRays(origin, batch, true)));
+        }
+        var result = awaitBatch(batches.getFirst());
+        for (var i = 1; i < batches.size(); i++) {
+            result.addAll(awaitBatch(batches.get(i)));
+        }
+
+        return result;
+    }
+
+    // Visits each tile and segment visible from the point, as atPoint would find them, each only
+    // once, without building and merging a Result for each ray; it stops as soon as the visitor
+    // does. Rays are always cast on the calling thread, so the visitor needn't be thread-safe.
+    @Override
+    public void atPoint(Tile point, int visibilityRadius, VisibilityVisitor visitor)
+            throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+        Check.ifNull(visitor, "visitor");
+
+        var origin = point.location();
+        var deduplicatingVisitor = new DeduplicatingVisitor(origin, visitor);
+        var rayCalculationImpl = RAY_CALCULATION instanceof TileVisibilityRayCalculationImpl impl ?
+                impl : null;
+        var columns = rayCalculationImpl == null ? null : rayCalculationImpl.columns();
+        for (var offset : offsets(visibilityRadius)) {
+            var target = coordinate2dOf(origin.X + offset.X, origin.Y + offset.Y);
+            if (rayCalculationImpl != null) {
+                if (!rayCalculationImpl.castRay(origin, target, columns, deduplicatingVisitor)) {
+                    return;
                 }
-                else {
-                    cursorY -= 1;
+                continue;
+            }
+            // Any other ray calculation can only provide Results to visit
+            var result = RAY_CALCULATION.castRay(origin, target);
+            for (var tile : result.tiles().entrySet()) {
+                if (!deduplicatingVisitor.visitTile(tile.getKey(), tile.getValue())) {
+                    return;
+                }
+            }
+            for (var segments : result.segments().entrySet()) {
+                for (var segment : segments.getValue().entrySet()) {
+                    if (!deduplicatingVisitor.visitSegment(segments.getKey(), segment.getKey(),
+                            segment.getValue())) {
+                        return;
+                    }
                 }
-                offsets45Degrees.add(coordinate2dOf(cursorX, cursorY));
             }
+        }
+    }
 
-            var offsets90Degrees = setOf(offsets45Degrees);
-            for (var offset : offsets45Degrees) {
-                //noinspection SuspiciousNameCombination
-                offsets90Degrees.add(coordinate2dOf(offset.Y, offset.X));
+    // Casts the same rays as atPoint, a slice at a time, leaving atPoint itself as it is
+    public VisibilityJob job(Tile point, int visibilityRadius) throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+
+        return new VisibilityJob(RAY_CALCULATION, point.location(), offsets(visibilityRadius),
+                System::nanoTime);
+    }
+
+    // The offsets are computed outside the lock, so two threads may occasionally compute those of
+    // the same radius, but they'd be identical
+    private List<Coordinate2d> offsets(int visibilityRadius) {
+        List<Coordinate2d> offsets;
+        synchronized (CACHED_OFFSETS) {
+            offsets = CACHED_OFFSETS.get(visibilityRadius);
+        }
+        if (offsets == null) {
+            offsets = List.copyOf(perimeterOffsets(visibilityRadius));
+            synchronized (CACHED_OFFSETS) {
+                CACHED_OFFSETS.put(visibilityRadius, offsets);
             }
+        }
+        return offsets;
+    }
 
-            offsets = setOf(offsets90Degrees);
-            for (var offset : offsets90Degrees) {
-                offsets.add(coordinate2dOf(-offset.X, offset.Y));
-                offsets.add(coordinate2dOf(offset.X, -offset.Y));
-                offsets.add(coordinate2dOf(-offset.X, -offset.Y));
+    private static Map<Integer, List<Coordinate2d>> cachedOffsets() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Coordinate2d>> eldest) {
+                return size() > MAX_CACHED_RADII;
             }
+        };
+    }
 
-            CACHED_OFFSETS.put(visibilityRadius, offsets);
+    // A TileVisibilityRayCalculationImpl's rays share the columns they read, so each column is
+    // read from the GameZone, and has its view floor and ceiling resolved, once per batch of rays.
+    // If prepared, the ray calculation has already been prepared for the rays on another thread.
+    private CompactVisibilityResult castRays(Coordinate3d origin, List<Coordinate2d> offsets,
+                                             boolean prepared) {
+        var result = new CompactVisibilityResult(origin);
+        if (RAY_CALCULATION instanceof TileVisibilityRayCalculationImpl rayCalculationImpl) {
+            var columns = prepared ? rayCalculationImpl.preparedColumns() :
+                    rayCalculationImpl.columns();
+            for (var offset : offsets) {
+                rayCalculationImpl.castRay(origin,
+                        coordinate2dOf(origin.X + offset.X, origin.Y + offset.Y), columns, result);
+            }
+            return result;
         }
-
-        var origin = point.location();
-        Result result = null;
         for (var offset : offsets) {
             var locationToCalculate = coordinate2dOf(origin.X + offset.X, origin.Y + offset.Y);
-            var aggregand = RAY_CALCULATION.castRay(origin, locationToCalculate);
-            if (result == null) {
-                result = aggregand;
-            } else {
-                aggregateResults(result, aggregand);
-            }
+            result.addAll(RAY_CALCULATION.castRay(origin, locationToCalculate));
         }
 
         return result;
     }
 
-    private static void aggregateResults(Result aggregate, Result aggregand) {
-        aggregate.tiles().putAll(aggregand.tiles());
-        aggregate.segments().get(WallSegmentOrientation.VERTICAL).putAll(
-                aggregand.segments().get(WallSegmentOrientation.VERTICAL));
-        aggregate.segments().get(WallSegmentOrientation.CORNER).putAll(
-                aggregand.segments().get(WallSegmentOrientation.CORNER));
-        aggregate.segments().get(WallSegmentOrientation.HORIZONTAL).putAll(
-                aggregand.segments().get(WallSegmentOrientation.HORIZONTAL));
+    private static CompactVisibilityResult awaitBatch(Future<CompactVisibilityResult> batch) {
+        try {
+            return batch.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "TileVisibilityCalculationImpl.atPoint: interrupted while casting rays", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(
+                    "TileVisibilityCalculationImpl.atPoint: failed to cast rays", e.getCause());
+        }
+    }
+
+    static Set<Coordinate2d> perimeterOffsets(int visibilityRadius) {
+        var offsets45Degrees = setOf(coordinate2dOf(0, visibilityRadius));
+
+        var radius = (double) visibilityRadius;
+        var radiusSquared = Math.pow(radius, 2d);
+        var cursorX = 0;
+        var cursorY = (int)radius;
+
+        while (cursorX < cursorY) {
+            var interceptedY = Math.sqrt(radiusSquared - Math.pow(cursorX + 0.5d, 2d));
+            if ((int) Math.ceil(interceptedY) == cursorY) {
+                cursorX += 1;
+            }
+            else {
+                cursorY -= 1;
+            }
+            offsets45Degrees.add(coordinate2dOf(cursorX, cursorY));
+        }
+
+        var offsets90Degrees = setOf(offsets45Degrees);
+        for (var offset : offsets45Degrees) {
+            //noinspection SuspiciousNameCombination
+            offsets90Degrees.add(coordinate2dOf(offset.Y, offset.X));
+        }
+
+        var offsets = setOf(offsets90Degrees);
+        for (var offset : offsets90Degrees) {
+            offsets.add(coordinate2dOf(-offset.X, offset.Y));
+            offsets.add(coordinate2dOf(offset.X, -offset.Y));
+            offsets.add(coordinate2dOf(-offset.X, -offset.Y));
+        }
+
+        return offsets;
     }
 }
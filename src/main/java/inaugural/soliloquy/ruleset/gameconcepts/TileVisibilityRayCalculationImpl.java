@@ -1,31 +1,22 @@
 package inaugural.soliloquy.ruleset.gameconcepts;
 
+import inaugural.soliloquy.ruleset.gameconcepts.ZoneColumns.Column;
 import inaugural.soliloquy.tools.Check;
-import org.javatuples.Triplet;
 import soliloquy.specs.common.valueobjects.Coordinate2d;
 import soliloquy.specs.common.valueobjects.Coordinate3d;
-import soliloquy.specs.common.valueobjects.Pair;
 import soliloquy.specs.gamestate.entities.GameZone;
-import soliloquy.specs.gamestate.entities.Tile;
 import soliloquy.specs.gamestate.entities.WallSegment;
 import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
 import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
 import soliloquy.specs.ruleset.gameconcepts.TileVisibilityRayCalculation;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
-import static inaugural.soliloquy.tools.collections.Collections.mapOf;
-import static inaugural.soliloquy.tools.valueobjects.Coordinate2d.addOffsets2d;
-import static java.util.Comparator.comparing;
-import static soliloquy.specs.common.valueobjects.Coordinate2d.coordinate2dOf;
-import static soliloquy.specs.common.valueobjects.Pair.pairOf;
-import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
 
 // This class contains a great deal of central logic to the ruleset. I can't think of a cleavage
 // which wouldn't violate the SRP, so I've tried to declare internal classes where necessary to
@@ -35,8 +26,12 @@ public class TileVisibilityRayCalculationImpl implements TileVisibilityRayCalcul
     private final Function<Coordinate3d, Integer> GET_VIEW_CEILING;
     private final Function<Coordinate3d, Integer> GET_VIEW_FLOOR;
     private final float Z_ADDEND_BELOW;
+    private final OcclusionGrid OCCLUSION_GRID;
+    private final RayTemplates RAY_TEMPLATES;
 
-    private final static float HALF_INC = 0.5f;
+    // Enough for every ray of several visibility radii in the dozens of tiles
+    private final static int MAX_RAY_TEMPLATES = 8192;
+    private final static int MAX_RAY_TEMPLATE_RADII = 32;
 
     public TileVisibilityRayCalculationImpl(Supplier<GameZone> getGameZone,
                                             Function<Coordinate3d, Integer> getViewCeiling,
@@ -46,442 +41,313 @@ public class TileVisibilityRayCalculationImpl implements TileVisibilityRayCalcul
         GET_VIEW_CEILING = Check.ifNull(getViewCeiling, "getViewCeiling");
         GET_VIEW_FLOOR = Check.ifNull(getViewFloor, "getViewFloor");
         Z_ADDEND_BELOW = Check.throwOnLtValue(zAddendBelow, 0, "zAddendBelow");
+        OCCLUSION_GRID = null;
+        RAY_TEMPLATES = new RayTemplates(MAX_RAY_TEMPLATES, MAX_RAY_TEMPLATE_RADII);
+    }
+
+    // With an OcclusionGrid, view floors, view ceilings, and blocking segments are read from its
+    // snapshot rather than from the tiles and segments of the GameZone; the GameZone is then only
+    // read for the tiles and segments to add to the Result
+    public TileVisibilityRayCalculationImpl(Supplier<GameZone> getGameZone,
+                                            Function<Coordinate3d, Integer> getViewCeiling,
+                                            Function<Coordinate3d, Integer> getViewFloor,
+                                            float zAddendBelow,
+                                            OcclusionGrid occlusionGrid) {
+        GET_GAME_ZONE = Check.ifNull(getGameZone, "getGameZone");
+        GET_VIEW_CEILING = Check.ifNull(getViewCeiling, "getViewCeiling");
+        GET_VIEW_FLOOR = Check.ifNull(getViewFloor, "getViewFloor");
+        Z_ADDEND_BELOW = Check.throwOnLtValue(zAddendBelow, 0, "zAddendBelow");
+        OCCLUSION_GRID = Check.ifNull(occlusionGrid, "occlusionGrid");
+        RAY_TEMPLATES = new RayTemplates(MAX_RAY_TEMPLATES, MAX_RAY_TEMPLATE_RADII);
     }
 
     @Override
     public TileVisibilityCalculation.Result castRay(Coordinate3d origin, Coordinate2d target)
             throws IllegalArgumentException {
-        Map<Coordinate3d, Tile> tilesInRay = mapOf();
-        Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segmentsInRay = mapOf();
-        segmentsInRay.put(WallSegmentOrientation.HORIZONTAL, mapOf());
-        segmentsInRay.put(WallSegmentOrientation.CORNER, mapOf());
-        segmentsInRay.put(VERTICAL, mapOf());
-        var gameZone = GET_GAME_ZONE.get();
-
-        var riseXY = (float) target.Y - origin.Y;
-        var runXY = (float) target.X - origin.X;
-        var slopeXY = riseXY / runXY;
-        var incX = runXY > 0 ? 1 : -1;
-        var halfIncX = incX / 2f;
-        var incY = riseXY > 0 ? 1 : -1;
-        var halfIncY = incY / 2f;
-
-        var blockingSlopesInXYZSpace = new BlockingSlopesInXYZSpace();
-
-        var origin2d = origin.to2d();
-        var cursor = origin2d;
-        var cursorHitTarget = false;
-        do {
-            if (cursor.equals(target)) {
-                cursorHitTarget = true;
-            }
-            var tilesAtCursor = gameZone.tiles(cursor);
-            var nextCursorInfo =
-                    nextCursor(origin2d, cursor, slopeXY, incX, incY, halfIncX, halfIncY);
-
-            var floorBlockingTile = tilesAtCursor.stream()
-                    .filter(t -> t.getGroundType().blocksSight() && t.location().Z <= origin.Z)
-                    .max(comparing(t -> t.location().Z));
-            var ceilingBlockingTile = tilesAtCursor.stream()
-                    .filter(t -> t.getGroundType().blocksSight() && t.location().Z > origin.Z)
-                    .min(comparing(t -> t.location().Z));
-            // (The ugly multiple nested assignments are to ensure the variables are effectively
-            // final for lambdas below)
-            Integer floor;
-            Integer floorFromZone = GET_VIEW_FLOOR.apply(cursor.to3d(origin.Z));
-            if (floorBlockingTile.isPresent()) {
-                if (floorFromZone != null) {
-                    floor = Math.max(floorFromZone, floorBlockingTile.get().location().Z);
-                }
-                else {
-                    floor = floorBlockingTile.get().location().Z;
-                }
-            }
-            else {
-                floor = floorFromZone;
-            }
-            Integer ceiling;
-            Integer ceilingFromZone = GET_VIEW_CEILING.apply(cursor.to3d(origin.Z));
-            if (ceilingBlockingTile.isPresent()) {
-                if (ceilingFromZone != null) {
-                    ceiling = Math.min(ceilingFromZone, ceilingBlockingTile.get().location().Z);
-                }
-                else {
-                    ceiling = ceilingBlockingTile.get().location().Z;
-                }
-            }
-            else {
-                ceiling = ceilingFromZone;
-            }
-
-            blockingSlopesInXYZSpace.addBlockingTiles(
-                    nextCursorInfo.rayEnterX, nextCursorInfo.rayEnterY,
-                    nextCursorInfo.rayExitX, nextCursorInfo.rayExitY,
-                    origin, floor, ceiling);
-            var visibleTilesAtCursor = tilesAtCursor.stream()
-                    .filter(t -> blockingSlopesInXYZSpace.tileIsVisible(origin, t));
-            if (floor != null) {
-                visibleTilesAtCursor = visibleTilesAtCursor.filter(t -> t.location().Z >= floor);
-            }
-            if (ceiling != null) {
-                visibleTilesAtCursor = visibleTilesAtCursor.filter(t -> t.location().Z < ceiling);
-            }
-            visibleTilesAtCursor.forEach(t -> tilesInRay.put(t.location(), t));
-
-            var segmentsAtCursor = gameZone.segments(cursor);
-            segmentsAtCursor.forEach((o, segs) -> segs.entrySet().stream()
-                    .filter(s -> blockingSlopesInXYZSpace.segmentIsVisible(origin, o, s.getKey()))
-                    .filter(s -> floor == null || s.getKey().Z >= floor)
-                    .forEach(s -> segmentsInRay.get(o).put(s.getKey(), s.getValue())));
-
-            cursor = nextCursorInfo.nextCursor;
-            if (nextCursorInfo.crossingSegmentsOrientation != null) {
-                var blockingSegments = segmentsAtCursor.entrySet().stream()
-                        .filter(e -> e.getKey() == nextCursorInfo.crossingSegmentsOrientation)
-                        .map(Map.Entry::getValue).toList().getFirst().entrySet().stream().filter(e ->
-                                e.getKey().to2d().equals(nextCursorInfo.crossingSegmentsLoc2d) &&
-                                        e.getValue().getType().blocksSight())
-                        .map(Map.Entry::getValue).collect(Collectors.toSet());
-                blockingSlopesInXYZSpace.addBlockingSegments(origin, blockingSegments,
-                        nextCursorInfo.crossingSegmentsOrientation,
-                        nextCursorInfo.crossingSegmentsLoc2d);
-            }
+        var result = new CompactVisibilityResult(origin);
+        visitRay(origin, target, result);
+        return result;
+    }
 
-            if (blockingSlopesInXYZSpace.rayIsCompletelyBlocked()) {
-                cursorHitTarget = true;
-            }
-        } while (!cursorHitTarget);
+    // Visits each tile and segment visible along the ray as castRay would find it, without
+    // building a Result. A ray visits each tile at most once, but a segment listed under more
+    // than one of its columns may be visited more than once. Returns false if the visitor stopped.
+    public boolean castRay(Coordinate3d origin, Coordinate2d target, VisibilityVisitor visitor)
+            throws IllegalArgumentException {
+        Check.ifNull(origin, "origin");
+        Check.ifNull(target, "target");
+        Check.ifNull(visitor, "visitor");
 
-        return new TileVisibilityCalculation.Result() {
-            @Override
-            public Map<Coordinate3d, Tile> tiles() {
-                return tilesInRay;
-            }
+        return visitRay(origin, target, visitor);
+    }
 
-            @Override
-            public Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments() {
-                return segmentsInRay;
-            }
-        };
+    private boolean visitRay(Coordinate3d origin, Coordinate2d target, VisibilityVisitor visitor) {
+        return castRay(origin, target, columns(), visitor);
     }
 
-    private NextCursorInfo nextCursor(Coordinate2d origin, Coordinate2d cursor, float slope,
-                                      int incX, int incY, float halfIncX, float halfIncY) {
-        var isEast = incX > 0;
-        var isSouth = incY > 0;
-        if (slopeIsHorizontal(slope)) {
-            var newCursor = addOffsets2d(cursor, incX, 0);
-            var rayXAdj = (isEast ? HALF_INC : -HALF_INC);
-            var rayEnterX = cursor.X - rayXAdj;
-            rayEnterX = rayComponentStartingAtOrigin(origin.X, isEast, rayEnterX);
-            var rayExitX = cursor.X + rayXAdj;
-            var segX = cursor.X + (isEast ? 1 : 0);
-            return new NextCursorInfo(newCursor, rayEnterX, cursor.Y, rayExitX, cursor.Y, VERTICAL,
-                    coordinate2dOf(segX, cursor.Y));
-        }
-        else if (slopeIsVertical(slope)) {
-            var rayYAdj = (isSouth ? HALF_INC : -HALF_INC);
-            var rayEnterY = cursor.Y - rayYAdj;
-            rayEnterY = rayComponentStartingAtOrigin(origin.Y, isSouth, rayEnterY);
-            var rayExitY = cursor.Y + rayYAdj;
-            var segY = cursor.Y + (isSouth ? 1 : 0);
-            return new NextCursorInfo(addOffsets2d(cursor, 0, incY), cursor.X, rayEnterY,
-                    cursor.X, rayExitY, HORIZONTAL, coordinate2dOf(cursor.X, segY));
-        }
-        else if (slopeIsDiagonal(slope)) {
-            var segX = cursor.X + (isEast ? 1 : 0);
-            var segY = cursor.Y + (isSouth ? 1 : 0);
-            var rayEnterX = cursor.X + (isEast ? -HALF_INC : HALF_INC);
-            rayEnterX = rayComponentStartingAtOrigin(origin.X, isEast, rayEnterX);
-            var rayExitX = cursor.X + (isEast ? HALF_INC : -HALF_INC);
-            var rayEnterY = cursor.Y + (isSouth ? -HALF_INC : HALF_INC);
-            rayEnterY = rayComponentStartingAtOrigin(origin.Y, isSouth, rayEnterY);
-            var rayExitY = cursor.Y + (isSouth ? HALF_INC : -HALF_INC);
-            return new NextCursorInfo(addOffsets2d(cursor, incX, incY), rayEnterX, rayEnterY,
-                    rayExitX, rayExitY, CORNER, coordinate2dOf(segX, segY));
+    // As castRay, but reading columns (and their view floors and ceilings) from the ZoneColumns,
+    // which other rays of the same calculation can share
+    boolean castRay(Coordinate3d origin, Coordinate2d target, ZoneColumns columns,
+                    VisibilityVisitor visitor) {
+        var cursor = rayCursor(origin, target, columns);
+        while (!cursor.done()) {
+            if (!cursor.advance(visitor)) {
+                return false;
+            }
         }
-
-        // (If incY == 0, then slope is also 0)
-        return noncardinalCrossingInfo(incX, incY, slope, origin, cursor, halfIncX, halfIncY,
-                isEast, isSouth);
+        return true;
     }
 
-    private static float rayComponentStartingAtOrigin(int originComponent, boolean movingPositively,
-                                                      float rayEnterComponent) {
-        if (movingPositively) {
-            rayEnterComponent = Math.max(originComponent, rayEnterComponent);
-        }
-        else {
-            rayEnterComponent = Math.min(originComponent, rayEnterComponent);
-        }
-        return rayEnterComponent;
+    // Steps the same ray as castRay, one column at a time, so that many rays can be advanced in
+    // turn, e.g. near-to-far across every ray of a VisibilityJob
+    RayCursor rayCursor(Coordinate3d origin, Coordinate2d target, ZoneColumns columns) {
+        return new RayCursor(columns, origin, target);
     }
 
-    private static NextCursorInfo noncardinalCrossingInfo(int incX, int incY, float slope,
-                                                          Coordinate2d origin, Coordinate2d cursor,
-                                                          float halfIncX, float halfIncY,
-                                                          boolean isEast, boolean isSouth) {
-        Coordinate2d nextCursor;
-        WallSegmentOrientation crossingOrientation;
-        int crossingSegX;
-        int crossingSegY;
-        float cursorEnterX;
-        float cursorEnterY;
-        float cursorExitX;
-        float cursorExitY;
-
-        var cursorEnterBoundaryY = cursor.Y - halfIncY;
-        var cursorExitBoundaryY = cursor.Y + halfIncY;
-        var prevVertInterceptX = cursor.X - halfIncX;
-        var nextVertInterceptX = cursor.X + halfIncX;
-        var prevVertInterceptRun = prevVertInterceptX - origin.X;
-        var nextVertInterceptRun = nextVertInterceptX - origin.X;
-        var prevVertInterceptY = (slope * prevVertInterceptRun) + origin.Y;
-        var nextVertInterceptY = (slope * nextVertInterceptRun) + origin.Y;
-
-        if ((incY > 0 && prevVertInterceptY <= cursorEnterBoundaryY) ||
-                (incY < 0 && prevVertInterceptY <= cursorEnterBoundaryY)) {
-            cursorEnterY = cursorEnterBoundaryY;
-            var cursorEnterYOffsetFromOrigin = cursorEnterY - origin.Y;
-            var cursorEnterXOffsetFromOrigin = cursorEnterYOffsetFromOrigin / slope;
-            cursorEnterX = origin.X + cursorEnterXOffsetFromOrigin;
-        }
-        else {
-            cursorEnterX = prevVertInterceptX;
-            var cursorEnterXOffsetFromOrigin = cursorEnterX - origin.X;
-            var cursorEnterYOffsetFromOrigin = slope * cursorEnterXOffsetFromOrigin;
-            cursorEnterY = origin.Y + cursorEnterYOffsetFromOrigin;
+    class RayCursor {
+        private final ZoneColumns COLUMNS;
+        private final Coordinate3d ORIGIN;
+        private final RayTemplate TEMPLATE;
+        private final BlockingSlopesInXYZSpace BLOCKING_SLOPES;
+        private final ColumnTileVisibility COLUMN_TILE_VISIBILITY;
+
+        private int[] segmentZs;
+        private int step;
+        private boolean blocked;
+
+        private RayCursor(ZoneColumns columns, Coordinate3d origin, Coordinate2d target) {
+            COLUMNS = columns;
+            ORIGIN = origin;
+            TEMPLATE = RAY_TEMPLATES.forOffset(target.X - origin.X, target.Y - origin.Y);
+            BLOCKING_SLOPES = new BlockingSlopesInXYZSpace(Z_ADDEND_BELOW);
+            COLUMN_TILE_VISIBILITY = new ColumnTileVisibility();
+            segmentZs = new int[8];
         }
 
-        if ((incY > 0 && nextVertInterceptY > cursorExitBoundaryY) ||
-                (incY < 0 && nextVertInterceptY < cursorExitBoundaryY)) {
-            nextCursor = addOffsets2d(cursor, 0, incY);
-            crossingOrientation = HORIZONTAL;
-            crossingSegX = cursor.X;
-            crossingSegY = cursor.Y + (incY > 0 ? 1 : 0);
-            cursorExitY = cursorExitBoundaryY;
-            var cursorExitYOffsetFromOrigin = cursorExitY - origin.Y;
-            var cursorExitXOffsetFromOrigin = cursorExitYOffsetFromOrigin / slope;
-            cursorExitX = origin.X + cursorExitXOffsetFromOrigin;
-        }
-        else if ((incY > 0 && nextVertInterceptY < cursorExitBoundaryY) ||
-                (incY < 0 && nextVertInterceptY > cursorExitBoundaryY)) {
-            nextCursor = addOffsets2d(cursor, incX, 0);
-            crossingOrientation = VERTICAL;
-            crossingSegY = cursor.Y;
-            crossingSegX = cursor.X + (incX > 0 ? 1 : 0);
-            cursorExitX = nextVertInterceptX;
-            var cursorExitXOffsetFromOrigin = cursorExitX - origin.X;
-            var cursorExitYOffsetFromOrigin = slope * cursorExitXOffsetFromOrigin;
-            cursorExitY = origin.Y + cursorExitYOffsetFromOrigin;
-        }
-        else {
-            nextCursor = addOffsets2d(cursor, incX, incY);
-            crossingOrientation = CORNER;
-            crossingSegX = cursor.X + (incX > 0 ? 1 : 0);
-            crossingSegY = cursor.Y + (incY > 0 ? 1 : 0);
-            cursorExitX = cursor.X + halfIncX;
-            cursorExitY = cursor.Y + halfIncY;
+        // Whether the ray has reached its target, or is completely blocked short of it
+        boolean done() {
+            return blocked || step >= TEMPLATE.LENGTH;
         }
 
-        cursorEnterX = rayComponentStartingAtOrigin(origin.X, isEast, cursorEnterX);
-        cursorEnterY = rayComponentStartingAtOrigin(origin.Y, isSouth, cursorEnterY);
+        // How many columns along the ray the next column to visit is
+        int step() {
+            return step;
+        }
 
-        return new NextCursorInfo(nextCursor, cursorEnterX, cursorEnterY, cursorExitX, cursorExitY,
-                crossingOrientation, coordinate2dOf(crossingSegX, crossingSegY));
-    }
+        // Visits what's visible in the next column; returns false if the visitor stopped
+        boolean advance(VisibilityVisitor visitor) {
+            var cursorX = ORIGIN.X + TEMPLATE.CELLS_X[step];
+            var cursorY = ORIGIN.Y + TEMPLATE.CELLS_Y[step];
+            var column = COLUMNS.at(cursorX, cursorY);
+            var tilesAtCursor = column.TILES;
 
-    private static class NextCursorInfo {
-        Coordinate2d nextCursor;
-        float rayEnterX;
-        float rayEnterY;
-        float rayExitX;
-        float rayExitY;
-        WallSegmentOrientation crossingSegmentsOrientation;
-        Coordinate2d crossingSegmentsLoc2d;
-
-        private NextCursorInfo(Coordinate2d nextCursor,
-                               float rayEnterX, float rayEnterY, float rayExitX, float rayExitY,
-                               WallSegmentOrientation crossingSegmentsOrientation,
-                               Coordinate2d crossingSegmentsLoc2d) {
-            this.nextCursor = nextCursor;
-            this.rayEnterX = rayEnterX;
-            this.rayEnterY = rayEnterY;
-            this.rayExitX = rayExitX;
-            this.rayExitY = rayExitY;
-            this.crossingSegmentsOrientation = crossingSegmentsOrientation;
-            this.crossingSegmentsLoc2d = crossingSegmentsLoc2d;
-        }
-    }
+            Integer floor;
+            Integer ceiling;
+            if (OCCLUSION_GRID == null) {
+                floor = column.floor(ORIGIN.Z);
+                ceiling = column.ceiling(ORIGIN.Z);
+            }
+            else {
+                var cursorAtOriginZ = coordinate3dOf(cursorX, cursorY, ORIGIN.Z);
+                floor = OCCLUSION_GRID.viewFloor(cursorX, cursorY,
+                        GET_VIEW_FLOOR.apply(cursorAtOriginZ), ORIGIN.Z);
+                ceiling = OCCLUSION_GRID.viewCeiling(cursorX, cursorY,
+                        GET_VIEW_CEILING.apply(cursorAtOriginZ), ORIGIN.Z);
+            }
 
-    private static boolean slopeIsHorizontal(float slope) {
-        return slope == 0;
-    }
+            BLOCKING_SLOPES.addBlockingTiles(ORIGIN.X + TEMPLATE.ENTERS_X[step],
+                    ORIGIN.Y + TEMPLATE.ENTERS_Y[step], ORIGIN.X + TEMPLATE.EXITS_X[step],
+                    ORIGIN.Y + TEMPLATE.EXITS_Y[step], ORIGIN, floor, ceiling);
+            if (!COLUMN_TILE_VISIBILITY.visitVisible(BLOCKING_SLOPES, ORIGIN, tilesAtCursor,
+                    floor, ceiling, visitor)) {
+                return false;
+            }
 
-    private static boolean slopeIsVertical(float slope) {
-        return slope == Float.POSITIVE_INFINITY || slope == Float.NEGATIVE_INFINITY;
-    }
+            var segmentsAtCursor = column.SEGMENTS;
+            for (var segmentsWithOrientation : segmentsAtCursor.entrySet()) {
+                var orientation = segmentsWithOrientation.getKey();
+                for (var segment : segmentsWithOrientation.getValue().entrySet()) {
+                    var segmentLoc = segment.getKey();
+                    if (BLOCKING_SLOPES.segmentIsVisible(ORIGIN, orientation, segmentLoc) &&
+                            (floor == null || segmentLoc.Z >= floor) &&
+                            !visitor.visitSegment(orientation, segmentLoc, segment.getValue())) {
+                        return false;
+                    }
+                }
+            }
 
-    private static boolean slopeIsDiagonal(float slope) {
-        return slope == 1 || slope == -1;
-    }
+            var crossing = TEMPLATE.crossing(step);
+            if (crossing != null) {
+                segmentZs = addCrossedSegments(BLOCKING_SLOPES, ORIGIN, crossing,
+                        ORIGIN.X + TEMPLATE.CROSSED_SEGMENTS_X[step],
+                        ORIGIN.Y + TEMPLATE.CROSSED_SEGMENTS_Y[step], cursorX, cursorY,
+                        segmentsAtCursor, segmentZs);
+            }
 
-    private static float slope3d(Coordinate3d c1, float x2, float y2, float z2) {
-        return slope3d(c1.Z, z2, runInXYZSpace(c1.X, x2, c1.Y, y2));
+            blocked = BLOCKING_SLOPES.rayIsCompletelyBlocked();
+            step++;
+            return true;
+        }
     }
 
-    private static float runInXYZSpace(float x1, float x2, float y1, float y2) {
-        var xDist = x2 - x1;
-        var yDist = y2 - y1;
-        return (float) Math.sqrt(Math.pow(xDist, 2) + Math.pow(yDist, 2));
-    }
+    // Whether the tile at the target can be seen from the origin. This steps the same ray as
+    // castRay would towards the target, but only tests the target itself, and stops as soon as
+    // the ray is completely blocked.
+    public boolean lineOfSight(Coordinate3d origin, Coordinate3d target)
+            throws IllegalArgumentException {
+        Check.ifNull(origin, "origin");
+        Check.ifNull(target, "target");
 
-    private static float slope3d(float z1, float z2, float runInXYZSpace) {
-        var riseInXYZSpace = z2 - z1;
-        return riseInXYZSpace / runInXYZSpace;
+        return new LineOfSight(columns()).between(origin, target);
     }
 
-    protected class BlockingSlopesInXYZSpace {
-        // Each of the RANGES are top-down; i.e., item1 > item2
-        private final ArrayList<Pair<Float, Float>> RANGES = new ArrayList<>();
-
-        private void addBlockingTiles(float rayEnterX, float rayEnterY, float rayExitX,
-                                      float rayExitY, Coordinate3d origin,
-                                      Integer floorZ, Integer ceilingZ) {
-            if (floorZ != null || ceilingZ != null) {
-                if (floorZ != null) {
-                    var adjFloorZ = floorZ - HALF_INC;
-                    addBlockingPlane(rayExitX, rayExitY, rayEnterX, rayEnterY, origin, adjFloorZ);
-                }
-                if (ceilingZ != null) {
-                    var adjCeilingZ = ceilingZ - HALF_INC;
-                    addBlockingPlane(rayEnterX, rayEnterY, rayExitX, rayExitY, origin, adjCeilingZ);
-                }
-            }
-        }
-
-        private void addBlockingPlane(float upperSlopeX, float upperSlopeY,
-                                      float lowerSlopeX, float lowerSlopeY,
-                                      Coordinate3d origin, float z) {
-            var upperSlope = slope3d(origin, upperSlopeX, upperSlopeY, z);
-            var lowerSlope = slope3d(origin, lowerSlopeX, lowerSlopeY, z);
-            addRange(upperSlope, lowerSlope);
+    // Whether each location can see each other location (and each can see itself), as
+    // lineOfSight would, with every ray sharing the columns read from the GameZone. If mutual,
+    // sight is taken to be mutual, and only the ray from the earlier location to the later one is
+    // cast; otherwise, rays are cast both ways, since sight below the origin is adjusted by
+    // zAddendBelow, and so isn't always symmetric.
+    public boolean[][] lineOfSightMatrix(List<Coordinate3d> locations, boolean mutual)
+            throws IllegalArgumentException {
+        Check.ifNull(locations, "locations");
+        for (var location : locations) {
+            Check.ifNull(location, "location");
         }
 
-        private void addBlockingSegments(Coordinate3d origin, Set<WallSegment> segments,
-                                         WallSegmentOrientation orientation,
-                                         Coordinate2d segmentsLoc) {
-            if (segments.isEmpty()) {
-                return;
-            }
-            // this is an adjustment, since segments are half a tile's distance away its center
-            var segmentLocOnTileGrid = segmentLocOnTileGrid(orientation, segmentsLoc);
-            var segmentX = segmentLocOnTileGrid.FIRST;
-            var segmentY = segmentLocOnTileGrid.SECOND;
-            var runInXYZSpace = runInXYZSpace(origin.X, segmentX, origin.Y, segmentY);
-
-            var blockingZs = segments.stream().map(s -> s.location().Z);
-            var inOrder = new TreeSet<>(blockingZs.toList()).descendingSet();
-
-            Integer rangeStart = null;
-            Integer rangeCursor = null;
-            for (var z : inOrder) {
-                if (rangeStart == null) {
-                    rangeStart = rangeCursor = z;
+        var lineOfSight = new LineOfSight(columns());
+        var count = locations.size();
+        var matrix = new boolean[count][count];
+        for (var i = 0; i < count; i++) {
+            matrix[i][i] = true;
+            for (var j = mutual ? i + 1 : 0; j < count; j++) {
+                if (i == j) {
                     continue;
                 }
-                if (z == rangeCursor - 1) {
-                    rangeCursor--;
-                    continue;
+                matrix[i][j] = lineOfSight.between(locations.get(i), locations.get(j));
+                if (mutual) {
+                    matrix[j][i] = matrix[i][j];
                 }
-                addZRange(origin, rangeStart, rangeCursor, runInXYZSpace);
-                rangeStart = rangeCursor = z;
             }
-            // The loop will *never* wrap up the last range, and if there were no ranges, we'd
-            // have exited the method at the start
-            //noinspection DataFlowIssue
-            addZRange(origin, rangeStart, rangeCursor, runInXYZSpace);
         }
+        return matrix;
+    }
 
-        // Merging overlapping ranges could either save or spend more CPU time, this is untested
-        private void addZRange(Coordinate3d origin, int rangeStartZ, int rangeEndZ,
-                               float runInXYZSpace) {
-            // A z coordinate is at the 'center' of its height;
-            var rangeMaxWithHeight = rangeStartZ + HALF_INC;
-            var rangeMinWithHeight = rangeEndZ - HALF_INC;
-            var rangeUpperSlope = slope3d(origin.Z, rangeMaxWithHeight, runInXYZSpace);
-            var rangeLowerSlope = slope3d(origin.Z, rangeMinWithHeight, runInXYZSpace);
-            addRange(rangeUpperSlope, rangeLowerSlope);
+    // Also brings the OcclusionGrid (if any) up to date
+    ZoneColumns columns() {
+        if (OCCLUSION_GRID != null) {
+            OCCLUSION_GRID.refresh();
         }
+        return preparedColumns();
+    }
 
-        private void addRange(float upperBound, float lowerBound) {
-            var upperBoundToPlace = upperBound;
-            var lowerBoundToPlace = lowerBound;
-            for (var i = 0; i < RANGES.size(); i++) {
-                var rangeUpperBound = RANGES.get(i).FIRST;
-                var rangeLowerBound = RANGES.get(i).SECOND;
-
-                if (valueIsInRange(upperBound, rangeUpperBound, rangeLowerBound) ||
-                        valueIsInRange(lowerBound, rangeUpperBound, rangeLowerBound)) {
-                    upperBoundToPlace = Math.max(upperBoundToPlace, rangeUpperBound);
-                    lowerBoundToPlace = Math.min(lowerBoundToPlace, rangeLowerBound);
-                    RANGES.remove(i);
-                    i--;
-                }
+    // As columns, but leaving the OcclusionGrid (if any) as it is, for rays cast on other threads
+    // once prepare has been called for them
+    ZoneColumns preparedColumns() {
+        return new ZoneColumns(GET_GAME_ZONE.get(), GET_VIEW_CEILING, GET_VIEW_FLOOR);
+    }
+
+    // Brings the OcclusionGrid (if any) up to date, and loads every column the rays to the
+    // offsets pass through, so that casting those rays only reads it
+    void prepare(Coordinate3d origin, List<Coordinate2d> offsets) {
+        if (OCCLUSION_GRID == null) {
+            return;
+        }
+        OCCLUSION_GRID.refresh();
+        for (var offset : offsets) {
+            var template = RAY_TEMPLATES.forOffset(offset.X, offset.Y);
+            for (var step = 0; step < template.LENGTH; step++) {
+                OCCLUSION_GRID.load(origin.X + template.CELLS_X[step],
+                        origin.Y + template.CELLS_Y[step]);
             }
-            RANGES.add(pairOf(upperBoundToPlace, lowerBoundToPlace));
         }
+    }
 
-        private boolean valueIsInRange(float val, float rangeUpperBound, float rangeLowerBound) {
-            return val >= rangeLowerBound && val <= rangeUpperBound;
+    // Returns the buffer of Zs, which is replaced with a larger one if it's too small
+    private int[] addCrossedSegments(BlockingSlopesInXYZSpace blockingSlopesInXYZSpace,
+                                     Coordinate3d origin, WallSegmentOrientation crossing,
+                                     int crossingSegX, int crossingSegY, int cursorX, int cursorY,
+                                     Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>>
+                                             segmentsAtCursor,
+                                     int[] segmentZs) {
+        if (OCCLUSION_GRID != null) {
+            var blockingZs = OCCLUSION_GRID.blockingSegmentZs(crossing, crossingSegX,
+                    crossingSegY, cursorX, cursorY);
+            blockingSlopesInXYZSpace.addBlockingSegmentZs(origin, blockingZs, blockingZs.length,
+                    crossing, crossingSegX, crossingSegY);
+            return segmentZs;
         }
-
-        private boolean tileIsVisible(Coordinate3d origin, Tile tile) {
-            var adjLoc = viewBottomAdjustedLoc(origin.Z, tile.location());
-            var slope = slope3d(origin, adjLoc.getValue0(), adjLoc.getValue1(), adjLoc.getValue2());
-            return !slopeIsBlocked(slope);
+        var segmentZCount = 0;
+        for (var segment : segmentsAtCursor.get(crossing).entrySet()) {
+            var segmentLoc = segment.getKey();
+            if (segmentLoc.X == crossingSegX && segmentLoc.Y == crossingSegY &&
+                    segment.getValue().getType().blocksSight()) {
+                if (segmentZCount == segmentZs.length) {
+                    segmentZs = Arrays.copyOf(segmentZs, segmentZCount * 2);
+                }
+                segmentZs[segmentZCount++] = segment.getValue().location().Z;
+            }
         }
+        segmentZCount = BlockingSlopesInXYZSpace.sortDescendingDistinct(segmentZs, segmentZCount);
+        blockingSlopesInXYZSpace.addBlockingSegmentZs(origin, segmentZs, segmentZCount, crossing,
+                crossingSegX, crossingSegY);
+        return segmentZs;
+    }
 
-        private boolean segmentIsVisible(Coordinate3d origin, WallSegmentOrientation orientation,
-                                         Coordinate3d segmentLoc) {
-            var segmentLocOnTileGrid = segmentLocOnTileGrid(orientation, segmentLoc.to2d());
-            var slope = slope3d(origin, segmentLocOnTileGrid.FIRST, segmentLocOnTileGrid.SECOND,
-                    viewBottomAdjustedZ(origin.Z, segmentLoc.Z));
-            return !slopeIsBlocked(slope);
-        }
+    private class LineOfSight {
+        private final ZoneColumns COLUMNS;
 
-        private boolean rayIsCompletelyBlocked() {
-            return RANGES.stream().anyMatch(r ->
-                    r.FIRST == Float.POSITIVE_INFINITY && r.SECOND == Float.NEGATIVE_INFINITY);
-        }
+        private int[] segmentZs;
 
-        private Triplet<Integer, Integer, Float> viewBottomAdjustedLoc(int originZ,
-                                                                       Coordinate3d loc) {
-            return Triplet.with(loc.X, loc.Y, viewBottomAdjustedZ(originZ, loc.Z));
+        private LineOfSight(ZoneColumns columns) {
+            COLUMNS = columns;
+            segmentZs = new int[8];
         }
 
-        private float viewBottomAdjustedZ(int originZ, float targetZ) {
-            if (targetZ >= originZ) {
-                return targetZ;
-            }
-            else {
-                return Math.min(originZ, targetZ + Z_ADDEND_BELOW);
-            }
-        }
+        private boolean between(Coordinate3d origin, Coordinate3d target) {
+            var blockingSlopesInXYZSpace = new BlockingSlopesInXYZSpace(Z_ADDEND_BELOW);
+            var template = RAY_TEMPLATES.forOffset(target.X - origin.X, target.Y - origin.Y);
+
+            for (var step = 0; step < template.LENGTH; step++) {
+                var cursorX = origin.X + template.CELLS_X[step];
+                var cursorY = origin.Y + template.CELLS_Y[step];
+                // With an OcclusionGrid, the GameZone needn't be read at all
+                Column column = null;
+                Integer floor;
+                Integer ceiling;
+                if (OCCLUSION_GRID == null) {
+                    column = COLUMNS.at(cursorX, cursorY);
+                    floor = column.floor(origin.Z);
+                    ceiling = column.ceiling(origin.Z);
+                }
+                else {
+                    var cursorAtOriginZ = coordinate3dOf(cursorX, cursorY, origin.Z);
+                    floor = OCCLUSION_GRID.viewFloor(cursorX, cursorY,
+                            GET_VIEW_FLOOR.apply(cursorAtOriginZ), origin.Z);
+                    ceiling = OCCLUSION_GRID.viewCeiling(cursorX, cursorY,
+                            GET_VIEW_CEILING.apply(cursorAtOriginZ), origin.Z);
+                }
 
-        private Pair<Float, Float> segmentLocOnTileGrid(WallSegmentOrientation orientation,
-                                                        Coordinate2d segmentsLoc) {
-            return pairOf(segmentsLoc.X - (orientation != HORIZONTAL ? HALF_INC : 0),
-                    segmentsLoc.Y - (orientation != VERTICAL ? HALF_INC : 0));
-        }
+                blockingSlopesInXYZSpace.addBlockingTiles(origin.X + template.ENTERS_X[step],
+                        origin.Y + template.ENTERS_Y[step], origin.X + template.EXITS_X[step],
+                        origin.Y + template.EXITS_Y[step], origin, floor, ceiling);
+                if (step == template.LENGTH - 1) {
+                    return (floor == null || target.Z >= floor) &&
+                            (ceiling == null || target.Z < ceiling) &&
+                            blockingSlopesInXYZSpace.tileIsVisible(origin, target.X, target.Y,
+                                    target.Z);
+                }
 
-        @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-        private boolean slopeIsBlocked(Float slope) {
-            if (Float.isNaN(slope)) {
-                return false;
+                var crossing = template.crossing(step);
+                if (crossing != null) {
+                    segmentZs = addCrossedSegments(blockingSlopesInXYZSpace, origin, crossing,
+                            origin.X + template.CROSSED_SEGMENTS_X[step],
+                            origin.Y + template.CROSSED_SEGMENTS_Y[step], cursorX, cursorY,
+                            column == null ? null : column.SEGMENTS, segmentZs);
+                }
+                if (blockingSlopesInXYZSpace.rayIsCompletelyBlocked()) {
+                    return false;
+                }
             }
-            return RANGES.stream().anyMatch(r -> r.FIRST > slope &&
-                    r.SECOND < slope);
+            return false;
         }
     }
 }
@@ -0,0 +1,429 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.ruleset.gameconcepts.ZoneColumns.Column;
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.common.valueobjects.Pair;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+
+// Casts the same rays as TileVisibilityCalculationImpl does with TileVisibilityRayCalculationImpl,
+// with the same results, but as a tree: rays which pass through the same tiles in the same order
+// are walked together for as long as they do, and only branch where their paths diverge. Each
+// column is read from the GameZone at most once per call, and tested once per node reaching it.
+//
+// Rays sharing a path share their blocked slopes too, since tiles are tested against slopes to
+// their centers, and segments against slopes to their centers, regardless of the ray. The
+// exception is a view floor or ceiling, which blocks the slopes between where each ray enters and
+// exits the column; so each ray keeps those slopes apart, as a delta to the slopes its path
+// shares. A tile or segment not blocked by the shared slopes is then visible if it's not blocked
+// by some ray's delta either; and a ray is done once its delta and the shared slopes together
+// block everything.
+public class TileVisibilityRayTreeCalculationImpl
+        implements VisitingTileVisibilityCalculation, MultiRadiusTileVisibilityCalculation {
+    private final Supplier<GameZone> GET_GAME_ZONE;
+    private final Function<Coordinate3d, Integer> GET_VIEW_CEILING;
+    private final Function<Coordinate3d, Integer> GET_VIEW_FLOOR;
+    private final float Z_ADDEND_BELOW;
+    private final RayTemplates RAY_TEMPLATES;
+
+    private final static int MAX_RAY_TEMPLATES = 8192;
+    private final static int MAX_RAY_TEMPLATE_RADII = 32;
+
+    public TileVisibilityRayTreeCalculationImpl(Supplier<GameZone> getGameZone,
+                                                Function<Coordinate3d, Integer> getViewCeiling,
+                                                Function<Coordinate3d, Integer> getViewFloor,
+                                                float zAddendBelow) {
+        GET_GAME_ZONE = Check.ifNull(getGameZone, "getGameZone");
+        GET_VIEW_CEILING = Check.ifNull(getViewCeiling, "getViewCeiling");
+        GET_VIEW_FLOOR = Check.ifNull(getViewFloor, "getViewFloor");
+        Z_ADDEND_BELOW = Check.throwOnLtValue(zAddendBelow, 0, "zAddendBelow");
+        RAY_TEMPLATES = new RayTemplates(MAX_RAY_TEMPLATES, MAX_RAY_TEMPLATE_RADII);
+    }
+
+    @Override
+    public Result atPoint(Tile point, int visibilityRadius) throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+
+        var result = new CompactVisibilityResult(point.location());
+        cast(point.location(), visibilityRadius, result);
+        return result;
+    }
+
+    // Visits each tile and segment visible from the point, as atPoint would find them, each only
+    // once, without building a Result; it stops as soon as the visitor does
+    @Override
+    public void atPoint(Tile point, int visibilityRadius, VisibilityVisitor visitor)
+            throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+        Check.ifNull(visitor, "visitor");
+
+        cast(point.location(), visibilityRadius,
+                new DeduplicatingVisitor(point.location(), visitor));
+    }
+
+    private void cast(Coordinate3d origin, int visibilityRadius, VisibilityVisitor visitor) {
+        var columns = new ZoneColumns(GET_GAME_ZONE.get(), GET_VIEW_CEILING, GET_VIEW_FLOOR);
+        new Cast(columns, origin, tree(RAY_TEMPLATES.forRadius(visibilityRadius)),
+                new VisibilityVisitor[]{visitor}).walk();
+    }
+
+    // Calculates what the point sees at each of the radii, as atPoint would at each of them, but
+    // in a single walk: each ray is cast once, tagged with every radius it's cast for, and what
+    // it sees is seen at each of them. Neighboring radii's rays share most of their paths, so
+    // nearly every column is tested once for all of the radii.
+    @Override
+    public Map<Integer, Result> atRadii(Tile point, List<Integer> visibilityRadii)
+            throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.ifNull(visibilityRadii, "visibilityRadii");
+        List<Integer> distinctRadii = listOf();
+        for (var visibilityRadius : visibilityRadii) {
+            Check.ifNull(visibilityRadius, "visibilityRadius");
+            Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+            if (!distinctRadii.contains(visibilityRadius)) {
+                distinctRadii.add(visibilityRadius);
+            }
+        }
+
+        var columns = new ZoneColumns(GET_GAME_ZONE.get(), GET_VIEW_CEILING, GET_VIEW_FLOOR);
+        Map<Integer, Result> results = mapOf();
+        // Rays are tagged with the radii in a long's bits, so beyond 64 radii, they're walked 64
+        // at a time
+        for (var from = 0; from < distinctRadii.size(); from += Long.SIZE) {
+            var radii = distinctRadii.subList(from,
+                    Math.min(distinctRadii.size(), from + Long.SIZE));
+            List<List<RayTemplate>> raysByRadius = listOf();
+            var visitors = new VisibilityVisitor[radii.size()];
+            for (var i = 0; i < radii.size(); i++) {
+                raysByRadius.add(RAY_TEMPLATES.forRadius(radii.get(i)));
+                var result = new CompactVisibilityResult(point.location());
+                visitors[i] = result;
+                results.put(radii.get(i), result);
+            }
+            new Cast(columns, point.location(), treeOfRadii(raysByRadius), visitors).walk();
+        }
+        return results;
+    }
+
+    // Calculates what each of the viewers sees, as atPoint would, but reading each column from
+    // the GameZone (and resolving its view floor and ceiling) once for all of them, and building
+    // the tree of rays once for each radius. A batch of a whole faction's characters can then
+    // share nearly all of their lookups wherever they can see the same columns.
+    public MultiViewerVisibilityResult atPoints(List<Pair<Tile, Integer>> viewers)
+            throws IllegalArgumentException {
+        Check.ifNull(viewers, "viewers");
+        for (var viewer : viewers) {
+            Check.ifNull(viewer, "viewer");
+            Check.ifNull(viewer.FIRST, "viewer.FIRST");
+            Check.ifNull(viewer.SECOND, "viewer.SECOND");
+            Check.throwOnLtValue(viewer.SECOND, 0, "viewer.SECOND");
+        }
+
+        var columns = new ZoneColumns(GET_GAME_ZONE.get(), GET_VIEW_CEILING, GET_VIEW_FLOOR);
+        Map<Integer, Tree> trees = mapOf();
+        List<CompactVisibilityResult> results = listOf();
+        for (var viewer : viewers) {
+            var result = new CompactVisibilityResult(viewer.FIRST.location());
+            var tree = trees.computeIfAbsent(viewer.SECOND,
+                    radius -> tree(RAY_TEMPLATES.forRadius(radius)));
+            new Cast(columns, viewer.FIRST.location(), tree, new VisibilityVisitor[]{result})
+                    .walk();
+            results.add(result);
+        }
+        return new MultiViewerVisibilityResult(results,
+                viewers.isEmpty() ? coordinate3dOf(0, 0, 0) : viewers.getFirst().FIRST.location());
+    }
+
+    // Nodes' locations are relative to the origin, as are the templates'; the tree is only read
+    // once built, so it's shared by every viewer of the same radius
+    private static Tree tree(List<RayTemplate> rays) {
+        return treeOfRadii(List.of(rays));
+    }
+
+    // The rays of each of the radii, each ray added once, however many of the radii it's cast
+    // for, and tagged with the index of each of them
+    private static Tree treeOfRadii(List<List<RayTemplate>> raysByRadius) {
+        var root = new Node(0, 0, 0);
+        List<RayTemplate> rays = listOf();
+        var radiiOfRays = new long[16];
+        var indicesByOffset = new LongObjectMap<Integer>();
+        for (var radius = 0; radius < raysByRadius.size(); radius++) {
+            for (var ray : raysByRadius.get(radius)) {
+                var offset = LongObjectMap.key(ray.OFFSET_X, ray.OFFSET_Y);
+                var index = indicesByOffset.get(offset);
+                if (index == null) {
+                    index = rays.size();
+                    indicesByOffset.put(offset, index);
+                    rays.add(ray);
+                    if (index == radiiOfRays.length) {
+                        radiiOfRays = Arrays.copyOf(radiiOfRays, index * 2);
+                    }
+                    var node = root;
+                    node.add(index);
+                    for (var step = 1; step < ray.LENGTH; step++) {
+                        node = node.child(ray.CELLS_X[step], ray.CELLS_Y[step]);
+                        node.add(index);
+                    }
+                }
+                radiiOfRays[index] |= 1L << radius;
+            }
+        }
+        return new Tree(root, rays.toArray(new RayTemplate[0]),
+                Arrays.copyOf(radiiOfRays, rays.size()));
+    }
+
+    private class Cast {
+        private final ZoneColumns COLUMNS;
+        private final Coordinate3d ORIGIN;
+        private final Tree TREE;
+        // By radius, by its index in the tree's tags
+        private final VisibilityVisitor[] VISITORS;
+        private final ColumnTileVisibility COLUMN_TILE_VISIBILITY;
+        // By ray, the slopes blocked by the view floors and ceilings it's passed so far, if any;
+        // each ray is only ever on one path, so these are changed in place
+        private final BlockingSlopesInXYZSpace[] DELTAS;
+        // By ray, whether it's completely blocked
+        private final boolean[] BLOCKED;
+
+        private BlockingSlopesInXYZSpace[] nodeDeltas;
+        private int[] segmentZs;
+        private boolean stopped;
+
+        private Cast(ZoneColumns columns, Coordinate3d origin, Tree tree,
+                     VisibilityVisitor[] visitors) {
+            COLUMNS = columns;
+            ORIGIN = origin;
+            TREE = tree;
+            VISITORS = visitors;
+            COLUMN_TILE_VISIBILITY = new ColumnTileVisibility();
+            DELTAS = new BlockingSlopesInXYZSpace[tree.RAYS.length];
+            BLOCKED = new boolean[tree.RAYS.length];
+            nodeDeltas = new BlockingSlopesInXYZSpace[8];
+            segmentZs = new int[8];
+        }
+
+        private void walk() {
+            walk(TREE.ROOT, new BlockingSlopesInXYZSpace(Z_ADDEND_BELOW));
+        }
+
+        // The blocking slopes provided are those shared by every ray passing through the node,
+        // before reaching its column
+        private void walk(Node node, BlockingSlopesInXYZSpace blockingSlopes) {
+            var column = column(node.X, node.Y);
+            var floor = column.floor(ORIGIN.Z);
+            var ceiling = column.ceiling(ORIGIN.Z);
+            if (floor != null || ceiling != null) {
+                for (var i = 0; i < node.rayCount; i++) {
+                    var rayIndex = node.rays[i];
+                    if (BLOCKED[rayIndex]) {
+                        continue;
+                    }
+                    var ray = TREE.RAYS[rayIndex];
+                    if (DELTAS[rayIndex] == null) {
+                        DELTAS[rayIndex] = new BlockingSlopesInXYZSpace(Z_ADDEND_BELOW);
+                    }
+                    DELTAS[rayIndex].addBlockingTiles(ORIGIN.X + ray.ENTERS_X[node.DEPTH],
+                            ORIGIN.Y + ray.ENTERS_Y[node.DEPTH],
+                            ORIGIN.X + ray.EXITS_X[node.DEPTH],
+                            ORIGIN.Y + ray.EXITS_Y[node.DEPTH], ORIGIN, floor, ceiling);
+                }
+            }
+
+            evaluate(node, column, blockingSlopes, floor, ceiling);
+            for (var i = 0; i < node.CHILDREN.size() && !stopped; i++) {
+                var child = node.CHILDREN.get(i);
+                var childBlockingSlopes = i == node.CHILDREN.size() - 1 ? blockingSlopes :
+                        blockingSlopes.copy();
+                // Every ray moving between the same two tiles crosses the same segments
+                var ray = TREE.RAYS[child.rays[0]];
+                addCrossedSegments(column, childBlockingSlopes, ray, node.DEPTH);
+                if (anyRayContinues(child, childBlockingSlopes)) {
+                    walk(child, childBlockingSlopes);
+                }
+            }
+        }
+
+        // Marks each ray passing through the node which is now completely blocked; returns
+        // whether any of them aren't
+        private boolean anyRayContinues(Node node, BlockingSlopesInXYZSpace blockingSlopes) {
+            if (blockingSlopes.rayIsCompletelyBlocked()) {
+                return false;
+            }
+            var continues = false;
+            for (var i = 0; i < node.rayCount; i++) {
+                var rayIndex = node.rays[i];
+                if (BLOCKED[rayIndex]) {
+                    continue;
+                }
+                var delta = DELTAS[rayIndex];
+                if (delta != null && blockingSlopes.rayIsCompletelyBlocked(delta)) {
+                    BLOCKED[rayIndex] = true;
+                }
+                else {
+                    continues = true;
+                }
+            }
+            return continues;
+        }
+
+        // The radii of the rays passing through the node which aren't blocked
+        private long liveRadii(Node node) {
+            var radii = 0L;
+            for (var i = 0; i < node.rayCount; i++) {
+                var rayIndex = node.rays[i];
+                if (!BLOCKED[rayIndex]) {
+                    radii |= TREE.RADII_OF_RAYS[rayIndex];
+                }
+            }
+            return radii;
+        }
+
+        // Gathers the deltas of the rays of the radius passing through the node which aren't
+        // blocked, and returns how many there are; if any of those rays has no delta, nothing
+        // more than the shared slopes blocks it, so none are needed, and none are gathered
+        private int gatherDeltas(Node node, long radius) {
+            var count = 0;
+            for (var i = 0; i < node.rayCount; i++) {
+                var rayIndex = node.rays[i];
+                if (BLOCKED[rayIndex] || (TREE.RADII_OF_RAYS[rayIndex] & radius) == 0) {
+                    continue;
+                }
+                var delta = DELTAS[rayIndex];
+                if (delta == null) {
+                    return 0;
+                }
+                if (count == nodeDeltas.length) {
+                    nodeDeltas = Arrays.copyOf(nodeDeltas, count * 2);
+                }
+                nodeDeltas[count++] = delta;
+            }
+            return count;
+        }
+
+        // The column's tiles are tested against the shared slopes once, for every radius; each
+        // radius then sees what any of its rays passing through the node sees
+        private void evaluate(Node node, Column column, BlockingSlopesInXYZSpace blockingSlopes,
+                              Integer floor, Integer ceiling) {
+            var count = COLUMN_TILE_VISIBILITY.test(blockingSlopes, ORIGIN, column.TILES, floor,
+                    ceiling);
+            for (var radii = liveRadii(node); radii != 0 && !stopped; radii &= radii - 1) {
+                var radius = Long.numberOfTrailingZeros(radii);
+                var deltaCount = gatherDeltas(node, 1L << radius);
+                var visitor = VISITORS[radius];
+                stopped = !COLUMN_TILE_VISIBILITY.visitTested(blockingSlopes, nodeDeltas,
+                        deltaCount, ORIGIN, count, visitor) ||
+                        !visitSegments(column, blockingSlopes, deltaCount, floor, visitor);
+            }
+            COLUMN_TILE_VISIBILITY.clear(count);
+        }
+
+        // Returns false if the visitor stopped
+        private boolean visitSegments(Column column, BlockingSlopesInXYZSpace blockingSlopes,
+                                      int deltaCount, Integer floor, VisibilityVisitor visitor) {
+            for (var segmentsWithOrientation : column.SEGMENTS.entrySet()) {
+                var orientation = segmentsWithOrientation.getKey();
+                for (var segment : segmentsWithOrientation.getValue().entrySet()) {
+                    var segmentLoc = segment.getKey();
+                    var visible = deltaCount == 0 ?
+                            blockingSlopes.segmentIsVisible(ORIGIN, orientation, segmentLoc) :
+                            blockingSlopes.segmentIsVisibleToAny(ORIGIN, orientation,
+                                    segmentLoc, nodeDeltas, deltaCount);
+                    if (visible && (floor == null || segmentLoc.Z >= floor) &&
+                            !visitor.visitSegment(orientation, segmentLoc, segment.getValue())) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void addCrossedSegments(Column column, BlockingSlopesInXYZSpace blockingSlopes,
+                                        RayTemplate ray, int step) {
+            var orientation = ray.crossing(step);
+            var segmentX = ORIGIN.X + ray.CROSSED_SEGMENTS_X[step];
+            var segmentY = ORIGIN.Y + ray.CROSSED_SEGMENTS_Y[step];
+            var count = 0;
+            for (var segment : column.SEGMENTS.get(orientation).entrySet()) {
+                var segmentLoc = segment.getKey();
+                if (segmentLoc.X == segmentX && segmentLoc.Y == segmentY &&
+                        segment.getValue().getType().blocksSight()) {
+                    if (count == segmentZs.length) {
+                        segmentZs = Arrays.copyOf(segmentZs, count * 2);
+                    }
+                    segmentZs[count++] = segment.getValue().location().Z;
+                }
+            }
+            count = BlockingSlopesInXYZSpace.sortDescendingDistinct(segmentZs, count);
+            blockingSlopes.addBlockingSegmentZs(ORIGIN, segmentZs, count, orientation, segmentX,
+                    segmentY);
+        }
+
+        // The column at this offset from the origin
+        private Column column(int offsetX, int offsetY) {
+            return COLUMNS.at(ORIGIN.X + offsetX, ORIGIN.Y + offsetY);
+        }
+    }
+
+    // The rays cast, and the tree of their paths, whose nodes know their rays by their index
+    // here; each ray is tagged with the radii it's cast for, as bits of a long
+    private static class Tree {
+        private final Node ROOT;
+        private final RayTemplate[] RAYS;
+        private final long[] RADII_OF_RAYS;
+
+        private Tree(Node root, RayTemplate[] rays, long[] radiiOfRays) {
+            ROOT = root;
+            RAYS = rays;
+            RADII_OF_RAYS = radiiOfRays;
+        }
+    }
+
+    private static class Node {
+        private final int X;
+        private final int Y;
+        private final int DEPTH;
+        private final List<Node> CHILDREN;
+
+        private int[] rays;
+        private int rayCount;
+
+        private Node(int x, int y, int depth) {
+            X = x;
+            Y = y;
+            DEPTH = depth;
+            CHILDREN = listOf();
+            rays = new int[4];
+        }
+
+        private void add(int ray) {
+            if (rayCount == rays.length) {
+                rays = Arrays.copyOf(rays, rayCount * 2);
+            }
+            rays[rayCount++] = ray;
+        }
+
+        private Node child(int x, int y) {
+            for (var child : CHILDREN) {
+                if (child.X == x && child.Y == y) {
+                    return child;
+                }
+            }
+            var child = new Node(x, y, DEPTH + 1);
+            CHILDREN.add(child);
+            return child;
+        }
+    }
+}
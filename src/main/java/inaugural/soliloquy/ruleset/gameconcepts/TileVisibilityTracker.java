@@ -0,0 +1,469 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.shared.Direction;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation.Result;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static soliloquy.specs.common.valueobjects.Coordinate2d.coordinate2dOf;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+// Keeps the visibility of a single viewer up to date as it moves one tile at a time. When the
+// viewer moves, a ray to the perimeter is only recast if some column which it steps through
+// differs (in its tiles, segments, or view floor and ceiling) from the column at the same offset
+// from the previous origin; each column is compared once per move, however many rays step through
+// it. Otherwise, the ray sees what it saw before, relative to the origin. Each ray's tiles and
+// segments are kept relative to the origin, and every tile and segment relative to the origin
+// counts how many rays see it, so a recast ray only takes back what it saw and counts what it now
+// sees. The maps of the Result are views of those counts from the current origin, so nothing else
+// is touched when the viewer moves.
+//
+// The Result is live: track, move, and result all return the same one, which each later call
+// changes in place. A caller keeping what was visible from some origin should copy it, e.g. into a
+// CompactVisibilityResult via addAll.
+//
+// Rays are cast by the TileVisibilityRayCalculationImpl given, which also provides the columns
+// they step through, and their view floors and ceilings, so that columns are compared exactly as
+// its rays read them; the columns a ray steps through are those of its RayTemplate. This assumes
+// that nothing which affects visibility changes in the GameZone between calls; if anything does,
+// call invalidate(), and the next move will recast every ray.
+public class TileVisibilityTracker {
+    private final static WallSegmentOrientation[] ORIENTATIONS = WallSegmentOrientation.values();
+    private final static long[] NOTHING_SEEN = new long[0];
+    private final static byte[] NO_ORIENTATIONS = new byte[0];
+
+    private final TileVisibilityRayCalculationImpl RAY_CALCULATION;
+    private final Map<Integer, RayLayout> CACHED_LAYOUTS;
+    private final Map<Coordinate2d, Column> COLUMNS;
+    // How many rays see each tile and segment (one map per orientation), keyed by their location
+    // relative to the origin, packed as in relativeKey
+    private final LongObjectMap<Count> TILE_COUNTS;
+    private final LongObjectMap<Count>[] SEGMENT_COUNTS;
+    private final Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> SEGMENTS;
+    private final Result RESULT;
+    private final RayRecorder RECORDER;
+
+    private ZoneColumns zoneColumns;
+    private Coordinate3d origin;
+    private int visibilityRadius;
+    private RayLayout layout;
+    // For each ray, the tiles it sees, keyed relative to the origin
+    private long[][] rayTiles;
+    // For each ray, the segments it sees, keyed relative to the origin, and their orientations'
+    // ordinals
+    private long[][] raySegments;
+    private byte[][] raySegmentOrientations;
+    private boolean invalidated;
+
+    @SuppressWarnings("unchecked")
+    public TileVisibilityTracker(TileVisibilityRayCalculationImpl rayCalculation) {
+        RAY_CALCULATION = Check.ifNull(rayCalculation, "rayCalculation");
+        CACHED_LAYOUTS = mapOf();
+        COLUMNS = mapOf();
+        TILE_COUNTS = new LongObjectMap<>();
+        SEGMENT_COUNTS = new LongObjectMap[ORIENTATIONS.length];
+        SEGMENTS = mapOf();
+        for (var orientation : ORIENTATIONS) {
+            var counts = new LongObjectMap<Count>();
+            SEGMENT_COUNTS[orientation.ordinal()] = counts;
+            SEGMENTS.put(orientation, new SeenFromOrigin<>(counts,
+                    loc -> findSegment(orientation, loc)));
+        }
+        RECORDER = new RayRecorder();
+        var tiles = new SeenFromOrigin<>(TILE_COUNTS,
+                loc -> column(loc.to2d()).TILES_BY_Z.get(loc.Z));
+        RESULT = new Result() {
+            @Override
+            public Map<Coordinate3d, Tile> tiles() {
+                return tiles;
+            }
+
+            @Override
+            public Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments() {
+                return SEGMENTS;
+            }
+        };
+    }
+
+    public Result track(Tile point, int visibilityRadius) throws IllegalArgumentException {
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+
+        zoneColumns = RAY_CALCULATION.columns();
+        origin = point.location();
+        this.visibilityRadius = visibilityRadius;
+        layout = CACHED_LAYOUTS.get(visibilityRadius);
+        if (layout == null) {
+            layout = new RayLayout(visibilityRadius);
+            CACHED_LAYOUTS.put(visibilityRadius, layout);
+        }
+        COLUMNS.clear();
+        invalidated = false;
+
+        TILE_COUNTS.clear();
+        for (var counts : SEGMENT_COUNTS) {
+            counts.clear();
+        }
+        var rays = layout.RAY_OFFSETS.length;
+        rayTiles = new long[rays][];
+        raySegments = new long[rays][];
+        raySegmentOrientations = new byte[rays][];
+        for (var ray = 0; ray < rays; ray++) {
+            cast(ray);
+        }
+
+        return RESULT;
+    }
+
+    public Result move(Direction direction, Tile destination)
+            throws IllegalArgumentException, IllegalStateException {
+        Check.ifNull(direction, "direction");
+        Check.ifNull(destination, "destination");
+        if (origin == null) {
+            throw new IllegalStateException(
+                    "TileVisibilityTracker.move: track must be called before move");
+        }
+        var offsetX = Directions.offsetX(direction);
+        var offsetY = Directions.offsetY(direction);
+        var newOrigin = destination.location();
+        if (newOrigin.X != origin.X + offsetX || newOrigin.Y != origin.Y + offsetY) {
+            throw new IllegalArgumentException("TileVisibilityTracker.move: destination is not " +
+                    "one step in direction " + direction + " from origin");
+        }
+
+        zoneColumns = RAY_CALCULATION.columns();
+        // View floors and ceilings are relative to the origin's Z, so no column can be compared
+        // across a change in Z
+        var reuseRays = !invalidated && newOrigin.Z == origin.Z;
+        if (!reuseRays) {
+            COLUMNS.clear();
+        }
+        var previousOrigin = origin;
+        origin = newOrigin;
+        invalidated = false;
+
+        var changedCells = reuseRays ? changedCells(previousOrigin) : null;
+        for (var ray = 0; ray < layout.RAY_OFFSETS.length; ray++) {
+            if (changedCells == null || crossesAny(layout.RAY_CELLS[ray], changedCells)) {
+                cast(ray);
+            }
+        }
+
+        evictColumns();
+
+        return RESULT;
+    }
+
+    public void invalidate() {
+        COLUMNS.clear();
+        invalidated = true;
+    }
+
+    public Result result() {
+        return RESULT;
+    }
+
+    // Which of the layout's cells differ from those at the same offsets from the previous origin
+    private boolean[] changedCells(Coordinate3d previousOrigin) {
+        var changed = new boolean[layout.CELLS_X.length];
+        for (var cell = 0; cell < changed.length; cell++) {
+            var x = layout.CELLS_X[cell];
+            var y = layout.CELLS_Y[cell];
+            var previous = column(coordinate2dOf(previousOrigin.X + x, previousOrigin.Y + y));
+            var current = column(coordinate2dOf(origin.X + x, origin.Y + y));
+            changed[cell] = !Arrays.equals(previous.SIGNATURE, current.SIGNATURE);
+        }
+        return changed;
+    }
+
+    private static boolean crossesAny(int[] cells, boolean[] changedCells) {
+        for (var cell : cells) {
+            if (changedCells[cell]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Takes back what the ray saw before, if anything, and counts what it now sees
+    private void cast(int ray) {
+        if (rayTiles[ray] != null) {
+            count(rayTiles[ray], raySegments[ray], raySegmentOrientations[ray], -1);
+        }
+        var offset = layout.RAY_OFFSETS[ray];
+        RECORDER.clear();
+        RAY_CALCULATION.castRay(origin, coordinate2dOf(origin.X + offset.X, origin.Y + offset.Y),
+                zoneColumns, RECORDER);
+
+        rayTiles[ray] = RECORDER.tileCount == 0 ? NOTHING_SEEN :
+                Arrays.copyOf(RECORDER.tiles, RECORDER.tileCount);
+        raySegments[ray] = RECORDER.segmentCount == 0 ? NOTHING_SEEN :
+                Arrays.copyOf(RECORDER.segments, RECORDER.segmentCount);
+        raySegmentOrientations[ray] = RECORDER.segmentCount == 0 ? NO_ORIENTATIONS :
+                Arrays.copyOf(RECORDER.orientations, RECORDER.segmentCount);
+        count(rayTiles[ray], raySegments[ray], raySegmentOrientations[ray], 1);
+    }
+
+    // Adds change to the count of each tile and segment given, removing those which no ray sees
+    // any longer
+    private void count(long[] seenTiles, long[] seenSegments, byte[] segmentOrientations,
+                       int change) {
+        for (var tile : seenTiles) {
+            count(TILE_COUNTS, tile, change);
+        }
+        for (var i = 0; i < seenSegments.length; i++) {
+            count(SEGMENT_COUNTS[segmentOrientations[i]], seenSegments[i], change);
+        }
+    }
+
+    private static void count(LongObjectMap<Count> counts, long key, int change) {
+        var count = counts.get(key);
+        if (count == null) {
+            count = new Count();
+            counts.put(key, count);
+        }
+        count.value += change;
+        if (count.value == 0) {
+            counts.remove(key);
+        }
+    }
+
+    // Relative X and Y are at most a tile or two beyond the radius, so they fit in 16 bits each
+    private static long relativeKey(int offsetX, int offsetY, int z) {
+        return (((long) offsetX & 0xFFFFL) << 48) | (((long) offsetY & 0xFFFFL) << 32) |
+                ((long) z & 0xFFFFFFFFL);
+    }
+
+    // A segment at (x, y) borders the tile at (x, y), and (depending on its orientation) the tiles
+    // to its west and north
+    private WallSegment findSegment(WallSegmentOrientation orientation, Coordinate3d loc) {
+        for (var offsetX = 0; offsetX >= -1; offsetX--) {
+            for (var offsetY = 0; offsetY >= -1; offsetY--) {
+                var segmentsWithOrientation = column(coordinate2dOf(loc.X + offsetX,
+                        loc.Y + offsetY)).SEGMENTS.get(orientation);
+                if (segmentsWithOrientation != null && segmentsWithOrientation.containsKey(loc)) {
+                    return segmentsWithOrientation.get(loc);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void evictColumns() {
+        // Every cell which a ray could cross lies within one tile beyond the radius
+        var maxOffset = visibilityRadius + 1;
+        COLUMNS.keySet().removeIf(loc ->
+                Math.abs(loc.X - origin.X) > maxOffset || Math.abs(loc.Y - origin.Y) > maxOffset);
+    }
+
+    private Column column(Coordinate2d location) {
+        var column = COLUMNS.get(location);
+        if (column == null) {
+            column = new Column(location, zoneColumns.at(location.X, location.Y), origin.Z);
+            COLUMNS.put(location, column);
+        }
+        return column;
+    }
+
+    private static class Count {
+        private int value;
+    }
+
+    // Keeps what a single ray sees, relative to the origin, in buffers reused for every ray
+    private class RayRecorder implements VisibilityVisitor {
+        private long[] tiles = new long[16];
+        private int tileCount;
+        private long[] segments = new long[16];
+        private byte[] orientations = new byte[16];
+        private int segmentCount;
+
+        private void clear() {
+            tileCount = 0;
+            segmentCount = 0;
+        }
+
+        @Override
+        public boolean visitTile(Tile tile) {
+            if (tileCount == tiles.length) {
+                tiles = Arrays.copyOf(tiles, tileCount * 2);
+            }
+            var loc = tile.location();
+            tiles[tileCount++] = relativeKey(loc.X - origin.X, loc.Y - origin.Y, loc.Z);
+            return true;
+        }
+
+        @Override
+        public boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                                    WallSegment segment) {
+            if (segmentCount == segments.length) {
+                segments = Arrays.copyOf(segments, segmentCount * 2);
+                orientations = Arrays.copyOf(orientations, segmentCount * 2);
+            }
+            segments[segmentCount] =
+                    relativeKey(location.X - origin.X, location.Y - origin.Y, location.Z);
+            orientations[segmentCount++] = (byte) orientation.ordinal();
+            return true;
+        }
+    }
+
+    // A read-only map from the locations which some ray sees, as they are from the current
+    // origin, to what is there
+    private class SeenFromOrigin<V> extends AbstractMap<Coordinate3d, V> {
+        private final LongObjectMap<Count> COUNTS;
+        private final Function<Coordinate3d, V> GET;
+        private final Set<Entry<Coordinate3d, V>> ENTRIES;
+
+        private SeenFromOrigin(LongObjectMap<Count> counts, Function<Coordinate3d, V> get) {
+            COUNTS = counts;
+            GET = get;
+            ENTRIES = new AbstractSet<>() {
+                // The entries are gathered as iteration starts, since the counts can only be
+                // walked all at once
+                @Override
+                public Iterator<Entry<Coordinate3d, V>> iterator() {
+                    List<Entry<Coordinate3d, V>> entries = new ArrayList<>(COUNTS.size());
+                    COUNTS.forEach((key, count) -> {
+                        var absolute = coordinate3dOf(origin.X + (short) (key >>> 48),
+                                origin.Y + (short) (key >>> 32), (int) key);
+                        entries.add(new SimpleImmutableEntry<>(absolute, GET.apply(absolute)));
+                    });
+                    return entries.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return COUNTS.size();
+                }
+            };
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Coordinate3d loc && origin != null &&
+                    COUNTS.containsKey(relativeKey(loc.X - origin.X, loc.Y - origin.Y, loc.Z));
+        }
+
+        @Override
+        public V get(Object key) {
+            return containsKey(key) ? GET.apply((Coordinate3d) key) : null;
+        }
+
+        @Override
+        public int size() {
+            return COUNTS.size();
+        }
+
+        @Override
+        public Set<Entry<Coordinate3d, V>> entrySet() {
+            return ENTRIES;
+        }
+    }
+
+    // The rays to the perimeter of a radius, and the cells their templates step through
+    private static class RayLayout {
+        private final Coordinate2d[] RAY_OFFSETS;
+        // For each ray, the cells it steps through, as indices into CELLS_X and CELLS_Y
+        private final int[][] RAY_CELLS;
+        // Each cell which any ray steps through, relative to the origin
+        private final int[] CELLS_X;
+        private final int[] CELLS_Y;
+
+        private RayLayout(int visibilityRadius) {
+            RAY_OFFSETS = TileVisibilityCalculationImpl.perimeterOffsets(visibilityRadius)
+                    .toArray(Coordinate2d[]::new);
+            RAY_CELLS = new int[RAY_OFFSETS.length][];
+            // Cells are numbered in the order they're first stepped through; every cell which a
+            // ray could cross lies within one tile beyond the radius
+            var side = (2 * visibilityRadius) + 3;
+            var cellIndices = new int[side * side];
+            Arrays.fill(cellIndices, -1);
+            var cellsX = new int[side * side];
+            var cellsY = new int[side * side];
+            var cellCount = 0;
+            for (var ray = 0; ray < RAY_OFFSETS.length; ray++) {
+                var template = new RayTemplate(RAY_OFFSETS[ray].X, RAY_OFFSETS[ray].Y);
+                RAY_CELLS[ray] = new int[template.LENGTH];
+                for (var step = 0; step < template.LENGTH; step++) {
+                    var x = template.CELLS_X[step];
+                    var y = template.CELLS_Y[step];
+                    var gridIndex = ((y + visibilityRadius + 1) * side) + x + visibilityRadius + 1;
+                    if (cellIndices[gridIndex] < 0) {
+                        cellIndices[gridIndex] = cellCount;
+                        cellsX[cellCount] = x;
+                        cellsY[cellCount++] = y;
+                    }
+                    RAY_CELLS[ray][step] = cellIndices[gridIndex];
+                }
+            }
+            CELLS_X = Arrays.copyOf(cellsX, cellCount);
+            CELLS_Y = Arrays.copyOf(cellsY, cellCount);
+        }
+    }
+
+    // The signature of a column holds everything about it which a ray reads, with segments'
+    // locations relative to the column, so that columns at different locations can be compared.
+    // The floor and ceiling come first, then one long per tile and segment, sorted.
+    private static class Column {
+        private final static long NO_BOUND = Long.MIN_VALUE;
+
+        private final Map<Integer, Tile> TILES_BY_Z;
+        private final Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> SEGMENTS;
+        private final long[] SIGNATURE;
+
+        private Column(Coordinate2d location, ZoneColumns.Column zoneColumn, int originZ) {
+            var tiles = zoneColumn.TILES;
+            var segments = zoneColumn.SEGMENTS;
+            var floor = zoneColumn.floor(originZ);
+            var ceiling = zoneColumn.ceiling(originZ);
+            TILES_BY_Z = mapOf();
+            SEGMENTS = segments;
+
+            var entries = tiles.size();
+            for (var segmentsWithOrientation : segments.values()) {
+                entries += segmentsWithOrientation.size();
+            }
+            SIGNATURE = new long[2 + entries];
+            SIGNATURE[0] = floor == null ? NO_BOUND : floor;
+            SIGNATURE[1] = ceiling == null ? NO_BOUND : ceiling;
+            var index = 2;
+            for (var tile : tiles) {
+                var z = tile.location().Z;
+                TILES_BY_Z.put(z, tile);
+                SIGNATURE[index++] = entry(0, 0, 0, z, tile.getGroundType().blocksSight());
+            }
+            for (var segmentsWithOrientation : segments.entrySet()) {
+                var kind = segmentsWithOrientation.getKey().ordinal() + 1;
+                for (var segment : segmentsWithOrientation.getValue().entrySet()) {
+                    var loc = segment.getKey();
+                    SIGNATURE[index++] = entry(kind, loc.X - location.X, loc.Y - location.Y,
+                            loc.Z, segment.getValue().getType().blocksSight());
+                }
+            }
+            Arrays.sort(SIGNATURE, 2, SIGNATURE.length);
+        }
+
+        // Z in the high word; then what the entry is (0 for a tile, or a segment orientation's
+        // ordinal plus one), where it is relative to the column (segments are at most a column
+        // or so away), and whether it blocks sight
+        private static long entry(int kind, int offsetX, int offsetY, int z, boolean blocksSight) {
+            return ((long) z << 32) | ((long) kind << 17) | ((offsetX & 0xFF) << 9) |
+                    ((offsetY & 0xFF) << 1) | (blocksSight ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.gamestate.entities.Tile;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// A column's view floor is the higher of the floor provided for the zone and the highest
+// sight-blocking tile at or below the origin; its view ceiling is the lower of the ceiling
+// provided for the zone and the lowest sight-blocking tile above the origin
+class ViewBounds {
+    // The distinct Zs of the column's sight-blocking tiles, in ascending order, so that the
+    // bounds for any origin Z are a binary search away
+    static int[] blockingZs(Collection<Tile> tilesInColumn) {
+        var zs = new int[tilesInColumn.size()];
+        var count = 0;
+        for (var tile : tilesInColumn) {
+            if (tile.getGroundType().blocksSight()) {
+                zs[count++] = tile.location().Z;
+            }
+        }
+        Arrays.sort(zs, 0, count);
+        var distinct = 0;
+        for (var i = 0; i < count; i++) {
+            if (distinct == 0 || zs[i] != zs[distinct - 1]) {
+                zs[distinct++] = zs[i];
+            }
+        }
+        return distinct == zs.length ? zs : Arrays.copyOf(zs, distinct);
+    }
+
+    // The column's view floor, from its blockingZs
+    static Integer viewFloor(int[] blockingZs, Integer floorFromZone, int originZ) {
+        // The index of the first Z above the origin
+        var above = firstAbove(blockingZs, originZ);
+        if (above == 0) {
+            return floorFromZone;
+        }
+        var z = blockingZs[above - 1];
+        return floorFromZone == null || z > floorFromZone ? Integer.valueOf(z) : floorFromZone;
+    }
+
+    // The column's view ceiling, from its blockingZs
+    static Integer viewCeiling(int[] blockingZs, Integer ceilingFromZone, int originZ) {
+        var above = firstAbove(blockingZs, originZ);
+        if (above == blockingZs.length) {
+            return ceilingFromZone;
+        }
+        var z = blockingZs[above];
+        return ceilingFromZone == null || z < ceilingFromZone ? Integer.valueOf(z) :
+                ceilingFromZone;
+    }
+
+    private static int firstAbove(int[] zs, int originZ) {
+        var low = 0;
+        var high = zs.length;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (zs[mid] <= originZ) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,72 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import java.util.List;
+import java.util.Map;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+
+// What entered and left a viewer's view between two calculations. Segment maps are only built
+// once a segment enters or leaves; until then, they're empty and immutable.
+public class VisibilityDelta {
+    private final List<Tile> ENTERED_TILES;
+    private final List<Tile> LEFT_TILES;
+
+    private Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> enteredSegments;
+    private Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> leftSegments;
+
+    VisibilityDelta() {
+        ENTERED_TILES = listOf();
+        LEFT_TILES = listOf();
+    }
+
+    public List<Tile> enteredTiles() {
+        return ENTERED_TILES;
+    }
+
+    public List<Tile> leftTiles() {
+        return LEFT_TILES;
+    }
+
+    public Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> enteredSegments() {
+        return enteredSegments == null ? Map.of() : enteredSegments;
+    }
+
+    public Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> leftSegments() {
+        return leftSegments == null ? Map.of() : leftSegments;
+    }
+
+    public boolean isEmpty() {
+        return ENTERED_TILES.isEmpty() && LEFT_TILES.isEmpty() && enteredSegments == null &&
+                leftSegments == null;
+    }
+
+    void tileEntered(Tile tile) {
+        ENTERED_TILES.add(tile);
+    }
+
+    void tileLeft(Tile tile) {
+        LEFT_TILES.add(tile);
+    }
+
+    void segmentEntered(WallSegmentOrientation orientation, Coordinate3d location,
+                        WallSegment segment) {
+        if (enteredSegments == null) {
+            enteredSegments = mapOf();
+        }
+        enteredSegments.computeIfAbsent(orientation, o -> mapOf()).put(location, segment);
+    }
+
+    void segmentLeft(WallSegmentOrientation orientation, Coordinate3d location,
+                     WallSegment segment) {
+        if (leftSegments == null) {
+            leftSegments = mapOf();
+        }
+        leftSegments.computeIfAbsent(orientation, o -> mapOf()).put(location, segment);
+    }
+}
@@ -0,0 +1,118 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Character;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation.Result;
+
+import java.util.Map;
+
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+
+// Keeps what each viewer saw at its last update, and reports only what entered and left its view
+// at each update since. What's visible is visited straight from the calculation, and checked
+// against the viewer's previous set as it arrives; the previous set is only scanned for what left
+// if fewer of its tiles or segments were seen again than it holds, so an update which changes
+// nothing costs no more than the calculation itself.
+public class VisibilityDeltaTracker {
+    private final TileVisibilityCalculationImpl CALCULATION;
+    private final Map<Character, CompactVisibilityResult> VISIBLE;
+
+    public VisibilityDeltaTracker(TileVisibilityCalculationImpl calculation) {
+        CALCULATION = Check.ifNull(calculation, "calculation");
+        VISIBLE = mapOf();
+    }
+
+    // On a viewer's first update, everything visible has entered its view
+    public VisibilityDelta update(Character viewer, Tile point, int visibilityRadius)
+            throws IllegalArgumentException {
+        Check.ifNull(viewer, "viewer");
+        Check.ifNull(point, "point");
+        Check.throwOnLtValue(visibilityRadius, 0, "visibilityRadius");
+
+        var previous = VISIBLE.get(viewer);
+        var visitor = new DeltaVisitor(previous, new CompactVisibilityResult(point.location()));
+        CALCULATION.atPoint(point, visibilityRadius, visitor);
+
+        var current = visitor.CURRENT;
+        var delta = visitor.DELTA;
+        if (previous != null) {
+            if (visitor.retainedTiles < previous.tileCount()) {
+                previous.forEachTile(tile -> {
+                    var loc = tile.location();
+                    if (!current.containsTile(loc.X, loc.Y, loc.Z)) {
+                        delta.tileLeft(tile);
+                    }
+                });
+            }
+            if (visitor.retainedSegments < previous.segmentCount()) {
+                previous.forEachSegment((orientation, loc, segment) -> {
+                    if (!current.containsSegment(orientation, loc.X, loc.Y, loc.Z)) {
+                        delta.segmentLeft(orientation, loc, segment);
+                    }
+                });
+            }
+        }
+        VISIBLE.put(viewer, current);
+        return delta;
+    }
+
+    // What the viewer saw at its last update, or null if it hasn't been updated
+    public Result visible(Character viewer) throws IllegalArgumentException {
+        Check.ifNull(viewer, "viewer");
+        return VISIBLE.get(viewer);
+    }
+
+    // The viewer's next update reports everything visible as having entered its view
+    public void forget(Character viewer) throws IllegalArgumentException {
+        Check.ifNull(viewer, "viewer");
+        VISIBLE.remove(viewer);
+    }
+
+    // The calculation only visits each tile and segment once, so counting those which were
+    // already visible tells whether any previously visible ones weren't visited
+    private static class DeltaVisitor implements VisibilityVisitor {
+        private final CompactVisibilityResult PREVIOUS;
+        private final CompactVisibilityResult CURRENT;
+        private final VisibilityDelta DELTA;
+
+        private int retainedTiles;
+        private int retainedSegments;
+
+        private DeltaVisitor(CompactVisibilityResult previous, CompactVisibilityResult current) {
+            PREVIOUS = previous;
+            CURRENT = current;
+            DELTA = new VisibilityDelta();
+        }
+
+        @Override
+        public boolean visitTile(Tile tile) {
+            CURRENT.addTile(tile);
+            var loc = tile.location();
+            if (PREVIOUS != null && PREVIOUS.containsTile(loc.X, loc.Y, loc.Z)) {
+                retainedTiles++;
+            }
+            else {
+                DELTA.tileEntered(tile);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                                    WallSegment segment) {
+            CURRENT.addSegment(orientation, location, segment);
+            if (PREVIOUS != null &&
+                    PREVIOUS.containsSegment(orientation, location.X, location.Y, location.Z)) {
+                retainedSegments++;
+            }
+            else {
+                DELTA.segmentEntered(orientation, location, segment);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.tools.Check;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+// What entered and left a client's view in a turn, and its binary encoding, for sending to the
+// client. The encoding is a magic number, then the turn, then a section for each of the entered
+// and left tiles, and the entered and left segments of each orientation, then the characters
+// which entered view and those which moved within it, each as its ID and location, then the IDs
+// of the characters which left view.
+//
+// Each section of locations is encoded by row: the locations are sorted by Z, Y, then X, and each
+// run of consecutive Xs in the same Z and Y is written as its start and length, so a band of
+// tiles coming into view costs a few bytes per row rather than a few bytes per tile. Integers are
+// written as varints, zigzagged where they may be negative, and the start of each run after a
+// row's first is written as its distance from the end of the previous run.
+//
+// Decoding checks every count against the bytes left, so a corrupt or hostile frame is rejected
+// rather than allocating without bound. No visible row is anywhere near MAX_RUN_LENGTH wide.
+public class VisibilityFrame {
+    private final static int MAGIC = 0x56534632;
+    private final static int MAX_RUN_LENGTH = 1 << 12;
+    private final static WallSegmentOrientation[] ORIENTATIONS =
+            new WallSegmentOrientation[]{HORIZONTAL, CORNER, VERTICAL};
+    private final static Comparator<Coordinate3d> ROW_ORDER =
+            Comparator.comparingInt((Coordinate3d loc) -> loc.Z)
+                    .thenComparingInt(loc -> loc.Y)
+                    .thenComparingInt(loc -> loc.X);
+
+    private final int TURN;
+    private final List<Coordinate3d> ENTERED_TILES;
+    private final List<Coordinate3d> LEFT_TILES;
+    private final Map<WallSegmentOrientation, List<Coordinate3d>> ENTERED_SEGMENTS;
+    private final Map<WallSegmentOrientation, List<Coordinate3d>> LEFT_SEGMENTS;
+    private final Map<String, Coordinate3d> ENTERED_CHARACTERS;
+    private final Map<String, Coordinate3d> MOVED_CHARACTERS;
+    private final List<String> LEFT_CHARACTERS;
+
+    VisibilityFrame(int turn) {
+        TURN = turn;
+        ENTERED_TILES = listOf();
+        LEFT_TILES = listOf();
+        ENTERED_SEGMENTS = mapOf();
+        LEFT_SEGMENTS = mapOf();
+        for (var orientation : ORIENTATIONS) {
+            ENTERED_SEGMENTS.put(orientation, listOf());
+            LEFT_SEGMENTS.put(orientation, listOf());
+        }
+        ENTERED_CHARACTERS = mapOf();
+        MOVED_CHARACTERS = mapOf();
+        LEFT_CHARACTERS = listOf();
+    }
+
+    public int turn() {
+        return TURN;
+    }
+
+    public List<Coordinate3d> enteredTiles() {
+        return ENTERED_TILES;
+    }
+
+    public List<Coordinate3d> leftTiles() {
+        return LEFT_TILES;
+    }
+
+    public Map<WallSegmentOrientation, List<Coordinate3d>> enteredSegments() {
+        return ENTERED_SEGMENTS;
+    }
+
+    public Map<WallSegmentOrientation, List<Coordinate3d>> leftSegments() {
+        return LEFT_SEGMENTS;
+    }
+
+    // Each character's ID, and the location where it entered view
+    public Map<String, Coordinate3d> enteredCharacters() {
+        return ENTERED_CHARACTERS;
+    }
+
+    // Each character's ID, and the location it moved to while staying in view
+    public Map<String, Coordinate3d> movedCharacters() {
+        return MOVED_CHARACTERS;
+    }
+
+    public List<String> leftCharacters() {
+        return LEFT_CHARACTERS;
+    }
+
+    public boolean isEmpty() {
+        if (!ENTERED_TILES.isEmpty() || !LEFT_TILES.isEmpty() ||
+                !ENTERED_CHARACTERS.isEmpty() || !MOVED_CHARACTERS.isEmpty() ||
+                !LEFT_CHARACTERS.isEmpty()) {
+            return false;
+        }
+        for (var orientation : ORIENTATIONS) {
+            if (!ENTERED_SEGMENTS.get(orientation).isEmpty() ||
+                    !LEFT_SEGMENTS.get(orientation).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Locations are encoded row by row, in runs along X
+    byte[] encode() {
+        var out = new ByteArrayOutputStream();
+        out.write(MAGIC >>> 24);
+        out.write(MAGIC >>> 16);
+        out.write(MAGIC >>> 8);
+        out.write(MAGIC);
+        writeSigned(out, TURN);
+        writeRows(out, ENTERED_TILES);
+        writeRows(out, LEFT_TILES);
+        for (var orientation : ORIENTATIONS) {
+            writeRows(out, ENTERED_SEGMENTS.get(orientation));
+            writeRows(out, LEFT_SEGMENTS.get(orientation));
+        }
+        writeCharacters(out, ENTERED_CHARACTERS);
+        writeCharacters(out, MOVED_CHARACTERS);
+        writeUnsigned(out, LEFT_CHARACTERS.size());
+        for (var characterId : LEFT_CHARACTERS) {
+            writeString(out, characterId);
+        }
+        return out.toByteArray();
+    }
+
+    public static VisibilityFrame decode(byte[] bytes) throws IllegalArgumentException {
+        Check.ifNull(bytes, "bytes");
+        var in = ByteBuffer.wrap(bytes);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException(
+                        "VisibilityFrame.decode: bytes are not a visibility frame");
+            }
+            var frame = new VisibilityFrame(readSigned(in));
+            readRows(in, frame.ENTERED_TILES);
+            readRows(in, frame.LEFT_TILES);
+            for (var orientation : ORIENTATIONS) {
+                readRows(in, frame.ENTERED_SEGMENTS.get(orientation));
+                readRows(in, frame.LEFT_SEGMENTS.get(orientation));
+            }
+            readCharacters(in, frame.ENTERED_CHARACTERS);
+            readCharacters(in, frame.MOVED_CHARACTERS);
+            var leftCharacters = readCount(in);
+            for (var i = 0; i < leftCharacters; i++) {
+                frame.LEFT_CHARACTERS.add(readString(in));
+            }
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException(
+                        "VisibilityFrame.decode: bytes continue past the end of the frame");
+            }
+            return frame;
+        }
+        catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("VisibilityFrame.decode: frame is truncated", e);
+        }
+    }
+
+    // Sorts a copy, so encoding leaves the frame's own lists in whatever order they were built
+    private static void writeRows(ByteArrayOutputStream out, List<Coordinate3d> unsorted) {
+        var locations = new ArrayList<>(unsorted);
+        locations.sort(ROW_ORDER);
+        var rows = 0;
+        for (var i = 0; i < locations.size(); i++) {
+            if (i == 0 || !sameRow(locations.get(i - 1), locations.get(i))) {
+                rows++;
+            }
+        }
+        writeUnsigned(out, rows);
+
+        var rowStart = 0;
+        while (rowStart < locations.size()) {
+            var rowEnd = rowStart + 1;
+            while (rowEnd < locations.size() &&
+                    sameRow(locations.get(rowStart), locations.get(rowEnd))) {
+                rowEnd++;
+            }
+            writeRow(out, locations, rowStart, rowEnd);
+            rowStart = rowEnd;
+        }
+    }
+
+    // Writes the locations from rowStart (inclusive) to rowEnd (exclusive), which share a row
+    private static void writeRow(ByteArrayOutputStream out, List<Coordinate3d> locations,
+                                 int rowStart, int rowEnd) {
+        var first = locations.get(rowStart);
+        writeSigned(out, first.Z);
+        writeSigned(out, first.Y);
+        var runs = 0;
+        for (var i = rowStart; i < rowEnd; i++) {
+            if (i == rowStart || locations.get(i).X != locations.get(i - 1).X + 1) {
+                runs++;
+            }
+        }
+        writeUnsigned(out, runs);
+
+        var runStart = rowStart;
+        var previousRunEnd = 0;
+        while (runStart < rowEnd) {
+            var runEnd = runStart + 1;
+            while (runEnd < rowEnd &&
+                    locations.get(runEnd).X == locations.get(runEnd - 1).X + 1) {
+                runEnd++;
+            }
+            var startX = locations.get(runStart).X;
+            if (runStart == rowStart) {
+                writeSigned(out, startX);
+            }
+            else {
+                writeUnsigned(out, startX - previousRunEnd);
+            }
+            writeUnsigned(out, runEnd - runStart);
+            previousRunEnd = startX + (runEnd - runStart);
+            runStart = runEnd;
+        }
+    }
+
+    private static void readRows(ByteBuffer in, List<Coordinate3d> locations) {
+        var rows = readCount(in);
+        for (var row = 0; row < rows; row++) {
+            var z = readSigned(in);
+            var y = readSigned(in);
+            var runs = readCount(in);
+            var previousRunEnd = 0;
+            for (var run = 0; run < runs; run++) {
+                // A later run's gap is unsigned, and may carry it past the largest X there is
+                var start = run == 0 ? readSigned(in) :
+                        previousRunEnd + Integer.toUnsignedLong(readUnsigned(in));
+                if (start > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException(
+                            "VisibilityFrame.decode: run start (" + start + ") is out of range");
+                }
+                var startX = (int) start;
+                var length = readUnsigned(in);
+                if (length <= 0 || length > MAX_RUN_LENGTH ||
+                        (long) startX + length > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException(
+                            "VisibilityFrame.decode: run length (" + length + ") is invalid");
+                }
+                for (var x = startX; x < startX + length; x++) {
+                    locations.add(coordinate3dOf(x, y, z));
+                }
+                previousRunEnd = startX + length;
+            }
+        }
+    }
+
+    private static void writeCharacters(ByteArrayOutputStream out,
+                                        Map<String, Coordinate3d> characters) {
+        writeUnsigned(out, characters.size());
+        for (var character : characters.entrySet()) {
+            writeString(out, character.getKey());
+            var loc = character.getValue();
+            writeSigned(out, loc.X);
+            writeSigned(out, loc.Y);
+            writeSigned(out, loc.Z);
+        }
+    }
+
+    private static void readCharacters(ByteBuffer in, Map<String, Coordinate3d> characters) {
+        var count = readCount(in);
+        for (var i = 0; i < count; i++) {
+            var characterId = readString(in);
+            characters.put(characterId, coordinate3dOf(readSigned(in), readSigned(in),
+                    readSigned(in)));
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String string) {
+        var bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        var bytes = new byte[readCount(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Whatever is counted takes at least a byte apiece, so no count can exceed the bytes left
+    private static int readCount(ByteBuffer in) {
+        var count = readUnsigned(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("VisibilityFrame.decode: count (" +
+                    Integer.toUnsignedString(count) + ") exceeds the bytes left (" +
+                    in.remaining() + ")");
+        }
+        return count;
+    }
+
+    private static boolean sameRow(Coordinate3d loc1, Coordinate3d loc2) {
+        return loc1.Z == loc2.Z && loc1.Y == loc2.Y;
+    }
+
+    private static void writeSigned(ByteArrayOutputStream out, int value) {
+        writeUnsigned(out, (value << 1) ^ (value >> 31));
+    }
+
+    // Seven bits per byte, low bits first, with the high bit set on every byte but the last
+    private static void writeUnsigned(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readSigned(ByteBuffer in) {
+        var zigzagged = readUnsigned(in);
+        return (zigzagged >>> 1) ^ -(zigzagged & 1);
+    }
+
+    private static int readUnsigned(ByteBuffer in) {
+        var value = 0;
+        for (var shift = 0; shift < 35; shift += 7) {
+            var b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("VisibilityFrame.decode: varint is too long");
+    }
+}
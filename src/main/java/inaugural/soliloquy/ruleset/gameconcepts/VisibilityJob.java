@@ -0,0 +1,132 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import inaugural.soliloquy.ruleset.gameconcepts.TileVisibilityRayCalculationImpl.RayCursor;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation.Result;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityRayCalculation;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static soliloquy.specs.common.valueobjects.Coordinate2d.coordinate2dOf;
+
+// Casts the same rays as TileVisibilityCalculationImpl.atPoint, in slices which each stop once a
+// budget of nanoseconds is spent, so a large visibility radius can be spread over several frames.
+// With a TileVisibilityRayCalculationImpl, every ray is advanced one column before any is advanced
+// a second, so what's near the origin is found first, and what's found so far is a disc which
+// grows outward with each slice; any other ray calculation can only cast whole rays, one at a
+// time. Once done, the result holds just what atPoint's would.
+//
+// The job reads the GameZone as it goes, each column only once, so changes to the zone between
+// slices only show up in columns not yet read. It isn't thread-safe.
+public class VisibilityJob {
+    private final TileVisibilityRayCalculation RAY_CALCULATION;
+    private final TileVisibilityRayCalculationImpl RAY_CALCULATION_IMPL;
+    private final Coordinate3d ORIGIN;
+    private final List<Coordinate2d> OFFSETS;
+    private final LongSupplier GET_NANO_TIME;
+    private final CompactVisibilityResult RESULT;
+    // Rays still being cast, in no particular order
+    private final RayCursor[] CURSORS;
+    private final ZoneColumns COLUMNS;
+
+    private int nextRay;
+    private int liveCursors;
+    private int nextCursor;
+    private int slices;
+
+    VisibilityJob(TileVisibilityRayCalculation rayCalculation, Coordinate3d origin,
+                  List<Coordinate2d> offsets, LongSupplier getNanoTime) {
+        RAY_CALCULATION = rayCalculation;
+        RAY_CALCULATION_IMPL = rayCalculation instanceof TileVisibilityRayCalculationImpl impl ?
+                impl : null;
+        ORIGIN = origin;
+        OFFSETS = offsets;
+        GET_NANO_TIME = getNanoTime;
+        RESULT = new CompactVisibilityResult(origin);
+        CURSORS = RAY_CALCULATION_IMPL == null ? null : new RayCursor[offsets.size()];
+        COLUMNS = RAY_CALCULATION_IMPL == null ? null : RAY_CALCULATION_IMPL.columns();
+    }
+
+    // Works until the budget is spent or the job is done, and returns whether it's done. Each
+    // slice does at least one column (or ray) of work, so the budget can be overrun by one.
+    public boolean runFor(long budgetNanos) throws IllegalArgumentException {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException(
+                    "VisibilityJob.runFor: budgetNanos (" + budgetNanos + ") must be positive");
+        }
+        if (isDone()) {
+            return true;
+        }
+
+        var deadline = GET_NANO_TIME.getAsLong() + budgetNanos;
+        slices++;
+        do {
+            advance();
+        }
+        while (!isDone() && GET_NANO_TIME.getAsLong() - deadline < 0);
+
+        return isDone();
+    }
+
+    // Runs every remaining slice at once
+    public Result finish() {
+        while (!isDone()) {
+            advance();
+        }
+        return RESULT;
+    }
+
+    public boolean isDone() {
+        return nextRay == OFFSETS.size() && liveCursors == 0;
+    }
+
+    // What's been found so far; this is the same Result throughout, and it keeps growing until
+    // the job is done
+    public Result result() {
+        return RESULT;
+    }
+
+    public int slices() {
+        return slices;
+    }
+
+    private void advance() {
+        if (RAY_CALCULATION_IMPL == null) {
+            RESULT.addAll(RAY_CALCULATION.castRay(ORIGIN, target(nextRay++)));
+            return;
+        }
+
+        // The first pass starts each ray, and visits its first column
+        if (nextRay < OFFSETS.size()) {
+            var cursor = RAY_CALCULATION_IMPL.rayCursor(ORIGIN, target(nextRay++), COLUMNS);
+            if (!cursor.done()) {
+                cursor.advance(RESULT);
+            }
+            if (!cursor.done()) {
+                CURSORS[liveCursors++] = cursor;
+            }
+            return;
+        }
+
+        var cursor = CURSORS[nextCursor];
+        cursor.advance(RESULT);
+        if (cursor.done()) {
+            // The last ray hasn't been advanced yet in this pass, so it takes this one's place
+            CURSORS[nextCursor] = CURSORS[--liveCursors];
+            CURSORS[liveCursors] = null;
+        }
+        else {
+            nextCursor++;
+        }
+        if (nextCursor >= liveCursors) {
+            nextCursor = 0;
+        }
+    }
+
+    private Coordinate2d target(int ray) {
+        var offset = OFFSETS.get(ray);
+        return coordinate2dOf(ORIGIN.X + offset.X, ORIGIN.Y + offset.Y);
+    }
+}
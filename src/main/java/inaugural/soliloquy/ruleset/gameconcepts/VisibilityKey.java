@@ -0,0 +1,29 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+
+import java.util.Objects;
+
+// Identifies a Result by the origin and radius it was calculated at, for keeping Results in maps
+final class VisibilityKey {
+    final Coordinate3d ORIGIN;
+    final int VISIBILITY_RADIUS;
+
+    VisibilityKey(Coordinate3d origin, int visibilityRadius) {
+        ORIGIN = origin;
+        VISIBILITY_RADIUS = visibilityRadius;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof VisibilityKey key)) {
+            return false;
+        }
+        return VISIBILITY_RADIUS == key.VISIBILITY_RADIUS && ORIGIN.equals(key.ORIGIN);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ORIGIN, VISIBILITY_RADIUS);
+    }
+}
@@ -0,0 +1,17 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+// Receives each tile and segment a calculation finds visible as it's found, so that consumers
+// which only pass over what's visible once can do their work during the calculation, without a
+// Result being built for them. Returning false from either method stops the calculation, and
+// nothing further is visited.
+public interface VisibilityVisitor {
+    boolean visitTile(Tile tile);
+
+    boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                         WallSegment segment);
+}
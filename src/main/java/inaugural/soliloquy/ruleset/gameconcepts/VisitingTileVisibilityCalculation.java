@@ -0,0 +1,11 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+// A TileVisibilityCalculation which can also hand what it finds visible to a VisibilityVisitor as
+// it finds it, so that callers can stop it part of the way through
+public interface VisitingTileVisibilityCalculation extends TileVisibilityCalculation {
+    void atPoint(Tile point, int visibilityRadius, VisibilityVisitor visitor)
+            throws IllegalArgumentException;
+}
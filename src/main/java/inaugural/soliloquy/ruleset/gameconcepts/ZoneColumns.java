@@ -0,0 +1,113 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+import static soliloquy.specs.common.valueobjects.Coordinate2d.coordinate2dOf;
+
+// The columns of a GameZone read so far, so that a calculation (or a batch of them) reads each
+// column's tiles and segments from the GameZone only once. This is meant to live only as long as
+// the calculation, since it never notices changes to the GameZone; and it's not thread-safe.
+class ZoneColumns {
+    private final GameZone GAME_ZONE;
+    private final Function<Coordinate3d, Integer> GET_VIEW_CEILING;
+    private final Function<Coordinate3d, Integer> GET_VIEW_FLOOR;
+    private final LongObjectMap<Column> COLUMNS;
+
+    ZoneColumns(GameZone gameZone, Function<Coordinate3d, Integer> getViewCeiling,
+                Function<Coordinate3d, Integer> getViewFloor) {
+        GAME_ZONE = gameZone;
+        GET_VIEW_CEILING = getViewCeiling;
+        GET_VIEW_FLOOR = getViewFloor;
+        COLUMNS = new LongObjectMap<>();
+    }
+
+    Column at(int x, int y) {
+        var key = LongObjectMap.key(x, y);
+        var column = COLUMNS.get(key);
+        if (column == null) {
+            var location = coordinate2dOf(x, y);
+            column = new Column(location, GAME_ZONE.tiles(location),
+                    GAME_ZONE.segments(location));
+            COLUMNS.put(key, column);
+        }
+        return column;
+    }
+
+    class Column {
+        private final Coordinate2d LOCATION;
+        final Collection<Tile> TILES;
+        final Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> SEGMENTS;
+
+        // The distinct Zs of the sight-blocking tiles, ascending; only found once bounds are first
+        // asked for
+        private int[] blockingZs;
+        // A column's view floor and ceiling depend on the origin's Z, so they're resolved for
+        // each Z asked about, and kept in order of Z; viewers sharing columns are nearly always on
+        // a few levels at most
+        private int[] resolvedZs;
+        private Integer[] floors;
+        private Integer[] ceilings;
+        private int resolvedCount;
+
+        private Column(Coordinate2d location, Collection<Tile> tiles,
+                       Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments) {
+            LOCATION = location;
+            TILES = tiles;
+            SEGMENTS = segments;
+        }
+
+        // (The index is resolved before the array is read, since resolving may replace it)
+        Integer floor(int originZ) {
+            var index = resolve(originZ);
+            return floors[index];
+        }
+
+        Integer ceiling(int originZ) {
+            var index = resolve(originZ);
+            return ceilings[index];
+        }
+
+        // Returns the index at which the bounds for the Z are kept
+        private int resolve(int originZ) {
+            if (resolvedZs == null) {
+                blockingZs = ViewBounds.blockingZs(TILES);
+                resolvedZs = new int[1];
+                floors = new Integer[1];
+                ceilings = new Integer[1];
+            }
+            var index = Arrays.binarySearch(resolvedZs, 0, resolvedCount, originZ);
+            if (index >= 0) {
+                return index;
+            }
+
+            index = -index - 1;
+            if (resolvedCount == resolvedZs.length) {
+                resolvedZs = Arrays.copyOf(resolvedZs, resolvedCount * 2);
+                floors = Arrays.copyOf(floors, resolvedCount * 2);
+                ceilings = Arrays.copyOf(ceilings, resolvedCount * 2);
+            }
+            System.arraycopy(resolvedZs, index, resolvedZs, index + 1, resolvedCount - index);
+            System.arraycopy(floors, index, floors, index + 1, resolvedCount - index);
+            System.arraycopy(ceilings, index, ceilings, index + 1, resolvedCount - index);
+            resolvedCount++;
+
+            var locAtOriginZ = LOCATION.to3d(originZ);
+            resolvedZs[index] = originZ;
+            floors[index] = ViewBounds.viewFloor(blockingZs, GET_VIEW_FLOOR.apply(locAtOriginZ),
+                    originZ);
+            ceilings[index] = ViewBounds.viewCeiling(blockingZs,
+                    GET_VIEW_CEILING.apply(locAtOriginZ), originZ);
+            return index;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.common.valueobjects.Pair;
+import soliloquy.specs.gamestate.entities.Character;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static inaugural.soliloquy.tools.random.Random.randomString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.common.valueobjects.Pair.pairOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ClientVisibilityCullerTests {
+    private final String CLIENT_ID = randomString();
+    private final String CHARACTER_ID = randomString();
+    private final int RADIUS = randomIntInRange(1, 10);
+    private final int TURN = randomIntInRange(1, 1000);
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomIntInRange(-100, 100));
+
+    @Mock private TileVisibilityRayTreeCalculationImpl mockCalculation;
+    @Mock private Function<Tile, Collection<Character>> mockGetCharacters;
+    @Mock private Function<Character, String> mockGetCharacterId;
+    @Mock private Tile mockOriginTile;
+    @Mock private Character mockCharacter;
+    @Mock private WallSegment mockSegment;
+
+    // What the party sees on the next frame
+    private CompactVisibilityResult visible;
+    private List<Pair<Tile, Integer>> party;
+    private Map<Coordinate3d, Tile> tiles;
+
+    private ClientVisibilityCuller culler;
+    private LoopbackVisibilityClient client;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(mockOriginTile.location()).thenReturn(ORIGIN);
+        lenient().when(mockGetCharacterId.apply(mockCharacter)).thenReturn(CHARACTER_ID);
+        lenient().when(mockGetCharacters.apply(any())).thenReturn(listOf());
+        party = listOf(pairOf(mockOriginTile, RADIUS));
+        visible = new CompactVisibilityResult(ORIGIN);
+        tiles = mapOf();
+        lenient().when(mockCalculation.atPoints(any())).thenAnswer(
+                invocation -> new MultiViewerVisibilityResult(listOf(visible), ORIGIN));
+
+        culler = new ClientVisibilityCuller(mockCalculation, mockGetCharacters,
+                mockGetCharacterId);
+        client = new LoopbackVisibilityClient();
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClientVisibilityCuller(null, mockGetCharacters, mockGetCharacterId));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClientVisibilityCuller(mockCalculation, null, mockGetCharacterId));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClientVisibilityCuller(mockCalculation, mockGetCharacters, null));
+    }
+
+    @Test
+    public void testFirstFrameEntersEverythingVisible() {
+        see(ORIGIN);
+        see(coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z));
+        visible.addSegment(HORIZONTAL, ORIGIN, mockSegment);
+        when(mockGetCharacters.apply(tiles.get(ORIGIN))).thenReturn(listOf(mockCharacter));
+
+        var frame = VisibilityFrame.decode(culler.frame(CLIENT_ID, party, TURN));
+
+        assertEquals(TURN, frame.turn());
+        assertEquals(setOf(tiles.keySet()), setOf(frame.enteredTiles()));
+        assertTrue(frame.leftTiles().isEmpty());
+        assertEquals(listOf(ORIGIN), frame.enteredSegments().get(HORIZONTAL));
+        assertEquals(mapOf(pairOf(CHARACTER_ID, ORIGIN)), frame.enteredCharacters());
+        assertEquals(1, culler.clients());
+        verify(mockCalculation).atPoints(party);
+    }
+
+    @Test
+    public void testLaterFramesOnlyHoldChanges() {
+        var staying = coordinate3dOf(ORIGIN.X, ORIGIN.Y, ORIGIN.Z);
+        var leaving = coordinate3dOf(ORIGIN.X - 1, ORIGIN.Y, ORIGIN.Z);
+        var entering = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z);
+        see(staying);
+        see(leaving);
+        visible.addSegment(VERTICAL, leaving, mockSegment);
+        when(mockGetCharacters.apply(tiles.get(leaving))).thenReturn(listOf(mockCharacter));
+        client.receive(culler.frame(CLIENT_ID, party, TURN));
+        visible = new CompactVisibilityResult(ORIGIN);
+        see(staying);
+        see(entering);
+
+        var bytes = culler.frame(CLIENT_ID, party, TURN + 1);
+        var frame = VisibilityFrame.decode(bytes);
+        client.receive(bytes);
+
+        assertEquals(listOf(entering), frame.enteredTiles());
+        assertEquals(listOf(leaving), frame.leftTiles());
+        assertEquals(listOf(leaving), frame.leftSegments().get(VERTICAL));
+        assertTrue(frame.enteredCharacters().isEmpty());
+        assertEquals(listOf(CHARACTER_ID), frame.leftCharacters());
+        assertEquals(setOf(staying, entering), client.tiles());
+        assertTrue(client.segments(VERTICAL).isEmpty());
+        assertTrue(client.characterIds().isEmpty());
+        assertEquals(TURN + 1, client.lastTurn());
+    }
+
+    @Test
+    public void testCharacterMovingWithinViewIsMoved() {
+        var from = coordinate3dOf(ORIGIN.X, ORIGIN.Y, ORIGIN.Z);
+        var to = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z);
+        see(from);
+        see(to);
+        when(mockGetCharacters.apply(tiles.get(from))).thenReturn(listOf(mockCharacter));
+        client.receive(culler.frame(CLIENT_ID, party, TURN));
+        when(mockGetCharacters.apply(tiles.get(from))).thenReturn(listOf());
+        when(mockGetCharacters.apply(tiles.get(to))).thenReturn(listOf(mockCharacter));
+
+        var bytes = culler.frame(CLIENT_ID, party, TURN + 1);
+        var frame = VisibilityFrame.decode(bytes);
+        client.receive(bytes);
+
+        assertEquals(mapOf(pairOf(CHARACTER_ID, to)), frame.movedCharacters());
+        assertTrue(frame.enteredCharacters().isEmpty());
+        assertTrue(frame.leftCharacters().isEmpty());
+        assertTrue(frame.enteredTiles().isEmpty());
+        assertEquals(mapOf(pairOf(CHARACTER_ID, to)), client.characters());
+    }
+
+    @Test
+    public void testUnchangedFrameIsEmpty() {
+        see(ORIGIN);
+        culler.frame(CLIENT_ID, party, TURN);
+
+        var frame = VisibilityFrame.decode(culler.frame(CLIENT_ID, party, TURN + 1));
+
+        assertTrue(frame.isEmpty());
+    }
+
+    @Test
+    public void testClientsAreCulledSeparately() {
+        see(ORIGIN);
+        culler.frame(CLIENT_ID, party, TURN);
+
+        var frame = VisibilityFrame.decode(culler.frame(randomString(), party, TURN));
+
+        assertEquals(listOf(ORIGIN), frame.enteredTiles());
+        assertEquals(2, culler.clients());
+    }
+
+    @Test
+    public void testDisconnect() {
+        see(ORIGIN);
+        culler.frame(CLIENT_ID, party, TURN);
+
+        culler.disconnect(CLIENT_ID);
+        var frame = VisibilityFrame.decode(culler.frame(CLIENT_ID, party, TURN + 1));
+
+        assertEquals(listOf(ORIGIN), frame.enteredTiles());
+    }
+
+    @Test
+    public void testWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> culler.frame(null, party, TURN));
+        assertThrows(IllegalArgumentException.class, () -> culler.frame("", party, TURN));
+        assertThrows(IllegalArgumentException.class, () -> culler.frame(CLIENT_ID, null, TURN));
+        assertThrows(IllegalArgumentException.class, () -> culler.disconnect(null));
+        assertThrows(IllegalArgumentException.class, () -> culler.disconnect(""));
+    }
+
+    private void see(Coordinate3d loc) {
+        var tile = tiles.computeIfAbsent(loc, l -> {
+            var mockTile = mock(Tile.class);
+            lenient().when(mockTile.location()).thenReturn(l);
+            return mockTile;
+        });
+        visible.addTile(tile);
+    }
+}
@@ -0,0 +1,122 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.VERTICAL;
+
+public class ColumnSlopesTests {
+    // Long enough to fill several lanes of any vector shape, with a remainder
+    private final static int COUNT = 71;
+
+    private final int ORIGIN_Z = randomIntInRange(-100, 100);
+    private final float Z_ADDEND_BELOW = randomFloatBetween(0f, 1f);
+
+    private int[] zs;
+    private FloatIntervalSet blocked;
+
+    @BeforeEach
+    public void setUp() {
+        zs = new int[COUNT];
+        for (var i = 0; i < COUNT; i++) {
+            zs[i] = ORIGIN_Z + i - (COUNT / 2);
+        }
+        blocked = new FloatIntervalSet();
+        for (var i = 0; i < 5; i++) {
+            var low = randomFloatBetween(-10f, 10f);
+            blocked.add(low, low + randomFloatBetween(0.1f, 2f));
+        }
+    }
+
+    // The tests are run both with and without the module (see testWithoutVectorModule); the
+    // vectorized implementation is in its own source set, so it's only known here by name
+    @Test
+    public void testFastestIsVectorizedOnlyWhereModuleIsPresent() {
+        var modulePresent =
+                ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+        var fastest = ColumnSlopes.fastest();
+
+        assertEquals(modulePresent,
+                fastest.getClass().getSimpleName().equals("VectorColumnSlopes"));
+        assertEquals(!modulePresent, fastest instanceof ScalarColumnSlopes);
+    }
+
+    @Test
+    public void testFastestMatchesScalar() {
+        var run = randomFloatBetween(0.5f, 20f);
+        var expected = new boolean[COUNT];
+        var actual = new boolean[COUNT];
+
+        new ScalarColumnSlopes().visible(ORIGIN_Z, Z_ADDEND_BELOW, run, zs, COUNT, blocked,
+                expected);
+        ColumnSlopes.fastest().visible(ORIGIN_Z, Z_ADDEND_BELOW, run, zs, COUNT, blocked,
+                actual);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testFastestMatchesScalarWithManyRanges() {
+        for (var i = 0; i < 40; i++) {
+            var low = randomFloatBetween(-100f, 100f);
+            blocked.add(low, low + 0.5f);
+        }
+        var run = randomFloatBetween(0.5f, 20f);
+        var expected = new boolean[COUNT];
+        var actual = new boolean[COUNT];
+
+        new ScalarColumnSlopes().visible(ORIGIN_Z, Z_ADDEND_BELOW, run, zs, COUNT, blocked,
+                expected);
+        ColumnSlopes.fastest().visible(ORIGIN_Z, Z_ADDEND_BELOW, run, zs, COUNT, blocked,
+                actual);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testFastestMatchesScalarInOriginColumn() {
+        var expected = new boolean[COUNT];
+        var actual = new boolean[COUNT];
+        blocked.add(Float.NEGATIVE_INFINITY, -1f);
+
+        new ScalarColumnSlopes().visible(ORIGIN_Z, Z_ADDEND_BELOW, 0f, zs, COUNT, blocked,
+                expected);
+        ColumnSlopes.fastest().visible(ORIGIN_Z, Z_ADDEND_BELOW, 0f, zs, COUNT, blocked,
+                actual);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testTilesAreVisibleMatchesTileIsVisible() {
+        var origin = coordinate3dOf(randomIntInRange(-100, 100), randomIntInRange(-100, 100),
+                ORIGIN_Z);
+        var columnX = origin.X + randomIntInRange(1, 5);
+        var columnY = origin.Y + randomIntInRange(-5, 5);
+        var blockingSlopes = new BlockingSlopesInXYZSpace(Z_ADDEND_BELOW);
+        blockingSlopes.addBlockingSegmentZs(origin, new int[]{ORIGIN_Z + 3, ORIGIN_Z - 4}, 2,
+                VERTICAL, origin.X + 1, origin.Y);
+        var visible = new boolean[COUNT];
+
+        blockingSlopes.tilesAreVisible(origin, columnX, columnY, zs, COUNT, visible);
+
+        var anyVisible = false;
+        var anyBlocked = false;
+        for (var i = 0; i < COUNT; i++) {
+            assertEquals(blockingSlopes.tileIsVisible(origin, columnX, columnY, zs[i]),
+                    visible[i]);
+            anyVisible |= visible[i];
+            anyBlocked |= !visible[i];
+        }
+        assertTrue(anyVisible);
+        assertTrue(anyBlocked);
+    }
+
+    private static float randomFloatBetween(float low, float high) {
+        return low + ((high - low) * randomIntInRange(0, 1000) / 1000f);
+    }
+}
@@ -0,0 +1,206 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.Map;
+
+import static inaugural.soliloquy.ruleset.gameconcepts.VisibilityTestFixtures.*;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomInt;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.common.valueobjects.Pair.pairOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+public class CompactVisibilityResultTests {
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomInt());
+
+    private CompactVisibilityResult result;
+
+    @BeforeEach
+    public void setUp() {
+        result = new CompactVisibilityResult(ORIGIN);
+    }
+
+    @Test
+    public void testAddTile() {
+        var loc = coordinate3dOf(ORIGIN.X - 3, ORIGIN.Y + 7, randomInt());
+        var tile = makeMockTile(loc);
+
+        result.addTile(tile);
+
+        assertEquals(1, result.tileCount());
+        assertTrue(result.containsTile(loc.X, loc.Y, loc.Z));
+        assertFalse(result.containsTile(loc.X, loc.Y, loc.Z + 1));
+        assertEquals(mapOf(pairOf(loc, tile)), result.tiles());
+    }
+
+    @Test
+    public void testAddManyTilesAndForEachTile() {
+        var radius = 20;
+        Map<Coordinate3d, Tile> expectedTiles = mapOf();
+        for (var x = -radius; x <= radius; x++) {
+            for (var y = -radius; y <= radius; y++) {
+                var loc = coordinate3dOf(ORIGIN.X + x, ORIGIN.Y + y, ORIGIN.Z);
+                var tile = makeMockTile(loc);
+                expectedTiles.put(loc, tile);
+                result.addTile(tile);
+            }
+        }
+        var tilesVisited = setOf();
+
+        result.forEachTile(tilesVisited::add);
+
+        assertEquals(expectedTiles.size(), result.tileCount());
+        assertEquals(expectedTiles.size(), tilesVisited.size());
+        assertTrue(tilesVisited.containsAll(expectedTiles.values()));
+        assertEquals(expectedTiles, result.tiles());
+    }
+
+    @Test
+    public void testAddTileBeyondPackableRange() {
+        var loc = coordinate3dOf(ORIGIN.X + 40000, ORIGIN.Y, ORIGIN.Z);
+        var tile = makeMockTile(loc);
+
+        result.addTile(tile);
+
+        assertEquals(1, result.tileCount());
+        assertTrue(result.containsTile(loc.X, loc.Y, loc.Z));
+        assertEquals(mapOf(pairOf(loc, tile)), result.tiles());
+    }
+
+    @Test
+    public void testAddSegment() {
+        var loc = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y - 1, ORIGIN.Z);
+        var segment = mock(WallSegment.class);
+
+        result.addSegment(CORNER, loc, segment);
+
+        assertEquals(3, result.segments().size());
+        assertEquals(mapOf(pairOf(loc, segment)), result.segments().get(CORNER));
+        assertTrue(result.segments().get(HORIZONTAL).isEmpty());
+        assertTrue(result.segments().get(VERTICAL).isEmpty());
+    }
+
+    @Test
+    public void testAdditionsAfterViewingAreReflectedInViews() {
+        var tiles = result.tiles();
+        var segments = result.segments();
+        var loc = coordinate3dOf(ORIGIN.X, ORIGIN.Y + 1, ORIGIN.Z);
+        var tile = makeMockTile(loc);
+        var segment = mock(WallSegment.class);
+
+        result.addTile(tile);
+        result.addSegment(HORIZONTAL, loc, segment);
+
+        assertSame(tiles, result.tiles());
+        assertEquals(mapOf(pairOf(loc, tile)), tiles);
+        assertSame(segments, result.segments());
+        assertEquals(mapOf(pairOf(loc, segment)), segments.get(HORIZONTAL));
+    }
+
+    @Test
+    public void testAddAllReplacesExistingEntries() {
+        var loc = coordinate3dOf(ORIGIN.X + 2, ORIGIN.Y + 2, ORIGIN.Z);
+        var otherLoc = coordinate3dOf(ORIGIN.X - 2, ORIGIN.Y, ORIGIN.Z);
+        var tile = makeMockTile(loc);
+        var replacingTile = makeMockTile(loc);
+        var otherTile = makeMockTile(otherLoc);
+        var segment = mock(WallSegment.class);
+        result.addTile(tile);
+        var toAdd = new CompactVisibilityResult(ORIGIN);
+        toAdd.addTile(replacingTile);
+        toAdd.addTile(otherTile);
+        toAdd.addSegment(VERTICAL, loc, segment);
+
+        result.addAll(toAdd);
+
+        assertEquals(mapOf(pairOf(loc, replacingTile), pairOf(otherLoc, otherTile)),
+                result.tiles());
+        assertEquals(mapOf(pairOf(loc, segment)), result.segments().get(VERTICAL));
+    }
+
+    @Test
+    public void testAddAllFromOtherOrigin() {
+        var otherOrigin = coordinate3dOf(ORIGIN.X + 40, ORIGIN.Y - 30, ORIGIN.Z);
+        var loc = coordinate3dOf(otherOrigin.X + 1, otherOrigin.Y + 1, ORIGIN.Z);
+        var tile = makeMockTile(loc);
+        var segment = mock(WallSegment.class);
+        var toAdd = new CompactVisibilityResult(otherOrigin);
+        toAdd.addTile(tile);
+        toAdd.addSegment(CORNER, loc, segment);
+
+        result.addAll(toAdd);
+
+        assertTrue(result.containsTile(loc.X, loc.Y, loc.Z));
+        assertEquals(mapOf(pairOf(loc, tile)), result.tiles());
+        assertEquals(mapOf(pairOf(loc, segment)), result.segments().get(CORNER));
+    }
+
+    @Test
+    public void testAddAllWithOtherResultImplementation() {
+        var loc = coordinate3dOf(ORIGIN.X + 5, ORIGIN.Y, ORIGIN.Z);
+        var tile = makeMockTile(loc);
+        var segment = mock(WallSegment.class);
+        Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments = mapOf(
+                pairOf(HORIZONTAL, mapOf()),
+                pairOf(CORNER, mapOf()),
+                pairOf(VERTICAL, mapOf(pairOf(loc, segment))));
+        var toAdd = new TileVisibilityCalculation.Result() {
+            @Override
+            public Map<Coordinate3d, Tile> tiles() {
+                return mapOf(pairOf(loc, tile));
+            }
+
+            @Override
+            public Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments() {
+                return segments;
+            }
+        };
+
+        result.addAll(toAdd);
+
+        assertEquals(toAdd.tiles(), result.tiles());
+        assertEquals(segments, result.segments());
+    }
+
+    @Test
+    public void testAddAllKeepsOtherResultsKeys() {
+        // Neither tile knows its location, and the second is too far away to be packed
+        var nearLoc = coordinate3dOf(ORIGIN.X - 2, ORIGIN.Y + 1, ORIGIN.Z);
+        var farLoc = coordinate3dOf(ORIGIN.X + 100000, ORIGIN.Y, ORIGIN.Z);
+        Map<Coordinate3d, Tile> tiles =
+                mapOf(pairOf(nearLoc, mock(Tile.class)), pairOf(farLoc, mock(Tile.class)));
+        var toAdd = new TileVisibilityCalculation.Result() {
+            @Override
+            public Map<Coordinate3d, Tile> tiles() {
+                return tiles;
+            }
+
+            @Override
+            public Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments() {
+                return mapOf();
+            }
+        };
+        var otherOrigin = new CompactVisibilityResult(coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y,
+                ORIGIN.Z));
+
+        result.addAll(toAdd);
+        otherOrigin.addAll(result);
+
+        assertTrue(result.containsTile(nearLoc.X, nearLoc.Y, nearLoc.Z));
+        assertEquals(tiles, result.tiles());
+        assertEquals(tiles, otherOrigin.tiles());
+    }
+}
@@ -0,0 +1,231 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.shared.Direction;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.shared.Direction.EAST;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.VERTICAL;
+
+@ExtendWith(MockitoExtension.class)
+public class CompiledNavigationGraphTests {
+    private final NavigationTestFixtures GRID = new NavigationTestFixtures(8, 6);
+    private final int WIDTH = GRID.WIDTH;
+    private final int HEIGHT = GRID.HEIGHT;
+    private final int CHAR_HEIGHT = GRID.CHAR_HEIGHT;
+    private final int MOVE_COST = GRID.MOVE_COST;
+
+    @Mock private TileNavigability mockNavigability;
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private GameZone mockGameZone;
+    @Mock private Tile mockTile;
+
+    private CompiledNavigationGraph graph;
+
+    @BeforeEach
+    public void setUp() {
+        GRID.randomizeAdditionalCosts(MOVE_COST);
+        GRID.stubNavigability(mockNavigability);
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+
+        graph = new CompiledNavigationGraph(mockNavigability, mockGetGameZone, CHAR_HEIGHT);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompiledNavigationGraph(null, mockGetGameZone, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompiledNavigationGraph(mockNavigability, null, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompiledNavigationGraph(mockNavigability, mockGetGameZone, 0));
+    }
+
+    @Test
+    public void testCalculateMatchesNavigability() {
+        for (var x = 0; x < WIDTH; x++) {
+            for (var y = 0; y < HEIGHT; y++) {
+                for (var direction : Direction.values()) {
+                    var expected = mockNavigability.calculate(location(x, y), direction,
+                            CHAR_HEIGHT);
+
+                    var navigability = graph.calculate(location(x, y), direction, CHAR_HEIGHT);
+
+                    if (expected == null) {
+                        assertNull(navigability);
+                    }
+                    else {
+                        assertEquals(expected.destination(), navigability.destination());
+                        assertEquals(expected.cost(), navigability.cost());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCalculateCompilesEachNodeOnce() {
+        var origin = location(2, 2);
+
+        graph.calculate(origin, EAST, CHAR_HEIGHT);
+        graph.calculate(origin, EAST, CHAR_HEIGHT);
+
+        verify(mockNavigability, times(Direction.values().length))
+                .calculate(same(origin), any(), eq(CHAR_HEIGHT));
+    }
+
+    @Test
+    public void testCalculateAtOtherHeights() {
+        var origin = location(2, 2);
+
+        var navigability = graph.calculate(origin, EAST, CHAR_HEIGHT + 1);
+
+        assertEquals(location(3, 2), navigability.destination());
+        verify(mockNavigability).calculate(origin, EAST, CHAR_HEIGHT + 1);
+        verify(mockNavigability, never()).calculate(any(), any(), eq(CHAR_HEIGHT));
+    }
+
+    @Test
+    public void testCompile() {
+        GRID.WALLS[3][0] = true;
+
+        graph.compile(listOf(location(0, 0)));
+
+        assertEquals(WIDTH * HEIGHT - 1, graph.nodeCount());
+        var edges = 0;
+        for (var node = 0; node < graph.nodeCount(); node++) {
+            // Edges are laid out in node order
+            assertEquals(edges, graph.firstEdge(node));
+            edges = graph.edgesEnd(node);
+        }
+        assertEquals(edges, graph.liveEdgeCount());
+        verify(mockNavigability, times(Direction.values().length * graph.nodeCount()))
+                .calculate(any(), any(), anyInt());
+
+        graph.calculate(location(5, 5), EAST, CHAR_HEIGHT);
+
+        verify(mockNavigability, times(Direction.values().length * graph.nodeCount()))
+                .calculate(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testTileChangedRecompilesNodesAroundIt() {
+        graph.compile(listOf(location(0, 0)));
+        var compiledEdges = graph.liveEdgeCount();
+        GRID.WALLS[4][3] = true;
+        when(mockTile.location()).thenReturn(location(4, 3));
+        clearInvocations(mockNavigability);
+
+        graph.tileChanged(mockTile);
+
+        assertEquals(compiledEdges - 9 * Direction.values().length, graph.liveEdgeCount());
+        assertNull(graph.calculate(location(3, 3), EAST, CHAR_HEIGHT));
+        assertEquals(location(5, 3),
+                graph.calculate(location(4, 3), EAST, CHAR_HEIGHT).destination());
+        verify(mockNavigability, times(Direction.values().length))
+                .calculate(eq(location(3, 3)), any(), anyInt());
+        verify(mockNavigability, never()).calculate(eq(location(2, 3)), any(), anyInt());
+    }
+
+    @Test
+    public void testFixturesChangedRecompilesNodesAroundIt() {
+        graph.compile(listOf(location(0, 0)));
+        GRID.ADDITIONAL_COSTS[4][3] += randomIntInRange(1, 10);
+        when(mockTile.location()).thenReturn(location(4, 3));
+
+        graph.fixturesChanged(mockTile);
+
+        assertEquals(MOVE_COST + GRID.ADDITIONAL_COSTS[4][3],
+                graph.calculate(location(3, 3), EAST, CHAR_HEIGHT).cost());
+    }
+
+    @Test
+    public void testSegmentChangedRecompilesNodesAroundIt() {
+        graph.compile(listOf(location(0, 0)));
+        GRID.WALLS[4][3] = true;
+
+        graph.segmentChanged(VERTICAL, location(4, 3));
+
+        assertNull(graph.calculate(location(3, 3), EAST, CHAR_HEIGHT));
+    }
+
+    @Test
+    public void testChangingGameZoneDiscardsGraph() {
+        graph.compile(listOf(location(0, 0)));
+        when(mockGetGameZone.get()).thenReturn(mock(GameZone.class));
+        clearInvocations(mockNavigability);
+
+        graph.calculate(location(2, 2), EAST, CHAR_HEIGHT);
+
+        assertEquals(1 + Direction.values().length, graph.nodeCount());
+        verify(mockNavigability, times(Direction.values().length))
+                .calculate(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testInvalidate() {
+        graph.compile(listOf(location(0, 0)));
+
+        graph.invalidate();
+
+        assertEquals(0, graph.nodeCount());
+        assertEquals(0, graph.liveEdgeCount());
+    }
+
+    @Test
+    public void testPathfinderOverGraph() {
+        for (var y = 0; y < 5; y++) {
+            GRID.WALLS[4][y] = true;
+        }
+        var pathfinder = new TilePathfinder(mockNavigability, MOVE_COST);
+        var graphPathfinder = new TilePathfinder(graph, MOVE_COST);
+
+        var path = pathfinder.find(location(0, 0), location(7, 0), CHAR_HEIGHT);
+        var graphPath = graphPathfinder.find(location(0, 0), location(7, 0), CHAR_HEIGHT);
+
+        assertEquals(path.cost(), graphPath.cost());
+        assertEquals(path.locations().getLast(), graphPath.locations().getLast());
+    }
+
+    @Test
+    public void testCalculateWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.calculate(null, EAST, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.calculate(location(0, 0), null, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.calculate(location(0, 0), EAST, 0));
+    }
+
+    @Test
+    public void testChangesWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> graph.compile(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.compile(Collections.singletonList(null)));
+        assertThrows(IllegalArgumentException.class, () -> graph.tileChanged(null));
+        assertThrows(IllegalArgumentException.class, () -> graph.fixturesChanged(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.segmentChanged(null, location(0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> graph.segmentChanged(VERTICAL, null));
+    }
+
+    private Coordinate3d location(int x, int y) {
+        return GRID.location(x, y);
+    }
+}
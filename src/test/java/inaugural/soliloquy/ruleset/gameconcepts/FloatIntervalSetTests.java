@@ -0,0 +1,154 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatIntervalSetTests {
+    private FloatIntervalSet intervals;
+
+    @BeforeEach
+    public void setUp() {
+        intervals = new FloatIntervalSet();
+    }
+
+    @Test
+    public void testInteriorContains() {
+        intervals.add(1f, 2f);
+        intervals.add(-3f, -2f);
+
+        assertTrue(intervals.interiorContains(1.5f));
+        assertTrue(intervals.interiorContains(-2.5f));
+        assertFalse(intervals.interiorContains(1f));
+        assertFalse(intervals.interiorContains(2f));
+        assertFalse(intervals.interiorContains(0f));
+        assertFalse(intervals.interiorContains(3f));
+        assertFalse(intervals.interiorContains(-4f));
+        assertFalse(intervals.interiorContains(Float.NaN));
+        assertEquals(2, intervals.size());
+    }
+
+    @Test
+    public void testAddMergesOverlappingIntervals() {
+        intervals.add(0f, 1f);
+        intervals.add(2f, 3f);
+        intervals.add(4f, 5f);
+
+        intervals.add(0.5f, 4.5f);
+
+        assertEquals(1, intervals.size());
+        assertTrue(intervals.interiorContains(1f));
+        assertTrue(intervals.interiorContains(3.5f));
+    }
+
+    @Test
+    public void testAddMergesTouchingIntervals() {
+        intervals.add(0f, 1f);
+
+        intervals.add(1f, 2f);
+
+        assertEquals(1, intervals.size());
+        assertTrue(intervals.interiorContains(1f));
+    }
+
+    @Test
+    public void testAddMergesContainedIntervals() {
+        intervals.add(1f, 2f);
+        intervals.add(3f, 4f);
+
+        intervals.add(0f, 5f);
+
+        assertEquals(1, intervals.size());
+        assertTrue(intervals.interiorContains(2.5f));
+    }
+
+    @Test
+    public void testAddWithinExistingInterval() {
+        intervals.add(0f, 5f);
+
+        intervals.add(1f, 2f);
+
+        assertEquals(1, intervals.size());
+        assertFalse(intervals.interiorContains(5f));
+    }
+
+    @Test
+    public void testAddIgnoresIntervalsWithoutInteriors() {
+        intervals.add(1f, 1f);
+        intervals.add(2f, 1f);
+        intervals.add(Float.NaN, 1f);
+
+        assertEquals(0, intervals.size());
+    }
+
+    @Test
+    public void testAddKeepsIntervalsSorted() {
+        for (var i = 20; i >= 0; i--) {
+            intervals.add(i * 2f, (i * 2f) + 1f);
+        }
+
+        assertEquals(21, intervals.size());
+        for (var i = 0; i <= 20; i++) {
+            assertTrue(intervals.interiorContains((i * 2f) + 0.5f));
+            assertFalse(intervals.interiorContains((i * 2f) + 1.5f));
+        }
+    }
+
+    @Test
+    public void testCoversEverything() {
+        intervals.add(Float.NEGATIVE_INFINITY, 0f);
+        assertFalse(intervals.coversEverything());
+
+        intervals.add(0f, Float.POSITIVE_INFINITY);
+
+        assertTrue(intervals.coversEverything());
+    }
+
+    @Test
+    public void testUnionInteriorContainsMatchesAddingBoth() {
+        var other = new FloatIntervalSet();
+        intervals.add(0f, 1f);
+        intervals.add(3f, 4f);
+        other.add(1f, 2f);
+        other.add(3.5f, 5f);
+        var both = intervals.copy();
+        both.add(1f, 2f);
+        both.add(3.5f, 5f);
+
+        for (var value = -1f; value <= 6f; value += 0.25f) {
+            assertEquals(both.interiorContains(value),
+                    FloatIntervalSet.unionInteriorContains(intervals, other, value));
+        }
+        assertTrue(FloatIntervalSet.unionInteriorContains(intervals, other, 1f));
+        assertFalse(FloatIntervalSet.unionInteriorContains(intervals, other, 2f));
+        assertFalse(FloatIntervalSet.unionInteriorContains(intervals, other, Float.NaN));
+    }
+
+    @Test
+    public void testUnionCoversEverything() {
+        var other = new FloatIntervalSet();
+        intervals.add(Float.NEGATIVE_INFINITY, 0f);
+        other.add(1f, Float.POSITIVE_INFINITY);
+        assertFalse(FloatIntervalSet.unionCoversEverything(intervals, other));
+
+        other.add(0f, 1f);
+
+        assertTrue(FloatIntervalSet.unionCoversEverything(intervals, other));
+        assertTrue(FloatIntervalSet.unionCoversEverything(other, intervals));
+        assertFalse(FloatIntervalSet.unionCoversEverything(new FloatIntervalSet(),
+                new FloatIntervalSet()));
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        intervals.add(0f, 1f);
+        var copy = intervals.copy();
+
+        copy.add(2f, 3f);
+
+        assertEquals(1, intervals.size());
+        assertEquals(2, copy.size());
+        assertFalse(intervals.interiorContains(2.5f));
+    }
+}
@@ -0,0 +1,230 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.VERTICAL;
+
+@ExtendWith(MockitoExtension.class)
+public class HierarchicalPathfinderTests {
+    private final static int CLUSTER_SIZE = 8;
+
+    private final NavigationTestFixtures GRID = new NavigationTestFixtures(40, 24);
+    private final int WIDTH = GRID.WIDTH;
+    private final int HEIGHT = GRID.HEIGHT;
+    private final int CHAR_HEIGHT = GRID.CHAR_HEIGHT;
+    private final int MOVE_COST = GRID.MOVE_COST;
+
+    @Mock private TileNavigability mockNavigability;
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private GameZone mockGameZone;
+
+    private CompiledNavigationGraph graph;
+    private HierarchicalPathfinder pathfinder;
+
+    @BeforeEach
+    public void setUp() {
+        GRID.randomizeAdditionalCosts(2 * MOVE_COST);
+        // Two long walls, with gaps at opposite ends, so the cheapest path winds across the zone
+        for (var y = 0; y < HEIGHT - 3; y++) {
+            GRID.WALLS[10][y] = true;
+        }
+        for (var y = 3; y < HEIGHT; y++) {
+            GRID.WALLS[25][y] = true;
+        }
+        GRID.stubNavigability(mockNavigability);
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+
+        graph = new CompiledNavigationGraph(mockNavigability, mockGetGameZone, CHAR_HEIGHT);
+        pathfinder = new HierarchicalPathfinder(graph, CLUSTER_SIZE, MOVE_COST);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HierarchicalPathfinder(null, CLUSTER_SIZE, MOVE_COST));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HierarchicalPathfinder(graph, 0, MOVE_COST));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HierarchicalPathfinder(graph, CLUSTER_SIZE, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HierarchicalPathfinder(graph, CLUSTER_SIZE, MOVE_COST, -1));
+    }
+
+    @Test
+    public void testFindOverCompiledGraph() {
+        graph.compile(listOf(location(0, 0)));
+
+        var path = pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+
+        assertNotNull(path);
+        assertTrue(path.cost() >= GRID.cheapestCost(1, 1, WIDTH - 2, HEIGHT - 2));
+        GRID.assertPathIsValid(path, location(1, 1), location(WIDTH - 2, HEIGHT - 2));
+        assertTrue(pathfinder.clustersBuilt() > 0);
+    }
+
+    @Test
+    public void testFindExpandsFewerNodesThanAStar() {
+        var aStar = new TilePathfinder(graph, MOVE_COST);
+        graph.compile(listOf(location(0, 0)));
+        // The first search builds the clusters, which later searches share
+        pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+        var nodesExpanded = pathfinder.nodesExpanded();
+
+        pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+        aStar.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+
+        assertTrue(pathfinder.nodesExpanded() - nodesExpanded < aStar.nodesExpanded());
+    }
+
+    @Test
+    public void testFindOverUncompiledGraph() {
+        var path = pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+
+        assertNotNull(path);
+        assertTrue(path.cost() >= GRID.cheapestCost(1, 1, WIDTH - 2, HEIGHT - 2));
+        GRID.assertPathIsValid(path, location(1, 1), location(WIDTH - 2, HEIGHT - 2));
+    }
+
+    @Test
+    public void testFindReusesClusters() {
+        graph.compile(listOf(location(0, 0)));
+        pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+        var clustersBuilt = pathfinder.clustersBuilt();
+
+        pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+
+        assertEquals(clustersBuilt, pathfinder.clustersBuilt());
+    }
+
+    @Test
+    public void testFindNearbyWithAStarAlone() {
+        var path = pathfinder.find(location(1, 1), location(CLUSTER_SIZE + 4, 5), CHAR_HEIGHT);
+
+        assertNotNull(path);
+        assertEquals(GRID.cheapestCost(1, 1, CLUSTER_SIZE + 4, 5), path.cost());
+        assertEquals(0, pathfinder.clustersBuilt());
+    }
+
+    @Test
+    public void testFindAtOtherHeightsWithAStarAlone() {
+        var path = pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2),
+                CHAR_HEIGHT + 1);
+
+        assertNotNull(path);
+        assertEquals(GRID.cheapestCost(1, 1, WIDTH - 2, HEIGHT - 2), path.cost());
+        assertEquals(0, pathfinder.clustersBuilt());
+    }
+
+    @Test
+    public void testTileChangedRebuildsClustersAroundIt() {
+        graph.compile(listOf(location(0, 0)));
+        pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+        var clustersBuilt = pathfinder.clustersBuilt();
+        GRID.WALLS[10][HEIGHT - 3] = GRID.WALLS[10][HEIGHT - 2] = true;
+
+        pathfinder.tileChanged(mockTile(10, HEIGHT - 3));
+        pathfinder.tileChanged(mockTile(10, HEIGHT - 2));
+        var path = pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+
+        assertNotNull(path);
+        assertTrue(path.cost() >= GRID.cheapestCost(1, 1, WIDTH - 2, HEIGHT - 2));
+        GRID.assertPathIsValid(path, location(1, 1), location(WIDTH - 2, HEIGHT - 2));
+        assertTrue(pathfinder.clustersBuilt() > clustersBuilt);
+    }
+
+    @Test
+    public void testSegmentChangedRebuildsClustersAroundIt() {
+        graph.compile(listOf(location(0, 0)));
+        pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+        GRID.WALLS[25][0] = GRID.WALLS[25][1] = GRID.WALLS[25][2] = true;
+
+        for (var y = 0; y < 3; y++) {
+            pathfinder.segmentChanged(VERTICAL, location(25, y));
+        }
+
+        assertNull(pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2),
+                CHAR_HEIGHT));
+    }
+
+    @Test
+    public void testFindWithinMaxCost() {
+        graph.compile(listOf(location(0, 0)));
+        var cheapestCost = GRID.cheapestCost(1, 1, WIDTH - 2, HEIGHT - 2);
+
+        assertNull(pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT,
+                cheapestCost - 1, () -> false));
+        // Paths found may cost a little more than the cheapest one
+        var path = pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT,
+                2 * cheapestCost, () -> false);
+        assertNotNull(path);
+        assertTrue(path.cost() <= 2 * cheapestCost);
+    }
+
+    @Test
+    public void testFindWhenCancelled() {
+        assertNull(pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT,
+                Integer.MAX_VALUE, () -> true));
+    }
+
+    @Test
+    public void testInvalidate() {
+        pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+        var clustersBuilt = pathfinder.clustersBuilt();
+
+        pathfinder.invalidate();
+        pathfinder.find(location(1, 1), location(WIDTH - 2, HEIGHT - 2), CHAR_HEIGHT);
+
+        assertTrue(pathfinder.clustersBuilt() > clustersBuilt);
+    }
+
+    @Test
+    public void testFindWithInvalidArgs() {
+        var origin = location(0, 0);
+        var destination = location(WIDTH - 1, HEIGHT - 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(null, destination, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(origin, null, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(origin, destination, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(origin, destination, CHAR_HEIGHT, -1, () -> false));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(origin, destination, CHAR_HEIGHT, Integer.MAX_VALUE,
+                        null));
+    }
+
+    @Test
+    public void testChangesWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> pathfinder.tileChanged(null));
+        assertThrows(IllegalArgumentException.class, () -> pathfinder.fixturesChanged(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.segmentChanged(null, location(0, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.segmentChanged(VERTICAL, null));
+    }
+
+    private Coordinate3d location(int x, int y) {
+        return GRID.location(x, y);
+    }
+
+    private Tile mockTile(int x, int y) {
+        var mockTile = mock(Tile.class);
+        when(mockTile.location()).thenReturn(location(x, y));
+        return mockTile;
+    }
+}
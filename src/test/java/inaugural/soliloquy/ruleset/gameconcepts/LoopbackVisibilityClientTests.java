@@ -0,0 +1,92 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static inaugural.soliloquy.tools.random.Random.randomString;
+import static org.junit.jupiter.api.Assertions.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.common.valueobjects.Pair.pairOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+public class LoopbackVisibilityClientTests {
+    private final int TURN = randomIntInRange(1, 1000);
+    private final String CHARACTER_ID = randomString();
+    private final Coordinate3d LOC =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomIntInRange(-100, 100));
+
+    private LoopbackVisibilityClient client;
+
+    @BeforeEach
+    public void setUp() {
+        client = new LoopbackVisibilityClient();
+    }
+
+    @Test
+    public void testReceive() {
+        var entering = new VisibilityFrame(TURN);
+        entering.enteredTiles().add(LOC);
+        entering.enteredSegments().get(CORNER).add(LOC);
+        entering.enteredCharacters().put(CHARACTER_ID, LOC);
+        var enteringBytes = entering.encode();
+        var moved = coordinate3dOf(LOC.X + 1, LOC.Y, LOC.Z);
+        var moving = new VisibilityFrame(TURN + 1);
+        moving.movedCharacters().put(CHARACTER_ID, moved);
+        var movingBytes = moving.encode();
+        var leaving = new VisibilityFrame(TURN + 2);
+        leaving.leftSegments().get(CORNER).add(LOC);
+        leaving.leftCharacters().add(CHARACTER_ID);
+        var leavingBytes = leaving.encode();
+
+        assertNull(client.lastTurn());
+        client.receive(enteringBytes);
+
+        assertEquals(setOf(LOC), client.tiles());
+        assertEquals(setOf(LOC), client.segments(CORNER));
+        assertTrue(client.segments(HORIZONTAL).isEmpty());
+        assertEquals(setOf(CHARACTER_ID), client.characterIds());
+        assertEquals(mapOf(pairOf(CHARACTER_ID, LOC)), client.characters());
+        assertEquals(TURN, client.lastTurn());
+
+        client.receive(movingBytes);
+
+        assertEquals(mapOf(pairOf(CHARACTER_ID, moved)), client.characters());
+
+        client.receive(leavingBytes);
+
+        assertEquals(setOf(LOC), client.tiles());
+        assertTrue(client.segments(CORNER).isEmpty());
+        assertTrue(client.characterIds().isEmpty());
+        assertEquals(TURN + 2, client.lastTurn());
+        assertEquals(3, client.framesReceived());
+        assertEquals(enteringBytes.length + movingBytes.length + leavingBytes.length,
+                client.bytesReceived());
+    }
+
+    @Test
+    public void testReceiveOutOfStep() {
+        var entering = new VisibilityFrame(TURN);
+        entering.enteredTiles().add(LOC);
+        var leaving = new VisibilityFrame(TURN);
+        leaving.leftCharacters().add(CHARACTER_ID);
+        var moving = new VisibilityFrame(TURN);
+        moving.movedCharacters().put(CHARACTER_ID, LOC);
+        client.receive(entering.encode());
+
+        assertThrows(IllegalStateException.class, () -> client.receive(entering.encode()));
+        assertThrows(IllegalStateException.class, () -> client.receive(leaving.encode()));
+        assertThrows(IllegalStateException.class, () -> client.receive(moving.encode()));
+    }
+
+    @Test
+    public void testWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> client.receive(null));
+        assertThrows(IllegalArgumentException.class, () -> client.receive(new byte[]{1, 2, 3}));
+        assertThrows(IllegalArgumentException.class, () -> client.segments(null));
+    }
+}
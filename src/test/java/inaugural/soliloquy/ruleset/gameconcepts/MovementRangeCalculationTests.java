@@ -0,0 +1,157 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MovementRangeCalculationTests {
+    private final NavigationTestFixtures GRID = new NavigationTestFixtures(12, 10);
+    private final int WIDTH = GRID.WIDTH;
+    private final int HEIGHT = GRID.HEIGHT;
+    private final int CHAR_HEIGHT = GRID.CHAR_HEIGHT;
+    private final int MOVE_COST = GRID.MOVE_COST;
+
+    @Mock private TileNavigability mockNavigability;
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private GameZone mockGameZone;
+
+    private MovementRangeCalculation movementRangeCalculation;
+
+    @BeforeEach
+    public void setUp() {
+        GRID.randomizeAdditionalCosts(2 * MOVE_COST);
+        for (var y = 1; y < HEIGHT; y++) {
+            GRID.WALLS[6][y] = true;
+        }
+        GRID.stubNavigability(mockNavigability);
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+
+        movementRangeCalculation = new MovementRangeCalculation(mockNavigability);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new MovementRangeCalculation(null));
+    }
+
+    @Test
+    public void testCalculate() {
+        var maxCost = randomIntInRange(3 * MOVE_COST, 12 * MOVE_COST);
+        var costs = GRID.cheapestCosts(2, 4);
+
+        var range = movementRangeCalculation.calculate(location(2, 4), CHAR_HEIGHT, maxCost);
+
+        assertEquals(location(2, 4), range.origin());
+        assertRangeMatches(range, costs, maxCost);
+    }
+
+    @Test
+    public void testCalculateOverCompiledNavigationGraph() {
+        var graph = new CompiledNavigationGraph(mockNavigability, mockGetGameZone, CHAR_HEIGHT);
+        graph.compile(listOf(location(0, 0)));
+        clearInvocations(mockNavigability);
+        var maxCost = randomIntInRange(3 * MOVE_COST, 12 * MOVE_COST);
+
+        var range = new MovementRangeCalculation(graph)
+                .calculate(location(2, 4), CHAR_HEIGHT, maxCost);
+
+        assertRangeMatches(range, GRID.cheapestCosts(2, 4), maxCost);
+        verify(mockNavigability, never()).calculate(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testCalculateWithNoBudget() {
+        var range = movementRangeCalculation.calculate(location(2, 4), CHAR_HEIGHT, 0);
+
+        assertEquals(1, range.size());
+        assertEquals(listOf(location(2, 4)), range.reachable());
+        assertEquals(0, (int) range.cost(location(2, 4)));
+        assertNull(range.predecessor(location(2, 4)));
+        assertEquals(listOf(location(2, 4)), range.pathTo(location(2, 4)).locations());
+    }
+
+    @Test
+    public void testOutOfRange() {
+        var range = movementRangeCalculation.calculate(location(2, 4), CHAR_HEIGHT,
+                Integer.MAX_VALUE);
+        var walled = location(6, 4);
+
+        assertFalse(range.canReach(walled));
+        assertNull(range.cost(walled));
+        assertNull(range.predecessor(walled));
+        assertNull(range.pathTo(walled));
+        assertEquals(WIDTH * HEIGHT - (HEIGHT - 1), range.size());
+    }
+
+    @Test
+    public void testCalculateWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> movementRangeCalculation.calculate(null, CHAR_HEIGHT, MOVE_COST));
+        assertThrows(IllegalArgumentException.class,
+                () -> movementRangeCalculation.calculate(location(0, 0), 0, MOVE_COST));
+        assertThrows(IllegalArgumentException.class,
+                () -> movementRangeCalculation.calculate(location(0, 0), CHAR_HEIGHT, -1));
+    }
+
+    @Test
+    public void testMovementRangeWithInvalidArgs() {
+        var range = movementRangeCalculation.calculate(location(0, 0), CHAR_HEIGHT, MOVE_COST);
+
+        assertThrows(IllegalArgumentException.class, () -> range.canReach(null));
+        assertThrows(IllegalArgumentException.class, () -> range.cost(null));
+        assertThrows(IllegalArgumentException.class, () -> range.predecessor(null));
+        assertThrows(IllegalArgumentException.class, () -> range.pathTo(null));
+    }
+
+    private void assertRangeMatches(MovementRange range, int[][] costs, int maxCost) {
+        var inRange = 0;
+        for (var x = 0; x < WIDTH; x++) {
+            for (var y = 0; y < HEIGHT; y++) {
+                var location = location(x, y);
+                if (costs[x][y] > maxCost) {
+                    assertFalse(range.canReach(location));
+                    continue;
+                }
+                inRange++;
+                assertTrue(range.canReach(location));
+                assertEquals(costs[x][y], (int) range.cost(location));
+                var path = range.pathTo(location);
+                assertEquals(costs[x][y], path.cost());
+                assertEquals(range.origin(), path.locations().getFirst());
+                assertEquals(location, path.locations().getLast());
+                var pathCost = 0;
+                for (var i = 1; i < path.locations().size(); i++) {
+                    var step = path.locations().get(i);
+                    assertEquals(path.locations().get(i - 1), range.predecessor(step));
+                    pathCost += GRID.stepCost(step.X - GRID.BASE_X, step.Y - GRID.BASE_Y);
+                }
+                assertEquals(costs[x][y], pathCost);
+            }
+        }
+        assertEquals(inRange, range.size());
+        var reachable = range.reachable();
+        assertEquals(inRange, reachable.size());
+        for (var i = 1; i < reachable.size(); i++) {
+            assertTrue(range.cost(reachable.get(i - 1)) <= range.cost(reachable.get(i)));
+        }
+    }
+
+    private Coordinate3d location(int x, int y) {
+        return GRID.location(x, y);
+    }
+}
@@ -0,0 +1,139 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.shared.Direction;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+
+// The grid of columns which the navigation tests stand up a mock TileNavigability over, somewhere
+// random in the world, and Dijkstra's algorithm over the whole grid, to check against
+final class NavigationTestFixtures {
+    final int WIDTH;
+    final int HEIGHT;
+    final int BASE_X = randomIntInRange(-10000, 10000);
+    final int BASE_Y = randomIntInRange(-10000, 10000);
+    final int BASE_Z = randomIntInRange(-100, 100);
+    final int CHAR_HEIGHT = randomIntInRange(1, 4);
+    final int MOVE_COST = randomIntInRange(1, 10);
+
+    // Per column: whether it's walled off, what stepping onto it costs on top of MOVE_COST, and
+    // how far above BASE_Z its ground is
+    final boolean[][] WALLS;
+    final int[][] ADDITIONAL_COSTS;
+    final int[][] HEIGHTS;
+
+    NavigationTestFixtures(int width, int height) {
+        WIDTH = width;
+        HEIGHT = height;
+        WALLS = new boolean[WIDTH][HEIGHT];
+        ADDITIONAL_COSTS = new int[WIDTH][HEIGHT];
+        HEIGHTS = new int[WIDTH][HEIGHT];
+    }
+
+    void randomizeAdditionalCosts(int maxAdditionalCost) {
+        for (var x = 0; x < WIDTH; x++) {
+            for (var y = 0; y < HEIGHT; y++) {
+                ADDITIONAL_COSTS[x][y] = randomIntInRange(0, maxAdditionalCost);
+            }
+        }
+    }
+
+    // Steps onto any column of the grid which isn't walled off, as the grid stands when asked
+    void stubNavigability(TileNavigability mockNavigability) {
+        lenient().when(mockNavigability.calculate(any(), any(), anyInt()))
+                .thenAnswer(invocation -> {
+                    Coordinate3d origin = invocation.getArgument(0);
+                    Direction direction = invocation.getArgument(1);
+                    var x = origin.X - BASE_X + Directions.offsetX(direction);
+                    var y = origin.Y - BASE_Y + Directions.offsetY(direction);
+                    if (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT || WALLS[x][y]) {
+                        return null;
+                    }
+                    var destination = location(x, y);
+                    var cost = stepCost(x, y);
+                    return new TileNavigability.Navigability() {
+                        @Override
+                        public Coordinate3d destination() {
+                            return destination;
+                        }
+
+                        @Override
+                        public int cost() {
+                            return cost;
+                        }
+                    };
+                });
+    }
+
+    Coordinate3d location(int x, int y) {
+        return coordinate3dOf(BASE_X + x, BASE_Y + y, BASE_Z + HEIGHTS[x][y]);
+    }
+
+    int stepCost(int x, int y) {
+        return MOVE_COST + ADDITIONAL_COSTS[x][y];
+    }
+
+    void assertPathIsValid(TilePathfinder.Path path, Coordinate3d origin,
+                           Coordinate3d destination) {
+        var locations = path.locations();
+        assertEquals(origin, locations.getFirst());
+        assertEquals(destination, locations.getLast());
+        var cost = 0;
+        for (var i = 1; i < locations.size(); i++) {
+            var from = locations.get(i - 1);
+            var to = locations.get(i);
+            assertTrue(Math.abs(to.X - from.X) <= 1 && Math.abs(to.Y - from.Y) <= 1);
+            assertNotEquals(from, to);
+            var x = to.X - BASE_X;
+            var y = to.Y - BASE_Y;
+            assertFalse(WALLS[x][y]);
+            assertEquals(location(x, y), to);
+            cost += stepCost(x, y);
+        }
+        assertEquals(path.cost(), cost);
+    }
+
+    int cheapestCost(int fromX, int fromY, int toX, int toY) {
+        return cheapestCosts(fromX, fromY)[toX][toY];
+    }
+
+    // Dijkstra's algorithm over the whole grid; columns which can't be reached cost
+    // Integer.MAX_VALUE
+    int[][] cheapestCosts(int fromX, int fromY) {
+        var costs = new int[WIDTH][HEIGHT];
+        for (var column : costs) {
+            Arrays.fill(column, Integer.MAX_VALUE);
+        }
+        costs[fromX][fromY] = 0;
+        var queue = new PriorityQueue<int[]>((a, b) -> Integer.compare(a[2], b[2]));
+        queue.add(new int[]{fromX, fromY, 0});
+        while (!queue.isEmpty()) {
+            var entry = queue.poll();
+            if (entry[2] > costs[entry[0]][entry[1]]) {
+                continue;
+            }
+            for (var direction : Direction.values()) {
+                var x = entry[0] + Directions.offsetX(direction);
+                var y = entry[1] + Directions.offsetY(direction);
+                if (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT || WALLS[x][y]) {
+                    continue;
+                }
+                var cost = entry[2] + stepCost(x, y);
+                if (cost < costs[x][y]) {
+                    costs[x][y] = cost;
+                    queue.add(new int[]{x, y, cost});
+                }
+            }
+        }
+        return costs;
+    }
+}
@@ -0,0 +1,215 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.entities.GroundType;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.ruleset.gameconcepts.VisibilityTestFixtures.*;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate2d.coordinate2dOf;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OcclusionGridTests {
+    private final int X = randomIntInRange(-10000, 10000);
+    private final int Y = randomIntInRange(-10000, 10000);
+    private final int Z = randomIntInRange(-100, 100);
+
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private GameZone mockGameZone;
+    @Mock private GroundType mockGroundTypeBlocking;
+    @Mock private GroundType mockGroundTypeTransparent;
+
+    private Map<Coordinate2d, Set<Tile>> tilesAtLocations;
+    private Map<Coordinate2d, Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>>>
+            segmentsAtLocations;
+
+    private OcclusionGrid occlusionGrid;
+
+    @BeforeEach
+    public void setUp() {
+        tilesAtLocations = mapOf();
+        segmentsAtLocations = mapOf();
+
+        lenient().when(mockGroundTypeBlocking.blocksSight()).thenReturn(true);
+        lenient().when(mockGroundTypeTransparent.blocksSight()).thenReturn(false);
+        lenient().when(mockGameZone.tiles(any())).thenAnswer(invocation -> {
+            var tiles = tilesAtLocations.get((Coordinate2d) invocation.getArgument(0));
+            return tiles == null ? setOf() : tiles;
+        });
+        lenient().when(mockGameZone.segments(any())).thenAnswer(invocation -> {
+            var segments = segmentsAtLocations.get((Coordinate2d) invocation.getArgument(0));
+            return segments == null ? populatedMap() : segments;
+        });
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+
+        occlusionGrid = new OcclusionGrid(mockGetGameZone);
+        occlusionGrid.refresh();
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new OcclusionGrid(null));
+    }
+
+    @Test
+    public void testTileBlocksSightReadsEachColumnOnce() {
+        tilesAtLocations.put(coordinate2dOf(X, Y), setOf(
+                makeMockTile(coordinate3dOf(X, Y, Z), mockGroundTypeBlocking),
+                makeMockTile(coordinate3dOf(X, Y, Z + 1), mockGroundTypeTransparent)));
+
+        assertTrue(occlusionGrid.tileBlocksSight(X, Y, Z));
+        assertFalse(occlusionGrid.tileBlocksSight(X, Y, Z + 1));
+        assertFalse(occlusionGrid.tileBlocksSight(X, Y, Z - 1));
+        assertFalse(occlusionGrid.tileBlocksSight(X + 1, Y, Z));
+        verify(mockGameZone, times(1)).tiles(coordinate2dOf(X, Y));
+        verify(mockGameZone, times(1)).segments(coordinate2dOf(X, Y));
+    }
+
+    @Test
+    public void testViewFloorAndCeilingMatchViewBounds() {
+        var tiles = setOf(
+                makeMockTile(coordinate3dOf(X, Y, Z - 3), mockGroundTypeBlocking),
+                makeMockTile(coordinate3dOf(X, Y, Z - 1), mockGroundTypeBlocking),
+                makeMockTile(coordinate3dOf(X, Y, Z), mockGroundTypeTransparent),
+                makeMockTile(coordinate3dOf(X, Y, Z + 2), mockGroundTypeBlocking),
+                makeMockTile(coordinate3dOf(X, Y, Z + 4), mockGroundTypeBlocking));
+        tilesAtLocations.put(coordinate2dOf(X, Y), tiles);
+        var blockingZs = new int[]{Z - 3, Z - 1, Z + 2, Z + 4};
+
+        for (var originZ = Z - 5; originZ <= Z + 5; originZ++) {
+            for (Integer fromZone : new Integer[]{null, Z - 2, Z, Z + 3}) {
+                assertEquals(ViewBounds.viewFloor(blockingZs, fromZone, originZ),
+                        occlusionGrid.viewFloor(X, Y, fromZone, originZ));
+                assertEquals(ViewBounds.viewCeiling(blockingZs, fromZone, originZ),
+                        occlusionGrid.viewCeiling(X, Y, fromZone, originZ));
+            }
+        }
+    }
+
+    @Test
+    public void testBlockingSegmentZs() {
+        var segmentLoc = coordinate3dOf(X + 1, Y, Z);
+        segmentsAtLocations.put(coordinate2dOf(X, Y), populatedMap(
+                makeMockSegment(VERTICAL, segmentLoc, true),
+                makeMockSegment(VERTICAL, coordinate3dOf(X + 1, Y, Z + 2), true),
+                makeMockSegment(VERTICAL, coordinate3dOf(X + 1, Y, Z + 1), false),
+                makeMockSegment(HORIZONTAL, coordinate3dOf(X, Y + 1, Z + 1), true)));
+
+        assertArrayEquals(new int[]{Z + 2, Z},
+                occlusionGrid.blockingSegmentZs(VERTICAL, X + 1, Y, X, Y));
+        assertArrayEquals(new int[]{Z + 1},
+                occlusionGrid.blockingSegmentZs(HORIZONTAL, X, Y + 1, X, Y));
+        assertEquals(0, occlusionGrid.blockingSegmentZs(CORNER, X + 1, Y, X, Y).length);
+    }
+
+    @Test
+    public void testTileChanged() {
+        var tile = makeMockTile(coordinate3dOf(X, Y, Z), mockGroundTypeTransparent);
+        tilesAtLocations.put(coordinate2dOf(X, Y), setOf(tile));
+        assertFalse(occlusionGrid.tileBlocksSight(X, Y, Z));
+
+        when(tile.getGroundType()).thenReturn(mockGroundTypeBlocking);
+        occlusionGrid.tileChanged(tile);
+
+        assertTrue(occlusionGrid.tileBlocksSight(X, Y, Z));
+        verify(mockGameZone, times(1)).tiles(coordinate2dOf(X, Y));
+    }
+
+    @Test
+    public void testTileChangedWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> occlusionGrid.tileChanged(null));
+    }
+
+    @Test
+    public void testSegmentChanged() {
+        var segmentLoc = coordinate3dOf(X, Y, Z);
+        var segment = makeMockSegment(CORNER, segmentLoc, true);
+        segmentsAtLocations.put(coordinate2dOf(X, Y), populatedMap(segment));
+        assertArrayEquals(new int[]{Z}, occlusionGrid.blockingSegmentZs(CORNER, X, Y, X, Y));
+
+        occlusionGrid.segmentChanged(CORNER, segmentLoc, null);
+
+        assertEquals(0, occlusionGrid.blockingSegmentZs(CORNER, X, Y, X, Y).length);
+
+        occlusionGrid.segmentChanged(CORNER, segmentLoc, segment);
+
+        assertArrayEquals(new int[]{Z}, occlusionGrid.blockingSegmentZs(CORNER, X, Y, X, Y));
+    }
+
+    @Test
+    public void testSegmentChangedLeavesZsAlreadyReturnedAsTheyWere() {
+        var segmentLoc = coordinate3dOf(X, Y, Z);
+        segmentsAtLocations.put(coordinate2dOf(X, Y), populatedMap(
+                makeMockSegment(CORNER, segmentLoc, true)));
+        var zs = occlusionGrid.blockingSegmentZs(CORNER, X, Y, X, Y);
+
+        occlusionGrid.segmentChanged(CORNER, coordinate3dOf(X, Y, Z + 1),
+                makeMockSegment(CORNER, coordinate3dOf(X, Y, Z + 1), true));
+
+        assertArrayEquals(new int[]{Z}, zs);
+        assertArrayEquals(new int[]{Z + 1, Z},
+                occlusionGrid.blockingSegmentZs(CORNER, X, Y, X, Y));
+    }
+
+    @Test
+    public void testLoadedColumnsAreAnsweredWithoutTheGameZone() {
+        tilesAtLocations.put(coordinate2dOf(X, Y), setOf(
+                makeMockTile(coordinate3dOf(X, Y, Z), mockGroundTypeBlocking)));
+
+        assertArrayEquals(new int[]{Z}, occlusionGrid.load(X, Y));
+        occlusionGrid.viewFloor(X, Y, null, Z);
+        occlusionGrid.viewCeiling(X, Y, null, Z - 1);
+        occlusionGrid.blockingSegmentZs(VERTICAL, X + 1, Y, X, Y);
+        occlusionGrid.load(X, Y);
+
+        verify(mockGameZone, times(1)).tiles(any());
+        verify(mockGameZone, times(1)).segments(any());
+        verify(mockGetGameZone, times(1)).get();
+    }
+
+    @Test
+    public void testSegmentChangedWithInvalidArgs() {
+        var segmentLoc = coordinate3dOf(X, Y, Z);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> occlusionGrid.segmentChanged(null, segmentLoc, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> occlusionGrid.segmentChanged(CORNER, null, null));
+    }
+
+    @Test
+    public void testRefreshDiscardsSnapshotWhenGameZoneChanges() {
+        tilesAtLocations.put(coordinate2dOf(X, Y), setOf(
+                makeMockTile(coordinate3dOf(X, Y, Z), mockGroundTypeBlocking)));
+        assertTrue(occlusionGrid.tileBlocksSight(X, Y, Z));
+        var otherGameZone = mock(GameZone.class);
+        when(otherGameZone.tiles(any())).thenReturn(setOf());
+        when(otherGameZone.segments(any())).thenReturn(populatedMap());
+
+        assertFalse(occlusionGrid.refresh());
+        when(mockGetGameZone.get()).thenReturn(otherGameZone);
+
+        assertTrue(occlusionGrid.refresh());
+        assertFalse(occlusionGrid.tileBlocksSight(X, Y, Z));
+    }
+}
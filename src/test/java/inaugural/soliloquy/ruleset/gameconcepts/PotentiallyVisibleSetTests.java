@@ -0,0 +1,273 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static inaugural.soliloquy.ruleset.gameconcepts.VisibilityTestFixtures.*;
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PotentiallyVisibleSetTests {
+    private final int RADIUS = randomIntInRange(2, 6);
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomIntInRange(-100, 100));
+    private final Coordinate3d OTHER_ORIGIN = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z);
+
+    @TempDir private Path tempDir;
+
+    @Mock private TileVisibilityCalculation mockCalculation;
+    @Mock private Tile mockOriginTile;
+    @Mock private Tile mockOtherOriginTile;
+
+    private Path file;
+    private Coordinate3d visibleLoc;
+    private Coordinate3d visibleBelowLoc;
+    private Coordinate3d segmentLoc;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        lenient().when(mockOriginTile.location()).thenReturn(ORIGIN);
+        lenient().when(mockOtherOriginTile.location()).thenReturn(OTHER_ORIGIN);
+
+        visibleLoc = coordinate3dOf(ORIGIN.X + RADIUS, ORIGIN.Y - 1, ORIGIN.Z);
+        visibleBelowLoc = coordinate3dOf(ORIGIN.X - 1, ORIGIN.Y + RADIUS, ORIGIN.Z - 2);
+        segmentLoc = coordinate3dOf(ORIGIN.X + RADIUS + 1, ORIGIN.Y, ORIGIN.Z);
+        var result = new CompactVisibilityResult(ORIGIN);
+        result.addTile(makeMockTile(ORIGIN));
+        result.addTile(makeMockTile(visibleLoc));
+        result.addTile(makeMockTile(visibleBelowLoc));
+        result.addSegment(VERTICAL, segmentLoc, mock(WallSegment.class));
+        lenient().when(mockCalculation.atPoint(eq(mockOriginTile), anyInt())).thenReturn(result);
+        lenient().when(mockCalculation.atPoint(eq(mockOtherOriginTile), anyInt()))
+                .thenReturn(new CompactVisibilityResult(OTHER_ORIGIN));
+
+        file = tempDir.resolve("zone.pvs");
+        PotentiallyVisibleSet.bake(mockCalculation,
+                listOf(mockOtherOriginTile, mockOriginTile, mockOriginTile), RADIUS, file);
+    }
+
+    @Test
+    public void testBakeWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> PotentiallyVisibleSet.bake(null,
+                listOf(mockOriginTile), RADIUS, file));
+        assertThrows(IllegalArgumentException.class, () -> PotentiallyVisibleSet.bake(
+                mockCalculation, null, RADIUS, file));
+        assertThrows(IllegalArgumentException.class, () -> PotentiallyVisibleSet.bake(
+                mockCalculation, listOf(mockOriginTile), -1, file));
+        assertThrows(IllegalArgumentException.class, () -> PotentiallyVisibleSet.bake(
+                mockCalculation, listOf(mockOriginTile), RADIUS, null));
+    }
+
+    @Test
+    public void testBakeCalculatesEachOriginOnce() {
+        verify(mockCalculation, times(1)).atPoint(mockOriginTile, RADIUS);
+        verify(mockCalculation, times(1)).atPoint(mockOtherOriginTile, RADIUS);
+    }
+
+    @Test
+    public void testOpenWithInvalidArgs() throws IOException {
+        var notBaked = tempDir.resolve("not.pvs");
+        Files.write(notBaked, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+
+        assertThrows(IllegalArgumentException.class, () -> PotentiallyVisibleSet.open(null));
+        assertThrows(IllegalArgumentException.class, () -> PotentiallyVisibleSet.open(notBaked));
+    }
+
+    @Test
+    public void testOpenRejectsCorruptFiles() throws IOException {
+        // The header, then two index entries (ORIGIN's first, with its entry's offset after its
+        // X, Y, and Z), then ORIGIN's entry: its layer count, then its first layer's kind, Z, run
+        // count, and runs
+        var hugeRadius = corrupted("radius.pvs", bytes -> bytes.putInt(4, Integer.MAX_VALUE));
+        var hugeOriginCount =
+                corrupted("origins.pvs", bytes -> bytes.putInt(8, Integer.MAX_VALUE));
+        var negativeEntryOffset = corrupted("negative.pvs", bytes -> bytes.putLong(24, -1));
+        var hugeEntryOffset = corrupted("offset.pvs", bytes -> bytes.putLong(24, Long.MAX_VALUE));
+        var hugeLayerCount = corrupted("layers.pvs", bytes -> bytes.putInt(52, Integer.MAX_VALUE));
+        var unknownLayerKind = corrupted("kind.pvs", bytes -> bytes.put(56, (byte) 9));
+        var hugeRunCount = corrupted("runs.pvs", bytes -> bytes.putInt(61, Integer.MAX_VALUE));
+        var hugeRunLength = corrupted("run.pvs", bytes -> bytes.putShort(65, (short) 0xFFFF));
+
+        assertThrows(IllegalArgumentException.class, () -> PotentiallyVisibleSet.open(hugeRadius));
+        assertThrows(IllegalArgumentException.class,
+                () -> PotentiallyVisibleSet.open(hugeOriginCount));
+        assertThrows(IllegalArgumentException.class,
+                () -> PotentiallyVisibleSet.open(negativeEntryOffset));
+        assertThrows(IllegalArgumentException.class,
+                () -> PotentiallyVisibleSet.open(hugeEntryOffset));
+        assertThrows(IllegalArgumentException.class,
+                () -> PotentiallyVisibleSet.open(hugeLayerCount));
+        assertThrows(IllegalArgumentException.class,
+                () -> PotentiallyVisibleSet.open(unknownLayerKind));
+        assertThrows(IllegalArgumentException.class,
+                () -> PotentiallyVisibleSet.open(hugeRunCount));
+        assertThrows(IllegalArgumentException.class,
+                () -> PotentiallyVisibleSet.open(hugeRunLength));
+    }
+
+    @Test
+    public void testIsBaked() throws IOException {
+        var potentiallyVisibleSet = PotentiallyVisibleSet.open(file);
+
+        assertEquals(RADIUS, potentiallyVisibleSet.radius());
+        assertTrue(potentiallyVisibleSet.isBaked(ORIGIN));
+        assertTrue(potentiallyVisibleSet.isBaked(OTHER_ORIGIN));
+        assertFalse(potentiallyVisibleSet.isBaked(
+                coordinate3dOf(ORIGIN.X, ORIGIN.Y, ORIGIN.Z + 1)));
+        assertFalse(potentiallyVisibleSet.isBaked(
+                coordinate3dOf(ORIGIN.X - 1, ORIGIN.Y, ORIGIN.Z)));
+    }
+
+    @Test
+    public void testCanSee() throws IOException {
+        var potentiallyVisibleSet = PotentiallyVisibleSet.open(file);
+
+        assertTrue(potentiallyVisibleSet.canSee(ORIGIN, ORIGIN));
+        assertTrue(potentiallyVisibleSet.canSee(ORIGIN, visibleLoc));
+        assertTrue(potentiallyVisibleSet.canSee(ORIGIN, visibleBelowLoc));
+        assertFalse(potentiallyVisibleSet.canSee(ORIGIN,
+                coordinate3dOf(visibleLoc.X, visibleLoc.Y, visibleLoc.Z + 1)));
+        assertFalse(potentiallyVisibleSet.canSee(ORIGIN,
+                coordinate3dOf(ORIGIN.X + 100, ORIGIN.Y, ORIGIN.Z)));
+        assertFalse(potentiallyVisibleSet.canSee(OTHER_ORIGIN, OTHER_ORIGIN));
+    }
+
+    @Test
+    public void testCanSeeWithInvalidArgs() throws IOException {
+        var potentiallyVisibleSet = PotentiallyVisibleSet.open(file);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> potentiallyVisibleSet.canSee(null, ORIGIN));
+        assertThrows(IllegalArgumentException.class,
+                () -> potentiallyVisibleSet.canSee(ORIGIN, null));
+        assertThrows(IllegalArgumentException.class, () -> potentiallyVisibleSet.canSee(
+                coordinate3dOf(ORIGIN.X - 1, ORIGIN.Y, ORIGIN.Z), ORIGIN));
+    }
+
+    @Test
+    public void testForEachVisible() throws IOException {
+        var potentiallyVisibleSet = PotentiallyVisibleSet.open(file);
+        Set<Coordinate3d> tiles = setOf();
+        Set<Coordinate3d> verticalSegments = setOf();
+
+        potentiallyVisibleSet.forEachVisible(ORIGIN, (orientation, x, y, z) -> {
+            if (orientation == null) {
+                tiles.add(coordinate3dOf(x, y, z));
+            }
+            else {
+                assertSame(VERTICAL, orientation);
+                verticalSegments.add(coordinate3dOf(x, y, z));
+            }
+        });
+
+        assertEquals(setOf(ORIGIN, visibleLoc, visibleBelowLoc), tiles);
+        assertEquals(setOf(segmentLoc), verticalSegments);
+    }
+
+    @Test
+    public void testForEachVisibleWithInvalidArgs() throws IOException {
+        var potentiallyVisibleSet = PotentiallyVisibleSet.open(file);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> potentiallyVisibleSet.forEachVisible(null, (o, x, y, z) -> {}));
+        assertThrows(IllegalArgumentException.class,
+                () -> potentiallyVisibleSet.forEachVisible(ORIGIN, null));
+        assertThrows(IllegalArgumentException.class, () -> potentiallyVisibleSet.forEachVisible(
+                coordinate3dOf(ORIGIN.X - 1, ORIGIN.Y, ORIGIN.Z), (o, x, y, z) -> {}));
+    }
+
+    @Test
+    public void testBakeWritesVisibleSpansAsRuns() throws IOException {
+        // Every tile within the radius, which a bit per location would take (2 * radius + 3)
+        // squared bits to hold
+        var result = new CompactVisibilityResult(ORIGIN);
+        for (var x = ORIGIN.X - RADIUS; x <= ORIGIN.X + RADIUS; x++) {
+            for (var y = ORIGIN.Y - RADIUS; y <= ORIGIN.Y + RADIUS; y++) {
+                result.addTile(makeMockTile(coordinate3dOf(x, y, ORIGIN.Z)));
+            }
+        }
+        when(mockCalculation.atPoint(mockOriginTile, RADIUS)).thenReturn(result);
+        var runsFile = tempDir.resolve("runs.pvs");
+
+        PotentiallyVisibleSet.bake(mockCalculation, listOf(mockOriginTile), RADIUS, runsFile);
+
+        // The header, the index entry, the layer count, and the layer's kind, Z, and run count,
+        // then one run per row
+        var side = (2 * RADIUS) + 3;
+        assertEquals(12 + 20 + 4 + 9 + ((side - 2) * 4), Files.size(runsFile));
+        try (var potentiallyVisibleSet = PotentiallyVisibleSet.open(runsFile)) {
+            Set<Coordinate3d> tiles = setOf();
+            potentiallyVisibleSet.forEachVisible(ORIGIN,
+                    (orientation, x, y, z) -> tiles.add(coordinate3dOf(x, y, z)));
+            assertEquals(result.tiles().keySet(), tiles);
+            assertFalse(potentiallyVisibleSet.canSee(ORIGIN,
+                    coordinate3dOf(ORIGIN.X - RADIUS - 1, ORIGIN.Y, ORIGIN.Z)));
+            assertTrue(potentiallyVisibleSet.canSee(ORIGIN,
+                    coordinate3dOf(ORIGIN.X - RADIUS, ORIGIN.Y, ORIGIN.Z)));
+            assertTrue(potentiallyVisibleSet.canSee(ORIGIN,
+                    coordinate3dOf(ORIGIN.X + RADIUS, ORIGIN.Y + RADIUS, ORIGIN.Z)));
+            assertFalse(potentiallyVisibleSet.canSee(ORIGIN,
+                    coordinate3dOf(ORIGIN.X + RADIUS + 1, ORIGIN.Y + RADIUS, ORIGIN.Z)));
+        }
+    }
+
+    @Test
+    public void testCanSeeAtRadiusTooWideForShortRuns() throws IOException {
+        var radius = 200;
+        var farLoc = coordinate3dOf(ORIGIN.X + radius, ORIGIN.Y + radius, ORIGIN.Z);
+        var result = new CompactVisibilityResult(ORIGIN);
+        result.addTile(makeMockTile(farLoc));
+        when(mockCalculation.atPoint(mockOriginTile, radius)).thenReturn(result);
+        var wideFile = tempDir.resolve("wide.pvs");
+
+        PotentiallyVisibleSet.bake(mockCalculation, listOf(mockOriginTile), radius, wideFile);
+
+        try (var potentiallyVisibleSet = PotentiallyVisibleSet.open(wideFile)) {
+            assertTrue(potentiallyVisibleSet.canSee(ORIGIN, farLoc));
+            assertFalse(potentiallyVisibleSet.canSee(ORIGIN, ORIGIN));
+        }
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        var potentiallyVisibleSet = PotentiallyVisibleSet.open(file);
+
+        potentiallyVisibleSet.close();
+        potentiallyVisibleSet.close();
+
+        assertThrows(IllegalStateException.class, () -> potentiallyVisibleSet.isBaked(ORIGIN));
+    }
+
+    // A copy of the baked file, with the corruption applied to its bytes
+    private Path corrupted(String name, Consumer<ByteBuffer> corruption) throws IOException {
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        corruption.accept(bytes);
+        var corruptedFile = tempDir.resolve(name);
+        Files.write(corruptedFile, bytes.array());
+        return corruptedFile;
+    }
+}
@@ -0,0 +1,116 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RayTemplatesTests {
+    private final int MAX_RAYS = 64;
+    private final int MAX_RADII = 2;
+
+    private RayTemplates rayTemplates;
+
+    @BeforeEach
+    public void setUp() {
+        rayTemplates = new RayTemplates(MAX_RAYS, MAX_RADII);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new RayTemplates(0, MAX_RADII));
+        assertThrows(IllegalArgumentException.class, () -> new RayTemplates(MAX_RAYS, 0));
+    }
+
+    @Test
+    public void testForOffsetMatchesSteppingFromOriginsWithinRange() {
+        var originX = randomIntInRange(-100000, 100000);
+        var originY = randomIntInRange(-100000, 100000);
+        int offsetX;
+        int offsetY;
+        // Rays through a tile's corner may go on from it either way when stepped from the origin
+        do {
+            offsetX = randomIntInRange(-20, 20);
+            offsetY = randomIntInRange(-20, 20);
+        } while ((offsetX == 0 && offsetY == 0) || passesThroughCorner(offsetX, offsetY));
+
+        var template = rayTemplates.forOffset(offsetX, offsetY);
+
+        var step = new RayStep(originX, originY, originX + offsetX, originY + offsetY);
+        var cursorX = originX;
+        var cursorY = originY;
+        for (var i = 0; i < template.LENGTH; i++) {
+            step.advance(cursorX, cursorY);
+            assertEquals(cursorX, originX + template.CELLS_X[i]);
+            assertEquals(cursorY, originY + template.CELLS_Y[i]);
+            assertEquals(step.rayEnterX, originX + template.ENTERS_X[i]);
+            assertEquals(step.rayEnterY, originY + template.ENTERS_Y[i]);
+            assertEquals(step.rayExitX, originX + template.EXITS_X[i]);
+            assertEquals(step.rayExitY, originY + template.EXITS_Y[i]);
+            assertSame(step.crossingOrientation, template.crossing(i));
+            assertEquals(step.crossingSegX, originX + template.CROSSED_SEGMENTS_X[i]);
+            assertEquals(step.crossingSegY, originY + template.CROSSED_SEGMENTS_Y[i]);
+            cursorX = step.nextCursorX;
+            cursorY = step.nextCursorY;
+        }
+        assertEquals(offsetX, template.CELLS_X[template.LENGTH - 1]);
+        assertEquals(offsetY, template.CELLS_Y[template.LENGTH - 1]);
+    }
+
+    @Test
+    public void testForOffsetReusesTemplates() {
+        var template = rayTemplates.forOffset(3, -2);
+
+        assertSame(template, rayTemplates.forOffset(3, -2));
+        assertEquals(1, rayTemplates.raysCached());
+    }
+
+    @Test
+    public void testForOffsetEvictsBeyondMaximum() {
+        for (var x = 0; x < MAX_RAYS * 2; x++) {
+            rayTemplates.forOffset(x, 1);
+        }
+
+        assertEquals(MAX_RAYS, rayTemplates.raysCached());
+    }
+
+    @Test
+    public void testForRadius() {
+        var radius = randomIntInRange(1, 10);
+
+        var templates = rayTemplates.forRadius(radius);
+
+        var offsets = TileVisibilityCalculationImpl.perimeterOffsets(radius);
+        assertEquals(offsets.size(), templates.size());
+        for (var template : templates) {
+            assertTrue(offsets.stream().anyMatch(offset ->
+                    offset.X == template.OFFSET_X && offset.Y == template.OFFSET_Y));
+        }
+        assertSame(templates, rayTemplates.forRadius(radius));
+        assertThrows(UnsupportedOperationException.class, () -> templates.remove(0));
+    }
+
+    @Test
+    public void testForRadiusEvictsBeyondMaximum() {
+        for (var radius = 0; radius < MAX_RADII * 2; radius++) {
+            rayTemplates.forRadius(radius);
+        }
+
+        assertEquals(MAX_RADII, rayTemplates.radiiCached());
+    }
+
+    // Whether the ray from (0, 0) to the offset passes exactly through some tile's corner, i.e.
+    // a point whose X and Y are both halfway between whole numbers
+    private static boolean passesThroughCorner(int offsetX, int offsetY) {
+        var run = Math.abs(offsetX);
+        var rise = Math.abs(offsetY);
+        for (var x = 1; x < 2 * run; x += 2) {
+            // At X = x / 2, Y = (rise * x) / (2 * run), which must be an odd number of halves
+            if ((rise * x) % run == 0 && ((rise * x) / run) % 2 == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,289 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.shared.Direction.EAST;
+import static soliloquy.specs.common.shared.Direction.NORTH;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+
+@ExtendWith(MockitoExtension.class)
+public class SpeculativeVisibilityCalculationTests {
+    private final int RADIUS = randomIntInRange(1, 20);
+    private final int CHAR_HEIGHT = randomIntInRange(1, 4);
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomIntInRange(-100, 100));
+    private final Coordinate3d EAST_LOC = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z);
+    private final Coordinate3d NORTH_LOC = coordinate3dOf(ORIGIN.X, ORIGIN.Y - 1, ORIGIN.Z + 1);
+
+    @Mock private TileVisibilityCalculation mockCalculation;
+    @Mock private TileNavigability mockNavigability;
+    @Mock private TileNavigability.Navigability mockEastNavigability;
+    @Mock private TileNavigability.Navigability mockNorthNavigability;
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private GameZone mockGameZone;
+    @Mock private Tile mockOriginTile;
+    @Mock private Tile mockEastTile;
+    @Mock private Tile mockNorthTile;
+    @Mock private Tile mockTileBelowNorthTile;
+
+    // Tasks the executor hasn't run yet
+    private List<Runnable> tasks;
+
+    private SpeculativeVisibilityCalculation speculativeCalculation;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(mockOriginTile.location()).thenReturn(ORIGIN);
+        lenient().when(mockEastTile.location()).thenReturn(EAST_LOC);
+        lenient().when(mockNorthTile.location()).thenReturn(NORTH_LOC);
+        lenient().when(mockTileBelowNorthTile.location())
+                .thenReturn(coordinate3dOf(NORTH_LOC.X, NORTH_LOC.Y, NORTH_LOC.Z - 1));
+        lenient().when(mockEastNavigability.destination()).thenReturn(EAST_LOC);
+        lenient().when(mockNorthNavigability.destination()).thenReturn(NORTH_LOC);
+        lenient().when(mockNavigability.calculate(any(), any(), anyInt())).thenReturn(null);
+        lenient().when(mockNavigability.calculate(ORIGIN, EAST, CHAR_HEIGHT))
+                .thenReturn(mockEastNavigability);
+        lenient().when(mockNavigability.calculate(ORIGIN, NORTH, CHAR_HEIGHT))
+                .thenReturn(mockNorthNavigability);
+        lenient().when(mockGameZone.tiles(EAST_LOC.to2d())).thenReturn(setOf(mockEastTile));
+        lenient().when(mockGameZone.tiles(NORTH_LOC.to2d()))
+                .thenReturn(setOf(mockTileBelowNorthTile, mockNorthTile));
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+        lenient().when(mockCalculation.atPoint(any(), anyInt()))
+                .thenAnswer(invocation -> mock(Result.class));
+        tasks = listOf();
+
+        speculativeCalculation = new SpeculativeVisibilityCalculation(mockCalculation,
+                mockNavigability, mockGetGameZone, tasks::add);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SpeculativeVisibilityCalculation(null, mockNavigability,
+                        mockGetGameZone));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SpeculativeVisibilityCalculation(mockCalculation, null,
+                        mockGetGameZone));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SpeculativeVisibilityCalculation(mockCalculation, mockNavigability,
+                        null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SpeculativeVisibilityCalculation(mockCalculation, mockNavigability,
+                        mockGetGameZone, null));
+    }
+
+    @Test
+    public void testSpeculatedResultsAreUsed() {
+        speculativeCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+        runTasks();
+
+        var result = speculativeCalculation.atPoint(mockNorthTile, RADIUS);
+
+        assertEquals(2, speculativeCalculation.ready());
+        assertEquals(1, speculativeCalculation.hits());
+        assertEquals(0, speculativeCalculation.misses());
+        verify(mockCalculation, times(1)).atPoint(mockNorthTile, RADIUS);
+        verify(mockCalculation, times(1)).atPoint(mockEastTile, RADIUS);
+        verify(mockCalculation, never()).atPoint(same(mockTileBelowNorthTile), anyInt());
+        assertSame(result, speculativeCalculation.atPoint(mockNorthTile, RADIUS));
+    }
+
+    @Test
+    public void testUnspeculatedPointsAreCalculated() {
+        speculativeCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+        runTasks();
+
+        speculativeCalculation.atPoint(mockNorthTile, RADIUS + 1);
+        speculativeCalculation.atPoint(mockOriginTile, RADIUS);
+
+        assertEquals(0, speculativeCalculation.hits());
+        assertEquals(2, speculativeCalculation.misses());
+        verify(mockCalculation).atPoint(mockNorthTile, RADIUS + 1);
+        verify(mockCalculation).atPoint(mockOriginTile, RADIUS);
+    }
+
+    @Test
+    public void testAtPointStopsSpeculating() {
+        speculativeCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+
+        speculativeCalculation.atPoint(mockOriginTile, RADIUS);
+        runTasks();
+
+        assertEquals(0, speculativeCalculation.ready());
+        verify(mockCalculation, times(1)).atPoint(any(), anyInt());
+    }
+
+    @Test
+    public void testChangingGameZoneDropsSpeculatedResults() {
+        speculativeCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+        runTasks();
+        when(mockGetGameZone.get()).thenReturn(mock(GameZone.class));
+
+        speculativeCalculation.atPoint(mockEastTile, RADIUS);
+
+        assertEquals(1, speculativeCalculation.misses());
+        verify(mockCalculation, times(2)).atPoint(mockEastTile, RADIUS);
+    }
+
+    @Test
+    public void testSpeculateDropsPreviousResults() {
+        speculativeCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+        runTasks();
+        when(mockNavigability.calculate(ORIGIN, NORTH, CHAR_HEIGHT)).thenReturn(null);
+
+        speculativeCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+        speculativeCalculation.atPoint(mockNorthTile, RADIUS);
+
+        assertEquals(0, speculativeCalculation.ready());
+        assertEquals(1, speculativeCalculation.misses());
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        speculativeCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+        runTasks();
+
+        speculativeCalculation.invalidateAll();
+
+        assertEquals(0, speculativeCalculation.ready());
+        speculativeCalculation.atPoint(mockEastTile, RADIUS);
+        assertEquals(1, speculativeCalculation.misses());
+    }
+
+    @Test
+    public void testVisitedSpeculationsAreUsed() {
+        var mockVisitingCalculation = mock(VisitingTileVisibilityCalculation.class);
+        doAnswer(invocation -> {
+            Tile destination = invocation.getArgument(0);
+            VisibilityVisitor visitor = invocation.getArgument(2);
+            visitor.visitTile(destination);
+            return null;
+        }).when(mockVisitingCalculation).atPoint(any(), anyInt(), any(VisibilityVisitor.class));
+        var visitingCalculation = new SpeculativeVisibilityCalculation(mockVisitingCalculation,
+                mockNavigability, mockGetGameZone, tasks::add);
+        visitingCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+        runTasks();
+
+        var result = visitingCalculation.atPoint(mockEastTile, RADIUS);
+
+        assertEquals(1, visitingCalculation.hits());
+        assertEquals(setOf(EAST_LOC), setOf(result.tiles().keySet()));
+        verify(mockVisitingCalculation, never()).atPoint(any(), anyInt());
+    }
+
+    @Test
+    public void testStoppingSpeculationStopsVisitedCalculationPartWayThrough() {
+        var mockVisitingCalculation = mock(VisitingTileVisibilityCalculation.class);
+        var visitedAfterStopping = new boolean[1];
+        var visitingCalculation = new SpeculativeVisibilityCalculation(mockVisitingCalculation,
+                mockNavigability, mockGetGameZone, tasks::add);
+        doAnswer(invocation -> {
+            Tile destination = invocation.getArgument(0);
+            VisibilityVisitor visitor = invocation.getArgument(2);
+            assertTrue(visitor.visitTile(destination));
+            visitingCalculation.invalidateAll();
+            visitedAfterStopping[0] = visitor.visitTile(destination);
+            return null;
+        }).when(mockVisitingCalculation).atPoint(any(), anyInt(), any(VisibilityVisitor.class));
+        visitingCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+
+        runTasks();
+
+        assertFalse(visitedAfterStopping[0]);
+        // The first destination's Result was cut short, so the second is never calculated
+        verify(mockVisitingCalculation, times(1))
+                .atPoint(any(), anyInt(), any(VisibilityVisitor.class));
+    }
+
+    @Test
+    public void testSpeculateOnLowPriorityDaemonThread() throws InterruptedException {
+        var mockResult = mock(Result.class);
+        var speculatingThread = new Thread[1];
+        when(mockCalculation.atPoint(mockEastTile, RADIUS)).thenAnswer(invocation -> {
+            speculatingThread[0] = Thread.currentThread();
+            return mockResult;
+        });
+
+        try (var ownedCalculation = new SpeculativeVisibilityCalculation(mockCalculation,
+                mockNavigability, mockGetGameZone)) {
+            ownedCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+            for (var i = 0; i < 200 && ownedCalculation.ready() < 2; i++) {
+                //noinspection BusyWait
+                Thread.sleep(10);
+            }
+
+            assertSame(mockResult, ownedCalculation.atPoint(mockEastTile, RADIUS));
+            assertNotSame(Thread.currentThread(), speculatingThread[0]);
+            assertEquals(Thread.MIN_PRIORITY, speculatingThread[0].getPriority());
+            assertTrue(speculatingThread[0].isDaemon());
+        }
+
+        speculatingThread[0].join(2000);
+        assertFalse(speculatingThread[0].isAlive());
+    }
+
+    @Test
+    public void testCloseLeavesCallersExecutorRunning() {
+        var mockExecutor = mock(ExecutorService.class);
+        var calculation = new SpeculativeVisibilityCalculation(mockCalculation, mockNavigability,
+                mockGetGameZone, mockExecutor);
+        speculativeCalculation.speculate(mockOriginTile, RADIUS, CHAR_HEIGHT);
+
+        calculation.close();
+        speculativeCalculation.close();
+        runTasks();
+
+        verify(mockExecutor, never()).shutdown();
+        verify(mockExecutor, never()).shutdownNow();
+        assertEquals(0, speculativeCalculation.ready());
+        verify(mockCalculation, never()).atPoint(any(), anyInt());
+    }
+
+    @Test
+    public void testSpeculateWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> speculativeCalculation.speculate(null, RADIUS, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> speculativeCalculation.speculate(mockOriginTile, -1, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> speculativeCalculation.speculate(mockOriginTile, RADIUS, 0));
+    }
+
+    @Test
+    public void testAtPointWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> speculativeCalculation.atPoint(null, RADIUS));
+        assertThrows(IllegalArgumentException.class,
+                () -> speculativeCalculation.atPoint(mockOriginTile, -1));
+    }
+
+    private void runTasks() {
+        var toRun = new ArrayList<>(tasks);
+        tasks.clear();
+        toRun.forEach(Runnable::run);
+    }
+}
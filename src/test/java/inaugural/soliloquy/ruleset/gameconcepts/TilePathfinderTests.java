@@ -0,0 +1,139 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.ruleset.gameconcepts.TileNavigability;
+
+
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TilePathfinderTests {
+    private final NavigationTestFixtures GRID = new NavigationTestFixtures(12, 10);
+    private final int WIDTH = GRID.WIDTH;
+    private final int HEIGHT = GRID.HEIGHT;
+    private final int CHAR_HEIGHT = GRID.CHAR_HEIGHT;
+    private final int MOVE_COST = GRID.MOVE_COST;
+
+    @Mock private TileNavigability mockNavigability;
+
+    private TilePathfinder pathfinder;
+
+    @BeforeEach
+    public void setUp() {
+        GRID.stubNavigability(mockNavigability);
+
+        pathfinder = new TilePathfinder(mockNavigability, MOVE_COST);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new TilePathfinder(null, MOVE_COST));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TilePathfinder(mockNavigability, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TilePathfinder(mockNavigability, MOVE_COST, -1));
+    }
+
+    @Test
+    public void testFindOnOpenGround() {
+        var path = pathfinder.find(location(0, 0), location(7, 4), CHAR_HEIGHT);
+
+        assertNotNull(path);
+        assertEquals(7 * MOVE_COST, path.cost());
+        assertEquals(8, path.locations().size());
+        GRID.assertPathIsValid(path, location(0, 0), location(7, 4));
+    }
+
+    @Test
+    public void testFindAroundWallsAndCosts() {
+        for (var y = 0; y < HEIGHT - 1; y++) {
+            GRID.WALLS[5][y] = true;
+        }
+        for (var x = 0; x < WIDTH; x++) {
+            for (var y = 0; y < HEIGHT; y++) {
+                GRID.ADDITIONAL_COSTS[x][y] = randomIntInRange(0, 3 * MOVE_COST);
+                GRID.HEIGHTS[x][y] = randomIntInRange(0, 1);
+            }
+        }
+        var origin = location(1, 1);
+        var destination = location(WIDTH - 2, 1);
+
+        var path = pathfinder.find(origin, destination, CHAR_HEIGHT);
+
+        assertNotNull(path);
+        assertEquals(GRID.cheapestCost(1, 1, WIDTH - 2, 1), path.cost());
+        GRID.assertPathIsValid(path, origin, destination);
+        verify(mockNavigability, never()).calculate(any(), any(), intThat(h -> h != CHAR_HEIGHT));
+    }
+
+    @Test
+    public void testFindWhenDestinationIsUnreachable() {
+        for (var y = 0; y < HEIGHT; y++) {
+            GRID.WALLS[5][y] = true;
+        }
+
+        assertNull(pathfinder.find(location(1, 1), location(WIDTH - 2, 1), CHAR_HEIGHT));
+    }
+
+    @Test
+    public void testFindWithinMaxCost() {
+        var origin = location(0, 0);
+        var destination = location(6, 2);
+
+        assertNull(pathfinder.find(origin, destination, CHAR_HEIGHT, 6 * MOVE_COST - 1,
+                () -> false));
+        var path = pathfinder.find(origin, destination, CHAR_HEIGHT, 6 * MOVE_COST, () -> false);
+        assertNotNull(path);
+        assertEquals(6 * MOVE_COST, path.cost());
+    }
+
+    @Test
+    public void testFindWhenCancelled() {
+        assertNull(pathfinder.find(location(0, 0), location(6, 2), CHAR_HEIGHT,
+                Integer.MAX_VALUE, () -> true));
+        verify(mockNavigability, never()).calculate(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testFindFromDestination() {
+        var origin = location(3, 3);
+
+        var path = pathfinder.find(origin, origin, CHAR_HEIGHT);
+
+        assertNotNull(path);
+        assertEquals(0, path.cost());
+        assertEquals(1, path.locations().size());
+        assertEquals(origin, path.locations().getFirst());
+    }
+
+    @Test
+    public void testFindWithInvalidArgs() {
+        var origin = location(0, 0);
+        var destination = location(1, 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(null, destination, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(origin, null, CHAR_HEIGHT));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(origin, destination, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(origin, destination, CHAR_HEIGHT, -1, () -> false));
+        assertThrows(IllegalArgumentException.class,
+                () -> pathfinder.find(origin, destination, CHAR_HEIGHT, Integer.MAX_VALUE,
+                        null));
+    }
+
+    private Coordinate3d location(int x, int y) {
+        return GRID.location(x, y);
+    }
+}
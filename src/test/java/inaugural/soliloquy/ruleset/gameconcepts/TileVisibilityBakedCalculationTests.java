@@ -0,0 +1,237 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.entities.GroundType;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.common.valueobjects.Pair.pairOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TileVisibilityBakedCalculationTests {
+    private final int RADIUS = randomIntInRange(2, 6);
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomIntInRange(-100, 100));
+
+    @TempDir private Path tempDir;
+
+    @Mock private TileVisibilityCalculation mockLiveCalculation;
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private GameZone mockGameZone;
+    @Mock private Tile mockOriginTile;
+    @Mock private Tile mockVisibleTile;
+    @Mock private WallSegment mockSegment;
+    @Mock private GroundType mockGroundTypeBlocking;
+    @Mock private GroundType mockGroundTypeTransparent;
+    @Mock private TileVisibilityCalculation.Result mockLiveResult;
+
+    private Coordinate3d visibleLoc;
+    private Coordinate3d segmentLoc;
+    private PotentiallyVisibleSet potentiallyVisibleSet;
+
+    private TileVisibilityBakedCalculation bakedCalculation;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        visibleLoc = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y + 1, ORIGIN.Z);
+        segmentLoc = coordinate3dOf(ORIGIN.X + 2, ORIGIN.Y + 1, ORIGIN.Z);
+        lenient().when(mockOriginTile.location()).thenReturn(ORIGIN);
+        lenient().when(mockVisibleTile.location()).thenReturn(visibleLoc);
+        lenient().when(mockGroundTypeBlocking.blocksSight()).thenReturn(true);
+        lenient().when(mockGroundTypeTransparent.blocksSight()).thenReturn(false);
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+        lenient().when(mockGameZone.tiles(any())).thenAnswer(invocation -> {
+            Coordinate2d loc = invocation.getArgument(0);
+            if (loc.equals(ORIGIN.to2d())) {
+                return setOf(mockOriginTile);
+            }
+            if (loc.equals(visibleLoc.to2d())) {
+                return setOf(mockVisibleTile);
+            }
+            return setOf();
+        });
+        // The segment is only listed under the column to its west, which atPoint has to find
+        lenient().when(mockGameZone.segments(any())).thenAnswer(invocation -> {
+            Coordinate2d loc = invocation.getArgument(0);
+            Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments = mapOf(
+                    pairOf(HORIZONTAL, mapOf()),
+                    pairOf(CORNER, mapOf()),
+                    pairOf(VERTICAL, mapOf()));
+            if (loc.equals(visibleLoc.to2d())) {
+                segments.get(VERTICAL).put(segmentLoc, mockSegment);
+            }
+            return segments;
+        });
+        lenient().when(mockLiveCalculation.atPoint(any(), anyInt())).thenReturn(mockLiveResult);
+
+        var bakedResult = new CompactVisibilityResult(ORIGIN);
+        bakedResult.addTile(mockOriginTile);
+        bakedResult.addTile(mockVisibleTile);
+        bakedResult.addSegment(VERTICAL, segmentLoc, mockSegment);
+        var mockBakingCalculation = mock(TileVisibilityCalculation.class);
+        when(mockBakingCalculation.atPoint(mockOriginTile, RADIUS)).thenReturn(bakedResult);
+        var file = tempDir.resolve("zone.pvs");
+        PotentiallyVisibleSet.bake(mockBakingCalculation, listOf(mockOriginTile), RADIUS, file);
+        potentiallyVisibleSet = PotentiallyVisibleSet.open(file);
+
+        bakedCalculation = new TileVisibilityBakedCalculation(potentiallyVisibleSet,
+                mockGameZone, mockGetGameZone, mockLiveCalculation);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new TileVisibilityBakedCalculation(
+                null, mockGameZone, mockGetGameZone, mockLiveCalculation));
+        assertThrows(IllegalArgumentException.class, () -> new TileVisibilityBakedCalculation(
+                potentiallyVisibleSet, null, mockGetGameZone, mockLiveCalculation));
+        assertThrows(IllegalArgumentException.class, () -> new TileVisibilityBakedCalculation(
+                potentiallyVisibleSet, mockGameZone, null, mockLiveCalculation));
+        assertThrows(IllegalArgumentException.class, () -> new TileVisibilityBakedCalculation(
+                potentiallyVisibleSet, mockGameZone, mockGetGameZone, null));
+    }
+
+    @Test
+    public void testAtPointFromBake() {
+        var result = bakedCalculation.atPoint(mockOriginTile, RADIUS);
+
+        assertEquals(mapOf(pairOf(ORIGIN, mockOriginTile), pairOf(visibleLoc, mockVisibleTile)),
+                result.tiles());
+        assertEquals(mapOf(pairOf(segmentLoc, mockSegment)), result.segments().get(VERTICAL));
+        assertEquals(1, bakedCalculation.bakedAnswers());
+        assertEquals(0, bakedCalculation.liveAnswers());
+        verify(mockLiveCalculation, never()).atPoint(any(), anyInt());
+    }
+
+    @Test
+    public void testAtPointWithOtherRadiusIsLive() {
+        var result = bakedCalculation.atPoint(mockOriginTile, RADIUS + 1);
+
+        assertSame(mockLiveResult, result);
+        assertEquals(1, bakedCalculation.liveAnswers());
+    }
+
+    @Test
+    public void testAtPointFromOriginNotBakedIsLive() {
+        var mockOtherTile = mock(Tile.class);
+        when(mockOtherTile.location()).thenReturn(visibleLoc);
+
+        assertSame(mockLiveResult, bakedCalculation.atPoint(mockOtherTile, RADIUS));
+    }
+
+    @Test
+    public void testAtPointInOtherGameZoneIsLive() {
+        when(mockGetGameZone.get()).thenReturn(mock(GameZone.class));
+
+        assertSame(mockLiveResult, bakedCalculation.atPoint(mockOriginTile, RADIUS));
+    }
+
+    @Test
+    public void testAtPointAfterNearbyChangesIsLive() {
+        var mockChangedTile = mock(Tile.class);
+        when(mockChangedTile.location()).thenReturn(
+                coordinate3dOf(ORIGIN.X + RADIUS + 1, ORIGIN.Y, ORIGIN.Z));
+        when(mockChangedTile.getGroundType()).thenReturn(mockGroundTypeBlocking);
+
+        bakedCalculation.groundTypeChanged(mockChangedTile, mockGroundTypeBlocking);
+        assertNotSame(mockLiveResult, bakedCalculation.atPoint(mockOriginTile, RADIUS));
+
+        bakedCalculation.groundTypeChanged(mockChangedTile, mockGroundTypeTransparent);
+        assertSame(mockLiveResult, bakedCalculation.atPoint(mockOriginTile, RADIUS));
+    }
+
+    @Test
+    public void testAtPointAfterNearbyTileAddedOrRemovedIsLive() {
+        bakedCalculation.tileAddedOrRemoved(
+                coordinate3dOf(ORIGIN.X + RADIUS + 2, ORIGIN.Y, ORIGIN.Z + 1));
+        assertNotSame(mockLiveResult, bakedCalculation.atPoint(mockOriginTile, RADIUS));
+
+        bakedCalculation.tileAddedOrRemoved(
+                coordinate3dOf(ORIGIN.X, ORIGIN.Y - RADIUS, ORIGIN.Z + 1));
+        assertSame(mockLiveResult, bakedCalculation.atPoint(mockOriginTile, RADIUS));
+    }
+
+    @Test
+    public void testAtPointAfterDistantChangesIsBaked() {
+        bakedCalculation.segmentChanged(VERTICAL,
+                coordinate3dOf(ORIGIN.X + RADIUS + 2, ORIGIN.Y, ORIGIN.Z));
+
+        assertNotSame(mockLiveResult, bakedCalculation.atPoint(mockOriginTile, RADIUS));
+
+        bakedCalculation.segmentChanged(VERTICAL, segmentLoc);
+
+        assertSame(mockLiveResult, bakedCalculation.atPoint(mockOriginTile, RADIUS));
+    }
+
+    @Test
+    public void testRebakedForgetsChanges() throws IOException {
+        bakedCalculation.segmentChanged(VERTICAL, segmentLoc);
+        assertSame(mockLiveResult, bakedCalculation.atPoint(mockOriginTile, RADIUS));
+
+        var bakedResult = new CompactVisibilityResult(ORIGIN);
+        bakedResult.addTile(mockOriginTile);
+        var mockBakingCalculation = mock(TileVisibilityCalculation.class);
+        when(mockBakingCalculation.atPoint(mockOriginTile, RADIUS)).thenReturn(bakedResult);
+        var file = tempDir.resolve("rebaked.pvs");
+        PotentiallyVisibleSet.bake(mockBakingCalculation, listOf(mockOriginTile), RADIUS, file);
+        try (var rebakedSet = PotentiallyVisibleSet.open(file)) {
+            bakedCalculation.rebaked(rebakedSet);
+
+            var result = bakedCalculation.atPoint(mockOriginTile, RADIUS);
+
+            assertEquals(mapOf(pairOf(ORIGIN, mockOriginTile)), result.tiles());
+            assertEquals(1, bakedCalculation.bakedAnswers());
+        }
+    }
+
+    @Test
+    public void testRebakedWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> bakedCalculation.rebaked(null));
+    }
+
+    @Test
+    public void testAtPointWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> bakedCalculation.atPoint(null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> bakedCalculation.atPoint(mockOriginTile, -1));
+    }
+
+    @Test
+    public void testChangesWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bakedCalculation.groundTypeChanged(null, mockGroundTypeBlocking));
+        assertThrows(IllegalArgumentException.class,
+                () -> bakedCalculation.groundTypeChanged(mockOriginTile, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> bakedCalculation.segmentChanged(null, ORIGIN));
+        assertThrows(IllegalArgumentException.class,
+                () -> bakedCalculation.segmentChanged(VERTICAL, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> bakedCalculation.tileAddedOrRemoved(null));
+    }
+}
@@ -0,0 +1,255 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.ruleset.entities.GroundType;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation.Result;
+
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.common.valueobjects.Pair.pairOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TileVisibilityCalculationCacheTests {
+    private final int RADIUS = randomIntInRange(1, 20);
+    private final int MAX_ENTRIES = 2;
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomIntInRange(-100, 100));
+
+    @Mock private TileVisibilityCalculation mockCalculation;
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private GameZone mockGameZone;
+    @Mock private Tile mockTile;
+    @Mock private GroundType mockGroundTypeBlocking;
+    @Mock private GroundType mockGroundTypeTransparent;
+
+    private TileVisibilityCalculationCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(mockTile.location()).thenReturn(ORIGIN);
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+        lenient().when(mockCalculation.atPoint(any(), anyInt()))
+                .thenAnswer(invocation -> mock(Result.class));
+        lenient().when(mockGroundTypeBlocking.blocksSight()).thenReturn(true);
+        lenient().when(mockGroundTypeTransparent.blocksSight()).thenReturn(false);
+
+        cache = new TileVisibilityCalculationCache(mockCalculation, mockGetGameZone, MAX_ENTRIES);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityCalculationCache(null, mockGetGameZone, MAX_ENTRIES));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityCalculationCache(mockCalculation, null, MAX_ENTRIES));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityCalculationCache(mockCalculation, mockGetGameZone, 0));
+    }
+
+    @Test
+    public void testAtPointWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> cache.atPoint(null, RADIUS));
+        assertThrows(IllegalArgumentException.class, () -> cache.atPoint(mockTile, -1));
+    }
+
+    @Test
+    public void testAtPointCachesResults() {
+        var result = cache.atPoint(mockTile, RADIUS);
+        var cachedResult = cache.atPoint(mockTile, RADIUS);
+
+        assertSame(result, cachedResult);
+        verify(mockCalculation, times(1)).atPoint(mockTile, RADIUS);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testAtPointDistinguishesRadii() {
+        var result = cache.atPoint(mockTile, RADIUS);
+        var resultAtOtherRadius = cache.atPoint(mockTile, RADIUS + 1);
+
+        assertNotSame(result, resultAtOtherRadius);
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void testAtRadiiCalculatesUncachedRadiiOneAtATime() {
+        var cachedResult = cache.atPoint(mockTile, RADIUS);
+
+        var results = cache.atRadii(mockTile, listOf(RADIUS, RADIUS + 1, RADIUS + 1));
+
+        assertEquals(setOf(RADIUS, RADIUS + 1), results.keySet());
+        assertSame(cachedResult, results.get(RADIUS));
+        assertSame(results.get(RADIUS + 1), cache.atPoint(mockTile, RADIUS + 1));
+        verify(mockCalculation, times(1)).atPoint(mockTile, RADIUS);
+        verify(mockCalculation, times(1)).atPoint(mockTile, RADIUS + 1);
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void testAtRadiiCalculatesUncachedRadiiTogetherWhenCalculationCan() {
+        var mockMultiRadiusCalculation = mock(MultiRadiusTileVisibilityCalculation.class);
+        var mockResult = mock(Result.class);
+        var mockOtherResult = mock(Result.class);
+        when(mockMultiRadiusCalculation.atPoint(mockTile, RADIUS)).thenReturn(mockResult);
+        when(mockMultiRadiusCalculation.atRadii(mockTile, listOf(RADIUS + 2, RADIUS + 1)))
+                .thenReturn(mapOf(pairOf(RADIUS + 2, mockOtherResult),
+                        pairOf(RADIUS + 1, mockOtherResult)));
+        var multiRadiusCache = new TileVisibilityCalculationCache(mockMultiRadiusCalculation,
+                mockGetGameZone, MAX_ENTRIES + 1);
+        multiRadiusCache.atPoint(mockTile, RADIUS);
+
+        var results = multiRadiusCache.atRadii(mockTile, listOf(RADIUS + 2, RADIUS, RADIUS + 1));
+
+        assertEquals(mapOf(pairOf(RADIUS, mockResult), pairOf(RADIUS + 1, mockOtherResult),
+                pairOf(RADIUS + 2, mockOtherResult)), results);
+        assertSame(mockOtherResult, multiRadiusCache.atPoint(mockTile, RADIUS + 1));
+        verify(mockMultiRadiusCalculation, times(1)).atRadii(any(), any());
+        verify(mockMultiRadiusCalculation, times(1)).atPoint(any(), anyInt());
+    }
+
+    @Test
+    public void testAtRadiiWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> cache.atRadii(null, listOf(RADIUS)));
+        assertThrows(IllegalArgumentException.class, () -> cache.atRadii(mockTile, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> cache.atRadii(mockTile, listOf(RADIUS, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> cache.atRadii(mockTile, listOf(RADIUS, -1)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() {
+        cache.atPoint(mockTile, RADIUS);
+        cache.atPoint(mockTile, RADIUS + 1);
+        cache.atPoint(mockTile, RADIUS);
+        cache.atPoint(mockTile, RADIUS + 2);
+
+        cache.atPoint(mockTile, RADIUS);
+        cache.atPoint(mockTile, RADIUS + 1);
+
+        assertEquals(MAX_ENTRIES, cache.size());
+        verify(mockCalculation, times(1)).atPoint(mockTile, RADIUS);
+        verify(mockCalculation, times(2)).atPoint(mockTile, RADIUS + 1);
+    }
+
+    @Test
+    public void testGroundTypeChangedInvalidatesCoveringResults() {
+        var changedTile = mock(Tile.class);
+        when(changedTile.location()).thenReturn(
+                coordinate3dOf(ORIGIN.X + RADIUS, ORIGIN.Y - RADIUS, ORIGIN.Z));
+        when(changedTile.getGroundType()).thenReturn(mockGroundTypeBlocking);
+        var result = cache.atPoint(mockTile, RADIUS);
+
+        cache.groundTypeChanged(changedTile, mockGroundTypeTransparent);
+
+        assertNotSame(result, cache.atPoint(mockTile, RADIUS));
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    public void testGroundTypeChangedDoesNotInvalidateWhenBlockingSightIsUnchanged() {
+        when(mockTile.getGroundType()).thenReturn(mockGroundTypeTransparent);
+        var result = cache.atPoint(mockTile, RADIUS);
+
+        cache.groundTypeChanged(mockTile, mock(GroundType.class));
+
+        assertSame(result, cache.atPoint(mockTile, RADIUS));
+    }
+
+    @Test
+    public void testGroundTypeChangedDoesNotInvalidateResultsOutOfRange() {
+        var changedTile = mock(Tile.class);
+        when(changedTile.location()).thenReturn(
+                coordinate3dOf(ORIGIN.X + RADIUS + 2, ORIGIN.Y, ORIGIN.Z));
+        when(changedTile.getGroundType()).thenReturn(mockGroundTypeBlocking);
+        var result = cache.atPoint(mockTile, RADIUS);
+
+        cache.groundTypeChanged(changedTile, mockGroundTypeTransparent);
+
+        assertSame(result, cache.atPoint(mockTile, RADIUS));
+    }
+
+    @Test
+    public void testGroundTypeChangedWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> cache.groundTypeChanged(null, mockGroundTypeTransparent));
+        assertThrows(IllegalArgumentException.class,
+                () -> cache.groundTypeChanged(mockTile, null));
+    }
+
+    @Test
+    public void testTileAddedOrRemovedInvalidatesCoveringResults() {
+        var result = cache.atPoint(mockTile, RADIUS);
+        var resultOutOfRange = cache.atPoint(mockTile, 0);
+
+        cache.tileAddedOrRemoved(coordinate3dOf(ORIGIN.X, ORIGIN.Y + RADIUS, ORIGIN.Z + 1));
+
+        assertNotSame(result, cache.atPoint(mockTile, RADIUS));
+        if (RADIUS > 1) {
+            assertSame(resultOutOfRange, cache.atPoint(mockTile, 0));
+        }
+    }
+
+    @Test
+    public void testTileAddedOrRemovedWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> cache.tileAddedOrRemoved(null));
+    }
+
+    @Test
+    public void testSegmentChangedInvalidatesCoveringResults() {
+        var result = cache.atPoint(mockTile, RADIUS);
+        var resultOutOfRange = cache.atPoint(mockTile, 0);
+
+        cache.segmentChanged(VERTICAL, coordinate3dOf(ORIGIN.X - RADIUS, ORIGIN.Y, ORIGIN.Z));
+
+        assertNotSame(result, cache.atPoint(mockTile, RADIUS));
+        if (RADIUS > 1) {
+            assertSame(resultOutOfRange, cache.atPoint(mockTile, 0));
+        }
+    }
+
+    @Test
+    public void testSegmentChangedWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> cache.segmentChanged(null, ORIGIN));
+        assertThrows(IllegalArgumentException.class,
+                () -> cache.segmentChanged(VERTICAL, null));
+    }
+
+    @Test
+    public void testChangingGameZoneInvalidatesResults() {
+        var result = cache.atPoint(mockTile, RADIUS);
+        when(mockGetGameZone.get()).thenReturn(mock(GameZone.class));
+
+        assertNotSame(result, cache.atPoint(mockTile, RADIUS));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        var result = cache.atPoint(mockTile, RADIUS);
+
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertNotSame(result, cache.atPoint(mockTile, RADIUS));
+    }
+}
@@ -7,6 +7,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import soliloquy.specs.common.valueobjects.Coordinate2d;
 import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
 import soliloquy.specs.gamestate.entities.Tile;
 import soliloquy.specs.gamestate.entities.WallSegment;
 import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
@@ -14,9 +15,16 @@ import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
 import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation.Result;
 import soliloquy.specs.ruleset.gameconcepts.TileVisibilityRayCalculation;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
 import static inaugural.soliloquy.tools.collections.Collections.mapOf;
 import static inaugural.soliloquy.tools.collections.Collections.setOf;
 import static inaugural.soliloquy.tools.random.Random.*;
@@ -100,7 +108,140 @@ public class TileVisibilityCalculationImplTests {
 
     @Test
     public void testConstructorWithInvalidArgs() {
+        var mockExecutor = mock(ExecutorService.class);
+
         assertThrows(IllegalArgumentException.class, () -> new TileVisibilityCalculationImpl(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityCalculationImpl(null, mockExecutor, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityCalculationImpl(mockTileVisibilityRayCalculation, null,
+                        4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityCalculationImpl(mockTileVisibilityRayCalculation,
+                        mockExecutor, 0));
+    }
+
+    @Test
+    public void testParallelAtPointMatchesSerialAtPoint() {
+        var rayCalculation = makeStatelessRayCalculation();
+        var executor = Executors.newFixedThreadPool(4);
+
+        try {
+            var serialResult = new TileVisibilityCalculationImpl(rayCalculation)
+                    .atPoint(mockTile, 20);
+            var parallelResult = new TileVisibilityCalculationImpl(rayCalculation, executor, 4)
+                    .atPoint(mockTile, 20);
+
+            assertEquals(160, parallelResult.tiles().size());
+            assertEquals(serialResult.tiles(), parallelResult.tiles());
+            assertEquals(serialResult.segments(), parallelResult.segments());
+            verify(rayCalculation, times(320)).castRay(eq(ORIGIN), any());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAtPointFromSeveralThreadsAtOnce() throws Exception {
+        var calculation = new TileVisibilityCalculationImpl(makeStatelessRayCalculation());
+        // More radii than are cached, so that some are evicted while others are being read
+        var radii = 40;
+        var threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<Boolean>> calculations = listOf();
+            for (var thread = 0; thread < threads; thread++) {
+                var firstRadius = thread * 5;
+                calculations.add(executor.submit(() -> {
+                    for (var i = 0; i < radii; i++) {
+                        var radius = (firstRadius + i) % radii;
+                        var expectedTiles =
+                                TileVisibilityCalculationImpl.perimeterOffsets(radius).size();
+                        if (calculation.atPoint(mockTile, radius).tiles().size() !=
+                                expectedTiles) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+
+            for (var eachCalculation : calculations) {
+                assertTrue(eachCalculation.get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelAtPointLoadsOcclusionGridOnCallingThread() {
+        var mockGameZone = mock(GameZone.class);
+        when(mockGameZone.tiles(any())).thenReturn(setOf());
+        when(mockGameZone.segments(any())).thenReturn(mapOf());
+        Set<Thread> threadsReadingGrid = ConcurrentHashMap.newKeySet();
+        var mockGridGameZone = mock(GameZone.class);
+        when(mockGridGameZone.tiles(any())).thenAnswer(invocation -> {
+            threadsReadingGrid.add(Thread.currentThread());
+            return setOf();
+        });
+        when(mockGridGameZone.segments(any())).thenReturn(mapOf());
+        var rayCalculation = new TileVisibilityRayCalculationImpl(() -> mockGameZone,
+                loc -> null, loc -> null, 0f, new OcclusionGrid(() -> mockGridGameZone));
+        var executor = Executors.newFixedThreadPool(4);
+
+        try {
+            var result = new TileVisibilityCalculationImpl(rayCalculation, executor, 4)
+                    .atPoint(mockTile, 10);
+
+            assertNotNull(result);
+            assertEquals(setOf(Thread.currentThread()), threadsReadingGrid);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelAtPointsTakeTurnsWithOcclusionGrid() throws Exception {
+        var mockGameZone = mock(GameZone.class);
+        when(mockGameZone.tiles(any())).thenReturn(setOf());
+        when(mockGameZone.segments(any())).thenReturn(mapOf());
+        var gridReaders = new AtomicInteger();
+        var mostGridReadersAtOnce = new AtomicInteger();
+        var mockGridGameZone = mock(GameZone.class);
+        when(mockGridGameZone.tiles(any())).thenAnswer(invocation -> {
+            mostGridReadersAtOnce.accumulateAndGet(gridReaders.incrementAndGet(), Math::max);
+            Thread.sleep(1);
+            gridReaders.decrementAndGet();
+            return setOf();
+        });
+        when(mockGridGameZone.segments(any())).thenReturn(mapOf());
+        var rayCalculation = new TileVisibilityRayCalculationImpl(() -> mockGameZone,
+                loc -> null, loc -> null, 0f, new OcclusionGrid(() -> mockGridGameZone));
+        var batchExecutor = Executors.newFixedThreadPool(4);
+        var callers = 4;
+        var callerExecutor = Executors.newFixedThreadPool(callers);
+
+        try {
+            var calculation = new TileVisibilityCalculationImpl(rayCalculation, batchExecutor, 4);
+            List<Future<Result>> calls = listOf();
+            for (var caller = 0; caller < callers; caller++) {
+                calls.add(callerExecutor.submit(() -> calculation.atPoint(mockTile, 10)));
+            }
+
+            for (var call : calls) {
+                assertNotNull(call.get());
+            }
+            assertEquals(1, mostGridReadersAtOnce.get());
+        }
+        finally {
+            batchExecutor.shutdownNow();
+            callerExecutor.shutdownNow();
+        }
     }
 
     @Test
@@ -111,6 +252,80 @@ public class TileVisibilityCalculationImplTests {
                 () -> tileVisibilityCalculation.atPoint(mock(Tile.class), -1));
     }
 
+    @Test
+    public void testAtPointWithVisitorVisitsEachOnce() {
+        var calculation = new TileVisibilityCalculationImpl(mockTileVisibilityRayCalculation);
+        List<Tile> visitedTiles = listOf();
+        List<WallSegment> visitedSegments = listOf();
+
+        calculation.atPoint(mockTile, 1, new VisibilityVisitor() {
+            @Override
+            public boolean visitTile(Tile tile) {
+                visitedTiles.add(tile);
+                return true;
+            }
+
+            @Override
+            public boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                                        WallSegment segment) {
+                visitedSegments.add(segment);
+                return true;
+            }
+        });
+
+        // Each ray's Result in setUp includes the tiles of every ray before it
+        assertEquals(8, visitedTiles.size());
+        assertEquals(setOf(tilesVisible.values()), setOf(visitedTiles));
+        assertEquals(24, visitedSegments.size());
+    }
+
+    @Test
+    public void testAtPointWithVisitorStops() {
+        var calculation = new TileVisibilityCalculationImpl(mockTileVisibilityRayCalculation);
+        List<Tile> visitedTiles = listOf();
+        List<WallSegment> visitedSegments = listOf();
+
+        calculation.atPoint(mockTile, randomIntInRange(1, 20), new VisibilityVisitor() {
+            @Override
+            public boolean visitTile(Tile tile) {
+                visitedTiles.add(tile);
+                return true;
+            }
+
+            @Override
+            public boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                                        WallSegment segment) {
+                visitedSegments.add(segment);
+                return false;
+            }
+        });
+
+        assertEquals(1, visitedTiles.size());
+        assertEquals(1, visitedSegments.size());
+        verify(mockTileVisibilityRayCalculation, times(1)).castRay(any(), any());
+    }
+
+    @Test
+    public void testAtPointWithVisitorWithInvalidArgs() {
+        var calculation = new TileVisibilityCalculationImpl(mockTileVisibilityRayCalculation);
+        var mockVisitor = mock(VisibilityVisitor.class);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> calculation.atPoint(null, 0, mockVisitor));
+        assertThrows(IllegalArgumentException.class,
+                () -> calculation.atPoint(mockTile, -1, mockVisitor));
+        assertThrows(IllegalArgumentException.class,
+                () -> calculation.atPoint(mockTile, 0, null));
+    }
+
+    @Test
+    public void testJobWithInvalidArgs() {
+        var calculation = new TileVisibilityCalculationImpl(mockTileVisibilityRayCalculation);
+
+        assertThrows(IllegalArgumentException.class, () -> calculation.job(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> calculation.job(mockTile, -1));
+    }
+
     // NB: IF YOU CHANGE HOW RADII ARE CALCULATED, MANUALLY TEST YOUR RESULTS, TO ENSURE THAT THE
     // EXPECTED RAY TARGETS ARE WHAT YOU EXPECT.
     // Also, these are ideal cases for parameterized tests, but JUnit5 only supports primitive
@@ -376,4 +591,34 @@ public class TileVisibilityCalculationImplTests {
                 verify(mockTileVisibilityRayCalculation).castRay(eq(ORIGIN),
                         eq(coordinate2dOf(LOCATION.X + offset.X, LOCATION.Y + offset.Y))));
     }
+
+    // Unlike the ray calculation in setUp, this one shares no state between rays, so it can be
+    // called from several threads at once; each ray sees only its target
+    private TileVisibilityRayCalculation makeStatelessRayCalculation() {
+        var rayCalculation = mock(TileVisibilityRayCalculation.class);
+        var mockVisibleTile = mock(Tile.class);
+        var mockVisibleSegment = mock(WallSegment.class);
+        when(rayCalculation.castRay(any(), any())).thenAnswer(invocation -> {
+            Coordinate2d target = invocation.getArgument(1);
+            var targetLoc = target.to3d(LOCATION.Z);
+            var tiles = mapOf(pairOf(targetLoc, mockVisibleTile));
+            Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments = mapOf(
+                    pairOf(WallSegmentOrientation.VERTICAL,
+                            mapOf(pairOf(targetLoc, mockVisibleSegment))),
+                    pairOf(WallSegmentOrientation.CORNER, mapOf()),
+                    pairOf(WallSegmentOrientation.HORIZONTAL, mapOf()));
+            return new TileVisibilityCalculation.Result() {
+                @Override
+                public Map<Coordinate3d, Tile> tiles() {
+                    return tiles;
+                }
+
+                @Override
+                public Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments() {
+                    return segments;
+                }
+            };
+        });
+        return rayCalculation;
+    }
 }
@@ -132,6 +132,9 @@ public class TileVisibilityRayCalculationImplTests {
         assertThrows(IllegalArgumentException.class,
                 () -> new TileVisibilityRayCalculationImpl(mockGetGameZone, mockGetViewCeiling,
                         mockGetViewFloor, -0.00001f));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityRayCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                        mockGetViewFloor, Z_ADDEND_BELOW, null));
     }
 
     @Test
@@ -1011,6 +1014,76 @@ public class TileVisibilityRayCalculationImplTests {
         verify(mockGameZone, times(1)).tiles(any());
     }
 
+    @Test
+    public void testLineOfSightInOpenTerrain() {
+        var lineOfSight = new TileVisibilityRayCalculationImpl(mockGetGameZone,
+                mockGetViewCeiling, mockGetViewFloor, Z_ADDEND_BELOW);
+        var origin = randomCoordinate3dInNormalRangeAtZ();
+        var target = addOffsets3d(origin, randomIntInRange(-10, 10), randomIntInRange(-10, 10),
+                0);
+
+        assertTrue(lineOfSight.lineOfSight(origin, target));
+        assertTrue(lineOfSight.lineOfSight(origin, origin));
+    }
+
+    @Test
+    public void testLineOfSightBlockedBySegment() {
+        movingEast = true;
+        var lineOfSight = new TileVisibilityRayCalculationImpl(mockGetGameZone,
+                mockGetViewCeiling, mockGetViewFloor, Z_ADDEND_BELOW);
+        var origin = randomCoordinate3dInNormalRangeAtZ();
+        var blockingSegmentDist = randomIntInRange(1, 3);
+        segmentGameZoneReturnOverrides.put(blockingSegmentDist, makeMockSegment(VERTICAL,
+                addOffsets3d(origin, blockingSegmentDist + 1, 0, 0), true));
+
+        assertFalse(lineOfSight.lineOfSight(origin, addOffsets3d(origin, 8, 0, 0)));
+    }
+
+    @Test
+    public void testLineOfSightWithInvalidArgs() {
+        var lineOfSight = new TileVisibilityRayCalculationImpl(mockGetGameZone,
+                mockGetViewCeiling, mockGetViewFloor, Z_ADDEND_BELOW);
+        var origin = randomCoordinate3dInNormalRangeAtZ();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> lineOfSight.lineOfSight(null, origin));
+        assertThrows(IllegalArgumentException.class,
+                () -> lineOfSight.lineOfSight(origin, null));
+    }
+
+    @Test
+    public void testLineOfSightMatrixSharesColumns() {
+        var lineOfSight = new TileVisibilityRayCalculationImpl(mockGetGameZone,
+                mockGetViewCeiling, mockGetViewFloor, Z_ADDEND_BELOW);
+        var origin = randomCoordinate3dInNormalRangeAtZ();
+        var locations = listOf(origin, addOffsets3d(origin, 2, 0, 0),
+                addOffsets3d(origin, 4, 0, 0));
+
+        var mutualMatrix = lineOfSight.lineOfSightMatrix(locations, true);
+        var matrix = lineOfSight.lineOfSightMatrix(locations, false);
+
+        for (var i = 0; i < locations.size(); i++) {
+            for (var j = 0; j < locations.size(); j++) {
+                assertTrue(mutualMatrix[i][j]);
+                assertTrue(matrix[i][j]);
+            }
+        }
+        // Each of the five columns along the line is read once per matrix
+        verify(mockGameZone, times(10)).tiles(any());
+    }
+
+    @Test
+    public void testLineOfSightMatrixWithInvalidArgs() {
+        var lineOfSight = new TileVisibilityRayCalculationImpl(mockGetGameZone,
+                mockGetViewCeiling, mockGetViewFloor, Z_ADDEND_BELOW);
+        List<Coordinate3d> locationsWithNull = listOf((Coordinate3d) null);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> lineOfSight.lineOfSightMatrix(null, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> lineOfSight.lineOfSightMatrix(locationsWithNull, true));
+    }
+
     private void runTileBlockingTest(WallSegmentOrientation orientation,
                                      int blockingSegOffsetX, int blockingSegOffsetY,
                                      int blockedTilesOffsetX, int blockedTilesOffsetY,
@@ -0,0 +1,390 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.entities.GroundType;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.ruleset.gameconcepts.VisibilityTestFixtures.*;
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.common.valueobjects.Pair.pairOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TileVisibilityRayTreeCalculationImplTests {
+    private final int Z = 0;
+    private final float Z_ADDEND_BELOW = 10;
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000), Z);
+
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private Function<Coordinate3d, Integer> mockGetViewCeiling;
+    @Mock private Function<Coordinate3d, Integer> mockGetViewFloor;
+    @Mock private GameZone mockGameZone;
+    @Mock private GroundType mockGroundTypeBlocking;
+    @Mock private GroundType mockGroundTypeTransparent;
+    @Mock private Tile mockOriginTile;
+
+    // Each location always returns the same tiles and segments, so that the results of different
+    // calculations can be compared
+    private Map<Coordinate2d, Set<Tile>> tilesAtLocations;
+    private Map<Coordinate2d, Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>>>
+            segmentsAtLocations;
+    private boolean varyTerrain;
+    private boolean floorsEverywhere;
+
+    private TileVisibilityCalculation tileVisibilityCalculation;
+
+    @BeforeEach
+    public void setUp() {
+        tilesAtLocations = mapOf();
+        segmentsAtLocations = mapOf();
+
+        lenient().when(mockGroundTypeBlocking.blocksSight()).thenReturn(true);
+        lenient().when(mockGroundTypeTransparent.blocksSight()).thenReturn(false);
+        lenient().when(mockOriginTile.location()).thenReturn(ORIGIN);
+        lenient().when(mockGameZone.tiles(any())).thenAnswer(invocation ->
+                tilesAtLocations.computeIfAbsent(invocation.getArgument(0), this::makeTiles));
+        lenient().when(mockGameZone.segments(any())).thenAnswer(invocation ->
+                segmentsAtLocations.computeIfAbsent(invocation.getArgument(0),
+                        this::makeSegments));
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+
+        tileVisibilityCalculation = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone,
+                mockGetViewCeiling, mockGetViewFloor, Z_ADDEND_BELOW);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityRayTreeCalculationImpl(null, mockGetViewCeiling,
+                        mockGetViewFloor, Z_ADDEND_BELOW));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, null,
+                        mockGetViewFloor, Z_ADDEND_BELOW));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityRayTreeCalculationImpl(mockGetGameZone,
+                        mockGetViewCeiling, null, Z_ADDEND_BELOW));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileVisibilityRayTreeCalculationImpl(mockGetGameZone,
+                        mockGetViewCeiling, mockGetViewFloor, -0.00001f));
+    }
+
+    @Test
+    public void testAtPointWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> tileVisibilityCalculation.atPoint(null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> tileVisibilityCalculation.atPoint(mockOriginTile, -1));
+    }
+
+    @Test
+    public void testAtPointInOpenTerrainReadsEachColumnOnce() {
+        var radius = randomIntInRange(1, 10);
+
+        var result = tileVisibilityCalculation.atPoint(mockOriginTile, radius);
+
+        assertEquals(tilesAtLocations.size(), result.tiles().size());
+        for (var loc : tilesAtLocations.keySet()) {
+            assertTrue(result.tiles().containsKey(loc.to3d(Z)));
+            verify(mockGameZone, times(1)).tiles(loc);
+            verify(mockGameZone, times(1)).segments(loc);
+        }
+    }
+
+    @Test
+    public void testAtPointWithFloorsTestsColumnsAsOftenAsInOpenTerrain() {
+        var radius = randomIntInRange(1, 10);
+        tileVisibilityCalculation.atPoint(mockOriginTile, radius);
+        var openTerrainIterations = columnIterations();
+        tilesAtLocations.clear();
+        segmentsAtLocations.clear();
+        floorsEverywhere = true;
+        var rayCalculation = new TileVisibilityCalculationImpl(
+                new TileVisibilityRayCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                        mockGetViewFloor, Z_ADDEND_BELOW));
+
+        var result = tileVisibilityCalculation.atPoint(mockOriginTile, radius);
+
+        // Every ray has its own floors to pass over, but the rays sharing a path still test its
+        // columns together, just as often as where there are no floors
+        assertEquals(openTerrainIterations, columnIterations());
+        assertEquals(rayCalculation.atPoint(mockOriginTile, radius).tiles().keySet(),
+                result.tiles().keySet());
+    }
+
+    @Test
+    public void testRayCalculationReadsEachColumnOncePerAtPoint() {
+        var radius = randomIntInRange(1, 10);
+        var rayCalculation = new TileVisibilityCalculationImpl(
+                new TileVisibilityRayCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                        mockGetViewFloor, Z_ADDEND_BELOW));
+
+        rayCalculation.atPoint(mockOriginTile, radius);
+
+        for (var loc : tilesAtLocations.keySet()) {
+            verify(mockGameZone, times(1)).tiles(loc);
+            verify(mockGameZone, times(1)).segments(loc);
+            verify(mockGetViewFloor, times(1)).apply(loc.to3d(Z));
+            verify(mockGetViewCeiling, times(1)).apply(loc.to3d(Z));
+        }
+    }
+
+    @Test
+    public void testAtPointMatchesCastingEachRaySeparately() {
+        varyTerrain = true;
+        var radius = randomIntInRange(1, 12);
+        var rayCalculation = new TileVisibilityCalculationImpl(
+                new TileVisibilityRayCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                        mockGetViewFloor, Z_ADDEND_BELOW));
+
+        var expected = rayCalculation.atPoint(mockOriginTile, radius);
+        var result = tileVisibilityCalculation.atPoint(mockOriginTile, radius);
+
+        assertEquals(expected.tiles().keySet(), result.tiles().keySet());
+        for (var orientation : WallSegmentOrientation.values()) {
+            assertEquals(expected.segments().get(orientation).keySet(),
+                    result.segments().get(orientation).keySet());
+        }
+    }
+
+    @Test
+    public void testAtPointWithVisitorMatchesAtPoint() {
+        varyTerrain = true;
+        var radius = randomIntInRange(1, 12);
+        var tree = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                mockGetViewFloor, Z_ADDEND_BELOW);
+        var rayCalculation = new TileVisibilityCalculationImpl(
+                new TileVisibilityRayCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                        mockGetViewFloor, Z_ADDEND_BELOW));
+        var treeVisitor = new RecordingVisitor(Integer.MAX_VALUE);
+        var rayVisitor = new RecordingVisitor(Integer.MAX_VALUE);
+
+        var expected = tree.atPoint(mockOriginTile, radius);
+        tree.atPoint(mockOriginTile, radius, treeVisitor);
+        rayCalculation.atPoint(mockOriginTile, radius, rayVisitor);
+
+        for (var visitor : listOf(treeVisitor, rayVisitor)) {
+            // Nothing is visited twice
+            assertEquals(visitor.TILES.size(), setOf(visitor.TILES).size());
+            assertEquals(visitor.SEGMENTS.size(), setOf(visitor.SEGMENTS).size());
+            assertEquals(expected.tiles().keySet(), setOf(visitor.TILES));
+            Set<String> expectedSegments = setOf();
+            expected.segments().forEach((orientation, segments) -> segments.keySet()
+                    .forEach(loc -> expectedSegments.add(orientation + "@" + loc)));
+            assertEquals(expectedSegments, setOf(visitor.SEGMENTS));
+        }
+    }
+
+    @Test
+    public void testAtPointWithVisitorStops() {
+        var tree = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                mockGetViewFloor, Z_ADDEND_BELOW);
+        var maxTiles = randomIntInRange(1, 5);
+        var visitor = new RecordingVisitor(maxTiles);
+
+        tree.atPoint(mockOriginTile, 10, visitor);
+
+        assertEquals(maxTiles, visitor.TILES.size());
+        // Columns beyond those needed to find the first tiles are never read
+        assertTrue(tilesAtLocations.size() < 40);
+    }
+
+    @Test
+    public void testAtPointWithVisitorWithInvalidArgs() {
+        var tree = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                mockGetViewFloor, Z_ADDEND_BELOW);
+        var mockVisitor = mock(VisibilityVisitor.class);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.atPoint(null, 0, mockVisitor));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.atPoint(mockOriginTile, -1, mockVisitor));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.atPoint(mockOriginTile, 0, null));
+    }
+
+    @Test
+    public void testAtPointsMatchesAtPointForEachViewer() {
+        varyTerrain = true;
+        var otherOrigin = coordinate3dOf(ORIGIN.X + randomIntInRange(-4, 4),
+                ORIGIN.Y + randomIntInRange(-4, 4), Z);
+        var mockOtherTile = mock(Tile.class);
+        when(mockOtherTile.location()).thenReturn(otherOrigin);
+        var radius = randomIntInRange(1, 8);
+        var otherRadius = randomIntInRange(1, 8);
+        var tree = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                mockGetViewFloor, Z_ADDEND_BELOW);
+
+        var result = tree.atPoints(listOf(pairOf(mockOriginTile, radius),
+                pairOf(mockOtherTile, otherRadius)));
+
+        var expected = tree.atPoint(mockOriginTile, radius);
+        var otherExpected = tree.atPoint(mockOtherTile, otherRadius);
+        assertEquals(2, result.viewers());
+        assertEquals(expected.tiles().keySet(), result.forViewer(0).tiles().keySet());
+        assertEquals(otherExpected.tiles().keySet(), result.forViewer(1).tiles().keySet());
+        Set<Coordinate3d> union = setOf(expected.tiles().keySet());
+        union.addAll(otherExpected.tiles().keySet());
+        assertEquals(union, result.union().tiles().keySet());
+        assertEquals(union, result.viewerCounts().keySet());
+        for (var loc : union) {
+            var count = (expected.tiles().containsKey(loc) ? 1 : 0) +
+                    (otherExpected.tiles().containsKey(loc) ? 1 : 0);
+            assertEquals(count, result.viewerCount(loc));
+        }
+    }
+
+    @Test
+    public void testAtPointsReadsEachColumnOnce() {
+        var otherOrigin = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, Z);
+        var mockOtherTile = mock(Tile.class);
+        when(mockOtherTile.location()).thenReturn(otherOrigin);
+        var tree = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                mockGetViewFloor, Z_ADDEND_BELOW);
+
+        tree.atPoints(listOf(pairOf(mockOriginTile, 5), pairOf(mockOtherTile, 5)));
+
+        for (var loc : tilesAtLocations.keySet()) {
+            verify(mockGameZone, times(1)).tiles(loc);
+            verify(mockGameZone, times(1)).segments(loc);
+        }
+        verify(mockGetGameZone, times(1)).get();
+    }
+
+    @Test
+    public void testAtRadiiMatchesAtPointAtEachRadius() {
+        varyTerrain = true;
+        var radius = randomIntInRange(1, 10);
+        var otherRadius = randomIntInRange(0, 10);
+        var tree = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                mockGetViewFloor, Z_ADDEND_BELOW);
+
+        var results = tree.atRadii(mockOriginTile, listOf(radius, otherRadius, radius));
+
+        assertEquals(setOf(radius, otherRadius), results.keySet());
+        for (var visibilityRadius : results.keySet()) {
+            var expected = tree.atPoint(mockOriginTile, visibilityRadius);
+            var result = results.get(visibilityRadius);
+            assertEquals(expected.tiles().keySet(), result.tiles().keySet());
+            for (var orientation : WallSegmentOrientation.values()) {
+                assertEquals(expected.segments().get(orientation).keySet(),
+                        result.segments().get(orientation).keySet());
+            }
+        }
+        verify(mockGetGameZone, times(results.size() + 1)).get();
+    }
+
+    @Test
+    public void testAtRadiiWithInvalidArgs() {
+        var tree = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                mockGetViewFloor, Z_ADDEND_BELOW);
+
+        assertThrows(IllegalArgumentException.class, () -> tree.atRadii(null, listOf(1)));
+        assertThrows(IllegalArgumentException.class, () -> tree.atRadii(mockOriginTile, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.atRadii(mockOriginTile, listOf(1, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.atRadii(mockOriginTile, listOf(1, -1)));
+    }
+
+    @Test
+    public void testAtPointsWithInvalidArgs() {
+        var tree = new TileVisibilityRayTreeCalculationImpl(mockGetGameZone, mockGetViewCeiling,
+                mockGetViewFloor, Z_ADDEND_BELOW);
+
+        assertThrows(IllegalArgumentException.class, () -> tree.atPoints(null));
+        assertThrows(IllegalArgumentException.class, () -> tree.atPoints(listOf(
+                pairOf(null, 1))));
+        assertThrows(IllegalArgumentException.class, () -> tree.atPoints(listOf(
+                pairOf(mockOriginTile, null))));
+        assertThrows(IllegalArgumentException.class, () -> tree.atPoints(listOf(
+                pairOf(mockOriginTile, -1))));
+    }
+
+    // Records the locations visited, and stops after the given number of tiles
+    private static class RecordingVisitor implements VisibilityVisitor {
+        private final int MAX_TILES;
+        private final List<Coordinate3d> TILES = listOf();
+        private final List<String> SEGMENTS = listOf();
+
+        private RecordingVisitor(int maxTiles) {
+            MAX_TILES = maxTiles;
+        }
+
+        @Override
+        public boolean visitTile(Tile tile) {
+            TILES.add(tile.location());
+            return TILES.size() < MAX_TILES;
+        }
+
+        @Override
+        public boolean visitSegment(WallSegmentOrientation orientation, Coordinate3d location,
+                                    WallSegment segment) {
+            SEGMENTS.add(orientation + "@" + location);
+            return true;
+        }
+    }
+
+    // How many times each column's tiles have been iterated over
+    private Map<Coordinate2d, Integer> columnIterations() {
+        Map<Coordinate2d, Integer> iterations = mapOf();
+        tilesAtLocations.forEach(
+                (loc, tiles) -> iterations.put(loc, ((CountingTiles) tiles).iterations));
+        return iterations;
+    }
+
+    private Set<Tile> makeTiles(Coordinate2d loc) {
+        Set<Tile> tiles = new CountingTiles();
+        if (varyTerrain) {
+            tiles.addAll(makeVariedTiles(loc, Z, mockGroundTypeTransparent,
+                    mockGroundTypeBlocking));
+        }
+        else {
+            tiles.add(makeMockTile(loc.to3d(Z), mockGroundTypeTransparent));
+            if (floorsEverywhere) {
+                tiles.add(makeMockTile(loc.to3d(Z - 1), mockGroundTypeBlocking));
+            }
+        }
+        return tiles;
+    }
+
+    private static class CountingTiles extends HashSet<Tile> {
+        private int iterations;
+
+        @Override
+        public Iterator<Tile> iterator() {
+            iterations++;
+            return super.iterator();
+        }
+    }
+
+    private Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> makeSegments(
+            Coordinate2d loc) {
+        return varyTerrain ? makeVariedSegments(loc, Z) : populatedMap();
+    }
+}
@@ -0,0 +1,239 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.entities.GroundType;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityCalculation;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.ruleset.gameconcepts.VisibilityTestFixtures.*;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.shared.Direction.EAST;
+import static soliloquy.specs.common.shared.Direction.NORTH;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TileVisibilityTrackerTests {
+    private final int Z = randomIntInRange(-100, 100);
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000), Z);
+    private final Coordinate3d EAST_OF_ORIGIN = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, Z);
+    // Radius 1 has eight rays, one to each adjacent tile
+    private final int RADIUS = 1;
+    private final int RAYS = 8;
+
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private Function<Coordinate3d, Integer> mockGetViewCeiling;
+    @Mock private Function<Coordinate3d, Integer> mockGetViewFloor;
+    @Mock private GameZone mockGameZone;
+    @Mock private GroundType mockGroundType;
+    @Mock private Tile mockOriginTile;
+    @Mock private Tile mockEastTile;
+
+    private TileVisibilityRayCalculationImpl rayCalculation;
+    private TileVisibilityTracker tracker;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(mockOriginTile.location()).thenReturn(ORIGIN);
+        lenient().when(mockEastTile.location()).thenReturn(EAST_OF_ORIGIN);
+        lenient().when(mockGroundType.blocksSight()).thenReturn(false);
+        lenient().when(mockGameZone.tiles(any())).thenAnswer(invocation ->
+                setOf(makeMockTile(((Coordinate2d) invocation.getArgument(0)).to3d(Z),
+                        mockGroundType)));
+        lenient().when(mockGameZone.segments(any())).thenAnswer(invocation -> emptySegments());
+        lenient().when(mockGetGameZone.get()).thenReturn(mockGameZone);
+        rayCalculation = spy(new TileVisibilityRayCalculationImpl(mockGetGameZone,
+                mockGetViewCeiling, mockGetViewFloor, 0f));
+        // Each ray sees only the tile it targets
+        lenient().doAnswer(invocation -> {
+            Coordinate2d target = invocation.getArgument(1);
+            VisibilityVisitor visitor = invocation.getArgument(3);
+            return visitor.visitTile(makeMockTile(target.to3d(Z), mockGroundType));
+        }).when(rayCalculation).castRay(any(), any(), any(), any());
+
+        tracker = new TileVisibilityTracker(rayCalculation);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new TileVisibilityTracker(null));
+    }
+
+    @Test
+    public void testTrackWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> tracker.track(null, RADIUS));
+        assertThrows(IllegalArgumentException.class, () -> tracker.track(mockOriginTile, -1));
+    }
+
+    @Test
+    public void testMoveWithInvalidArgs() {
+        assertThrows(IllegalStateException.class, () -> tracker.move(EAST, mockEastTile));
+
+        tracker.track(mockOriginTile, RADIUS);
+
+        assertThrows(IllegalArgumentException.class, () -> tracker.move(null, mockEastTile));
+        assertThrows(IllegalArgumentException.class, () -> tracker.move(EAST, null));
+        assertThrows(IllegalArgumentException.class, () -> tracker.move(NORTH, mockEastTile));
+        var twiceEastTile = makeMockTile(coordinate3dOf(ORIGIN.X + 2, ORIGIN.Y, Z), mockGroundType);
+        assertThrows(IllegalArgumentException.class, () -> tracker.move(EAST, twiceEastTile));
+    }
+
+    @Test
+    public void testTrack() {
+        var result = tracker.track(mockOriginTile, RADIUS);
+
+        verify(rayCalculation, times(RAYS)).castRay(eq(ORIGIN), any(), any(), any());
+        assertSame(result, tracker.result());
+        assertEquals(RAYS, result.tiles().size());
+        assertTiles(ORIGIN, result);
+    }
+
+    @Test
+    public void testMoveThroughUniformTerrainRecastsNoRays() {
+        var trackedResult = tracker.track(mockOriginTile, RADIUS);
+
+        var result = tracker.move(EAST, mockEastTile);
+
+        assertSame(trackedResult, result);
+        verify(rayCalculation, times(RAYS)).castRay(any(), any(), any(), any());
+        verify(rayCalculation, never()).castRay(eq(EAST_OF_ORIGIN), any(), any(), any());
+        assertEquals(RAYS, result.tiles().size());
+        assertTiles(EAST_OF_ORIGIN, result);
+    }
+
+    @Test
+    public void testMoveRecastsOnlyRaysCrossingChangedColumns() {
+        // The column east of the new origin has a view floor, unlike the column east of the
+        // previous origin, so only the rays which step through it are recast
+        var changedColumn = coordinate3dOf(ORIGIN.X + 2, ORIGIN.Y, Z);
+        when(mockGetViewFloor.apply(any())).thenAnswer(invocation ->
+                changedColumn.equals(invocation.getArgument(0)) ? Z : null);
+        var raysCrossingChangedColumn = 0;
+        for (var offset : TileVisibilityCalculationImpl.perimeterOffsets(RADIUS)) {
+            var template = new RayTemplate(offset.X, offset.Y);
+            for (var step = 0; step < template.LENGTH; step++) {
+                if (template.CELLS_X[step] == 1 && template.CELLS_Y[step] == 0) {
+                    raysCrossingChangedColumn++;
+                    break;
+                }
+            }
+        }
+        tracker.track(mockOriginTile, RADIUS);
+
+        var result = tracker.move(EAST, mockEastTile);
+
+        assertTrue(raysCrossingChangedColumn > 0);
+        assertTrue(raysCrossingChangedColumn < RAYS);
+        verify(rayCalculation, times(RAYS)).castRay(eq(ORIGIN), any(), any(), any());
+        verify(rayCalculation, times(raysCrossingChangedColumn))
+                .castRay(eq(EAST_OF_ORIGIN), any(), any(), any());
+        assertEquals(RAYS, result.tiles().size());
+        assertTiles(EAST_OF_ORIGIN, result);
+    }
+
+    @Test
+    public void testMoveTakesBackWhatRecastRaysNoLongerSee() {
+        // As above, but the recast rays see nothing, so only the other rays' tiles remain
+        var changedColumn = coordinate3dOf(ORIGIN.X + 2, ORIGIN.Y, Z);
+        when(mockGetViewFloor.apply(any())).thenAnswer(invocation ->
+                changedColumn.equals(invocation.getArgument(0)) ? Z : null);
+        tracker.track(mockOriginTile, RADIUS);
+        doReturn(true).when(rayCalculation).castRay(eq(EAST_OF_ORIGIN), any(), any(), any());
+
+        var result = tracker.move(EAST, mockEastTile);
+
+        Set<Coordinate3d> recastTargets = setOf();
+        for (var offset : TileVisibilityCalculationImpl.perimeterOffsets(RADIUS)) {
+            var template = new RayTemplate(offset.X, offset.Y);
+            for (var step = 0; step < template.LENGTH; step++) {
+                if (template.CELLS_X[step] == 1 && template.CELLS_Y[step] == 0) {
+                    recastTargets.add(coordinate3dOf(EAST_OF_ORIGIN.X + offset.X,
+                            EAST_OF_ORIGIN.Y + offset.Y, Z));
+                    break;
+                }
+            }
+        }
+        assertFalse(recastTargets.isEmpty());
+        assertEquals(RAYS - recastTargets.size(), result.tiles().size());
+        for (var loc : result.tiles().keySet()) {
+            assertFalse(recastTargets.contains(loc));
+            assertEquals(loc, result.tiles().get(loc).location());
+        }
+    }
+
+    @Test
+    public void testMoveReadsOnlyColumnsNewlyInReach() {
+        var twiceEastTile = makeMockTile(coordinate3dOf(ORIGIN.X + 2, ORIGIN.Y, Z), mockGroundType);
+        tracker.track(mockOriginTile, RADIUS);
+        tracker.move(EAST, mockEastTile);
+        clearInvocations(mockGameZone);
+
+        tracker.move(EAST, twiceEastTile);
+
+        // Columns already read are compared from the ones kept; only the new eastmost ones are read
+        verify(mockGameZone, times((2 * RADIUS) + 1)).tiles(any());
+    }
+
+    @Test
+    public void testMoveAfterInvalidateRecastsEveryRay() {
+        tracker.track(mockOriginTile, RADIUS);
+        tracker.invalidate();
+
+        var result = tracker.move(EAST, mockEastTile);
+
+        verify(rayCalculation, times(RAYS)).castRay(eq(EAST_OF_ORIGIN), any(), any(), any());
+        assertTiles(EAST_OF_ORIGIN, result);
+    }
+
+    @Test
+    public void testMoveToDifferentZRecastsEveryRay() {
+        var raisedEastTile = mock(Tile.class);
+        var raisedLoc = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, Z + 1);
+        when(raisedEastTile.location()).thenReturn(raisedLoc);
+        tracker.track(mockOriginTile, RADIUS);
+
+        tracker.move(EAST, raisedEastTile);
+
+        verify(rayCalculation, times(RAYS)).castRay(eq(raisedLoc), any(), any(), any());
+    }
+
+    private void assertTiles(Coordinate3d origin, TileVisibilityCalculation.Result result) {
+        for (var x = -RADIUS; x <= RADIUS; x++) {
+            for (var y = -RADIUS; y <= RADIUS; y++) {
+                if (x != 0 || y != 0) {
+                    var loc = coordinate3dOf(origin.X + x, origin.Y + y, Z);
+                    assertTrue(result.tiles().containsKey(loc));
+                    assertEquals(loc, result.tiles().get(loc).location());
+                }
+            }
+        }
+    }
+
+    private Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> emptySegments() {
+        Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segments = mapOf();
+        segments.put(HORIZONTAL, mapOf());
+        segments.put(CORNER, mapOf());
+        segments.put(VERTICAL, mapOf());
+        return segments;
+    }
+}
@@ -0,0 +1,81 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.ruleset.entities.GroundType;
+
+import static inaugural.soliloquy.ruleset.gameconcepts.VisibilityTestFixtures.*;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+
+@ExtendWith(MockitoExtension.class)
+public class ViewBoundsTests {
+    private final int X = randomIntInRange(-10000, 10000);
+    private final int Y = randomIntInRange(-10000, 10000);
+    private final int Z = randomIntInRange(-100, 100);
+
+    @Mock private GroundType mockGroundTypeBlocking;
+    @Mock private GroundType mockGroundTypeTransparent;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(mockGroundTypeBlocking.blocksSight()).thenReturn(true);
+        lenient().when(mockGroundTypeTransparent.blocksSight()).thenReturn(false);
+    }
+
+    @Test
+    public void testBlockingZs() {
+        var tiles = setOf(
+                makeMockTile(coordinate3dOf(X, Y, Z + 2), mockGroundTypeBlocking),
+                makeMockTile(coordinate3dOf(X, Y, Z - 1), mockGroundTypeBlocking),
+                makeMockTile(coordinate3dOf(X, Y, Z), mockGroundTypeTransparent),
+                makeMockTile(coordinate3dOf(X, Y, Z + 2), mockGroundTypeBlocking));
+
+        assertArrayEquals(new int[]{Z - 1, Z + 2}, ViewBounds.blockingZs(tiles));
+        assertArrayEquals(new int[0], ViewBounds.blockingZs(setOf()));
+    }
+
+    @Test
+    public void testViewFloor() {
+        var blockingZs = new int[]{Z - 3, Z - 1, Z + 2, Z + 4};
+
+        assertNull(ViewBounds.viewFloor(blockingZs, null, Z - 4));
+        assertEquals(Z - 3, ViewBounds.viewFloor(blockingZs, null, Z - 3));
+        assertEquals(Z - 3, ViewBounds.viewFloor(blockingZs, null, Z - 2));
+        assertEquals(Z - 1, ViewBounds.viewFloor(blockingZs, null, Z));
+        assertEquals(Z - 1, ViewBounds.viewFloor(blockingZs, null, Z + 1));
+        assertEquals(Z + 2, ViewBounds.viewFloor(blockingZs, null, Z + 2));
+        assertEquals(Z + 4, ViewBounds.viewFloor(blockingZs, null, Z + 5));
+        // The higher of the zone's floor and the highest blocking tile at or below the origin
+        assertEquals(Z - 2, ViewBounds.viewFloor(blockingZs, Z - 2, Z - 4));
+        assertEquals(Z - 2, ViewBounds.viewFloor(blockingZs, Z - 2, Z - 3));
+        assertEquals(Z - 1, ViewBounds.viewFloor(blockingZs, Z - 2, Z));
+        assertEquals(Z + 2, ViewBounds.viewFloor(blockingZs, Z - 2, Z + 3));
+        assertNull(ViewBounds.viewFloor(new int[0], null, Z));
+        assertEquals(Z - 2, ViewBounds.viewFloor(new int[0], Z - 2, Z));
+    }
+
+    @Test
+    public void testViewCeiling() {
+        var blockingZs = new int[]{Z - 3, Z - 1, Z + 2, Z + 4};
+
+        assertEquals(Z - 3, ViewBounds.viewCeiling(blockingZs, null, Z - 4));
+        assertEquals(Z - 1, ViewBounds.viewCeiling(blockingZs, null, Z - 3));
+        assertEquals(Z + 2, ViewBounds.viewCeiling(blockingZs, null, Z - 1));
+        assertEquals(Z + 2, ViewBounds.viewCeiling(blockingZs, null, Z));
+        assertEquals(Z + 4, ViewBounds.viewCeiling(blockingZs, null, Z + 2));
+        assertNull(ViewBounds.viewCeiling(blockingZs, null, Z + 4));
+        // The lower of the zone's ceiling and the lowest blocking tile above the origin
+        assertEquals(Z + 2, ViewBounds.viewCeiling(blockingZs, Z + 3, Z));
+        assertEquals(Z + 3, ViewBounds.viewCeiling(blockingZs, Z + 3, Z + 2));
+        assertEquals(Z + 3, ViewBounds.viewCeiling(blockingZs, Z + 3, Z + 5));
+        assertNull(ViewBounds.viewCeiling(new int[0], null, Z));
+        assertEquals(Z + 3, ViewBounds.viewCeiling(new int[0], Z + 3, Z));
+    }
+}
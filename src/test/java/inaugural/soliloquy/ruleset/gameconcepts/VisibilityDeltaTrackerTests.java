@@ -0,0 +1,180 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Character;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+
+import java.util.List;
+import java.util.Map;
+
+import static inaugural.soliloquy.ruleset.gameconcepts.VisibilityTestFixtures.*;
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.common.valueobjects.Pair.pairOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VisibilityDeltaTrackerTests {
+    private final int RADIUS = randomIntInRange(1, 10);
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomIntInRange(-100, 100));
+
+    @Mock private TileVisibilityCalculationImpl mockCalculation;
+    @Mock private Character mockViewer;
+    @Mock private Character mockOtherViewer;
+    @Mock private Tile mockOriginTile;
+    @Mock private WallSegment mockSegment;
+
+    // What the calculation visits on its next call
+    private List<Tile> visibleTiles;
+    private Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> visibleSegments;
+
+    private VisibilityDeltaTracker tracker;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(mockOriginTile.location()).thenReturn(ORIGIN);
+        visibleTiles = listOf();
+        visibleSegments = mapOf(pairOf(HORIZONTAL, mapOf()), pairOf(CORNER, mapOf()),
+                pairOf(VERTICAL, mapOf()));
+        lenient().doAnswer(invocation -> {
+            VisibilityVisitor visitor = invocation.getArgument(2);
+            for (var tile : visibleTiles) {
+                if (!visitor.visitTile(tile)) {
+                    return null;
+                }
+            }
+            for (var segments : visibleSegments.entrySet()) {
+                for (var segment : segments.getValue().entrySet()) {
+                    if (!visitor.visitSegment(segments.getKey(), segment.getKey(),
+                            segment.getValue())) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }).when(mockCalculation).atPoint(any(), anyInt(), any());
+
+        tracker = new VisibilityDeltaTracker(mockCalculation);
+    }
+
+    @Test
+    public void testConstructorWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new VisibilityDeltaTracker(null));
+    }
+
+    @Test
+    public void testFirstUpdateEntersEverything() {
+        var tile1 = makeMockTile(ORIGIN);
+        var tile2 = makeMockTile(coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z));
+        visibleTiles.add(tile1);
+        visibleTiles.add(tile2);
+        var segmentLoc = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z);
+        visibleSegments.get(VERTICAL).put(segmentLoc, mockSegment);
+
+        var delta = tracker.update(mockViewer, mockOriginTile, RADIUS);
+
+        assertEquals(setOf(tile1, tile2), setOf(delta.enteredTiles()));
+        assertTrue(delta.leftTiles().isEmpty());
+        assertEquals(mapOf(pairOf(segmentLoc, mockSegment)),
+                delta.enteredSegments().get(VERTICAL));
+        assertTrue(delta.leftSegments().isEmpty());
+        assertFalse(delta.isEmpty());
+        assertEquals(setOf(ORIGIN, tile2.location()),
+                tracker.visible(mockViewer).tiles().keySet());
+        verify(mockCalculation).atPoint(same(mockOriginTile), eq(RADIUS), any());
+    }
+
+    @Test
+    public void testUpdateWithNothingChangedIsEmpty() {
+        visibleTiles.add(makeMockTile(ORIGIN));
+        visibleSegments.get(CORNER).put(ORIGIN, mockSegment);
+        tracker.update(mockViewer, mockOriginTile, RADIUS);
+
+        var delta = tracker.update(mockViewer, mockOriginTile, RADIUS);
+
+        assertTrue(delta.isEmpty());
+        assertTrue(delta.enteredTiles().isEmpty());
+        assertTrue(delta.leftTiles().isEmpty());
+        assertTrue(delta.enteredSegments().isEmpty());
+        assertTrue(delta.leftSegments().isEmpty());
+    }
+
+    @Test
+    public void testUpdateReportsEnteredAndLeft() {
+        var staying = makeMockTile(ORIGIN);
+        var leaving = makeMockTile(coordinate3dOf(ORIGIN.X - 1, ORIGIN.Y, ORIGIN.Z));
+        var entering = makeMockTile(coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z));
+        var leavingSegmentLoc = coordinate3dOf(ORIGIN.X, ORIGIN.Y, ORIGIN.Z);
+        var enteringSegmentLoc = coordinate3dOf(ORIGIN.X + 1, ORIGIN.Y, ORIGIN.Z);
+        var mockEnteringSegment = mock(WallSegment.class);
+        visibleTiles.add(staying);
+        visibleTiles.add(leaving);
+        visibleSegments.get(HORIZONTAL).put(leavingSegmentLoc, mockSegment);
+        tracker.update(mockViewer, mockOriginTile, RADIUS);
+        visibleTiles.remove(leaving);
+        visibleTiles.add(entering);
+        visibleSegments.get(HORIZONTAL).clear();
+        visibleSegments.get(VERTICAL).put(enteringSegmentLoc, mockEnteringSegment);
+
+        var delta = tracker.update(mockViewer, mockOriginTile, RADIUS);
+
+        assertEquals(listOf(entering), delta.enteredTiles());
+        assertEquals(listOf(leaving), delta.leftTiles());
+        assertEquals(mapOf(pairOf(VERTICAL, mapOf(pairOf(enteringSegmentLoc,
+                mockEnteringSegment)))), delta.enteredSegments());
+        assertEquals(mapOf(pairOf(HORIZONTAL, mapOf(pairOf(leavingSegmentLoc, mockSegment)))),
+                delta.leftSegments());
+    }
+
+    @Test
+    public void testViewersAreTrackedSeparately() {
+        var tile = makeMockTile(ORIGIN);
+        visibleTiles.add(tile);
+        tracker.update(mockViewer, mockOriginTile, RADIUS);
+
+        var delta = tracker.update(mockOtherViewer, mockOriginTile, RADIUS);
+
+        assertEquals(listOf(tile), delta.enteredTiles());
+        assertNull(tracker.visible(mock(Character.class)));
+    }
+
+    @Test
+    public void testForget() {
+        var tile = makeMockTile(ORIGIN);
+        visibleTiles.add(tile);
+        tracker.update(mockViewer, mockOriginTile, RADIUS);
+
+        tracker.forget(mockViewer);
+        var delta = tracker.update(mockViewer, mockOriginTile, RADIUS);
+
+        assertEquals(listOf(tile), delta.enteredTiles());
+    }
+
+    @Test
+    public void testWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> tracker.update(null, mockOriginTile, RADIUS));
+        assertThrows(IllegalArgumentException.class,
+                () -> tracker.update(mockViewer, null, RADIUS));
+        assertThrows(IllegalArgumentException.class,
+                () -> tracker.update(mockViewer, mockOriginTile, -1));
+        assertThrows(IllegalArgumentException.class, () -> tracker.visible(null));
+        assertThrows(IllegalArgumentException.class, () -> tracker.forget(null));
+    }
+}
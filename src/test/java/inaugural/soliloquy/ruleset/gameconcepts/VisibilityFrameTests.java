@@ -0,0 +1,191 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static inaugural.soliloquy.tools.collections.Collections.listOf;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.common.valueobjects.Pair.pairOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+public class VisibilityFrameTests {
+    private final int TURN = randomIntInRange(-1000, 1000);
+    private final int X = randomIntInRange(-10000, 10000);
+    private final int Y = randomIntInRange(-10000, 10000);
+    private final int Z = randomIntInRange(-100, 100);
+
+    @Test
+    public void testEncodeAndDecode() {
+        var frame = new VisibilityFrame(TURN);
+        // Two runs in one row, given out of order, and a tile in another row
+        frame.enteredTiles().add(coordinate3dOf(X + 5, Y, Z));
+        frame.enteredTiles().add(coordinate3dOf(X, Y, Z));
+        frame.enteredTiles().add(coordinate3dOf(X + 1, Y, Z));
+        frame.enteredTiles().add(coordinate3dOf(X + 6, Y, Z));
+        frame.enteredTiles().add(coordinate3dOf(X, Y - 1, Z + 1));
+        frame.leftTiles().add(coordinate3dOf(-X, -Y, -Z));
+        frame.enteredSegments().get(CORNER).add(coordinate3dOf(X, Y, Z));
+        frame.leftSegments().get(VERTICAL).add(coordinate3dOf(X + 1, Y, Z));
+        frame.enteredCharacters().put("character1", coordinate3dOf(X, Y, Z));
+        frame.movedCharacters().put("character2", coordinate3dOf(-X, Y - 1, -Z));
+        frame.leftCharacters().add("charactér3");
+
+        var decoded = VisibilityFrame.decode(frame.encode());
+
+        assertEquals(TURN, decoded.turn());
+        assertEquals(setOf(coordinate3dOf(X, Y, Z), coordinate3dOf(X + 1, Y, Z),
+                        coordinate3dOf(X + 5, Y, Z), coordinate3dOf(X + 6, Y, Z),
+                        coordinate3dOf(X, Y - 1, Z + 1)),
+                setOf(decoded.enteredTiles()));
+        assertEquals(5, decoded.enteredTiles().size());
+        assertEquals(listOf(coordinate3dOf(-X, -Y, -Z)), decoded.leftTiles());
+        assertEquals(listOf(coordinate3dOf(X, Y, Z)), decoded.enteredSegments().get(CORNER));
+        assertTrue(decoded.enteredSegments().get(HORIZONTAL).isEmpty());
+        assertTrue(decoded.enteredSegments().get(VERTICAL).isEmpty());
+        assertEquals(listOf(coordinate3dOf(X + 1, Y, Z)), decoded.leftSegments().get(VERTICAL));
+        assertEquals(mapOf(pairOf("character1", coordinate3dOf(X, Y, Z))),
+                decoded.enteredCharacters());
+        assertEquals(mapOf(pairOf("character2", coordinate3dOf(-X, Y - 1, -Z))),
+                decoded.movedCharacters());
+        assertEquals(listOf("charactér3"), decoded.leftCharacters());
+        assertFalse(decoded.isEmpty());
+    }
+
+    @Test
+    public void testEmptyFrame() {
+        var decoded = VisibilityFrame.decode(new VisibilityFrame(TURN).encode());
+
+        assertEquals(TURN, decoded.turn());
+        assertTrue(decoded.isEmpty());
+    }
+
+    @Test
+    public void testRunsAreEncodedCompactly() {
+        var frame = new VisibilityFrame(TURN);
+        var rowLength = 200;
+        for (var x = 0; x < rowLength; x++) {
+            frame.enteredTiles().add(coordinate3dOf(X + x, Y, Z));
+        }
+
+        var bytes = frame.encode();
+
+        assertTrue(bytes.length < 32);
+        assertEquals(rowLength, VisibilityFrame.decode(bytes).enteredTiles().size());
+    }
+
+    @Test
+    public void testMovedCharacterIsNotEmpty() {
+        var frame = new VisibilityFrame(TURN);
+        frame.movedCharacters().put("character", coordinate3dOf(X, Y, Z));
+
+        assertFalse(frame.isEmpty());
+        assertFalse(VisibilityFrame.decode(frame.encode()).isEmpty());
+    }
+
+    @Test
+    public void testDecodeRejectsCountsBeyondBytesLeft() {
+        var frame = new VisibilityFrame(TURN);
+        frame.leftCharacters().add("character");
+        var bytes = frame.encode();
+        // The last byte of the left characters' count, of the string's length, and of the first
+        // run's length, each claiming far more than the bytes left
+        var hugeCharacterCount = withVarintAt(bytes, bytes.length - "character".length() - 2,
+                Integer.MAX_VALUE);
+        var hugeStringLength = withVarintAt(bytes, bytes.length - "character".length() - 1,
+                Integer.MAX_VALUE);
+        var negativeStringLength = withVarintAt(bytes, bytes.length - "character".length() - 1,
+                -1);
+        var rowFrame = new VisibilityFrame(0);
+        rowFrame.enteredTiles().add(coordinate3dOf(0, 0, 0));
+        var rowBytes = rowFrame.encode();
+        // After the magic number and the turn, the entered tiles' section is one row, Z and Y of
+        // 0, one run, X of 0, then the run's length
+        var hugeRowCount = withVarintAt(rowBytes, 5, Integer.MAX_VALUE);
+        var hugeRunLength = withVarintAt(rowBytes, 10, Integer.MAX_VALUE);
+        var zeroRunLength = withVarintAt(rowBytes, 10, 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> VisibilityFrame.decode(hugeCharacterCount));
+        assertThrows(IllegalArgumentException.class,
+                () -> VisibilityFrame.decode(hugeStringLength));
+        assertThrows(IllegalArgumentException.class,
+                () -> VisibilityFrame.decode(negativeStringLength));
+        assertThrows(IllegalArgumentException.class, () -> VisibilityFrame.decode(hugeRowCount));
+        assertThrows(IllegalArgumentException.class, () -> VisibilityFrame.decode(hugeRunLength));
+        assertThrows(IllegalArgumentException.class, () -> VisibilityFrame.decode(zeroRunLength));
+    }
+
+    @Test
+    public void testDecodeRejectsRunStartsBeyondLargestX() {
+        var frame = new VisibilityFrame(0);
+        frame.enteredTiles().add(coordinate3dOf(0, 0, 0));
+        frame.enteredTiles().add(coordinate3dOf(2, 0, 0));
+        var bytes = frame.encode();
+        // After the magic number and the turn, the entered tiles' section is one row, Z and Y of
+        // 0, two runs, X of 0, a length of 1, then the gap to the second run
+        var hugeGap = withVarintAt(bytes, 11, Integer.MAX_VALUE);
+        var negativeGap = withVarintAt(bytes, 11, -1);
+
+        assertThrows(IllegalArgumentException.class, () -> VisibilityFrame.decode(hugeGap));
+        assertThrows(IllegalArgumentException.class, () -> VisibilityFrame.decode(negativeGap));
+    }
+
+    @Test
+    public void testEncodeLeavesListsInOrder() {
+        var frame = new VisibilityFrame(TURN);
+        var laterRow = coordinate3dOf(X, Y + 1, Z);
+        var earlierRow = coordinate3dOf(X, Y, Z);
+        frame.enteredTiles().add(laterRow);
+        frame.enteredTiles().add(earlierRow);
+
+        frame.encode();
+
+        assertEquals(listOf(laterRow, earlierRow), frame.enteredTiles());
+    }
+
+    @Test
+    public void testDecodeWithInvalidArgs() {
+        var frame = new VisibilityFrame(TURN);
+        frame.enteredTiles().add(coordinate3dOf(X, Y, Z));
+        var bytes = frame.encode();
+        var badMagic = Arrays.copyOf(bytes, bytes.length);
+        badMagic[0]++;
+
+        assertThrows(IllegalArgumentException.class, () -> VisibilityFrame.decode(null));
+        assertThrows(IllegalArgumentException.class, () -> VisibilityFrame.decode(badMagic));
+        assertThrows(IllegalArgumentException.class,
+                () -> VisibilityFrame.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> VisibilityFrame.decode(Arrays.copyOf(bytes, bytes.length + 1)));
+    }
+
+    // The bytes, with the single-byte varint at index replaced by value's varint
+    private static byte[] withVarintAt(byte[] bytes, int index, int value) {
+        var varint = new byte[varintLength(value)];
+        var remaining = value;
+        for (var i = 0; i < varint.length; i++) {
+            varint[i] = (byte) ((remaining & 0x7F) | (i < varint.length - 1 ? 0x80 : 0));
+            remaining >>>= 7;
+        }
+        var replaced = new byte[bytes.length - 1 + varint.length];
+        System.arraycopy(bytes, 0, replaced, 0, index);
+        System.arraycopy(varint, 0, replaced, index, varint.length);
+        System.arraycopy(bytes, index + 1, replaced, index + varint.length,
+                bytes.length - index - 1);
+        return replaced;
+    }
+
+    private static int varintLength(int value) {
+        var length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
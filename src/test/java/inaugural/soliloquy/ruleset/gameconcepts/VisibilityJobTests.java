@@ -0,0 +1,172 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.GameZone;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.entities.GroundType;
+import soliloquy.specs.ruleset.gameconcepts.TileVisibilityRayCalculation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static inaugural.soliloquy.ruleset.gameconcepts.VisibilityTestFixtures.*;
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+
+@ExtendWith(MockitoExtension.class)
+public class VisibilityJobTests {
+    private final int RADIUS = randomIntInRange(2, 10);
+    private final Coordinate3d ORIGIN =
+            coordinate3dOf(randomIntInRange(-10000, 10000), randomIntInRange(-10000, 10000),
+                    randomIntInRange(-100, 100));
+
+    @Mock private TileVisibilityRayCalculation mockRayCalculation;
+    @Mock private Supplier<GameZone> mockGetGameZone;
+    @Mock private Function<Coordinate3d, Integer> mockGetViewCeiling;
+    @Mock private Function<Coordinate3d, Integer> mockGetViewFloor;
+    @Mock private GameZone mockGameZone;
+    @Mock private GroundType mockGroundTypeBlocking;
+    @Mock private GroundType mockGroundTypeTransparent;
+    @Mock private Tile mockOriginTile;
+
+    private List<Coordinate2d> offsets;
+    // Each reading of the clock moves it on by a nanosecond, so a budget of n nanoseconds buys
+    // n rays
+    private long nanoTime;
+
+    private VisibilityJob job;
+
+    @BeforeEach
+    public void setUp() {
+        offsets = new ArrayList<>(TileVisibilityCalculationImpl.perimeterOffsets(RADIUS));
+        // Each ray sees only the tile at its target
+        lenient().when(mockRayCalculation.castRay(any(), any())).thenAnswer(invocation -> {
+            Coordinate3d origin = invocation.getArgument(0);
+            Coordinate2d target = invocation.getArgument(1);
+            var mockTile = mock(Tile.class);
+            when(mockTile.location()).thenReturn(target.to3d(origin.Z));
+            var result = new CompactVisibilityResult(origin);
+            result.addTile(mockTile);
+            return result;
+        });
+
+        job = new VisibilityJob(mockRayCalculation, ORIGIN, offsets, () -> ++nanoTime);
+    }
+
+    @Test
+    public void testRunForStopsWhenBudgetIsSpent() {
+        var budget = randomIntInRange(1, offsets.size() - 1);
+
+        var done = job.runFor(budget);
+
+        assertFalse(done);
+        assertFalse(job.isDone());
+        assertEquals(1, job.slices());
+        assertEquals(budget, job.result().tiles().size());
+        verify(mockRayCalculation, times(budget)).castRay(same(ORIGIN), any());
+    }
+
+    @Test
+    public void testRunForFinishesOverSeveralSlices() {
+        //noinspection StatementWithEmptyBody
+        while (!job.runFor(2)) {
+        }
+
+        assertTrue(job.isDone());
+        assertEquals((offsets.size() + 1) / 2, job.slices());
+        assertEquals(targets(), job.result().tiles().keySet());
+        verify(mockRayCalculation, times(offsets.size())).castRay(any(), any());
+    }
+
+    @Test
+    public void testRunForWhenDone() {
+        job.finish();
+
+        assertTrue(job.runFor(1));
+        assertEquals(0, job.slices());
+        verify(mockRayCalculation, times(offsets.size())).castRay(any(), any());
+    }
+
+    @Test
+    public void testFinish() {
+        job.runFor(1);
+
+        var result = job.finish();
+
+        assertTrue(job.isDone());
+        assertSame(job.result(), result);
+        assertEquals(targets(), result.tiles().keySet());
+    }
+
+    @Test
+    public void testJobMatchesAtPoint() {
+        // Each location always returns the same tiles and segments, so that the job's result can
+        // be compared with a calculation's
+        Map<Coordinate2d, Set<Tile>> tilesAtLocations = mapOf();
+        Map<Coordinate2d, Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>>>
+                segmentsAtLocations = mapOf();
+        lenient().when(mockGroundTypeBlocking.blocksSight()).thenReturn(true);
+        lenient().when(mockGroundTypeTransparent.blocksSight()).thenReturn(false);
+        when(mockOriginTile.location()).thenReturn(ORIGIN);
+        when(mockGameZone.tiles(any())).thenAnswer(invocation ->
+                tilesAtLocations.computeIfAbsent(invocation.getArgument(0),
+                        loc -> makeVariedTiles(loc, ORIGIN.Z, mockGroundTypeTransparent,
+                                mockGroundTypeBlocking)));
+        when(mockGameZone.segments(any())).thenAnswer(invocation ->
+                segmentsAtLocations.computeIfAbsent(invocation.getArgument(0),
+                        loc -> makeVariedSegments(loc, ORIGIN.Z)));
+        when(mockGetGameZone.get()).thenReturn(mockGameZone);
+        var rayCalculation = new TileVisibilityRayCalculationImpl(mockGetGameZone,
+                mockGetViewCeiling, mockGetViewFloor, 10);
+        var expected = new TileVisibilityCalculationImpl(rayCalculation)
+                .atPoint(mockOriginTile, RADIUS);
+        // Each slice visits one column
+        job = new VisibilityJob(rayCalculation, ORIGIN, offsets, () -> ++nanoTime);
+
+        for (var i = 0; i < offsets.size(); i++) {
+            job.runFor(1);
+        }
+
+        // After every ray has visited its first column, nothing far has been found yet
+        for (var loc : job.result().tiles().keySet()) {
+            assertTrue(Math.abs(loc.X - ORIGIN.X) <= 1 && Math.abs(loc.Y - ORIGIN.Y) <= 1);
+        }
+        var result = job.finish();
+        assertEquals(expected.tiles().keySet(), result.tiles().keySet());
+        for (var orientation : WallSegmentOrientation.values()) {
+            assertEquals(expected.segments().get(orientation).keySet(),
+                    result.segments().get(orientation).keySet());
+        }
+    }
+
+    @Test
+    public void testRunForWithInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> job.runFor(0));
+        assertThrows(IllegalArgumentException.class, () -> job.runFor(-1));
+    }
+
+    private Set<Coordinate3d> targets() {
+        Set<Coordinate3d> targets = setOf();
+        for (var offset : offsets) {
+            targets.add(coordinate3dOf(ORIGIN.X + offset.X, ORIGIN.Y + offset.Y, ORIGIN.Z));
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,99 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import soliloquy.specs.common.valueobjects.Coordinate2d;
+import soliloquy.specs.common.valueobjects.Coordinate3d;
+import soliloquy.specs.gamestate.entities.Tile;
+import soliloquy.specs.gamestate.entities.WallSegment;
+import soliloquy.specs.gamestate.entities.WallSegmentOrientation;
+import soliloquy.specs.ruleset.entities.GroundType;
+import soliloquy.specs.ruleset.entities.WallSegmentType;
+
+import java.util.Map;
+import java.util.Set;
+
+import static inaugural.soliloquy.tools.collections.Collections.mapOf;
+import static inaugural.soliloquy.tools.collections.Collections.setOf;
+import static inaugural.soliloquy.tools.random.Random.randomIntInRange;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static soliloquy.specs.common.valueobjects.Coordinate3d.coordinate3dOf;
+import static soliloquy.specs.gamestate.entities.WallSegmentOrientation.*;
+
+// The mock tiles and segments which the visibility tests stand up GameZones from, and the varied
+// terrain which several of them compare calculations over
+final class VisibilityTestFixtures {
+    private VisibilityTestFixtures() {
+    }
+
+    static Tile makeMockTile(Coordinate3d loc) {
+        var mockTile = mock(Tile.class);
+        lenient().when(mockTile.location()).thenReturn(loc);
+        return mockTile;
+    }
+
+    static Tile makeMockTile(Coordinate3d loc, GroundType groundType) {
+        var mockTile = makeMockTile(loc);
+        lenient().when(mockTile.getGroundType()).thenReturn(groundType);
+        return mockTile;
+    }
+
+    static WallSegment makeMockSegment(WallSegmentOrientation orientation, Coordinate3d loc,
+                                       boolean blocking) {
+        var mockSegmentType = mock(WallSegmentType.class);
+        lenient().when(mockSegmentType.orientation()).thenReturn(orientation);
+        lenient().when(mockSegmentType.blocksSight()).thenReturn(blocking);
+        var mockSegment = mock(WallSegment.class);
+        lenient().when(mockSegment.getType()).thenReturn(mockSegmentType);
+        lenient().when(mockSegment.location()).thenReturn(loc);
+        return mockSegment;
+    }
+
+    // GameZone::segments is assumed to return a non-null map for each orientation
+    static Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> populatedMap(
+            WallSegment... segments) {
+        Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> segmentsMap = mapOf();
+        segmentsMap.put(HORIZONTAL, mapOf());
+        segmentsMap.put(CORNER, mapOf());
+        segmentsMap.put(VERTICAL, mapOf());
+        for (var segment : segments) {
+            segmentsMap.get(segment.getType().orientation()).put(segment.location(), segment);
+        }
+        return segmentsMap;
+    }
+
+    // A column of varied terrain around z: transparent ground at z; beneath it, a sight-blocking
+    // floor one time in four; and above it, a sight-blocking tile one time in ten
+    static Set<Tile> makeVariedTiles(Coordinate2d loc, int z, GroundType transparent,
+                                     GroundType blocking) {
+        Set<Tile> tiles = setOf(makeMockTile(loc.to3d(z), transparent));
+        if (randomIntInRange(0, 3) == 0) {
+            tiles.add(makeMockTile(loc.to3d(z - 1), blocking));
+        }
+        if (randomIntInRange(0, 9) == 0) {
+            tiles.add(makeMockTile(loc.to3d(z + 1), blocking));
+        }
+        return tiles;
+    }
+
+    // The sight-blocking segments of a column of varied terrain around z: one to its east one
+    // time in six; one to its south, a level above or below z or at it, one time in six; and one
+    // at its southeastern corner one time in ten
+    static Map<WallSegmentOrientation, Map<Coordinate3d, WallSegment>> makeVariedSegments(
+            Coordinate2d loc, int z) {
+        var segments = populatedMap();
+        if (randomIntInRange(0, 5) == 0) {
+            var segmentLoc = coordinate3dOf(loc.X + 1, loc.Y, z);
+            segments.get(VERTICAL).put(segmentLoc, makeMockSegment(VERTICAL, segmentLoc, true));
+        }
+        if (randomIntInRange(0, 5) == 0) {
+            var segmentLoc = coordinate3dOf(loc.X, loc.Y + 1, z + randomIntInRange(-1, 1));
+            segments.get(HORIZONTAL).put(segmentLoc,
+                    makeMockSegment(HORIZONTAL, segmentLoc, true));
+        }
+        if (randomIntInRange(0, 9) == 0) {
+            var segmentLoc = coordinate3dOf(loc.X + 1, loc.Y + 1, z);
+            segments.get(CORNER).put(segmentLoc, makeMockSegment(CORNER, segmentLoc, true));
+        }
+        return segments;
+    }
+}
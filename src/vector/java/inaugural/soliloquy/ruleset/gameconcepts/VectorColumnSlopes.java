@@ -0,0 +1,50 @@
+package inaugural.soliloquy.ruleset.gameconcepts;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LT;
+
+// Only ever loaded by ColumnSlopes.fastest, when jdk.incubator.vector is present; it's compiled
+// in the vector source set, the only one compiled against the module. Lanes are tested
+// against every blocked range rather than searched, which beats the scalar binary search while
+// there are few ranges, as there nearly always are; past that, it falls back to scalar.
+final class VectorColumnSlopes implements ColumnSlopes {
+    private final static VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private final static VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private final static int MAX_RANGES = 16;
+
+    @Override
+    public void visible(int originZ, float zAddendBelow, float run, int[] zs, int count,
+                        FloatIntervalSet blocked, boolean[] visible) {
+        var ranges = blocked.size();
+        if (ranges > MAX_RANGES) {
+            ScalarColumnSlopes.visible(originZ, zAddendBelow, run, zs, 0, count, blocked,
+                    visible);
+            return;
+        }
+
+        var loopBound = FLOATS.loopBound(count);
+        var i = 0;
+        for (; i < loopBound; i += FLOATS.length()) {
+            var z = (FloatVector) IntVector.fromArray(INTS, zs, i)
+                    .convertShape(VectorOperators.I2F, FLOATS, 0);
+            // As in viewBottomAdjustedZ: Zs below the origin are raised, up to the origin's Z
+            var raised = z.add(zAddendBelow).min(originZ);
+            var slopes = z.blend(raised, z.compare(LT, originZ)).sub(originZ).div(run);
+
+            // A slope is blocked if it lies strictly within any range; NaN slopes never are
+            VectorMask<Float> slopeBlocked = FLOATS.maskAll(false);
+            for (var range = 0; range < ranges; range++) {
+                slopeBlocked = slopeBlocked.or(slopes.compare(GT, blocked.low(range))
+                        .and(slopes.compare(LT, blocked.high(range))));
+            }
+            slopeBlocked.not().intoArray(visible, i);
+        }
+        ScalarColumnSlopes.visible(originZ, zAddendBelow, run, zs, i, count, blocked, visible);
+    }
+}